@@ -20,6 +20,14 @@ public @interface BucketChanged {
    */
   Type type() default Type.UPDATE;
 
+  /**
+   * Index of the parameter that holds the only object key changed by the invocation.
+   * A negative value means the change is not confined to a single object key.
+   *
+   * @return the index of the object key parameter.
+   */
+  int objectKeyIndex() default -1;
+
   enum Type {
     CREATE, // Bucket created
 
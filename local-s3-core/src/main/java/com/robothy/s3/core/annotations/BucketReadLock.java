@@ -5,7 +5,24 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+/**
+ * Denotes a method invocation that reads the bucket. The first parameter of an annotated
+ * method must be the bucket name.
+ *
+ * <p>The invocation shares the bucket lock with other readers and key-scoped writers. If
+ * {@linkplain #objectKeyIndex()} is set, the invocation also holds the read lock of the key,
+ * so that it does not observe a half-applied change of the key.
+ */
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
 public @interface BucketReadLock {
+
+  /**
+   * Index of the parameter that holds the only object key read by the invocation.
+   * A negative value does not lock any object key.
+   *
+   * @return the index of the object key parameter.
+   */
+  int objectKeyIndex() default -1;
+
 }
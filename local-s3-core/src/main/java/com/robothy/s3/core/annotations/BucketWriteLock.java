@@ -5,7 +5,24 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+/**
+ * Denotes a method invocation that modifies the bucket. The first parameter of an annotated
+ * method must be the bucket name.
+ *
+ * <p>By default the invocation holds the exclusive bucket lock. If {@linkplain #objectKeyIndex()}
+ * is set, the invocation only modifies that object key; it holds the write lock of the key and
+ * shares the bucket lock with other key-scoped invocations and readers.
+ */
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
 public @interface BucketWriteLock {
+
+  /**
+   * Index of the parameter that holds the only object key modified by the invocation.
+   * A negative value locks the whole bucket.
+   *
+   * @return the index of the object key parameter.
+   */
+  int objectKeyIndex() default -1;
+
 }
@@ -24,7 +24,7 @@ public class VersionedObjectAssertions {
    * @return the {@linkplain VersionedObjectMetadata} instance.
    */
   public static VersionedObjectMetadata assertVirtualVersionExist(ObjectMetadata objectMetadata) {
-    return objectMetadata.getVirtualVersion().map(virtualVersion -> objectMetadata.getVersionedObjectMap().get(virtualVersion))
+    return objectMetadata.getVirtualVersion().flatMap(objectMetadata::getVersionedObjectMetadata)
         .orElseThrow(() -> new VersionedObjectNotExistException(ObjectMetadata.NULL_VERSION));
   }
 
@@ -0,0 +1,10 @@
+package com.robothy.s3.core.converters.deserializer;
+
+import com.robothy.s3.core.converters.MapToConcurrentSkipListMap;
+import com.robothy.s3.core.model.internal.UploadMetadata;
+
+/**
+ * Convert uploads of a single object key to a {@linkplain java.util.concurrent.ConcurrentSkipListMap} instance.
+ */
+public class KeyUploadsConverter extends MapToConcurrentSkipListMap<String, UploadMetadata> {
+}
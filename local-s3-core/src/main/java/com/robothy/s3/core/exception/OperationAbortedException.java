@@ -0,0 +1,13 @@
+package com.robothy.s3.core.exception;
+
+/**
+ * A conflicting operation holds the resources of the request for too long. Client side exception;
+ * the request can be retried.
+ */
+public class OperationAbortedException extends LocalS3Exception {
+
+  public OperationAbortedException(String msg) {
+    super(S3ErrorCode.OperationAborted, msg);
+  }
+
+}
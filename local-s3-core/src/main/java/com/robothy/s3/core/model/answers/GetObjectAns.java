@@ -1,14 +1,21 @@
 package com.robothy.s3.core.model.answers;
 
+import com.robothy.s3.core.service.locks.EpochReclaimer;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Objects;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Getter;
 
+/**
+ * The answer of GetObject and HeadObject. An answer with content holds the content until it is
+ * closed; the content must not be read after that.
+ */
 @Getter
 @Builder
-public class GetObjectAns {
+public class GetObjectAns implements AutoCloseable {
 
   private String bucketName;
 
@@ -26,7 +33,16 @@ public class GetObjectAns {
 
   private String etag;
 
-  private InputStream content;
+  /**
+   * The object content, read from the storage on demand; {@code null} for HeadObject and delete markers.
+   */
+  private ObjectContent objectContent;
+
+  /**
+   * Keeps the content from being deleted until the answer is closed; {@code null} if there is no content.
+   */
+  @Getter(AccessLevel.NONE)
+  private EpochReclaimer.Guard hold;
 
   private Map<String, String> userMetadata;
 
@@ -37,4 +53,61 @@ public class GetObjectAns {
    * {@code null} when the response is not a ranged result.
    */
   private String contentRange;
+
+  /**
+   * Get the object content as an {@linkplain InputStream}. Each invocation returns
+   * a new stream that reads from the beginning of the content.
+   *
+   * @return the object content, or {@code null} if the answer has no content.
+   */
+  public InputStream getContent() {
+    return objectContent == null ? null : objectContent.getInputStream();
+  }
+
+  /**
+   * Get the object content as a read-only {@linkplain ByteBuffer}. The content is copied
+   * if it is composed of several files.
+   *
+   * @return the object content, or {@code null} if the answer has no content.
+   * @throws IllegalStateException if the content is larger than a buffer.
+   */
+  public ByteBuffer getContentBuffer() {
+    if (objectContent == null) {
+      return null;
+    }
+    if (objectContent.getSize() > Integer.MAX_VALUE) {
+      throw new IllegalStateException("The content of " + objectContent.getSize() + " bytes is too large for a buffer.");
+    }
+    ByteBuffer[] buffers = objectContent.getBuffers();
+    if (buffers.length == 1) {
+      return buffers[0];
+    }
+    ByteBuffer buffer = ByteBuffer.allocate((int) objectContent.getSize());
+    for (ByteBuffer part : buffers) {
+      buffer.put(part);
+    }
+    return buffer.flip().asReadOnlyBuffer();
+  }
+
+  /**
+   * Get the object content as read-only {@linkplain ByteBuffer}s, one for each file of the
+   * content in order, see {@linkplain ObjectContent#getBuffers()}.
+   *
+   * @return the object content, or {@code null} if the answer has no content.
+   */
+  public ByteBuffer[] getContentBuffers() {
+    return objectContent == null ? null : objectContent.getBuffers();
+  }
+
+  /**
+   * Release the content, which may then be deleted. Closing an answer more than once, or from
+   * another thread than the one that got it, is allowed.
+   */
+  @Override
+  public void close() {
+    if (Objects.nonNull(hold)) {
+      hold.close();
+    }
+  }
+
 }
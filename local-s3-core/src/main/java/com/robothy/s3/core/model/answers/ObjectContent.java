@@ -0,0 +1,210 @@
+package com.robothy.s3.core.model.answers;
+
+import com.robothy.s3.core.storage.Storage;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import lombok.Getter;
+import lombok.SneakyThrows;
+
+/**
+ * The content of an object, or of a range of it, composed of ranges of one or more files in the
+ * {@linkplain Storage}, e.g. the parts of a multipart upload. Nothing is read until the content
+ * is consumed.
+ */
+public class ObjectContent {
+
+  /**
+   * The length of a file range that ends at the end of the file.
+   */
+  public static final long TO_END = -1;
+
+  private final Storage storage;
+
+  private final long[] fileIds;
+
+  private final long[] offsets;
+
+  private final long[] lengths;
+
+  /**
+   * The number of bytes of the content.
+   */
+  @Getter
+  private final long size;
+
+  /**
+   * Create an {@linkplain ObjectContent} instance.
+   *
+   * @param storage the storage of the files.
+   * @param size the number of bytes of the content.
+   * @param fileIds the files of the content in order.
+   * @param offsets the offset of the range of each file.
+   * @param lengths the length of the range of each file, or {@linkplain #TO_END}.
+   */
+  public ObjectContent(Storage storage, long size, long[] fileIds, long[] offsets, long[] lengths) {
+    this.storage = storage;
+    this.size = size;
+    this.fileIds = fileIds;
+    this.offsets = offsets;
+    this.lengths = lengths;
+  }
+
+  /**
+   * Read the content into read-only buffers, one for each file in order. In-memory storages
+   * return views of the stored bytes; file based storages read the content into the heap, so
+   * large content should be read with {@linkplain #getChannel()}.
+   *
+   * @return the content.
+   */
+  public ByteBuffer[] getBuffers() {
+    ByteBuffer[] buffers = new ByteBuffer[fileIds.length];
+    for (int i = 0; i < fileIds.length; i++) {
+      buffers[i] = lengths[i] == TO_END && offsets[i] == 0
+          ? storage.getByteBuffer(fileIds[i])
+          : storage.read(fileIds[i], offsets[i], lengths[i]);
+    }
+    return buffers;
+  }
+
+  /**
+   * Open a channel that reads the content from the beginning. Each file is opened when the
+   * channel reaches it.
+   *
+   * @return a new channel, which must be closed.
+   */
+  public ReadableByteChannel getChannel() {
+    return new ContentChannel();
+  }
+
+  /**
+   * Open the file ranges of the content, if the storage keeps each file in a file of its own,
+   * see {@linkplain Storage#getFileChannel(Long, long)}. The ranges can then be transferred
+   * without being read into the heap.
+   *
+   * @return the ranges in order, whose channels must be closed; empty if a file is not stored in a file of its own.
+   */
+  @SneakyThrows
+  public Optional<List<FileRange>> openFileRanges() {
+    List<FileRange> ranges = new ArrayList<>(fileIds.length);
+    try {
+      for (int i = 0; i < fileIds.length; i++) {
+        Optional<FileChannel> channel = storage.getFileChannel(fileIds[i], offsets[i]);
+        if (channel.isEmpty()) {
+          closeAll(ranges);
+          return Optional.empty();
+        }
+        ranges.add(new FileRange(channel.get(), offsets[i], lengths[i]));
+        if (lengths[i] == TO_END) {
+          ranges.set(i, new FileRange(channel.get(), offsets[i], channel.get().size() - offsets[i]));
+        }
+      }
+      return Optional.of(ranges);
+    } catch (Exception e) {
+      closeAll(ranges);
+      throw e;
+    }
+  }
+
+  private static void closeAll(List<FileRange> ranges) throws IOException {
+    for (FileRange range : ranges) {
+      range.channel().close();
+    }
+  }
+
+  /**
+   * A range of a file.
+   *
+   * @param channel the file.
+   * @param position position of the first byte of the range.
+   * @param count number of bytes of the range.
+   */
+  public record FileRange(FileChannel channel, long position, long count) {
+  }
+
+  /**
+   * Open a stream that reads the content from the beginning, see {@linkplain #getChannel()}.
+   *
+   * @return a new stream, which must be closed.
+   */
+  public InputStream getInputStream() {
+    return Channels.newInputStream(getChannel());
+  }
+
+  /**
+   * Reads the ranges of the files one after another.
+   */
+  private class ContentChannel implements ReadableByteChannel {
+
+    private int file = -1;
+
+    private ReadableByteChannel current;
+
+    private long remaining;
+
+    private boolean open = true;
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+      if (!open) {
+        throw new ClosedChannelException();
+      }
+      while (true) {
+        if (current == null) {
+          if (file + 1 == fileIds.length) {
+            return -1;
+          }
+          file++;
+          current = storage.getChannel(fileIds[file], offsets[file]);
+          remaining = lengths[file] == TO_END ? Long.MAX_VALUE : lengths[file];
+        }
+
+        if (remaining > 0) {
+          int limit = dst.limit();
+          if (dst.remaining() > remaining) {
+            dst.limit(dst.position() + (int) remaining);
+          }
+          int n;
+          try {
+            n = current.read(dst);
+          } finally {
+            dst.limit(limit);
+          }
+          if (n >= 0) {
+            remaining -= n;
+            return n;
+          }
+          if (lengths[file] != TO_END) {
+            throw new EOFException("Object id='" + fileIds[file] + "' ended " + remaining + " bytes early.");
+          }
+        }
+        current.close();
+        current = null;
+      }
+    }
+
+    @Override
+    public boolean isOpen() {
+      return open;
+    }
+
+    @Override
+    public void close() throws IOException {
+      open = false;
+      if (current != null) {
+        current.close();
+        current = null;
+      }
+    }
+
+  }
+
+}
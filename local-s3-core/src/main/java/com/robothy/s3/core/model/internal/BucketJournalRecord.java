@@ -0,0 +1,49 @@
+package com.robothy.s3.core.model.internal;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.robothy.s3.core.converters.deserializer.KeyUploadsConverter;
+import java.util.NavigableMap;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A bucket metadata journal record. It holds the state of one object key after a mutation:
+ * the object metadata and the multipart uploads of the key. A {@code null} field means the
+ * object, or the uploads, no longer exist. The generation ties the record to the bucket
+ * snapshot it was appended after; records written before generations existed read as {@code 0}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BucketJournalRecord {
+
+  private long generation;
+
+  private String key;
+
+  private ObjectMetadata object;
+
+  @JsonDeserialize(converter = KeyUploadsConverter.class)
+  private NavigableMap<String, UploadMetadata> uploads;
+
+  /**
+   * Apply this record to {@code bucketMetadata}.
+   *
+   * @param bucketMetadata the bucket metadata to update.
+   */
+  public void applyTo(BucketMetadata bucketMetadata) {
+    if (object == null) {
+      bucketMetadata.removeObjectMetadata(key);
+    } else {
+      bucketMetadata.putObjectMetadata(key, object);
+    }
+
+    if (uploads == null || uploads.isEmpty()) {
+      bucketMetadata.getUploads().remove(key);
+    } else {
+      bucketMetadata.getUploads().put(key, uploads);
+    }
+  }
+
+}
@@ -1,5 +1,6 @@
 package com.robothy.s3.core.model.internal;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.robothy.s3.core.asserionts.ObjectAssertions;
 import com.robothy.s3.core.converters.deserializer.ObjectMetadataMapConverter;
@@ -7,11 +8,17 @@ import com.robothy.s3.core.converters.deserializer.UploadMetadataMapConverter;
 import com.robothy.s3.datatypes.AccessControlPolicy;
 import com.robothy.s3.datatypes.PublicAccessBlockConfiguration;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Setter;
+import lombok.ToString;
 
 @Data
 public class BucketMetadata {
@@ -23,8 +30,23 @@ public class BucketMetadata {
 
   }
 
+  /**
+   * key - object key. Objects are put and removed through {@linkplain #putObjectMetadata(String, ObjectMetadata)}
+   * and {@linkplain #removeObjectMetadata(String)}, which keep {@linkplain #liveObjectMap} up to date.
+   */
   @JsonDeserialize(converter = ObjectMetadataMapConverter.class)
-  private ConcurrentSkipListMap<String, ObjectMetadata> objectMap = new ConcurrentSkipListMap<>();
+  private ConcurrentNavigableMap<String, ObjectMetadata> objectMap = new ConcurrentSkipListMap<>();
+
+  /**
+   * The objects in {@linkplain #objectMap} whose latest version is not a delete marker. Object
+   * listings scan it, so that they never visit deleted keys and a common prefix is listed only
+   * if it has a live key.
+   */
+  @JsonIgnore
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  @Setter(AccessLevel.NONE)
+  private ConcurrentNavigableMap<String, ObjectMetadata> liveObjectMap = new ConcurrentSkipListMap<>();
 
   private long creationDate;
 
@@ -80,9 +102,106 @@ public class BucketMetadata {
   public ObjectMetadata putObjectMetadata(String key, ObjectMetadata objectMetadata) {
     ObjectAssertions.assertObjectKeyIsValid(key);
     objectMap.put(key, objectMetadata);
+    indexLiveObject(key, objectMetadata);
     return objectMetadata;
   }
 
+  /**
+   * Remove an object with all its versions.
+   *
+   * @param key the object key.
+   * @return the removed object metadata; {@code null} if the object does not exist.
+   */
+  public ObjectMetadata removeObjectMetadata(String key) {
+    liveObjectMap.remove(key);
+    return objectMap.remove(key);
+  }
+
+  /**
+   * Set the objects of this bucket and index their live objects with the same kind of index.
+   *
+   * @param objectMap key - object key.
+   */
+  public void setObjectMap(ConcurrentNavigableMap<String, ObjectMetadata> objectMap) {
+    ConcurrentNavigableMap<String, ObjectMetadata> liveObjects = ObjectIndex.of(objectMap).create();
+    objectMap.forEach((key, objectMetadata) -> {
+      if (isLive(objectMetadata)) {
+        liveObjects.put(key, objectMetadata);
+      }
+    });
+    this.objectMap = objectMap;
+    this.liveObjectMap = liveObjects;
+  }
+
+  /**
+   * Get the objects whose latest version is not a delete marker. The returned map is a read-only
+   * view that reflects later changes of the bucket.
+   *
+   * @return key - object key.
+   */
+  public NavigableMap<String, ObjectMetadata> getLiveObjectMap() {
+    return Collections.unmodifiableNavigableMap(liveObjectMap);
+  }
+
+  /**
+   * Rebuild the object indexes of this bucket with {@code objectIndex} if they are of another
+   * kind. The bucket must not be modified concurrently.
+   *
+   * @param objectIndex the kind of the object indexes.
+   */
+  public void useObjectIndex(ObjectIndex objectIndex) {
+    if (ObjectIndex.of(objectMap) != objectIndex) {
+      this.objectMap = objectIndex.copyOf(objectMap);
+      this.liveObjectMap = objectIndex.copyOf(liveObjectMap);
+    }
+  }
+
+  private void indexLiveObject(String key, ObjectMetadata objectMetadata) {
+    if (isLive(objectMetadata)) {
+      liveObjectMap.put(key, objectMetadata);
+    } else {
+      liveObjectMap.remove(key);
+    }
+  }
+
+  private static boolean isLive(ObjectMetadata objectMetadata) {
+    return objectMetadata.getVersionCount() > 0 && !objectMetadata.getLatest().isDeleted();
+  }
+
+  /**
+   * Create a fork of this bucket. The fork has its own object map and uploads, so that the
+   * objects and uploads put in or removed from either bucket are not visible to the other. The
+   * object maps of the fork are {@linkplain ObjectIndex#overlay overlays} of the maps of this
+   * bucket, so forking copies no object and the fork stores only the keys it changes. The object
+   * metadata are shared, since they are replaced instead of modified. The uploads, which are
+   * modified in place and usually few, are copied. This bucket must not be modified after it has
+   * been forked.
+   *
+   * @return a fork of this bucket.
+   */
+  public BucketMetadata fork() {
+    BucketMetadata fork = new BucketMetadata();
+    ObjectIndex objectIndex = ObjectIndex.of(objectMap);
+    fork.objectMap = objectIndex.overlay(objectMap);
+    fork.liveObjectMap = objectIndex.overlay(liveObjectMap);
+    uploads.forEach((key, uploadsOfKey) -> {
+      NavigableMap<String, UploadMetadata> forkedUploads = new ConcurrentSkipListMap<>();
+      uploadsOfKey.forEach((uploadId, upload) -> forkedUploads.put(uploadId, upload.copy()));
+      fork.uploads.put(key, forkedUploads);
+    });
+    fork.creationDate = creationDate;
+    fork.region = region;
+    fork.versioningEnabled = versioningEnabled;
+    fork.bucketName = bucketName;
+    fork.tagging = tagging;
+    fork.acl = acl;
+    fork.policy = policy;
+    fork.replication = replication;
+    fork.encryption = encryption;
+    fork.publicAccessBlock = publicAccessBlock;
+    return fork;
+  }
+
   /**
    * Get tagging of current bucket.
    *
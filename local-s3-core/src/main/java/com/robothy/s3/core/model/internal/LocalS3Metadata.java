@@ -5,10 +5,13 @@ import com.robothy.s3.core.exception.BucketAlreadyExistsException;
 import com.robothy.s3.core.model.internal.s3vectors.LocalS3VectorsMetadata;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
  * Represents medata of a local-s3 service. The instance could be very large.
@@ -17,15 +20,18 @@ import java.util.concurrent.ConcurrentHashMap;
 public class LocalS3Metadata {
 
   /**
-   * Represents the version of {@linkplain LocalS3Metadata} model.
+   * Represents the version of {@linkplain LocalS3Metadata} model. Version 2 persists
+   * bucket metadata in a binary format instead of JSON.
    */
-  public static final long VERSION = 1L;
+  public static final long VERSION = 2L;
 
   private static final Comparator<BucketMetadata> DEFAULT_BUCKET_METADATA_COMPARATOR = Comparator
       .comparing(BucketMetadata::getCreationDate);
   
   private final Map<String, BucketMetadata> bucketMetadataMap = new ConcurrentHashMap<>();
+  private final Map<String, Supplier<BucketMetadata>> lazyBucketMetadataMap = new ConcurrentHashMap<>();
   private final LocalS3VectorsMetadata vectorsMetadata = new LocalS3VectorsMetadata();
+  private volatile ObjectIndex objectIndex = ObjectIndex.SKIP_LIST;
 
   /**
    * List ordered buckets with a comparator.
@@ -34,6 +40,7 @@ public class LocalS3Metadata {
    * @return sorted bucket metadata.
    */
   public List<BucketMetadata> listBuckets(Comparator<BucketMetadata> comparator) {
+    lazyBucketMetadataMap.keySet().forEach(this::getBucketMetadata);
     ArrayList<BucketMetadata> bucketList = new ArrayList<>(bucketMetadataMap.values());
     bucketList.sort(comparator);
     return bucketList;
@@ -51,7 +58,7 @@ public class LocalS3Metadata {
   /**
    * Get bucket metadata map of current {@linkplain LocalS3Metadata} instance.
    * The key represents the bucket name, while the value represents the
-   * bucket metadata.
+   * bucket metadata. Lazily added buckets are absent until first accessed.
    *
    * @return a map of bucket metadata.
    */
@@ -68,6 +75,27 @@ public class LocalS3Metadata {
     return vectorsMetadata;
   }
 
+  /**
+   * Get the kind of object indexes of the buckets.
+   *
+   * @return the kind of object indexes.
+   */
+  public ObjectIndex getObjectIndex() {
+    return objectIndex;
+  }
+
+  /**
+   * Set the kind of object indexes of the buckets. Loaded buckets are converted right away,
+   * lazily added buckets once they are loaded. Must be called before the buckets are accessed
+   * concurrently.
+   *
+   * @param objectIndex the kind of object indexes.
+   */
+  public void setObjectIndex(ObjectIndex objectIndex) {
+    this.objectIndex = objectIndex;
+    bucketMetadataMap.values().forEach(bucketMetadata -> bucketMetadata.useObjectIndex(objectIndex));
+  }
+
   /**
    * Get the metadata of {@code bucketName}.
    *
@@ -75,7 +103,21 @@ public class LocalS3Metadata {
    * @return bucket metadata.
    */
   public Optional<BucketMetadata> getBucketMetadata(String bucketName) {
-    return Optional.ofNullable(bucketMetadataMap.get(bucketName));
+    BucketMetadata bucketMetadata = bucketMetadataMap.get(bucketName);
+    if (bucketMetadata == null && !lazyBucketMetadataMap.isEmpty()) {
+      bucketMetadata = loadLazyBucketMetadata(bucketName);
+    }
+    return Optional.ofNullable(bucketMetadata);
+  }
+
+  /**
+   * Check whether the bucket exists, without loading a lazily added bucket.
+   *
+   * @param bucketName the bucket name.
+   * @return {@code true} if the bucket exists.
+   */
+  public boolean bucketExists(String bucketName) {
+    return bucketMetadataMap.containsKey(bucketName) || lazyBucketMetadataMap.containsKey(bucketName);
   }
 
   /**
@@ -86,7 +128,61 @@ public class LocalS3Metadata {
    */
   public void addBucketMetadata(BucketMetadata bucketMetadata) {
     BucketAssertions.assertBucketNotExists(this, bucketMetadata.getBucketName());
+    bucketMetadata.useObjectIndex(objectIndex);
     this.bucketMetadataMap.put(bucketMetadata.getBucketName(), bucketMetadata);
   }
 
+  /**
+   * Add a bucket whose metadata is loaded by {@code loader} on first access.
+   *
+   * @param bucketName the bucket name.
+   * @param loader loads the bucket metadata.
+   * @throws BucketAlreadyExistsException if the bucket name already used.
+   */
+  public void addLazyBucketMetadata(String bucketName, Supplier<BucketMetadata> loader) {
+    BucketAssertions.assertBucketNotExists(this, bucketName);
+    this.lazyBucketMetadataMap.put(bucketName, loader);
+  }
+
+  /**
+   * Create a copy-on-write fork of this instance. Each bucket is forked with
+   * {@linkplain BucketMetadata#fork()} on first access to the fork, so creating a fork does not
+   * copy any bucket, and accessing a bucket copies its uploads but none of its objects. This
+   * instance must not be modified after it has been forked.
+   *
+   * @return a fork of this instance.
+   */
+  public LocalS3Metadata fork() {
+    LocalS3Metadata fork = new LocalS3Metadata();
+    fork.objectIndex = objectIndex;
+    // A lazy bucket is added to the loaded buckets before it is removed from the lazy ones.
+    Set<String> bucketNames = new LinkedHashSet<>(lazyBucketMetadataMap.keySet());
+    bucketNames.addAll(bucketMetadataMap.keySet());
+    bucketNames.forEach(bucketName -> fork.addLazyBucketMetadata(bucketName,
+        () -> getBucketMetadata(bucketName).orElseThrow().fork()));
+    return fork;
+  }
+
+  /**
+   * Load a lazily added bucket. Callers usually hold the bucket lock, but concurrent
+   * readers may hold its read lock together; the loader itself serializes them.
+   */
+  private BucketMetadata loadLazyBucketMetadata(String bucketName) {
+    Supplier<BucketMetadata> loader = lazyBucketMetadataMap.get(bucketName);
+    if (loader == null) {
+      return bucketMetadataMap.get(bucketName);
+    }
+
+    synchronized (loader) {
+      BucketMetadata bucketMetadata = bucketMetadataMap.get(bucketName);
+      if (bucketMetadata == null && lazyBucketMetadataMap.get(bucketName) == loader) {
+        bucketMetadata = loader.get();
+        bucketMetadata.useObjectIndex(objectIndex);
+        bucketMetadataMap.put(bucketName, bucketMetadata);
+        lazyBucketMetadataMap.remove(bucketName);
+      }
+      return bucketMetadata;
+    }
+  }
+
 }
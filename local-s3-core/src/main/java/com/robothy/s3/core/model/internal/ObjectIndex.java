@@ -0,0 +1,80 @@
+package com.robothy.s3.core.model.internal;
+
+import com.robothy.s3.core.util.OverlayMap;
+import com.robothy.s3.core.util.PrefixCompressedMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The data structure that indexes the objects of a bucket by key.
+ */
+public enum ObjectIndex {
+
+  /**
+   * A {@linkplain ConcurrentSkipListMap}. Each key is stored as its own string.
+   */
+  SKIP_LIST {
+    @Override
+    public <V> ConcurrentNavigableMap<String, V> copyOf(Map<String, V> map) {
+      return new ConcurrentSkipListMap<>(map);
+    }
+  },
+
+  /**
+   * A {@linkplain PrefixCompressedMap}. Adjacent keys share the storage of their common
+   * prefix, which takes much less heap for buckets with many keys under long prefixes, at the
+   * cost of slower writes.
+   */
+  PREFIX_COMPRESSED {
+    @Override
+    public <V> ConcurrentNavigableMap<String, V> copyOf(Map<String, V> map) {
+      return new PrefixCompressedMap<>(map);
+    }
+  };
+
+  /**
+   * Create an empty index.
+   *
+   * @param <V> the value type.
+   * @return an empty index.
+   */
+  public <V> ConcurrentNavigableMap<String, V> create() {
+    return copyOf(Map.of());
+  }
+
+  /**
+   * Create an index with the entries of {@code map}.
+   *
+   * @param map the initial entries.
+   * @param <V> the value type.
+   * @return a new index.
+   */
+  public abstract <V> ConcurrentNavigableMap<String, V> copyOf(Map<String, V> map);
+
+  /**
+   * Create a copy-on-write {@linkplain OverlayMap} over {@code base}, which copies nothing. The
+   * changes are kept in an index of this kind.
+   *
+   * @param base the initial entries; must not be modified afterwards.
+   * @param <V> the value type.
+   * @return a new index.
+   */
+  public <V> ConcurrentNavigableMap<String, V> overlay(ConcurrentNavigableMap<String, V> base) {
+    return new OverlayMap<>(base, create());
+  }
+
+  /**
+   * Get the kind of {@code map}.
+   *
+   * @param map an index created by one of the constants.
+   * @return the kind of {@code map}; the kind of the base of an {@linkplain OverlayMap}.
+   */
+  public static ObjectIndex of(Map<String, ?> map) {
+    if (map instanceof OverlayMap) {
+      return of(((OverlayMap<?>) map).base());
+    }
+    return map instanceof PrefixCompressedMap ? PREFIX_COMPRESSED : SKIP_LIST;
+  }
+
+}
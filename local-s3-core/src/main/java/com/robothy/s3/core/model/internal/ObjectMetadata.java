@@ -3,13 +3,30 @@ package com.robothy.s3.core.model.internal;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.robothy.s3.core.converters.deserializer.VersionedObjectMetadataMapConverter;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 
 /**
  * Represents local-s3 Object metadata.
+ *
+ * <p>Instances published in a {@linkplain BucketMetadata} are read without locks and must not
+ * be modified. A writer modifies a {@linkplain #copy()} and publishes it in place of the
+ * original.
+ *
+ * <p>An object with a single version, which is every object of a bucket where versioning has
+ * never been enabled, holds the version in a field instead of a version map. The map is created
+ * when a second version is put and dropped when a single version is left.
  */
 @Data
 public class ObjectMetadata {
@@ -20,19 +37,52 @@ public class ObjectMetadata {
   public static final String NULL_VERSION = "null";
 
   /**
-   * The most recent instance on the top.
+   * Marks a version ID that is not held as a number.
    */
-  @JsonDeserialize(converter = VersionedObjectMetadataMapConverter.class)
-  private ConcurrentSkipListMap<String, VersionedObjectMetadata> versionedObjectMap =
-      new ConcurrentSkipListMap<>(Comparator.reverseOrder());
+  private static final long NOT_A_NUMBER = -1L;
+
+  private static final String MAX_NUMBER = String.valueOf(Long.MAX_VALUE);
+
+  /**
+   * The most recent instance on the top; {@code null} while the object has at most one version.
+   */
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private ConcurrentSkipListMap<String, VersionedObjectMetadata> versionedObjectMap;
+
+  /**
+   * The only version while {@linkplain #versionedObjectMap} is {@code null}.
+   */
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private VersionedObjectMetadata singleVersion;
+
+  /**
+   * The ID of {@linkplain #singleVersion}. Generated IDs are numbers, which are held in
+   * {@linkplain #singleVersionNumber} instead.
+   */
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private String singleVersionId;
+
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private long singleVersionNumber = NOT_A_NUMBER;
 
   /**
    * Represents a virtual version when bucket versioning is not enabled.
    * The virtual version is an internal field, which is used for sorting
    * versions. It will be mapped to string "null" when returned to the client.
+   * Held in {@linkplain #virtualVersionNumber} if it is a number.
    */
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
   private String virtualVersion;
 
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private long virtualVersionNumber = NOT_A_NUMBER;
+
 
   /**
    * Construct an {@linkplain ObjectMetadata} instance. A new {@linkplain ObjectMetadata} instance must
@@ -47,7 +97,8 @@ public class ObjectMetadata {
   }
 
   /**
-   * No args constructor for jackson. Do not use this constructor.
+   * Construct an {@linkplain ObjectMetadata} without versions. A version must be put before
+   * the instance is published.
    */
   public ObjectMetadata() {
 
@@ -61,17 +112,110 @@ public class ObjectMetadata {
    * @return the {@linkplain VersionedObjectMetadata} object.
    */
   public Optional<VersionedObjectMetadata> getVersionedObjectMetadata(String versionId) {
-    return Optional.ofNullable(versionedObjectMap.get(versionId));
+    if (versionedObjectMap != null) {
+      return Optional.ofNullable(versionedObjectMap.get(versionId));
+    }
+    return isSingleVersion(versionId) ? Optional.of(singleVersion) : Optional.empty();
+  }
+
+  /**
+   * Get all versions of this object, the most recent on the top.
+   *
+   * @return a read-only map from version IDs to versions.
+   */
+  public NavigableMap<String, VersionedObjectMetadata> getVersionedObjectMap() {
+    if (versionedObjectMap != null) {
+      return Collections.unmodifiableNavigableMap(versionedObjectMap);
+    }
+    NavigableMap<String, VersionedObjectMetadata> versions = new TreeMap<>(Comparator.reverseOrder());
+    if (singleVersion != null) {
+      versions.put(getSingleVersionId(), singleVersion);
+    }
+    return Collections.unmodifiableNavigableMap(versions);
+  }
+
+  /**
+   * Replace all versions of this object.
+   *
+   * @param versionedObjectMap version ID - versioned object.
+   */
+  @JsonDeserialize(converter = VersionedObjectMetadataMapConverter.class)
+  public void setVersionedObjectMap(NavigableMap<String, VersionedObjectMetadata> versionedObjectMap) {
+    this.versionedObjectMap = null;
+    setSingleVersion(null, null);
+    versionedObjectMap.forEach(this::putVersionedObjectMetadata);
+  }
+
+  /**
+   * Perform {@code action} on each version, the most recent first, without creating a map.
+   *
+   * @param action accepts a version ID and the version.
+   */
+  public void forEachVersion(BiConsumer<String, VersionedObjectMetadata> action) {
+    if (versionedObjectMap != null) {
+      versionedObjectMap.forEach(action);
+    } else if (singleVersion != null) {
+      action.accept(getSingleVersionId(), singleVersion);
+    }
+  }
+
+  /**
+   * Get the number of versions of this object.
+   *
+   * @return the number of versions.
+   */
+  @JsonIgnore
+  public int getVersionCount() {
+    if (versionedObjectMap != null) {
+      return versionedObjectMap.size();
+    }
+    return singleVersion == null ? 0 : 1;
   }
 
   /**
-   * The same as {@code  getVersionedObjectMap().put(versionId, versionedObjectMetadata)}.
+   * Put a version. If the object has a version of the same ID, it is replaced.
    *
    * @param versionId version ID.
    * @param versionedObjectMetadata versioned object metadata instance.
    */
   public void putVersionedObjectMetadata(String versionId, VersionedObjectMetadata versionedObjectMetadata) {
-    this.versionedObjectMap.put(versionId, versionedObjectMetadata);
+    if (versionedObjectMap == null) {
+      if (singleVersion == null || isSingleVersion(versionId)) {
+        setSingleVersion(versionId, versionedObjectMetadata);
+        return;
+      }
+      versionedObjectMap = new ConcurrentSkipListMap<>(Comparator.reverseOrder());
+      versionedObjectMap.put(getSingleVersionId(), singleVersion);
+      setSingleVersion(null, null);
+    }
+    versionedObjectMap.put(versionId, versionedObjectMetadata);
+  }
+
+  /**
+   * Remove a version.
+   *
+   * @param versionId version ID.
+   * @return the removed version; {@code null} if the object has no such version.
+   */
+  public VersionedObjectMetadata removeVersionedObjectMetadata(String versionId) {
+    if (versionedObjectMap == null) {
+      if (!isSingleVersion(versionId)) {
+        return null;
+      }
+      VersionedObjectMetadata removed = singleVersion;
+      setSingleVersion(null, null);
+      return removed;
+    }
+
+    VersionedObjectMetadata removed = versionedObjectMap.remove(versionId);
+    if (versionedObjectMap.size() <= 1) {
+      Map.Entry<String, VersionedObjectMetadata> last = versionedObjectMap.firstEntry();
+      versionedObjectMap = null;
+      if (last != null) {
+        setSingleVersion(last.getKey(), last.getValue());
+      }
+    }
+    return removed;
   }
 
   /**
@@ -79,7 +223,7 @@ public class ObjectMetadata {
    */
   @JsonIgnore
   public VersionedObjectMetadata getLatest() {
-    return versionedObjectMap.firstEntry().getValue();
+    return versionedObjectMap != null ? versionedObjectMap.firstEntry().getValue() : singleVersion;
   }
 
   /**
@@ -89,7 +233,13 @@ public class ObjectMetadata {
    */
   @JsonIgnore
   public String getLatestVersion() {
-    return versionedObjectMap.firstKey();
+    if (versionedObjectMap != null) {
+      return versionedObjectMap.firstKey();
+    }
+    if (singleVersion == null) {
+      throw new NoSuchElementException();
+    }
+    return getSingleVersionId();
   }
 
   /**
@@ -98,6 +248,78 @@ public class ObjectMetadata {
    * @return the virtual version of the object.
    */
   public Optional<String> getVirtualVersion() {
+    if (virtualVersionNumber != NOT_A_NUMBER) {
+      return Optional.of(String.valueOf(virtualVersionNumber));
+    }
     return Optional.ofNullable(virtualVersion);
   }
+
+  /**
+   * Set the virtual version of this object.
+   *
+   * @param virtualVersion the virtual version; {@code null} if the object has none.
+   */
+  public void setVirtualVersion(String virtualVersion) {
+    this.virtualVersionNumber = virtualVersion == null ? NOT_A_NUMBER : parseNumber(virtualVersion);
+    this.virtualVersion = virtualVersionNumber == NOT_A_NUMBER ? virtualVersion : null;
+  }
+
+  /**
+   * Create a copy of this object to be modified and published in place of it. The versioned
+   * objects are shared, since published versions are not modified either.
+   *
+   * @return a copy of this object.
+   */
+  public ObjectMetadata copy() {
+    ObjectMetadata copy = new ObjectMetadata();
+    copy.versionedObjectMap = versionedObjectMap == null ? null : new ConcurrentSkipListMap<>(versionedObjectMap);
+    copy.singleVersion = singleVersion;
+    copy.singleVersionId = singleVersionId;
+    copy.singleVersionNumber = singleVersionNumber;
+    copy.virtualVersion = virtualVersion;
+    copy.virtualVersionNumber = virtualVersionNumber;
+    return copy;
+  }
+
+  private boolean isSingleVersion(String versionId) {
+    if (singleVersion == null) {
+      return false;
+    }
+    return singleVersionNumber != NOT_A_NUMBER ? parseNumber(versionId) == singleVersionNumber
+        : singleVersionId.equals(versionId);
+  }
+
+  private String getSingleVersionId() {
+    return singleVersionNumber != NOT_A_NUMBER ? String.valueOf(singleVersionNumber) : singleVersionId;
+  }
+
+  private void setSingleVersion(String versionId, VersionedObjectMetadata version) {
+    this.singleVersion = version;
+    this.singleVersionNumber = versionId == null ? NOT_A_NUMBER : parseNumber(versionId);
+    this.singleVersionId = singleVersionNumber == NOT_A_NUMBER ? versionId : null;
+  }
+
+  /**
+   * Parse a version ID that is the decimal string of a non-negative long, as generated by
+   * {@linkplain com.robothy.s3.core.util.IdUtils}.
+   *
+   * @return the number; {@linkplain #NOT_A_NUMBER} if the ID is not such a string.
+   */
+  private static long parseNumber(String versionId) {
+    int length = versionId.length();
+    if (length == 0 || length > MAX_NUMBER.length() || (length > 1 && versionId.charAt(0) == '0')) {
+      return NOT_A_NUMBER;
+    }
+    for (int i = 0; i < length; i++) {
+      char c = versionId.charAt(i);
+      if (c < '0' || c > '9') {
+        return NOT_A_NUMBER;
+      }
+    }
+    if (length == MAX_NUMBER.length() && versionId.compareTo(MAX_NUMBER) > 0) {
+      return NOT_A_NUMBER;
+    }
+    return Long.parseLong(versionId);
+  }
+
 }
@@ -34,4 +34,14 @@ public class UploadMetadata {
   public Optional<String[][]> getTagging() {
     return Optional.ofNullable(tagging);
   }
+
+  /**
+   * Create a copy of this upload with its own parts map. The parts are shared, since they are
+   * replaced instead of modified.
+   *
+   * @return a copy of this upload.
+   */
+  public UploadMetadata copy() {
+    return new UploadMetadata(createDate, contentType, tagging, userMetadata, new ConcurrentSkipListMap<>(parts));
+  }
 }
@@ -1,15 +1,47 @@
 package com.robothy.s3.core.model.internal;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 
+/**
+ * A version of an object. Its fields are laid out to keep the many instances of a large
+ * bucket small: numbers are primitives, an MD5 ETag is held as two longs, and content types
+ * and user metadata keys are interned.
+ */
 @Data
 public class VersionedObjectMetadata {
 
+  /**
+   * Marks the absence of {@linkplain #fileId}.
+   */
+  private static final long NO_FILE = Long.MIN_VALUE;
+
+  private static final int MD5_HEX_LENGTH = 32;
+
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  /**
+   * The ETag if it is not an MD5 hex string; otherwise it is held in {@linkplain #md5High}
+   * and {@linkplain #md5Low}.
+   */
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
   private String etag;
 
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private long md5High;
+
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private long md5Low;
+
   private String contentType;
 
   private long creationDate;
@@ -22,17 +54,128 @@ public class VersionedObjectMetadata {
   private boolean isDeleted;
 
   /**
-   * File ID in {@linkplain com.robothy.s3.core.storage.Storage}.
+   * File ID in {@linkplain com.robothy.s3.core.storage.Storage}; {@linkplain #NO_FILE} for
+   * delete markers and objects composed of parts.
+   */
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private long fileId = NO_FILE;
+
+  /**
+   * File IDs of the parts of an object completed by a multipart upload, in the order of the
+   * object content; {@code null} if the content is a single file.
+   */
+  private long[] partFileIds;
+
+  /**
+   * Offset of each part in {@linkplain #partFileIds} in the object content.
    */
-  private Long fileId;
+  private long[] partOffsets;
 
   private String[][] tagging;
 
   /**
    * <a href="https://docs.aws.amazon.com/AmazonS3/latest/userguide/UsingMetadata.html#UserMetadata">User-defined object metadata</a>.
    */
+  @Setter(AccessLevel.NONE)
   private Map<String, String> userMetadata = Collections.emptyMap();
 
+  /**
+   * Get the ETag of this version.
+   *
+   * @return the ETag.
+   */
+  public String getEtag() {
+    if (etag != null || (md5High == 0 && md5Low == 0)) {
+      return etag;
+    }
+    char[] hex = new char[MD5_HEX_LENGTH];
+    for (int i = 0; i < MD5_HEX_LENGTH / 2; i++) {
+      hex[i] = HEX_DIGITS[(int) (md5High >>> (60 - 4 * i)) & 0xF];
+      hex[i + MD5_HEX_LENGTH / 2] = HEX_DIGITS[(int) (md5Low >>> (60 - 4 * i)) & 0xF];
+    }
+    return new String(hex);
+  }
+
+  /**
+   * Set the ETag of this version. A lowercase MD5 hex string is held as two longs.
+   *
+   * @param etag the ETag.
+   */
+  public void setEtag(String etag) {
+    this.etag = etag;
+    this.md5High = 0;
+    this.md5Low = 0;
+    if (etag == null || etag.length() != MD5_HEX_LENGTH) {
+      return;
+    }
+
+    long high = 0;
+    long low = 0;
+    for (int i = 0; i < MD5_HEX_LENGTH; i++) {
+      char c = etag.charAt(i);
+      int digit = c >= '0' && c <= '9' ? c - '0' : c >= 'a' && c <= 'f' ? c - 'a' + 10 : -1;
+      if (digit < 0) {
+        return;
+      }
+      if (i < MD5_HEX_LENGTH / 2) {
+        high = (high << 4) | digit;
+      } else {
+        low = (low << 4) | digit;
+      }
+    }
+    // The digest of all zeros is kept as a string, since two zero longs mean no digest.
+    if (high != 0 || low != 0) {
+      this.etag = null;
+      this.md5High = high;
+      this.md5Low = low;
+    }
+  }
+
+  /**
+   * Set the content type. Content types are interned, since a few are shared by most objects.
+   *
+   * @param contentType the content type.
+   */
+  public void setContentType(String contentType) {
+    this.contentType = contentType == null ? null : contentType.intern();
+  }
+
+  /**
+   * Get the file ID of the content.
+   *
+   * @return the file ID; {@code null} for delete markers and objects composed of parts.
+   */
+  public Long getFileId() {
+    return fileId == NO_FILE ? null : fileId;
+  }
+
+  /**
+   * Set the file ID of the content.
+   *
+   * @param fileId the file ID; {@code null} if the content is not a single file.
+   */
+  public void setFileId(Long fileId) {
+    this.fileId = fileId == null ? NO_FILE : fileId;
+  }
+
+  /**
+   * Set user-defined metadata. The keys are interned, since objects written by the same
+   * application usually share them.
+   *
+   * @param userMetadata user-defined metadata.
+   */
+  public void setUserMetadata(Map<String, String> userMetadata) {
+    if (userMetadata == null || userMetadata.isEmpty()) {
+      this.userMetadata = Collections.emptyMap();
+      return;
+    }
+    Map<String, String> interned = new HashMap<>(userMetadata.size() * 2);
+    userMetadata.forEach((key, value) -> interned.put(key == null ? null : key.intern(), value));
+    this.userMetadata = interned.containsKey(null) || interned.containsValue(null)
+        ? Collections.unmodifiableMap(interned) : Map.copyOf(interned);
+  }
+
   /**
    * Get object tagging.
    */
@@ -40,4 +183,26 @@ public class VersionedObjectMetadata {
     return Optional.ofNullable(tagging);
   }
 
+  /**
+   * Create a copy of this versioned object to be modified and published in place of it.
+   *
+   * @return a copy of this versioned object.
+   */
+  public VersionedObjectMetadata copy() {
+    VersionedObjectMetadata copy = new VersionedObjectMetadata();
+    copy.etag = etag;
+    copy.md5High = md5High;
+    copy.md5Low = md5Low;
+    copy.contentType = contentType;
+    copy.creationDate = creationDate;
+    copy.size = size;
+    copy.isDeleted = isDeleted;
+    copy.fileId = fileId;
+    copy.partFileIds = partFileIds;
+    copy.partOffsets = partOffsets;
+    copy.tagging = tagging;
+    copy.userMetadata = userMetadata;
+    return copy;
+  }
+
 }
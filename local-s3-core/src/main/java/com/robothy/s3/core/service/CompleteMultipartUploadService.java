@@ -10,16 +10,17 @@ import com.robothy.s3.core.model.answers.PutObjectAns;
 import com.robothy.s3.core.model.internal.BucketMetadata;
 import com.robothy.s3.core.model.internal.UploadMetadata;
 import com.robothy.s3.core.model.internal.UploadPartMetadata;
+import com.robothy.s3.core.model.internal.VersionedObjectMetadata;
 import com.robothy.s3.core.model.request.CompleteMultipartUploadPartOption;
-import com.robothy.s3.core.model.request.PutObjectOptions;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.SequenceInputStream;
+import com.robothy.s3.core.util.S3ObjectUtils;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * Complete a multipart upload.
@@ -27,7 +28,9 @@ import java.util.stream.Collectors;
 public interface CompleteMultipartUploadService extends LocalS3MetadataApplicable, StorageApplicable, PutObjectService {
 
   /**
-   * Compete a multipart upload.
+   * Compete a multipart upload. The completed parts become the content of the new object as
+   * they are: the object records the files of the parts and their offsets instead of
+   * concatenating them into a new file. Uploaded parts that are not completed are deleted.
    *
    * @param bucket the bucket name.
    * @param key the object key.
@@ -35,8 +38,8 @@ public interface CompleteMultipartUploadService extends LocalS3MetadataApplicabl
    * @param completeParts multipart upload parts to complete.
    * @return result of the complete multipart operation.
    */
-  @BucketChanged
-  @BucketWriteLock
+  @BucketChanged(objectKeyIndex = 1)
+  @BucketWriteLock(objectKeyIndex = 1)
   default CompleteMultipartUploadAns completeMultipartUpload(String bucket, String key, String uploadId,
                                                              List<CompleteMultipartUploadPartOption> completeParts) {
     BucketMetadata bucketMetadata = BucketAssertions.assertBucketExists(localS3Metadata(), bucket);
@@ -48,40 +51,45 @@ public interface CompleteMultipartUploadService extends LocalS3MetadataApplicabl
 
     int pre = -1;
     // Check part numbers.
+    List<UploadPartMetadata> parts = new ArrayList<>(completeParts.size());
     for (CompleteMultipartUploadPartOption partOption : completeParts) {
       if (partOption.getPartNumber() <= pre) {
         throw new InvalidPartOrderException();
       }
       pre = partOption.getPartNumber();
-      UploadAssertions.assertPartNumberExists(uploadMetadata, partOption.getPartNumber());
+      parts.add(UploadAssertions.assertPartNumberExists(uploadMetadata, partOption.getPartNumber()));
     }
 
-    Map<Integer, UploadPartMetadata> uploadedParts = uploadMetadata.getParts();
-
-    List<InputStream> inputStreams = completeParts.stream().map(completePart -> uploadedParts.get(completePart.getPartNumber()))
-        .map(uploadPartMetadata -> storage().getInputStream(uploadPartMetadata.getFileId()))
-        .collect(Collectors.toList());
-
-    long size = completeParts.stream().map(CompleteMultipartUploadPartOption::getPartNumber)
-        .map(uploadedParts::get).map(UploadPartMetadata::getSize).reduce(0L, Long::sum);
-
-    PutObjectAns putObjectAns;
-    try(InputStream in = new SequenceInputStream(Collections.enumeration(inputStreams))) {
-      PutObjectOptions putObjectOptions = PutObjectOptions.builder()
-          .size(size)
-          .content(in)
-          .contentType(uploadMetadata.getContentType())
-          .tagging(uploadMetadata.getTagging().orElse(null))
-          .userMetadata(uploadMetadata.getUserMetadata())
-          .build();
+    long[] partFileIds = new long[parts.size()];
+    long[] partOffsets = new long[parts.size()];
+    List<String> partEtags = new ArrayList<>(parts.size());
+    long size = 0;
+    for (int i = 0; i < parts.size(); i++) {
+      UploadPartMetadata part = parts.get(i);
+      partFileIds[i] = part.getFileId();
+      partOffsets[i] = size;
+      partEtags.add(part.getEtag());
+      size += part.getSize();
+    }
 
-      putObjectAns = putObject(bucket, key, putObjectOptions);
-    } catch (IOException e) {
-      throw new IllegalStateException("Failed to concat multipart upload parts.", e);
+    VersionedObjectMetadata versionedObjectMetadata = new VersionedObjectMetadata();
+    versionedObjectMetadata.setPartFileIds(partFileIds);
+    versionedObjectMetadata.setPartOffsets(partOffsets);
+    versionedObjectMetadata.setSize(size);
+    versionedObjectMetadata.setEtag(S3ObjectUtils.multipartEtag(partEtags));
+    versionedObjectMetadata.setContentType(uploadMetadata.getContentType());
+    uploadMetadata.getTagging().ifPresent(versionedObjectMetadata::setTagging);
+    if (Objects.nonNull(uploadMetadata.getUserMetadata())) {
+      versionedObjectMetadata.setUserMetadata(uploadMetadata.getUserMetadata());
     }
+    PutObjectAns putObjectAns = PutObjectService.commitObject(bucketMetadata, storage(), key, versionedObjectMetadata);
 
     // Cleanup
-    uploadedParts.values().forEach(part -> storage().delete(part.getFileId()));
+    Set<UploadPartMetadata> completed = Collections.newSetFromMap(new IdentityHashMap<>());
+    completed.addAll(parts);
+    uploadMetadata.getParts().values().stream()
+        .filter(part -> !completed.contains(part))
+        .forEach(part -> storage().delete(part.getFileId()));
     Map<String, NavigableMap<String, UploadMetadata>> uploads = bucketMetadata.getUploads();
     uploads.get(key).remove(uploadId);
     if (uploads.get(key).isEmpty()) {
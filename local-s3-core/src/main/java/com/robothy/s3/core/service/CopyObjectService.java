@@ -1,31 +1,68 @@
 package com.robothy.s3.core.service;
 
 import com.robothy.s3.core.annotations.BucketChanged;
-import com.robothy.s3.core.annotations.BucketWriteLock;
+import com.robothy.s3.core.asserionts.BucketAssertions;
+import com.robothy.s3.core.asserionts.ObjectAssertions;
 import com.robothy.s3.core.model.answers.CopyObjectAns;
 import com.robothy.s3.core.model.answers.GetObjectAns;
 import com.robothy.s3.core.model.answers.PutObjectAns;
+import com.robothy.s3.core.model.internal.BucketMetadata;
+import com.robothy.s3.core.model.internal.VersionedObjectMetadata;
 import com.robothy.s3.core.model.request.CopyObjectOptions;
 import com.robothy.s3.core.model.request.GetObjectOptions;
-import com.robothy.s3.core.model.request.PutObjectOptions;
+import com.robothy.s3.core.service.locks.BucketLock;
+import com.robothy.s3.core.service.locks.LockedKey;
+import com.robothy.s3.core.util.ObjectContentUtils;
+import com.robothy.s3.core.util.VersionedObjectUtils;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
 
 public interface CopyObjectService extends GetObjectService, PutObjectService, LocalS3MetadataApplicable, StorageApplicable {
 
   /**
    * Creates a copy of an object that is already stored in Local S3.
    *
+   * <p>The copy references the content of the source with
+   * {@linkplain com.robothy.s3.core.storage.Storage#retain(Long)} instead of copying it, so that
+   * copying takes no I/O. The managers always wrap their storage in one that shares contents.
+   *
+   * <p>The source key is read locked and the destination key is write locked during the copy, so
+   * the source version cannot be replaced or deleted while its content is copied. Both are
+   * acquired with {@linkplain BucketLock#keyLocks(java.util.Collection)}, so that copies in
+   * opposite directions never deadlock and unrelated keys are not blocked.
+   *
    * @param bucket destination bucket.
    * @param key destination object key.
    * @param options copy options.
    * @return copy result.
+   * @throws com.robothy.s3.core.exception.OperationAbortedException if the keys are not locked in time.
    */
-  @BucketChanged
-  @BucketWriteLock
+  @BucketChanged(objectKeyIndex = 1)
   default CopyObjectAns copyObject(String bucket, String key, CopyObjectOptions options) {
+    BucketAssertions.assertBucketExists(localS3Metadata(), bucket);
+    ObjectAssertions.assertObjectKeyIsValid(key);
+    Lock lock = BucketLock.getInstance().keyLocks(List.of(
+        LockedKey.read(options.getSourceBucket(), options.getSourceKey()),
+        LockedKey.write(bucket, key)));
+    BucketLock.lock(lock, BucketLock.KEY_LOCKS_TIMEOUT_MILLIS);
+    try {
+      return copyLockedObject(bucket, key, options);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private CopyObjectAns copyLockedObject(String bucket, String key, CopyObjectOptions options) {
     String srcVersion = options.getSourceVersion().orElse(null);
-    GetObjectAns srcObjectAns = getObject(options.getSourceBucket(), options.getSourceKey(),
-        GetObjectOptions.builder().versionId(srcVersion).build());
+    BucketMetadata srcBucketMetadata = BucketAssertions.assertBucketExists(localS3Metadata(), options.getSourceBucket());
+    GetObjectOptions getObjectOptions = GetObjectOptions.builder().versionId(srcVersion).build();
+    GetObjectAns srcObjectAns = Objects.isNull(srcBucketMetadata.getVersioningEnabled())
+        ? GetObjectService.getObjectFromUnVersionedBucket(srcBucketMetadata, storage(), options.getSourceBucket(),
+            options.getSourceKey(), true, getObjectOptions)
+        : GetObjectService.getObject(srcBucketMetadata, storage(), options.getSourceBucket(),
+            options.getSourceKey(), true, getObjectOptions);
 
     if (srcObjectAns.isDeleteMarker()) {
       throw new IllegalArgumentException("The source of a copy request may not specifically refer to a delete marker by version id.");
@@ -41,12 +78,22 @@ public interface CopyObjectService extends GetObjectService, PutObjectService, L
       metadataToUse = srcObjectAns.getUserMetadata();
     }
 
-    PutObjectAns putObjectAns = putObject(bucket, key, PutObjectOptions.builder()
-        .content(srcObjectAns.getContent())
-        .contentType(srcObjectAns.getContentType())
-        .size(srcObjectAns.getSize())
-        .userMetadata(metadataToUse)
-        .build());
+    VersionedObjectMetadata source = VersionedObjectUtils.getVersionedObjectMetadata(
+        srcBucketMetadata.getObjectMetadata(options.getSourceKey()).get(), srcVersion);
+    // Share the source content instead of copying it.
+    ObjectContentUtils.retain(storage(), source);
+    VersionedObjectMetadata versionedObjectMetadata = new VersionedObjectMetadata();
+    versionedObjectMetadata.setFileId(source.getFileId());
+    versionedObjectMetadata.setPartFileIds(source.getPartFileIds());
+    versionedObjectMetadata.setPartOffsets(source.getPartOffsets());
+    versionedObjectMetadata.setEtag(source.getEtag());
+    versionedObjectMetadata.setSize(source.getSize());
+    versionedObjectMetadata.setContentType(source.getContentType());
+    if (Objects.nonNull(metadataToUse)) {
+      versionedObjectMetadata.setUserMetadata(metadataToUse);
+    }
+    BucketMetadata bucketMetadata = BucketAssertions.assertBucketExists(localS3Metadata(), bucket);
+    PutObjectAns putObjectAns = PutObjectService.commitObject(bucketMetadata, storage(), key, versionedObjectMetadata);
 
     return CopyObjectAns.builder()
         .sourceVersionId(srcObjectAns.getVersionId())
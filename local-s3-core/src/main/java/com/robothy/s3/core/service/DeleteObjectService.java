@@ -11,6 +11,7 @@ import com.robothy.s3.core.model.internal.ObjectMetadata;
 import com.robothy.s3.core.model.internal.VersionedObjectMetadata;
 import com.robothy.s3.core.storage.Storage;
 import com.robothy.s3.core.util.IdUtils;
+import com.robothy.s3.core.util.ObjectContentUtils;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -19,14 +20,14 @@ import java.util.Optional;
  */
 public interface DeleteObjectService extends LocalS3MetadataApplicable, StorageApplicable {
 
-  @BucketChanged
-  @BucketWriteLock
+  @BucketChanged(objectKeyIndex = 1)
+  @BucketWriteLock(objectKeyIndex = 1)
   default DeleteObjectAns deleteObject(String bucketName, String key) {
     return deleteObject(bucketName, key, null);
   }
 
-  @BucketChanged
-  @BucketWriteLock
+  @BucketChanged(objectKeyIndex = 1)
+  @BucketWriteLock(objectKeyIndex = 1)
   default DeleteObjectAns deleteObject(String bucketName, String key, String versionId) {
     BucketMetadata bucketMetadata = BucketAssertions.assertBucketExists(localS3Metadata(), bucketName);
     if (Objects.isNull(bucketMetadata.getVersioningEnabled())) {
@@ -42,10 +43,9 @@ public interface DeleteObjectService extends LocalS3MetadataApplicable, StorageA
       throw new LocalS3InvalidArgumentException("versionId", versionId);
     }
 
-    ObjectMetadata removedObject = bucketMetadata.getObjectMap().remove(key);
+    ObjectMetadata removedObject = bucketMetadata.removeObjectMetadata(key);
     if (Objects.nonNull(removedObject)) { // the object exists
-      VersionedObjectMetadata removedVersion = removedObject.getVersionedObjectMap().firstEntry().getValue();
-      storage.delete(removedVersion.getFileId());
+      ObjectContentUtils.retire(storage, removedObject.getLatest());
     }
     return DeleteObjectAns.builder().build();
   }
@@ -70,24 +70,24 @@ public interface DeleteObjectService extends LocalS3MetadataApplicable, StorageA
     Optional<ObjectMetadata> objectMetadataOpt = bucketMetadata.getObjectMetadata(key);
     String returnedVersionId;
     if (objectMetadataOpt.isPresent()) { // key exists
-      ObjectMetadata objectMetadata = objectMetadataOpt.get();
+      ObjectMetadata objectMetadata = objectMetadataOpt.get().copy();
+      VersionedObjectMetadata removed = null;
       VersionedObjectMetadata deleteMarker = createDeleteMarker();
       String versionId = IdUtils.defaultGenerator().nextStrId();
       if (Boolean.TRUE.equals(bucketMetadata.getVersioningEnabled())) { // versioning enabled
         objectMetadata.putVersionedObjectMetadata(versionId, deleteMarker);
         returnedVersionId = versionId;
       } else { // versioning disabled.
-        objectMetadata.putVersionedObjectMetadata(versionId, deleteMarker);
+        // Remove the replaced virtual version first, so that an object with a single version stays compact.
         if (objectMetadata.getVirtualVersion().isPresent()) {
-          VersionedObjectMetadata removed =
-              objectMetadata.getVersionedObjectMap().remove(objectMetadata.getVirtualVersion().get());
-          if (!removed.isDeleted()) {
-            storage.delete(removed.getFileId());
-          }
+          removed = objectMetadata.removeVersionedObjectMetadata(objectMetadata.getVirtualVersion().get());
         }
+        objectMetadata.putVersionedObjectMetadata(versionId, deleteMarker);
         objectMetadata.setVirtualVersion(versionId);
         returnedVersionId = ObjectMetadata.NULL_VERSION;
       }
+      bucketMetadata.putObjectMetadata(key, objectMetadata);
+      ObjectContentUtils.retire(storage, removed);
     } else { // key not exists.
       VersionedObjectMetadata deleteMarker = createDeleteMarker();
       String versionId = returnedVersionId = IdUtils.defaultGenerator().nextStrId();
@@ -124,36 +124,33 @@ public interface DeleteObjectService extends LocalS3MetadataApplicable, StorageA
    */
   // Java8 doesn't support private method in interfaces. Using static to make the target compatible with Java8
   static DeleteObjectAns deleteWithVersionId(Storage storage, BucketMetadata bucketMetadata, String key, String versionId) {
-    ObjectMetadata objectMetadata = ObjectAssertions.assertObjectExists(bucketMetadata, key);
-    boolean isDeleteMarker = false;
+    ObjectMetadata objectMetadata = ObjectAssertions.assertObjectExists(bucketMetadata, key).copy();
+    VersionedObjectMetadata removed = null;
     if (ObjectMetadata.NULL_VERSION.equals(versionId)) {
       Optional<String> virtualVersionOpt = objectMetadata.getVirtualVersion();
       if (virtualVersionOpt.isPresent()) {
-        VersionedObjectMetadata toRemove = objectMetadata.getVersionedObjectMap().remove(virtualVersionOpt.get());
-        isDeleteMarker = toRemove.isDeleted();
-        if (!isDeleteMarker) {
-          storage.delete(toRemove.getFileId());
-        }
+        removed = objectMetadata.removeVersionedObjectMetadata(virtualVersionOpt.get());
         objectMetadata.setVirtualVersion(null);
       }
     } else {
       Optional<VersionedObjectMetadata> versionedObjectMetadataOpt = objectMetadata.getVersionedObjectMetadata(versionId);
       if (versionedObjectMetadataOpt.isPresent()
           && !objectMetadata.getVirtualVersion().map(versionId::equals).orElse(false)) {
-        VersionedObjectMetadata removed = objectMetadata.getVersionedObjectMap().remove(versionId);
-        isDeleteMarker = removed.isDeleted();
-        if (!isDeleteMarker) {
-          storage.delete(removed.getFileId());
-        }
+        removed = objectMetadata.removeVersionedObjectMetadata(versionId);
       }
     }
 
-    if (objectMetadata.getVersionedObjectMap().isEmpty()) {
-      bucketMetadata.getObjectMap().remove(key);
+    if (Objects.nonNull(removed)) {
+      if (objectMetadata.getVersionCount() == 0) {
+        bucketMetadata.removeObjectMetadata(key);
+      } else {
+        bucketMetadata.putObjectMetadata(key, objectMetadata);
+      }
+      ObjectContentUtils.retire(storage, removed);
     }
 
     return DeleteObjectAns.builder()
-        .isDeleteMarker(isDeleteMarker)
+        .isDeleteMarker(Objects.nonNull(removed) && removed.isDeleted())
         .versionId(versionId)
         .build();
   }
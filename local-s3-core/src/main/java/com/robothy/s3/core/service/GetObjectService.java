@@ -1,6 +1,5 @@
 package com.robothy.s3.core.service;
 
-import com.robothy.s3.core.annotations.BucketReadLock;
 import com.robothy.s3.core.asserionts.BucketAssertions;
 import com.robothy.s3.core.asserionts.ObjectAssertions;
 import com.robothy.s3.core.asserionts.VersionedObjectAssertions;
@@ -8,28 +7,36 @@ import com.robothy.s3.core.exception.LocalS3InvalidArgumentException;
 import com.robothy.s3.core.exception.ObjectNotExistException;
 import com.robothy.s3.core.exception.VersionedObjectNotExistException;
 import com.robothy.s3.core.model.answers.GetObjectAns;
+import com.robothy.s3.core.model.answers.ObjectContent;
 import com.robothy.s3.core.model.internal.BucketMetadata;
 import com.robothy.s3.core.model.internal.ObjectMetadata;
 import com.robothy.s3.core.model.internal.VersionedObjectMetadata;
 import com.robothy.s3.core.model.request.GetObjectOptions;
+import com.robothy.s3.core.service.locks.EpochReclaimer;
 import com.robothy.s3.core.storage.Storage;
-import com.robothy.s3.core.util.RangeUtils;
-import java.io.InputStream;
+import com.robothy.s3.core.util.ObjectContentUtils;
 import java.util.Objects;
 import java.util.Optional;
 
 public interface GetObjectService extends StorageApplicable, LocalS3MetadataApplicable {
 
   /**
-   * Get object.
+   * Get object. Runs without bucket or key locks: it reads the published snapshot of the object
+   * metadata, and the epoch it pins keeps the content from being deleted while it is looked up.
+   * The content is then held until the returned answer is closed, so the answer must be closed
+   * once its content has been consumed, e.g. after it has been written to the client.
    */
-  @BucketReadLock
   default GetObjectAns getObject(String bucketName, String key, GetObjectOptions options) {
-    BucketMetadata bucketMetadata = BucketAssertions.assertBucketExists(localS3Metadata(), bucketName);
-    if (Objects.isNull(bucketMetadata.getVersioningEnabled())) {
-      return getObjectFromUnVersionedBucket(bucketMetadata, storage(), bucketName, key, false, options);
+    EpochReclaimer.Guard guard = EpochReclaimer.getInstance().enter();
+    try {
+      BucketMetadata bucketMetadata = BucketAssertions.assertBucketExists(localS3Metadata(), bucketName);
+      if (Objects.isNull(bucketMetadata.getVersioningEnabled())) {
+        return getObjectFromUnVersionedBucket(bucketMetadata, storage(), bucketName, key, false, options);
+      }
+      return getObject(bucketMetadata, storage(), bucketName, key, false, options);
+    } finally {
+      guard.close();
     }
-    return getObject(bucketMetadata, storage(), bucketName, key, false, options);
   }
 
   static GetObjectAns getObjectFromUnVersionedBucket(BucketMetadata bucketMetadata, Storage storage,
@@ -43,7 +50,7 @@ public interface GetObjectService extends StorageApplicable, LocalS3MetadataAppl
     long fullSize = latestObject.getSize();
     long contentLength = fullSize;
     String contentRange = null;
-    InputStream content = null;
+    ObjectContent content = null;
 
     if (options.getRange().isPresent()) {
       long[] range = options.getRange().get().resolve(fullSize);
@@ -51,10 +58,10 @@ public interface GetObjectService extends StorageApplicable, LocalS3MetadataAppl
       contentLength = end - start + 1;
       contentRange = "bytes " + start + "-" + end + "/" + fullSize;
       if (!metadataOnly) {
-        content = RangeUtils.applyRange(storage.getInputStream(latestObject.getFileId()), start, contentLength);
+        content = ObjectContentUtils.content(storage, latestObject, start, contentLength);
       }
     } else if (!metadataOnly) {
-      content = storage.getInputStream(latestObject.getFileId());
+      content = ObjectContentUtils.content(storage, latestObject);
     }
 
     return GetObjectAns.builder()
@@ -63,7 +70,8 @@ public interface GetObjectService extends StorageApplicable, LocalS3MetadataAppl
         .contentType(latestObject.getContentType())
         .lastModified(latestObject.getCreationDate())
         .size(contentLength)
-        .content(content)
+        .objectContent(content)
+        .hold(metadataOnly ? null : ObjectContentUtils.hold(latestObject))
         .etag(latestObject.getEtag())
         .contentRange(contentRange)
         .userMetadata(latestObject.getUserMetadata())
@@ -122,7 +130,7 @@ public interface GetObjectService extends StorageApplicable, LocalS3MetadataAppl
       long fullSize = versionedObjectMetadata.getSize();
       long contentLength = fullSize;
       String contentRange = null;
-      InputStream content = null;
+      ObjectContent content = null;
 
       if (options.getRange().isPresent()) {
         long[] range = options.getRange().get().resolve(fullSize);
@@ -130,10 +138,10 @@ public interface GetObjectService extends StorageApplicable, LocalS3MetadataAppl
         contentLength = end - start + 1;
         contentRange = "bytes " + start + "-" + end + "/" + fullSize;
         if (!metadataOnly) {
-          content = RangeUtils.applyRange(storage.getInputStream(versionedObjectMetadata.getFileId()), start, contentLength);
+          content = ObjectContentUtils.content(storage, versionedObjectMetadata, start, contentLength);
         }
       } else if (!metadataOnly) {
-        content = storage.getInputStream(versionedObjectMetadata.getFileId());
+        content = ObjectContentUtils.content(storage, versionedObjectMetadata);
       }
 
       return GetObjectAns.builder()
@@ -143,7 +151,8 @@ public interface GetObjectService extends StorageApplicable, LocalS3MetadataAppl
           .contentType(versionedObjectMetadata.getContentType())
           .lastModified(versionedObjectMetadata.getCreationDate())
           .size(contentLength)
-          .content(content)
+          .objectContent(content)
+          .hold(metadataOnly ? null : ObjectContentUtils.hold(versionedObjectMetadata))
           .etag(versionedObjectMetadata.getEtag())
           .contentRange(contentRange)
           .taggingCount(versionedObjectMetadata.getTagging().map(tagging -> tagging.length).orElse(0))
@@ -153,14 +162,13 @@ public interface GetObjectService extends StorageApplicable, LocalS3MetadataAppl
   }
 
   /**
-   * Get metadata of the specified object.
+   * Get metadata of the specified object. Runs without bucket or key locks.
    *
    * @param bucketName the bucket name.
    * @param key the object key.
    * @param options options.
    * @return versioned object with metadata only.
    */
-  @BucketReadLock
   default GetObjectAns headObject(String bucketName, String key, GetObjectOptions options) {
     BucketMetadata bucketMetadata = BucketAssertions.assertBucketExists(localS3Metadata(), bucketName);
     if (Objects.isNull(bucketMetadata.getVersioningEnabled())) {
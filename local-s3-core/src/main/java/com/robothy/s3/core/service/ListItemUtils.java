@@ -38,7 +38,7 @@ public class ListItemUtils {
       return filteredByMarker;
     }
 
-    String fromKey = filteredByMarker.ceilingKey(commonPrefix + Character.MAX_VALUE);
+    String fromKey = keyAfterPrefix(filteredByMarker, commonPrefix);
     if (Objects.isNull(fromKey)) {
       return emptyItemMap();
     }
@@ -61,7 +61,7 @@ public class ListItemUtils {
       return filteredByMarker;
     }
 
-    String fromKey = filteredByMarker.ceilingKey(firstKeyCommonPrefix + Character.MAX_VALUE);
+    String fromKey = keyAfterPrefix(filteredByMarker, firstKeyCommonPrefix);
     if (Objects.isNull(fromKey)) {
       return emptyItemMap();
     }
@@ -76,7 +76,7 @@ public class ListItemUtils {
     }
 
     String fromKey = filteredByKeyMarker.floorKey(prefix);
-    String toKey = filteredByKeyMarker.floorKey(prefix + Character.MAX_VALUE);
+    String toKey = lastKeyWithPrefix(filteredByKeyMarker, prefix);
     if (Objects.isNull(toKey)) {
       return emptyItemMap();
     }
@@ -89,6 +89,51 @@ public class ListItemUtils {
     return filteredByKeyMarker.subMap(fromKey, fromKeyInclusive, toKey, true);
   }
 
+  /**
+   * Get the least string that is greater than every string starting with {@code prefix}, which
+   * is the prefix with its last character incremented after dropping trailing
+   * {@linkplain Character#MAX_VALUE}s. Unlike {@code prefix + Character.MAX_VALUE}, it is also
+   * greater than keys that continue with {@linkplain Character#MAX_VALUE}.
+   *
+   * @param prefix a key prefix.
+   * @return the successor of the prefix, or {@code null} if every string that is greater than
+   *     the prefix starts with it.
+   */
+  public static String prefixSuccessor(String prefix) {
+    int end = prefix.length();
+    while (end > 0 && prefix.charAt(end - 1) == Character.MAX_VALUE) {
+      end--;
+    }
+    if (end == 0) {
+      return null;
+    }
+    return prefix.substring(0, end - 1) + (char) (prefix.charAt(end - 1) + 1);
+  }
+
+  /**
+   * Get the first key after all keys starting with {@code prefix}.
+   *
+   * @return the key, or {@code null} if there is none.
+   */
+  public static String keyAfterPrefix(NavigableMap<String, ?> keyToItems, String prefix) {
+    String successor = prefixSuccessor(prefix);
+    return Objects.isNull(successor) ? null : keyToItems.ceilingKey(successor);
+  }
+
+  /**
+   * Get the last key that is not after all keys starting with {@code prefix}, which is the last
+   * key starting with {@code prefix} if there is one.
+   *
+   * @return the key, or {@code null} if there is none.
+   */
+  public static String lastKeyWithPrefix(NavigableMap<String, ?> keyToItems, String prefix) {
+    String successor = prefixSuccessor(prefix);
+    if (Objects.isNull(successor)) {
+      return keyToItems.isEmpty() ? null : keyToItems.lastKey();
+    }
+    return keyToItems.lowerKey(successor);
+  }
+
   public static String calculateCommonPrefix(String key, String delimiter) {
     return key.substring(0, key.indexOf(delimiter) + delimiter.length());
   }
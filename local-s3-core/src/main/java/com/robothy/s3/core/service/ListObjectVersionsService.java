@@ -14,16 +14,21 @@ import com.robothy.s3.datatypes.response.DeleteMarkerEntry;
 import com.robothy.s3.datatypes.response.ObjectVersion;
 import com.robothy.s3.datatypes.response.VersionItem;
 import java.time.Instant;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Objects;
-import java.util.Set;
 
 public interface ListObjectVersionsService extends LocalS3MetadataApplicable {
 
-
+  /**
+   * List object versions. Only the keys in the range of {@code prefix} are visited, a common
+   * prefix is skipped as a whole once it is listed, and the listing stops as soon as
+   * {@code maxKeys} items are listed.
+   */
   @BucketReadLock
   default ListObjectVersionsAns listObjectVersions(String bucket, String delimiter, String keyMarker, int maxKeys, String prefix, String versionIdMarker) {
     BucketMetadata bucketMetadata = BucketAssertions.assertBucketExists(localS3Metadata(), bucket);
@@ -32,11 +37,12 @@ public interface ListObjectVersionsService extends LocalS3MetadataApplicable {
       throw new IllegalArgumentException("A version-id marker cannot be specified without a key marker.");
     }
 
-    List<VersionItem> versionItems = new LinkedList<>();
-    List<String> commonPrefixes = new LinkedList<>();
+    List<VersionItem> versionItems = new ArrayList<>();
+    List<String> commonPrefixes = new ArrayList<>();
 
+    NavigableMap<String, ObjectMetadata> candidates = ListItemUtils.filterByPrefix(bucketMetadata.getObjectMap(), prefix);
     int prefixLen = Objects.isNull(prefix) ? 0 : prefix.length();
-    Set<String> candidateKeys;
+    String key;
     String nextVersionIdMarker;
     String nextKeyMarker;
     int delimiterIndex;
@@ -67,16 +73,16 @@ public interface ListObjectVersionsService extends LocalS3MetadataApplicable {
         } else {
           nextVersionIdMarker = versions.lastKey();
         }
-      } else { // The keyMarker has a common prefix
-        commonPrefixes.add(keyMarker.substring(0, delimiterIndex + 1));
+        key = candidates.higherKey(keyMarker);
+      } else { // The common prefix of the keyMarker has been listed.
         nextVersionIdMarker = objectMetadata.getVersionedObjectMap().lastKey();
+        key = ListItemUtils.keyAfterPrefix(candidates, keyMarker.substring(0, delimiterIndex + delimiter.length()));
       }
 
       nextKeyMarker = keyMarker;
-      candidateKeys = bucketMetadata.getObjectMap().tailMap(keyMarker, false).keySet();
     } else {
       nextVersionIdMarker = nextKeyMarker = null;
-      candidateKeys = bucketMetadata.getObjectMap().keySet();
+      key = candidates.isEmpty() ? null : candidates.firstKey();
     }
 
     int keyCount = versionItems.size() + commonPrefixes.size();
@@ -91,23 +97,23 @@ public interface ListObjectVersionsService extends LocalS3MetadataApplicable {
 
     /*-- Process remaining keys. --*/
 
-    for (String key : candidateKeys) {
-      if (Objects.nonNull(prefix) && !key.startsWith(prefix)) {
-        continue;
-      }
-
-      ObjectMetadata objectMetadata = bucketMetadata.getObjectMetadata(key).get();
+    // Iterate the keys in order, and only seek when a common prefix is skipped.
+    Iterator<Map.Entry<String, ObjectMetadata>> entries = entriesFrom(candidates, key);
+    while (keyCount < maxKeys && entries.hasNext()) {
+      Map.Entry<String, ObjectMetadata> entry = entries.next();
+      key = entry.getKey();
       if (Objects.nonNull(delimiter) && -1 != (delimiterIndex = key.indexOf(delimiter, prefixLen))) {
-        commonPrefixes.add(key.substring(0, delimiterIndex + 1));
+        String commonPrefix = key.substring(0, delimiterIndex + delimiter.length());
+        commonPrefixes.add(commonPrefix);
         nextVersionIdMarker = null;
+        entries = entriesFrom(candidates, ListItemUtils.keyAfterPrefix(candidates, commonPrefix));
       } else {
+        ObjectMetadata objectMetadata = entry.getValue();
         nextVersionIdMarker = fetchVersions(versionItems, commonPrefixes, key, objectMetadata.getVersionedObjectMap(), true, maxKeys, objectMetadata.getVirtualVersion().orElse(null));
       }
       nextKeyMarker = key;
 
-      if ((keyCount = commonPrefixes.size() + versionItems.size()) == maxKeys) {
-        break;
-      }
+      keyCount = commonPrefixes.size() + versionItems.size();
     }
 
     return ListObjectVersionsAns.builder()
@@ -118,6 +124,21 @@ public interface ListObjectVersionsService extends LocalS3MetadataApplicable {
         .build();
   }
 
+  /**
+   * Iterate the entries of {@code candidates} from {@code fromKey}.
+   *
+   * @param candidates the objects to list.
+   * @param fromKey the first key to iterate; {@code null} if there is no key to iterate.
+   * @return an iterator of the entries from {@code fromKey}, inclusive.
+   */
+  private static Iterator<Map.Entry<String, ObjectMetadata>> entriesFrom(NavigableMap<String, ObjectMetadata> candidates,
+                                                                         String fromKey) {
+    if (Objects.isNull(fromKey)) {
+      return Collections.emptyIterator();
+    }
+    return candidates.tailMap(fromKey, true).entrySet().iterator();
+  }
+
   /**
    * Fetch {@code versions} to {@code versionItems}.
    *
@@ -41,7 +41,7 @@ public interface ListObjectsService extends LocalS3MetadataApplicable {
     String effectivePrefix = Objects.toString(prefix, "");
 
     NavigableMap<String, ObjectMetadata> objectsAfterMarker =
-            ListItemUtils.filterByKeyMarkerAndDelimiterForListObjects(bucketMetadata.getObjectMap(), marker, effectivePrefix, delimiter);
+            ListItemUtils.filterByKeyMarkerAndDelimiterForListObjects(bucketMetadata.getLiveObjectMap(), marker, effectivePrefix, delimiter);
     NavigableMap<String, ObjectMetadata> filteredByPrefix = ListItemUtils.filterByPrefix(objectsAfterMarker, prefix);
 
     ListObjectsAns listObjectsAns = listObjectsAndCommonPrefixes(filteredByPrefix, effectivePrefix, delimiter, maxKeys);
@@ -52,6 +52,12 @@ public interface ListObjectsService extends LocalS3MetadataApplicable {
     return listObjectsAns;
   }
 
+  /**
+   * List the objects and common prefixes of {@code filteredObjects}, which should contain only
+   * live objects. Once a key is condensed into a common prefix, the listing seeks to the first
+   * key after the prefix instead of iterating the keys under it, so the cost is proportional to
+   * the number of listed items rather than to the number of keys under the common prefixes.
+   */
   static ListObjectsAns listObjectsAndCommonPrefixes(NavigableMap<String, ObjectMetadata> filteredObjects, String effectivePrefix, String delimiter, int maxKeys) {
     if (filteredObjects.isEmpty() || 0 == maxKeys) {
       return ListObjectsAns.builder()
@@ -60,28 +66,32 @@ public interface ListObjectsService extends LocalS3MetadataApplicable {
         .build();
     }
 
-    List<S3Object> objects = new LinkedList<>();
+    List<S3Object> objects = new ArrayList<>();
     Set<String> commonPrefixes = new TreeSet<>();
 
     String nextMarker = null;
 
-    for (Iterator<String> keyIterator = filteredObjects.keySet().iterator(); keyIterator.hasNext(); ) {
-      String key = keyIterator.next();
-      if (filteredObjects.get(key).getLatest().isDeleted()) {
-        continue;
+    for (String key = filteredObjects.firstKey(); Objects.nonNull(key); ) {
+      Optional<String> commonPrefixOpt = ListItemUtils.commonPrefix(key, effectivePrefix, delimiter);
+      String nextKey;
+      if (commonPrefixOpt.isPresent()) {
+        commonPrefixes.add(commonPrefixOpt.get());
+        nextKey = ListItemUtils.keyAfterPrefix(filteredObjects, commonPrefixOpt.get());
+      } else {
+        ObjectMetadata objectMetadata = filteredObjects.get(key);
+        if (Objects.nonNull(objectMetadata)) { // Not removed after the key was found.
+          objects.add(fetchLatestObject(key, objectMetadata));
+        }
+        nextKey = filteredObjects.higherKey(key);
       }
 
-      ListItemUtils.commonPrefix(key, effectivePrefix, delimiter).ifPresentOrElse(
-              commonPrefixes::add,
-              () -> objects.add(fetchLatestObject(key, filteredObjects.get(key))));
-
       int keyCount = commonPrefixes.size() + objects.size();
 
       if (keyCount == maxKeys) {
-        nextMarker = calculateNextMarker(filteredObjects, key, keyIterator, effectivePrefix, delimiter);
+        nextMarker = Objects.isNull(nextKey) ? null : commonPrefixOpt.orElse(key);
         break;
       }
-
+      key = nextKey;
     }
 
     return ListObjectsAns.builder()
@@ -94,25 +104,6 @@ public interface ListObjectsService extends LocalS3MetadataApplicable {
       .build();
   }
 
-  static String calculateNextMarker(NavigableMap<String, ObjectMetadata> filteredObjects,
-          String currentKey, Iterator<String> keyIterator, String effectivePrefix, String delimiter) {
-
-    Optional<String> commonPrefixOpt = ListItemUtils.commonPrefix(currentKey, effectivePrefix, delimiter);
-    if (commonPrefixOpt.isEmpty()) {
-      return keyIterator.hasNext() ? currentKey : null;
-    }
-
-    String commonPrefix = commonPrefixOpt.get();
-    while (keyIterator.hasNext()) {
-      String key = keyIterator.next();
-      if (!key.startsWith(commonPrefix) && !filteredObjects.get(key).getLatest().isDeleted()) {
-        return commonPrefix;
-      }
-    }
-
-    return null;
-  }
-
   static S3Object fetchLatestObject(String key, ObjectMetadata objectMetadata) {
     VersionedObjectMetadata latest = objectMetadata.getLatest();
     S3Object object = new S3Object();
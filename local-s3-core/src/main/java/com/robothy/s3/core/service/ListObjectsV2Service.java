@@ -60,7 +60,7 @@ public interface ListObjectsV2Service extends ListObjectsService {
             return null;
         }
 
-        return bucketMetadata.getObjectMap().floorKey(nextMarker + Character.MAX_VALUE);
+        return ListItemUtils.lastKeyWithPrefix(bucketMetadata.getLiveObjectMap(), nextMarker);
     }
 
     static void removeOwner(ListObjectsV2Ans listObjectsV2Ans) {
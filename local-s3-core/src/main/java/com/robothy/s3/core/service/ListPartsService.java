@@ -20,7 +20,7 @@ import java.util.SortedMap;
  **/
 public interface ListPartsService extends LocalS3MetadataApplicable {
 
-  @BucketReadLock
+  @BucketReadLock(objectKeyIndex = 1)
   default ListPartsAns listParts(String bucket, String key, String uploadId, Integer maxParts, Integer partNumberMarker) {
     LocalS3Metadata s3Metadata = localS3Metadata();
     BucketMetadata bucketMetadata = BucketAssertions.assertBucketExists(s3Metadata, bucket);
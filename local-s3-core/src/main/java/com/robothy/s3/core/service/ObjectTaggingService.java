@@ -26,8 +26,8 @@ public interface ObjectTaggingService extends LocalS3MetadataApplicable {
    * @param tagging new tagging of the versioned object.
    * @return version ID where the new tagging applies to.
    */
-  @BucketChanged
-  @BucketWriteLock
+  @BucketChanged(objectKeyIndex = 1)
+  @BucketWriteLock(objectKeyIndex = 1)
   default String putObjectTagging(String bucketName, String key, String versionId, String[][] tagging) {
     BucketMetadata bucketMetadata = BucketAssertions.assertBucketExists(localS3Metadata(), bucketName);
     ObjectMetadata objectMetadata = ObjectAssertions.assertObjectExists(bucketMetadata, key);
@@ -35,7 +35,7 @@ public interface ObjectTaggingService extends LocalS3MetadataApplicable {
     if (versionedObjectMetadata.isDeleted()) {
       throw new MethodNotAllowedException("Cannot put object tagging to a delete marker.");
     }
-    versionedObjectMetadata.setTagging(tagging);
+    VersionedObjectUtils.replaceTagging(bucketMetadata, key, versionId, tagging);
     return VersionedObjectUtils.resolveReturnedVersion(objectMetadata, versionId);
   }
 
@@ -47,7 +47,7 @@ public interface ObjectTaggingService extends LocalS3MetadataApplicable {
    * @param versionId version ID.
    * @return versioned object tagging.
    */
-  @BucketReadLock
+  @BucketReadLock(objectKeyIndex = 1)
   default GetObjectTaggingAns getObjectTagging(String bucketName, String key, String versionId) {
     BucketMetadata bucketMetadata = BucketAssertions.assertBucketExists(localS3Metadata(), bucketName);
     ObjectMetadata objectMetadata = ObjectAssertions.assertObjectExists(bucketMetadata, key);
@@ -70,8 +70,8 @@ public interface ObjectTaggingService extends LocalS3MetadataApplicable {
    * @param versionId version ID.
    * @return version ID of the object where the tagging is deleted from.
    */
-  @BucketChanged
-  @BucketWriteLock
+  @BucketChanged(objectKeyIndex = 1)
+  @BucketWriteLock(objectKeyIndex = 1)
   default String deleteObjectTagging(String bucketName, String key, String versionId) {
     BucketMetadata bucketMetadata = BucketAssertions.assertBucketExists(localS3Metadata(), bucketName);
     ObjectMetadata objectMetadata = ObjectAssertions.assertObjectExists(bucketMetadata, key);
@@ -79,7 +79,7 @@ public interface ObjectTaggingService extends LocalS3MetadataApplicable {
     if (versionedObjectMetadata.isDeleted()) {
       throw new MethodNotAllowedException("Cannot delete object tagging from a delete marker.");
     }
-    versionedObjectMetadata.setTagging(null);
+    VersionedObjectUtils.replaceTagging(bucketMetadata, key, versionId, null);
     return VersionedObjectUtils.resolveReturnedVersion(objectMetadata, versionId);
   }
 
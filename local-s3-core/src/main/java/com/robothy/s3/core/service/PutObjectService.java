@@ -1,20 +1,26 @@
 package com.robothy.s3.core.service;
 
 import com.robothy.s3.core.annotations.BucketChanged;
-import com.robothy.s3.core.annotations.BucketWriteLock;
 import com.robothy.s3.core.asserionts.BucketAssertions;
+import com.robothy.s3.core.asserionts.ObjectAssertions;
 import com.robothy.s3.core.exception.LocalS3BadDigestException;
 import com.robothy.s3.core.model.answers.PutObjectAns;
 import com.robothy.s3.core.model.internal.BucketMetadata;
 import com.robothy.s3.core.model.internal.ObjectMetadata;
 import com.robothy.s3.core.model.internal.VersionedObjectMetadata;
 import com.robothy.s3.core.model.request.PutObjectOptions;
+import com.robothy.s3.core.service.locks.BucketLock;
+import com.robothy.s3.core.storage.Storage;
 import com.robothy.s3.core.util.IdUtils;
+import com.robothy.s3.core.util.ObjectContentUtils;
 import com.robothy.s3.core.util.S3ObjectUtils;
+import org.apache.commons.codec.binary.Hex;
 
+import java.security.DigestInputStream;
 import java.util.Base64;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.locks.Lock;
 
 /**
  *
@@ -33,52 +39,98 @@ import java.util.Optional;
  */
 public interface PutObjectService extends LocalS3MetadataApplicable, StorageApplicable {
 
-  @BucketChanged
-  @BucketWriteLock
+  /**
+   * Put an object in two phases. The content is written to the storage without holding the
+   * bucket lock; only the metadata commit holds the bucket write lock. The written content is
+   * deleted if the commit fails.
+   */
+  @BucketChanged(objectKeyIndex = 1)
   default PutObjectAns putObject(String bucketName, String key, PutObjectOptions options) {
-    BucketMetadata bucketMetadata = BucketAssertions.assertBucketExists(localS3Metadata(), bucketName);
+    BucketAssertions.assertBucketExists(localS3Metadata(), bucketName);
+    ObjectAssertions.assertObjectKeyIsValid(key);
+    VersionedObjectMetadata versionedObjectMetadata = stageObject(storage(), options);
 
-    String versionId = IdUtils.defaultGenerator().nextStrId();
+    Lock lock = BucketLock.getInstance().keyWriteLock(bucketName, key);
+    lock.lock();
+    try {
+      BucketMetadata bucketMetadata;
+      try {
+        bucketMetadata = BucketAssertions.assertBucketExists(localS3Metadata(), bucketName);
+      } catch (RuntimeException e) {
+        storage().delete(versionedObjectMetadata.getFileId());
+        throw e;
+      }
+      return commitObject(bucketMetadata, storage(), key, versionedObjectMetadata);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Write the object content to the storage. Requires no lock.
+   *
+   * @param storage the storage.
+   * @param options put object options.
+   * @return the metadata of the written object; the version is not yet part of any bucket.
+   */
+  static VersionedObjectMetadata stageObject(Storage storage, PutObjectOptions options) {
     VersionedObjectMetadata versionedObjectMetadata = new VersionedObjectMetadata();
-    versionedObjectMetadata.setCreationDate(System.currentTimeMillis());
     versionedObjectMetadata.setContentType(options.getContentType());
     versionedObjectMetadata.setSize(options.getSize());
     if (Objects.nonNull(options.getUserMetadata())) {
       versionedObjectMetadata.setUserMetadata(options.getUserMetadata());
     }
-    Long fileId = storage().put(options.getContent());
+    // Calculate the MD5 digest while writing to avoid reading the stored object again.
+    DigestInputStream content = S3ObjectUtils.md5DigestInputStream(options.getContent());
+    Long fileId = storage.put(content);
     versionedObjectMetadata.setFileId(fileId);
 
-    versionedObjectMetadata.setEtag(S3ObjectUtils.etag(storage().getInputStream(fileId)));
-    checkRequestingMd5Header(options, fileId, versionedObjectMetadata.getEtag());
+    byte[] md5 = content.getMessageDigest().digest();
+    versionedObjectMetadata.setEtag(Hex.encodeHexString(md5));
+    checkRequestingMd5Header(storage, options, fileId, md5);
     options.getTagging().ifPresent(versionedObjectMetadata::setTagging);
+    return versionedObjectMetadata;
+  }
 
-    ObjectMetadata objectMetadata;
-    if (bucketMetadata.getObjectMetadata(key).isPresent()) {
-      objectMetadata = bucketMetadata.getObjectMetadata(key).get();
-      objectMetadata.putVersionedObjectMetadata(versionId, versionedObjectMetadata);
-    } else {
-      objectMetadata = new ObjectMetadata(versionId, versionedObjectMetadata);
-      bucketMetadata.putObjectMetadata(key, objectMetadata);
-    }
+  /**
+   * Add a staged object version to the bucket and free the replaced virtual version.
+   * The version ID and creation date are assigned here, so that versions are ordered by
+   * commit. Requires the key write lock.
+   *
+   * <p>A new snapshot of the object is published, and the content of the replaced version is
+   * deleted once no lock-free reader may still be reading it.
+   *
+   * @param bucketMetadata the bucket metadata.
+   * @param storage the storage.
+   * @param key the object key.
+   * @param versionedObjectMetadata the staged object version.
+   * @return result of the put object operation.
+   */
+  static PutObjectAns commitObject(BucketMetadata bucketMetadata, Storage storage, String key,
+                                   VersionedObjectMetadata versionedObjectMetadata) {
+    String versionId = IdUtils.defaultGenerator().nextStrId();
+    versionedObjectMetadata.setCreationDate(System.currentTimeMillis());
+
+    ObjectMetadata objectMetadata = bucketMetadata.getObjectMetadata(key)
+        .map(ObjectMetadata::copy)
+        .orElseGet(ObjectMetadata::new);
 
     String returnedVersionId = versionId;
+    VersionedObjectMetadata previousVersion = null;
     if (!Boolean.TRUE.equals(bucketMetadata.getVersioningEnabled())) {
       returnedVersionId = Objects.isNull(bucketMetadata.getVersioningEnabled()) ? null : ObjectMetadata.NULL_VERSION;
 
+      // Remove the replaced virtual version first, so that an object with a single version stays compact.
       Optional<String> virtualVersionOpt = objectMetadata.getVirtualVersion();
       if (virtualVersionOpt.isPresent()) {
-        String lastVirtualVersion = virtualVersionOpt.get();
-        VersionedObjectMetadata previousVersion = objectMetadata.getVersionedObjectMap().remove(lastVirtualVersion);
-        if (Objects.nonNull(previousVersion.getFileId())) { // Not a delete marker.
-          storage().delete(previousVersion.getFileId());
-        }
-
-        objectMetadata.setVirtualVersion(versionId);
-      } else {
-        objectMetadata.setVirtualVersion(versionId);
+        previousVersion = objectMetadata.removeVersionedObjectMetadata(virtualVersionOpt.get());
       }
+      objectMetadata.setVirtualVersion(versionId);
     }
+    objectMetadata.putVersionedObjectMetadata(versionId, versionedObjectMetadata);
+
+    bucketMetadata.putObjectMetadata(key, objectMetadata);
+    ObjectContentUtils.retire(storage, previousVersion);
 
     return PutObjectAns.builder()
         .key(key)
@@ -88,19 +140,13 @@ public interface PutObjectService extends LocalS3MetadataApplicable, StorageAppl
         .build();
   }
 
-  private void checkRequestingMd5Header(PutObjectOptions options, Long fileId, String etag) {
+  private static void checkRequestingMd5Header(Storage storage, PutObjectOptions options, Long fileId, byte[] md5) {
     // Validate Content-MD5 header if present.
     if (Objects.nonNull(options.getContentMd5())) {
-      try {
-        byte[] md5Bytes = org.apache.commons.codec.binary.Hex.decodeHex(etag);
-        String computedBase64 = Base64.getEncoder().encodeToString(md5Bytes);
-        if (!computedBase64.equals(options.getContentMd5())) {
-          storage().delete(fileId);
-          throw new LocalS3BadDigestException("The Content-MD5 you specified did not match what we received.");
-        }
-      } catch (org.apache.commons.codec.DecoderException e) {
-        storage().delete(fileId);
-        throw new LocalS3BadDigestException("Invalid Content-MD5 header.");
+      String computedBase64 = Base64.getEncoder().encodeToString(md5);
+      if (!computedBase64.equals(options.getContentMd5())) {
+        storage.delete(fileId);
+        throw new LocalS3BadDigestException("The Content-MD5 you specified did not match what we received.");
       }
     }
   }
@@ -1,7 +1,6 @@
 package com.robothy.s3.core.service;
 
 import com.robothy.s3.core.annotations.BucketChanged;
-import com.robothy.s3.core.annotations.BucketWriteLock;
 import com.robothy.s3.core.asserionts.BucketAssertions;
 import com.robothy.s3.core.asserionts.UploadAssertions;
 import com.robothy.s3.core.model.answers.UploadPartAns;
@@ -9,8 +8,10 @@ import com.robothy.s3.core.model.internal.BucketMetadata;
 import com.robothy.s3.core.model.internal.UploadMetadata;
 import com.robothy.s3.core.model.internal.UploadPartMetadata;
 import com.robothy.s3.core.model.request.UploadPartOptions;
+import com.robothy.s3.core.service.locks.BucketLock;
 import com.robothy.s3.core.util.S3ObjectUtils;
-import java.util.NavigableMap;
+import java.security.DigestInputStream;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Uploads a part in a multipart upload.
@@ -18,7 +19,8 @@ import java.util.NavigableMap;
 public interface UploadPartService extends LocalS3MetadataApplicable, StorageApplicable {
 
   /**
-   * Upload part for an initialized upload.
+   * Upload part for an initialized upload. The part is written to the storage without holding
+   * the bucket lock; only adding it to the upload holds the bucket write lock.
    *
    * @param bucket the bucket name.
    * @param key the object key of the upload.
@@ -27,25 +29,39 @@ public interface UploadPartService extends LocalS3MetadataApplicable, StorageApp
    * @param options options of upload the upload part operation.
    * @return result of the upload part.
    */
-  @BucketChanged
-  @BucketWriteLock
+  @BucketChanged(objectKeyIndex = 1)
   default UploadPartAns uploadPart(String bucket, String key, String uploadId, Integer partNumber, UploadPartOptions options) {
-    BucketMetadata bucketMetadata = BucketAssertions.assertBucketExists(localS3Metadata(), bucket);
-    UploadMetadata uploadMetadata = UploadAssertions.assertUploadExists(bucketMetadata, key, uploadId);
-    NavigableMap<Integer, UploadPartMetadata> parts = uploadMetadata.getParts();
-    if (parts.containsKey(partNumber)) {
-      UploadPartMetadata uploadPartMetadata = parts.get(partNumber);
-      storage().delete(uploadPartMetadata.getFileId());
-    }
+    UploadAssertions.assertUploadExists(BucketAssertions.assertBucketExists(localS3Metadata(), bucket), key, uploadId);
 
-    Long fileId = storage().put(options.getData());
+    // Calculate the MD5 digest while writing to avoid reading the stored part again.
+    DigestInputStream data = S3ObjectUtils.md5DigestInputStream(options.getData());
+    Long fileId = storage().put(data);
     UploadPartMetadata uploadPartMetadata = UploadPartMetadata.builder()
         .fileId(fileId)
         .lastModified(System.currentTimeMillis())
         .size(options.getContentLength())
-        .etag(options.getETag().orElseGet(() -> S3ObjectUtils.etag(storage().getInputStream(fileId))))
+        .etag(options.getETag().orElseGet(() -> S3ObjectUtils.etag(data.getMessageDigest())))
         .build();
-    parts.put(partNumber, uploadPartMetadata);
+
+    Lock lock = BucketLock.getInstance().keyWriteLock(bucket, key);
+    lock.lock();
+    try {
+      UploadMetadata uploadMetadata;
+      try {
+        BucketMetadata bucketMetadata = BucketAssertions.assertBucketExists(localS3Metadata(), bucket);
+        uploadMetadata = UploadAssertions.assertUploadExists(bucketMetadata, key, uploadId);
+      } catch (RuntimeException e) {
+        storage().delete(fileId);
+        throw e;
+      }
+      UploadPartMetadata replaced = uploadMetadata.getParts().put(partNumber, uploadPartMetadata);
+      if (replaced != null) {
+        storage().delete(replaced.getFileId());
+      }
+    } finally {
+      lock.unlock();
+    }
+
     return UploadPartAns.builder()
         .etag(uploadPartMetadata.getEtag())
         .build();
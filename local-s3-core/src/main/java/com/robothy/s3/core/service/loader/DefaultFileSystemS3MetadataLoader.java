@@ -5,10 +5,6 @@ import com.robothy.s3.core.model.internal.LocalS3Metadata;
 import com.robothy.s3.core.storage.FileSystemBucketMetadataStore;
 import com.robothy.s3.core.storage.MetadataStore;
 import com.robothy.s3.core.util.PathUtils;
-import java.io.File;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Objects;
 
@@ -18,25 +14,46 @@ import java.util.Objects;
  */
 public class DefaultFileSystemS3MetadataLoader implements FileSystemS3MetadataLoader {
 
-  private static final String VERSION_FILE_NAME = "version";
+  private final int parallelism;
+
+  private final boolean lazy;
+
+  private final MetadataLoadMetrics loadMetrics = new MetadataLoadMetrics();
+
+  public DefaultFileSystemS3MetadataLoader() {
+    this(ParallelMetadataFetcher.DEFAULT_PARALLELISM, false);
+  }
+
+  /**
+   * Create a loader.
+   *
+   * @param parallelism max number of threads that fetch bucket metadata.
+   * @param lazy if {@code true}, only bucket names are loaded; the metadata of a bucket is fetched on first access.
+   */
+  public DefaultFileSystemS3MetadataLoader(int parallelism, boolean lazy) {
+    this.parallelism = parallelism;
+    this.lazy = lazy;
+  }
 
   @Override
   public LocalS3Metadata load(Path s3DataPath) {
     Objects.requireNonNull(s3DataPath);
     PathUtils.createDirectoryIfNotExit(s3DataPath);
-    File versionFile = new File(s3DataPath.toFile(), VERSION_FILE_NAME);
     LocalS3Metadata s3Metadata = new LocalS3Metadata();
-    if (!versionFile.exists()) {
-      try {
-        Files.write(versionFile.toPath(), String.valueOf(LocalS3Metadata.VERSION).getBytes(StandardCharsets.UTF_8));
-      } catch (IOException e) {
-        throw new IllegalStateException("Failed to load S3 metadata from " + s3DataPath);
-      }
-    }
-
     MetadataStore<BucketMetadata> bucketMetaStore = FileSystemBucketMetadataStore.create(s3DataPath);
-    bucketMetaStore.fetchAll().forEach(s3Metadata::addBucketMetadata);
+    MetadataVersionUpgrader.upgradeIfNeeded(s3DataPath, bucketMetaStore);
+    if (lazy) {
+      bucketMetaStore.listNames().forEach(bucketName -> s3Metadata.addLazyBucketMetadata(bucketName,
+          ParallelMetadataFetcher.timedFetch(bucketMetaStore, bucketName, loadMetrics)));
+    } else {
+      ParallelMetadataFetcher.fetchAll(bucketMetaStore, parallelism, loadMetrics).forEach(s3Metadata::addBucketMetadata);
+    }
     return s3Metadata;
   }
 
+  @Override
+  public MetadataLoadMetrics getLoadMetrics() {
+    return loadMetrics;
+  }
+
 }
@@ -17,6 +17,17 @@ public interface FileSystemS3MetadataLoader {
     return new DefaultFileSystemS3MetadataLoader();
   }
 
+  /**
+   * Create a {@linkplain FileSystemS3MetadataLoader} with default implementation.
+   *
+   * @param parallelism max number of threads that fetch bucket metadata.
+   * @param lazy if {@code true}, the metadata of a bucket is fetched on first access instead of at load time.
+   * @return a new {@linkplain FileSystemS3MetadataLoader} instance.
+   */
+  static FileSystemS3MetadataLoader create(int parallelism, boolean lazy) {
+    return new DefaultFileSystemS3MetadataLoader(parallelism, lazy);
+  }
+
   /**
    * Load {@linkplain LocalS3Metadata} from the given {@code s3Path}.
    *
@@ -25,4 +36,11 @@ public interface FileSystemS3MetadataLoader {
    */
   LocalS3Metadata load(Path s3Path);
 
+  /**
+   * Get load times of the buckets loaded so far.
+   *
+   * @return load metrics of this loader.
+   */
+  MetadataLoadMetrics getLoadMetrics();
+
 }
@@ -0,0 +1,51 @@
+package com.robothy.s3.core.service.loader;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Records how long loading the metadata of each bucket took.
+ */
+@Slf4j
+public class MetadataLoadMetrics {
+
+  private final Map<String, Long> loadTimeNanos = new ConcurrentHashMap<>();
+
+  /**
+   * Record the load time of a bucket.
+   *
+   * @param bucketName the loaded bucket.
+   * @param nanos load time in nanoseconds.
+   */
+  public void record(String bucketName, long nanos) {
+    loadTimeNanos.put(bucketName, nanos);
+    log.debug("Loaded metadata of bucket {} in {} ms.", bucketName, TimeUnit.NANOSECONDS.toMillis(nanos));
+  }
+
+  /**
+   * Get load times of loaded buckets.
+   *
+   * @return bucket name to load time in nanoseconds.
+   */
+  public Map<String, Long> getLoadTimeNanos() {
+    return Collections.unmodifiableMap(loadTimeNanos);
+  }
+
+  /**
+   * Log the number of loaded buckets, the elapsed time and the slowest bucket.
+   *
+   * @param elapsedNanos wall-clock time of loading all buckets.
+   */
+  void logSummary(long elapsedNanos) {
+    if (loadTimeNanos.isEmpty()) {
+      return;
+    }
+    Map.Entry<String, Long> slowest = Collections.max(loadTimeNanos.entrySet(), Map.Entry.comparingByValue());
+    log.info("Loaded metadata of {} buckets in {} ms; the slowest is {} ({} ms).", loadTimeNanos.size(),
+        TimeUnit.NANOSECONDS.toMillis(elapsedNanos), slowest.getKey(), TimeUnit.NANOSECONDS.toMillis(slowest.getValue()));
+  }
+
+}
@@ -0,0 +1,77 @@
+package com.robothy.s3.core.service.loader;
+
+import com.robothy.s3.core.model.internal.BucketMetadata;
+import com.robothy.s3.core.model.internal.LocalS3Metadata;
+import com.robothy.s3.core.storage.MetadataStore;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Upgrades the bucket metadata of a data directory to {@linkplain LocalS3Metadata#VERSION}.
+ *
+ * <ul>
+ *   <li>Version 1 stores each bucket as JSON.</li>
+ *   <li>Version 2 stores each bucket in the binary format of
+ *   {@linkplain com.robothy.s3.core.storage.BucketMetadataCodec}.</li>
+ * </ul>
+ *
+ * <p>The store reads both formats, so an upgrade that fails, e.g. on a read-only initial data
+ * directory, leaves the directory readable and is retried on the next load.
+ */
+@Slf4j
+final class MetadataVersionUpgrader {
+
+  private MetadataVersionUpgrader() {
+
+  }
+
+  /**
+   * Write the version file of a new data directory, or rewrite all buckets of a data directory
+   * written by an older version.
+   *
+   * @param s3DataPath the data directory.
+   * @param bucketMetaStore the bucket metadata store of {@code s3DataPath}.
+   * @throws IllegalStateException if the data directory is written by a newer version.
+   */
+  static void upgradeIfNeeded(Path s3DataPath, MetadataStore<BucketMetadata> bucketMetaStore) {
+    Path versionFile = s3DataPath.resolve(MetadataLoader.VERSION_FILE_NAME);
+    if (!Files.exists(versionFile)) {
+      try {
+        writeVersion(versionFile);
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed to load S3 metadata from " + s3DataPath);
+      }
+      return;
+    }
+
+    try {
+      long version = Long.parseLong(Files.readString(versionFile, StandardCharsets.UTF_8).trim());
+      if (version > LocalS3Metadata.VERSION) {
+        throw new IllegalStateException("Metadata version " + version + " of " + s3DataPath
+            + " is not supported; the latest supported version is " + LocalS3Metadata.VERSION + ".");
+      }
+      if (version == LocalS3Metadata.VERSION) {
+        return;
+      }
+
+      List<String> bucketNames = bucketMetaStore.listNames();
+      log.info("Upgrading metadata of {} buckets in {} from version {} to {}.", bucketNames.size(),
+          s3DataPath, version, LocalS3Metadata.VERSION);
+      for (String bucketName : bucketNames) {
+        bucketMetaStore.store(bucketName, bucketMetaStore.fetch(bucketName));
+      }
+      writeVersion(versionFile);
+    } catch (IOException | NumberFormatException e) {
+      log.warn("Failed to upgrade metadata of {}; it is upgraded on the next load.", s3DataPath, e);
+    }
+  }
+
+  private static void writeVersion(Path versionFile) throws IOException {
+    Files.write(versionFile, String.valueOf(LocalS3Metadata.VERSION).getBytes(StandardCharsets.UTF_8));
+  }
+
+}
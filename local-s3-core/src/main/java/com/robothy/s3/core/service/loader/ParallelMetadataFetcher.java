@@ -0,0 +1,87 @@
+package com.robothy.s3.core.service.loader;
+
+import com.robothy.s3.core.storage.MetadataStore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import lombok.SneakyThrows;
+
+/**
+ * Fetches all metadata instances of a {@linkplain MetadataStore} on a bounded thread pool.
+ */
+public final class ParallelMetadataFetcher {
+
+  /**
+   * Default number of fetching threads.
+   */
+  public static final int DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+  private ParallelMetadataFetcher() {
+
+  }
+
+  /**
+   * Fetch all metadata instances of {@code store}, in the order of {@linkplain MetadataStore#listNames()}.
+   *
+   * @param store the metadata store.
+   * @param parallelism max number of fetching threads.
+   * @param metrics records the fetch time of each instance.
+   * @return all metadata instances in the store.
+   */
+  @SneakyThrows
+  public static <T> List<T> fetchAll(MetadataStore<T> store, int parallelism, MetadataLoadMetrics metrics) {
+    long start = System.nanoTime();
+    List<String> names = store.listNames();
+    int threads = Math.max(1, Math.min(parallelism, names.size()));
+    List<T> result = new ArrayList<>(names.size());
+    if (threads == 1) {
+      names.forEach(name -> result.add(timedFetch(store, name, metrics).get()));
+    } else {
+      AtomicInteger threadIndex = new AtomicInteger();
+      ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+        Thread thread = new Thread(runnable, "locals3-metadata-loader-" + threadIndex.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+      try {
+        List<Future<T>> futures = new ArrayList<>(names.size());
+        names.forEach(name -> futures.add(executor.submit(() -> timedFetch(store, name, metrics).get())));
+        for (Future<T> future : futures) {
+          try {
+            result.add(future.get());
+          } catch (ExecutionException e) {
+            throw e.getCause();
+          }
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+    metrics.logSummary(System.nanoTime() - start);
+    return result;
+  }
+
+  /**
+   * Wrap fetching {@code name} in a supplier that records its fetch time. Used to fetch
+   * lazily loaded buckets on first access.
+   *
+   * @param store the metadata store.
+   * @param name the metadata instance name.
+   * @param metrics records the fetch time.
+   * @return a supplier of the metadata instance.
+   */
+  public static <T> Supplier<T> timedFetch(MetadataStore<T> store, String name, MetadataLoadMetrics metrics) {
+    return () -> {
+      long start = System.nanoTime();
+      T metadata = store.fetch(name);
+      metrics.record(name, System.nanoTime() - start);
+      return metadata;
+    };
+  }
+
+}
@@ -5,10 +5,6 @@ import com.robothy.s3.core.model.internal.LocalS3Metadata;
 import com.robothy.s3.core.storage.FileSystemBucketMetadataStore;
 import com.robothy.s3.core.storage.MetadataStore;
 import com.robothy.s3.core.util.PathUtils;
-import java.io.File;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Objects;
 
@@ -18,18 +14,11 @@ public final class S3MetadataLoader implements MetadataLoader<LocalS3Metadata> {
   public LocalS3Metadata load(Path s3DataPath) {
     Objects.requireNonNull(s3DataPath);
     PathUtils.createDirectoryIfNotExit(s3DataPath);
-    File versionFile = new File(s3DataPath.toFile(), VERSION_FILE_NAME);
     LocalS3Metadata s3Metadata = new LocalS3Metadata();
-    if (!versionFile.exists()) {
-      try {
-        Files.write(versionFile.toPath(), String.valueOf(LocalS3Metadata.VERSION).getBytes(StandardCharsets.UTF_8));
-      } catch (IOException e) {
-        throw new IllegalStateException("Failed to load S3 metadata from " + s3DataPath);
-      }
-    }
-
     MetadataStore<BucketMetadata> bucketMetaStore = FileSystemBucketMetadataStore.create(s3DataPath);
-    bucketMetaStore.fetchAll().forEach(s3Metadata::addBucketMetadata);
+    MetadataVersionUpgrader.upgradeIfNeeded(s3DataPath, bucketMetaStore);
+    ParallelMetadataFetcher.fetchAll(bucketMetaStore, ParallelMetadataFetcher.DEFAULT_PARALLELISM, new MetadataLoadMetrics())
+        .forEach(s3Metadata::addBucketMetadata);
     return s3Metadata;
   }
 
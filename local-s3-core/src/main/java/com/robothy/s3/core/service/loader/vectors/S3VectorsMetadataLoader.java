@@ -3,7 +3,9 @@ package com.robothy.s3.core.service.loader.vectors;
 import com.robothy.s3.core.model.internal.LocalS3Metadata;
 import com.robothy.s3.core.model.internal.s3vectors.LocalS3VectorsMetadata;
 import com.robothy.s3.core.model.internal.s3vectors.VectorBucketMetadata;
+import com.robothy.s3.core.service.loader.MetadataLoadMetrics;
 import com.robothy.s3.core.service.loader.MetadataLoader;
+import com.robothy.s3.core.service.loader.ParallelMetadataFetcher;
 import com.robothy.s3.core.storage.MetadataStore;
 import com.robothy.s3.core.storage.s3vectors.FileSystemVectorBucketMetadataStore;
 import com.robothy.s3.core.util.PathUtils;
@@ -31,7 +33,8 @@ public class S3VectorsMetadataLoader implements MetadataLoader<LocalS3VectorsMet
     }
 
     MetadataStore<VectorBucketMetadata> bucketMetaStore = FileSystemVectorBucketMetadataStore.create(s3DataPath);
-    bucketMetaStore.fetchAll().forEach(s3Metadata::addVectorBucketMetadata);
+    ParallelMetadataFetcher.fetchAll(bucketMetaStore, ParallelMetadataFetcher.DEFAULT_PARALLELISM, new MetadataLoadMetrics())
+        .forEach(s3Metadata::addVectorBucketMetadata);
     return s3Metadata;
   }
 
@@ -1,9 +1,28 @@
 package com.robothy.s3.core.service.locks;
 
+import com.robothy.s3.core.exception.OperationAbortedException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 
+/**
+ * Locks of buckets and object keys.
+ *
+ * <p>Each bucket has a read-write lock. Bucket-level operations take its write lock; readers
+ * and object-level operations share its read lock, which acts as an intent lock. Object-level
+ * operations additionally take the lock of their object key, so that writers to different keys
+ * of the same bucket run concurrently.
+ *
+ * <p>Operations that span several keys, possibly of different buckets, take them together with
+ * {@linkplain #keyLocks(Collection)}, which acquires all locks in a canonical order.
+ */
 public interface BucketLock {
 
+  /**
+   * The default time to wait for {@linkplain #keyLocks(Collection)} in {@linkplain #lock(Lock, long)}.
+   */
+  long KEY_LOCKS_TIMEOUT_MILLIS = 30_000;
+
   static BucketLock getInstance() {
     return DefaultBucketLock.singleton;
   }
@@ -12,4 +31,51 @@ public interface BucketLock {
 
   Lock writeLock(String bucketName);
 
+  /**
+   * Get a lock that shares the bucket lock and holds the read lock of an object key.
+   *
+   * @param bucketName the bucket name.
+   * @param key the object key.
+   * @return the read lock of the object key.
+   */
+  Lock keyReadLock(String bucketName, String key);
+
+  /**
+   * Get a lock that shares the bucket lock and holds the write lock of an object key.
+   *
+   * @param bucketName the bucket name.
+   * @param key the object key.
+   * @return the write lock of the object key.
+   */
+  Lock keyWriteLock(String bucketName, String key);
+
+  /**
+   * Get a lock over several object keys, e.g. the source and the destination of a copy. The bucket
+   * locks are shared and acquired in the order of bucket names, followed by the key locks in a
+   * fixed order, so that two threads locking overlapping keys never deadlock. A key locked for
+   * both read and write is locked for write.
+   *
+   * @param keys the object keys to lock.
+   * @return the lock of all keys.
+   */
+  Lock keyLocks(Collection<LockedKey> keys);
+
+  /**
+   * Acquire {@code lock}, waiting at most {@code timeoutMillis}.
+   *
+   * @param lock the lock to acquire.
+   * @param timeoutMillis the maximum time to wait in milliseconds.
+   * @throws OperationAbortedException if the lock is not acquired in time or the thread is interrupted.
+   */
+  static void lock(Lock lock, long timeoutMillis) {
+    try {
+      if (!lock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS)) {
+        throw new OperationAbortedException("Timed out waiting for a conflicting operation after " + timeoutMillis + " ms.");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new OperationAbortedException("Interrupted while waiting for a conflicting operation.");
+    }
+  }
+
 }
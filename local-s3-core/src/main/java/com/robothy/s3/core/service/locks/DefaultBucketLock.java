@@ -1,17 +1,54 @@
 package com.robothy.s3.core.service.locks;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Keeps a {@linkplain ReentrantReadWriteLock} per bucket. Object key locks are striped: keys
+ * are hashed with their bucket name onto a fixed set of read-write locks, so that the number of
+ * locks does not grow with the number of keys. Keys sharing a stripe exclude each other, which
+ * is harmless because a thread that locks several keys acquires their stripes together, in the
+ * order of stripe indexes.
+ */
 class DefaultBucketLock implements BucketLock {
 
   static final BucketLock singleton = new DefaultBucketLock();
 
+  static final int KEY_LOCK_STRIPES = 1024;
+
   private final Map<String, ReadWriteLock> locks = new ConcurrentHashMap<>();
 
+  private final ReadWriteLock[] keyLocks;
+
+  DefaultBucketLock() {
+    this(KEY_LOCK_STRIPES);
+  }
+
+  /**
+   * Create a {@linkplain DefaultBucketLock} with the given number of key lock stripes.
+   *
+   * @param stripes number of key lock stripes; must be a power of two.
+   */
+  DefaultBucketLock(int stripes) {
+    if (Integer.bitCount(stripes) != 1) {
+      throw new IllegalArgumentException("The number of key lock stripes must be a power of two.");
+    }
+    this.keyLocks = new ReadWriteLock[stripes];
+    for (int i = 0; i < stripes; i++) {
+      keyLocks[i] = new ReentrantReadWriteLock();
+    }
+  }
+
   @Override
   public Lock readLock(String bucketName) {
     return getLock(bucketName).readLock();
@@ -22,8 +59,44 @@ class DefaultBucketLock implements BucketLock {
     return getLock(bucketName).writeLock();
   }
 
+  @Override
+  public Lock keyReadLock(String bucketName, String key) {
+    return new KeyLock(readLock(bucketName), keyLock(bucketName, key).readLock());
+  }
+
+  @Override
+  public Lock keyWriteLock(String bucketName, String key) {
+    return new KeyLock(readLock(bucketName), keyLock(bucketName, key).writeLock());
+  }
+
+  @Override
+  public Lock keyLocks(Collection<LockedKey> keys) {
+    SortedSet<String> bucketNames = new TreeSet<>();
+    SortedMap<Integer, Boolean> stripes = new TreeMap<>();
+    for (LockedKey lockedKey : keys) {
+      bucketNames.add(lockedKey.getBucketName());
+      stripes.merge(stripeOf(lockedKey.getBucketName(), lockedKey.getKey()), lockedKey.isExclusive(), Boolean::logicalOr);
+    }
+
+    List<Lock> locks = new ArrayList<>(bucketNames.size() + stripes.size());
+    bucketNames.forEach(bucketName -> locks.add(readLock(bucketName)));
+    stripes.forEach((stripe, exclusive) -> locks.add(exclusive ? keyLocks[stripe].writeLock() : keyLocks[stripe].readLock()));
+    return new KeyLock(locks.toArray(new Lock[0]));
+  }
+
   private ReadWriteLock getLock(String bucketName) {
     return locks.computeIfAbsent(bucketName, k -> new ReentrantReadWriteLock());
   }
 
+  ReadWriteLock keyLock(String bucketName, String key) {
+    return keyLocks[stripeOf(bucketName, key)];
+  }
+
+  private int stripeOf(String bucketName, String key) {
+    int hash = 31 * bucketName.hashCode() + key.hashCode();
+    // Spread the high bits, the same as HashMap.
+    hash ^= hash >>> 16;
+    return hash & (keyLocks.length - 1);
+  }
+
 }
@@ -0,0 +1,286 @@
+package com.robothy.s3.core.service.locks;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Epoch based reclamation of object content read without a lock.
+ *
+ * <p>A lock-free reader pins the current epoch with {@linkplain #enter()} before it looks up
+ * the object metadata, and unpins it when the returned {@linkplain Guard} is closed. A writer
+ * first publishes metadata that no longer references the content, then hands the deletion
+ * of the content to {@linkplain #retire(Runnable)}. A retired deletion runs once no reader
+ * pins an epoch older than the retirement, so that a reader never sees the content it found
+ * in the metadata disappear.
+ *
+ * <p>Content that is used after the reader leaves, such as a response body that is written to
+ * the client later, is kept with {@linkplain #hold(Object...)}. A deletion retired with
+ * {@linkplain #retire(Object, Runnable)} additionally waits until the holds on its resource
+ * are closed.
+ *
+ * <p>Entering and leaving only write a field owned by the current thread; readers never
+ * contend with each other.
+ */
+@Slf4j
+public final class EpochReclaimer {
+
+  private static final EpochReclaimer singleton = new EpochReclaimer();
+
+  private static final long IDLE = Long.MAX_VALUE;
+
+  public static EpochReclaimer getInstance() {
+    return singleton;
+  }
+
+  private final AtomicLong epoch = new AtomicLong();
+
+  private final List<Slot> slots = new CopyOnWriteArrayList<>();
+
+  private final ThreadLocal<Slot> localSlot = ThreadLocal.withInitial(this::register);
+
+  private final Queue<Retired> retired = new ConcurrentLinkedQueue<>();
+
+  private final AtomicBoolean reclaiming = new AtomicBoolean();
+
+  private final ConcurrentMap<Object, Held> held = new ConcurrentHashMap<>();
+
+  EpochReclaimer() {
+
+  }
+
+  /**
+   * Pin the current epoch for the current thread. Nested calls pin the epoch of the outermost one.
+   *
+   * @return a guard that unpins the epoch when closed.
+   */
+  public Guard enter() {
+    Slot slot = localSlot.get();
+    if (slot.depth++ == 0) {
+      long current;
+      do {
+        current = epoch.get();
+        slot.pinned = current;
+        // Re-check, so that a reclamation that missed the pin cannot free anything this reader may still find.
+      } while (current != epoch.get());
+    }
+    return slot;
+  }
+
+  /**
+   * Run {@code reclamation} once all readers that may still see the retired content have left.
+   * It runs immediately if no reader is active.
+   *
+   * @param reclamation deletes content that is no longer referenced by published metadata.
+   */
+  public void retire(Runnable reclamation) {
+    retired.add(new Retired(epoch.getAndIncrement(), reclamation));
+    reclaim();
+  }
+
+  /**
+   * Run {@code reclamation} once all readers that may still see the retired content have left,
+   * and all holds on {@code resource} are closed.
+   *
+   * @param resource the retired resource, e.g. a file ID.
+   * @param reclamation deletes the resource.
+   */
+  public void retire(Object resource, Runnable reclamation) {
+    retire(() -> {
+      Held deferred = held.computeIfPresent(resource, (key, holds) -> {
+        holds.deferred.add(reclamation);
+        return holds;
+      });
+      if (deferred == null) {
+        reclamation.run();
+      }
+    });
+  }
+
+  /**
+   * Keep resources found by the current reader from being reclaimed after it leaves, until the
+   * returned guard is closed. The guard may be closed by any thread, e.g. once the content has
+   * been written to the client. Closing it more than once has no effect.
+   *
+   * @param resources the resources retired with {@linkplain #retire(Object, Runnable)}, e.g. file IDs.
+   * @return a guard that releases the resources when closed.
+   * @throws IllegalStateException if the current thread has not entered.
+   */
+  public Guard hold(Object... resources) {
+    if (localSlot.get().depth == 0) {
+      throw new IllegalStateException("Resources must be held before leaving the epoch they are found in.");
+    }
+    for (Object resource : resources) {
+      held.compute(resource, (key, holds) -> {
+        Held result = holds == null ? new Held() : holds;
+        result.count++;
+        return result;
+      });
+    }
+    return new Hold(resources);
+  }
+
+  /**
+   * Get the number of retired reclamations that have not run yet.
+   *
+   * @return the number of pending reclamations.
+   */
+  int pending() {
+    return retired.size();
+  }
+
+  private void reclaim() {
+    while (reclaiming.compareAndSet(false, true)) {
+      try {
+        long minPinned = minPinned();
+        Retired head;
+        while ((head = retired.peek()) != null && head.epoch < minPinned) {
+          retired.poll();
+          try {
+            head.reclamation.run();
+          } catch (RuntimeException e) {
+            log.warn("Failed to reclaim retired content.", e);
+          }
+        }
+      } finally {
+        reclaiming.set(false);
+      }
+
+      // Another thread may have retired content or left while this thread was reclaiming.
+      Retired head = retired.peek();
+      if (head == null || head.epoch >= minPinned()) {
+        return;
+      }
+    }
+  }
+
+  private long minPinned() {
+    long min = IDLE;
+    for (Slot slot : slots) {
+      if (slot.owner.get() == null) {
+        slots.remove(slot);
+        continue;
+      }
+      min = Math.min(min, slot.pinned);
+    }
+    return min;
+  }
+
+  private Slot register() {
+    Slot slot = new Slot(Thread.currentThread());
+    slots.add(slot);
+    return slot;
+  }
+
+  /**
+   * Unpins the epoch pinned by {@linkplain #enter()}.
+   */
+  public interface Guard extends AutoCloseable {
+
+    @Override
+    void close();
+
+  }
+
+  /**
+   * The epoch pinned by a thread.
+   */
+  private class Slot implements Guard {
+
+    private final WeakReference<Thread> owner;
+
+    private volatile long pinned = IDLE;
+
+    /**
+     * Nesting depth of {@linkplain #enter()}, only accessed by the owner thread.
+     */
+    private int depth;
+
+    Slot(Thread owner) {
+      this.owner = new WeakReference<>(owner);
+    }
+
+    @Override
+    public void close() {
+      if (--depth == 0) {
+        pinned = IDLE;
+        if (!retired.isEmpty()) {
+          reclaim();
+        }
+      }
+    }
+
+  }
+
+  /**
+   * Releases the resources kept by {@linkplain #hold(Object...)}.
+   */
+  private class Hold implements Guard {
+
+    private final Object[] resources;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    Hold(Object[] resources) {
+      this.resources = resources;
+    }
+
+    @Override
+    public void close() {
+      if (!closed.compareAndSet(false, true)) {
+        return;
+      }
+      List<Runnable> reclamations = new ArrayList<>();
+      for (Object resource : resources) {
+        held.computeIfPresent(resource, (key, holds) -> {
+          if (--holds.count > 0) {
+            return holds;
+          }
+          reclamations.addAll(holds.deferred);
+          return null;
+        });
+      }
+      for (Runnable reclamation : reclamations) {
+        try {
+          reclamation.run();
+        } catch (RuntimeException e) {
+          log.warn("Failed to reclaim retired content.", e);
+        }
+      }
+    }
+
+  }
+
+  /**
+   * The holds on a resource, only accessed while the resource is locked in {@linkplain #held}.
+   */
+  private static class Held {
+
+    private int count;
+
+    private final List<Runnable> deferred = new ArrayList<>(1);
+
+  }
+
+  private static class Retired {
+
+    private final long epoch;
+
+    private final Runnable reclamation;
+
+    Retired(long epoch, Runnable reclamation) {
+      this.epoch = epoch;
+      this.reclamation = reclamation;
+    }
+
+  }
+
+}
@@ -0,0 +1,103 @@
+package com.robothy.s3.core.service.locks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * A lock of object keys: the shared bucket locks followed by the key locks. Always acquired in
+ * this order and released in the reverse order, so that a bucket-level writer waiting for a
+ * bucket lock never holds a key lock. If acquiring one of the locks fails, the locks already
+ * acquired are released.
+ */
+final class KeyLock implements Lock {
+
+  private final Lock[] locks;
+
+  KeyLock(Lock... locks) {
+    this.locks = locks;
+  }
+
+  @Override
+  public void lock() {
+    int acquired = 0;
+    try {
+      for (; acquired < locks.length; acquired++) {
+        locks[acquired].lock();
+      }
+    } catch (RuntimeException | Error e) {
+      unlock(acquired);
+      throw e;
+    }
+  }
+
+  @Override
+  public void lockInterruptibly() throws InterruptedException {
+    int acquired = 0;
+    try {
+      for (; acquired < locks.length; acquired++) {
+        locks[acquired].lockInterruptibly();
+      }
+    } catch (InterruptedException | RuntimeException | Error e) {
+      unlock(acquired);
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean tryLock() {
+    for (int acquired = 0; acquired < locks.length; acquired++) {
+      if (!locks[acquired].tryLock()) {
+        unlock(acquired);
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(time);
+    int acquired = 0;
+    try {
+      for (; acquired < locks.length; acquired++) {
+        if (!locks[acquired].tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+          unlock(acquired);
+          return false;
+        }
+      }
+    } catch (InterruptedException | RuntimeException | Error e) {
+      unlock(acquired);
+      throw e;
+    }
+    return true;
+  }
+
+  @Override
+  public void unlock() {
+    unlock(locks.length);
+  }
+
+  @Override
+  public Condition newCondition() {
+    throw new UnsupportedOperationException("Conditions are not supported by key locks.");
+  }
+
+  /**
+   * Release the first {@code count} locks in the reverse order.
+   */
+  private void unlock(int count) {
+    RuntimeException failure = null;
+    for (int i = count - 1; i >= 0; i--) {
+      try {
+        locks[i].unlock();
+      } catch (RuntimeException e) {
+        failure = failure == null ? e : failure;
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+}
@@ -0,0 +1,56 @@
+package com.robothy.s3.core.service.locks;
+
+import java.util.Objects;
+
+/**
+ * An object key to lock with {@linkplain BucketLock#keyLocks(java.util.Collection)}.
+ */
+public final class LockedKey {
+
+  private final String bucketName;
+
+  private final String key;
+
+  private final boolean exclusive;
+
+  private LockedKey(String bucketName, String key, boolean exclusive) {
+    this.bucketName = Objects.requireNonNull(bucketName);
+    this.key = Objects.requireNonNull(key);
+    this.exclusive = exclusive;
+  }
+
+  /**
+   * Lock the object key for read.
+   *
+   * @param bucketName the bucket name.
+   * @param key the object key.
+   * @return a new {@linkplain LockedKey} instance.
+   */
+  public static LockedKey read(String bucketName, String key) {
+    return new LockedKey(bucketName, key, false);
+  }
+
+  /**
+   * Lock the object key for write.
+   *
+   * @param bucketName the bucket name.
+   * @param key the object key.
+   * @return a new {@linkplain LockedKey} instance.
+   */
+  public static LockedKey write(String bucketName, String key) {
+    return new LockedKey(bucketName, key, true);
+  }
+
+  public String getBucketName() {
+    return bucketName;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public boolean isExclusive() {
+    return exclusive;
+  }
+
+}
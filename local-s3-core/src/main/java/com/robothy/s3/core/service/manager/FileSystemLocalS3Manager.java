@@ -11,30 +11,60 @@ import com.robothy.s3.core.storage.FileSystemBucketMetadataStore;
 import com.robothy.s3.core.storage.MetadataStore;
 import com.robothy.s3.core.storage.Storage;
 import java.lang.reflect.Proxy;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 final class FileSystemLocalS3Manager implements LocalS3Manager {
 
   private final LocalS3Metadata s3Metadata;
 
-  private final MetadataStore<BucketMetadata> bucketMetaStore;
+  private final MetadataFlusher<BucketMetadata> metadataFlusher;
 
   private final Storage storage;
 
-  FileSystemLocalS3Manager(Path dataDirectory) {
+  private final AtomicBoolean closed = new AtomicBoolean();
+
+  /**
+   * Create a {@linkplain FileSystemLocalS3Manager} that stores data in {@linkplain LocalS3ManagerOptions#getDataDirectory()}.
+   *
+   * @param options the options of the manager.
+   */
+  FileSystemLocalS3Manager(LocalS3ManagerOptions options) {
+    Path dataDirectory = options.getDataDirectory();
+    MetadataDurability durability = options.getMetadataDurability();
     Objects.requireNonNull(dataDirectory, "Data directory is required to create a persistent LocalS3 service.");
-    this.bucketMetaStore = FileSystemBucketMetadataStore.create(dataDirectory);
-    this.s3Metadata = FileSystemS3MetadataLoader.create().load(dataDirectory);
-    this.storage = Storage.createPersistent(Paths.get(dataDirectory.toAbsolutePath().toString(), STORAGE_DIRECTORY));
+    MetadataStore<BucketMetadata> bucketMetaStore = FileSystemBucketMetadataStore.create(dataDirectory,
+        FileSystemBucketMetadataStore.DEFAULT_CHECKPOINT_INTERVAL, durability == MetadataDurability.SYNC);
+    this.s3Metadata = FileSystemS3MetadataLoader.create(options.getMetadataLoadParallelism(),
+        options.isLazyMetadataLoadingEnabled()).load(dataDirectory);
+    this.s3Metadata.setObjectIndex(Objects.requireNonNull(options.getObjectIndex()));
+    this.metadataFlusher = MetadataFlusher.create(bucketMetaStore, bucketName -> s3Metadata.getBucketMetadata(bucketName).get(),
+        durability, options.getMetadataFlushIntervalMillis(), options.getMetadataFlushMaxPendingChanges());
+    Storage objectStorage = options.isSegmentStorageEnabled() ? createSegmentStorage(dataDirectory)
+        : Storage.createPersistent(Paths.get(dataDirectory.toAbsolutePath().toString(), STORAGE_DIRECTORY));
+    // Shares the contents of copied objects.
+    this.storage = Storage.createReferenceCounting(objectStorage, options.isDeduplicationEnabled(),
+        Paths.get(dataDirectory.toAbsolutePath().toString(), REFERENCE_INDEX_FILE), durability == MetadataDurability.SYNC);
+  }
+
+  /**
+   * Create a segment storage. Objects written by the file-per-object storage
+   * before are still readable through a layered storage.
+   */
+  private static Storage createSegmentStorage(Path dataDirectory) {
+    Storage segmented = Storage.createSegmented(Paths.get(dataDirectory.toAbsolutePath().toString(), SEGMENT_STORAGE_DIRECTORY));
+    Path legacyStorage = Paths.get(dataDirectory.toAbsolutePath().toString(), STORAGE_DIRECTORY);
+    return Files.isDirectory(legacyStorage) ? Storage.createLayered(segmented, Storage.createPersistent(legacyStorage)) : segmented;
   }
 
   @Override
   public BucketService bucketService() {
     BucketService delegated = InMemoryBucketService.create(s3Metadata);
     LocalS3ServicesInvocationHandler<BucketMetadata> invocationHandler =
-        new LocalS3ServicesInvocationHandler<>(delegated, bucketName -> s3Metadata.getBucketMetadata(bucketName).get(), bucketMetaStore);
+        new LocalS3ServicesInvocationHandler<>(delegated, metadataFlusher);
     return (BucketService) Proxy.newProxyInstance(BucketService.class.getClassLoader(), new Class[] {BucketService.class}, invocationHandler);
   }
 
@@ -42,8 +72,23 @@ final class FileSystemLocalS3Manager implements LocalS3Manager {
   public ObjectService objectService() {
     ObjectService delegated = InMemoryObjectService.create(s3Metadata, storage);
     LocalS3ServicesInvocationHandler<BucketMetadata> invocationHandler =
-        new LocalS3ServicesInvocationHandler<>(delegated, bucketName -> s3Metadata.getBucketMetadata(bucketName).get(), bucketMetaStore);
+        new LocalS3ServicesInvocationHandler<>(delegated, metadataFlusher);
     return (ObjectService) Proxy.newProxyInstance(ObjectService.class.getClassLoader(), new Class[] {ObjectService.class}, invocationHandler);
   }
 
+  /**
+   * Persist pending metadata changes, then close the storage. Subsequent calls do nothing.
+   */
+  @Override
+  public void close() {
+    if (!closed.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      metadataFlusher.close();
+    } finally {
+      storage.close();
+    }
+  }
+
 }
@@ -8,7 +8,6 @@ import com.robothy.s3.core.service.InMemoryObjectService;
 import com.robothy.s3.core.service.ObjectService;
 import com.robothy.s3.core.service.loader.FileSystemS3MetadataLoader;
 import com.robothy.s3.core.storage.Storage;
-import com.robothy.s3.core.util.JsonUtils;
 import java.lang.reflect.Proxy;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -17,6 +16,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 /**
  * In memory implementation of {@linkplain LocalS3Manager}. Mange in memory
@@ -35,37 +35,55 @@ final class InMemoryLocalS3Manager implements LocalS3Manager {
    * @param initialDataPath initial data path.
    */
   InMemoryLocalS3Manager(Path initialDataPath, boolean enableInitialDataCache) {
+    this(LocalS3ManagerOptions.builder()
+        .dataDirectory(initialDataPath)
+        .initialDataCacheEnabled(enableInitialDataCache)
+        .build());
+  }
+
+  /**
+   * Create a {@linkplain InMemoryLocalS3Manager} with the initial data of {@linkplain LocalS3ManagerOptions#getDataDirectory()}.
+   *
+   * @param options the options of the manager.
+   */
+  InMemoryLocalS3Manager(LocalS3ManagerOptions options) {
+    Path initialDataPath = options.getDataDirectory();
+    Supplier<Storage> storageFactory = Objects.requireNonNull(options.getStorageFactory());
+    Storage storage;
     if (Objects.isNull(initialDataPath) || !Files.exists(initialDataPath)) {
-      this.storage = Storage.createInMemory();
+      storage = storageFactory.get();
       this.s3Metadata = new LocalS3Metadata();
     } else {
 
       String absPath = initialDataPath.toAbsolutePath().toString();
       Path storagePath = Paths.get(initialDataPath.toAbsolutePath().toString(), STORAGE_DIRECTORY);
-      if (enableInitialDataCache) {
+      if (options.isInitialDataCacheEnabled()) {
         if(cache.get(absPath).isEmpty()) {
           synchronized(cache) {
             if (cache.get(absPath).isEmpty()) {
               LocalS3Metadata metadata = loadS3Metadata(initialDataPath);
               Storage persistent = Storage.createPersistent(storagePath);
               // Create a CopyOnAccessStorage for the persistent one to reduce disk I/O.
-              Storage copyOnAccess = Storage.createCopyOnAccess(persistent);
-              InitialDataCache.CacheValue cacheValue = new InitialDataCache.CacheValue(metadata, copyOnAccess);
+              Storage copyOnAccess = Storage.createCopyOnAccess(persistent, storageFactory.get());
+              InitialDataCache.CacheValue cacheValue = new InitialDataCache.CacheValue(metadata, copyOnAccess, storageFactory);
               cache.put(absPath, cacheValue);
             }
           }
         }
 
         InitialDataCache.CacheValue cacheValue = cache.get(absPath).get();
-        this.storage = cacheValue.storage();
+        storage = cacheValue.storage();
         this.s3Metadata = cacheValue.metadata();
 
       } else {
-        this.storage = Storage.createLayered(Storage.createInMemory(), Storage.createPersistent(storagePath));
+        storage = Storage.createLayered(storageFactory.get(), Storage.createPersistent(storagePath));
         this.s3Metadata = loadS3Metadata(initialDataPath);
       }
 
     }
+    this.s3Metadata.setObjectIndex(Objects.requireNonNull(options.getObjectIndex()));
+    // Shares the contents of copied objects.
+    this.storage = Storage.createReferenceCounting(storage, options.isDeduplicationEnabled());
   }
 
   /**
@@ -128,28 +146,33 @@ final class InMemoryLocalS3Manager implements LocalS3Manager {
        */
       private final Storage storage;
 
-      CacheValue(LocalS3Metadata metadata, Storage storage) {
+      private final Supplier<Storage> frontendFactory;
+
+      CacheValue(LocalS3Metadata metadata, Storage storage, Supplier<Storage> frontendFactory) {
         this.metadata = metadata;
         this.storage = storage;
+        this.frontendFactory = frontendFactory;
       }
 
       /**
        * Create a {@code LayeredStorage} with the real storage as backend and
-       * a new {@code InMemoryStorage} as frontend.
+       * a new in-memory storage as frontend.
        *
        * @return a {@code LayeredStorage} to make sure the real data won't be polluted.
        */
       public Storage storage() {
-        return Storage.createLayered(Storage.createInMemory(), storage);
+        return Storage.createLayered(frontendFactory.get(), storage);
       }
 
       /**
-       * Create a copy of cached data.
+       * Create a copy-on-write fork of the cached metadata. A bucket is forked when the fork
+       * first accesses it, and only the objects it changes are stored by the fork, so that the
+       * cached metadata won't be polluted.
        *
-       * @return cached metadata.
+       * @return a fork of the cached metadata.
        */
       public LocalS3Metadata metadata() {
-        return JsonUtils.fromJson(JsonUtils.toJson(metadata), LocalS3Metadata.class);
+        return metadata.fork();
       }
     }
 
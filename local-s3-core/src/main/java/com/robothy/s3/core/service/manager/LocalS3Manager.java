@@ -7,13 +7,23 @@ import java.nio.file.Path;
 /**
  * A manager abstraction that manages data and services of local-s3.
  */
-public interface LocalS3Manager {
+public interface LocalS3Manager extends AutoCloseable {
 
   /**
    * Relative path of storage.
    */
    String STORAGE_DIRECTORY = ".storage";
 
+  /**
+   * Relative path of the segment storage.
+   */
+  String SEGMENT_STORAGE_DIRECTORY = ".segments";
+
+  /**
+   * Relative path of the reference counts of shared object contents.
+   */
+  String REFERENCE_INDEX_FILE = ".references.index";
+
   /**
    * Create an in-memory implementation of {@linkplain LocalS3Manager}.
    *
@@ -27,13 +37,33 @@ public interface LocalS3Manager {
     return new InMemoryLocalS3Manager(dataDirectory, enabledInitialDataCache);
   }
 
+  /**
+   * Create an in-memory implementation of {@linkplain LocalS3Manager}.
+   *
+   * @param options the options of the manager.
+   * @return an instance of in-memory implementation.
+   */
+  static LocalS3Manager createInMemoryS3Manager(LocalS3ManagerOptions options) {
+    return new InMemoryLocalS3Manager(options);
+  }
+
   /**
    * Create a file system implementation of {@linkplain LocalS3Manager}.
    *
    * @return an instance of file system implementation.
    */
   static LocalS3Manager createFileSystemS3Manager(Path dataDirectory) {
-    return new FileSystemLocalS3Manager(dataDirectory);
+    return new FileSystemLocalS3Manager(LocalS3ManagerOptions.builder().dataDirectory(dataDirectory).build());
+  }
+
+  /**
+   * Create a file system implementation of {@linkplain LocalS3Manager}.
+   *
+   * @param options the options of the manager; the data directory is required.
+   * @return an instance of file system implementation.
+   */
+  static LocalS3Manager createFileSystemS3Manager(LocalS3ManagerOptions options) {
+    return new FileSystemLocalS3Manager(options);
   }
 
   /**
@@ -50,4 +80,12 @@ public interface LocalS3Manager {
    */
   ObjectService objectService();
 
+  /**
+   * Release resources held by this manager; pending changes are persisted. Closing a closed
+   * manager does nothing.
+   */
+  @Override
+  default void close() {
+  }
+
 }
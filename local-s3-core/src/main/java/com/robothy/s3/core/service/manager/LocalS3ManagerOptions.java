@@ -0,0 +1,85 @@
+package com.robothy.s3.core.service.manager;
+
+import com.robothy.s3.core.model.internal.ObjectIndex;
+import com.robothy.s3.core.service.loader.ParallelMetadataFetcher;
+import com.robothy.s3.core.storage.Storage;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Options of a {@linkplain LocalS3Manager}, see {@linkplain LocalS3Manager#createInMemoryS3Manager(LocalS3ManagerOptions)}
+ * and {@linkplain LocalS3Manager#createFileSystemS3Manager(LocalS3ManagerOptions)}. Options that do not apply
+ * to the created manager are ignored.
+ */
+@Builder
+@Getter
+public class LocalS3ManagerOptions {
+
+  /**
+   * The data directory. Required by file system managers; the initial data of in-memory managers, can be {@code null}.
+   */
+  private Path dataDirectory;
+
+  /**
+   * In-memory managers only. If {@code true}, the initial data is loaded once per data directory and
+   * accessed objects are cached in memory.
+   */
+  @Builder.Default
+  private boolean initialDataCacheEnabled = true;
+
+  /**
+   * In-memory managers only. Creates the storages that hold written and cached objects,
+   * e.g. {@code Storage::createOffHeap}.
+   */
+  @Builder.Default
+  private Supplier<Storage> storageFactory = Storage::createInMemory;
+
+  /**
+   * File system managers only. If {@code true}, objects are appended to segment files instead of
+   * stored one file per object.
+   */
+  private boolean segmentStorageEnabled;
+
+  /**
+   * File system managers only. When bucket metadata changes are persisted.
+   */
+  @Builder.Default
+  private MetadataDurability metadataDurability = MetadataDurability.GROUP_COMMIT;
+
+  /**
+   * File system managers only. The max time a metadata change stays pending in background flushing.
+   */
+  @Builder.Default
+  private long metadataFlushIntervalMillis = MetadataFlusher.DEFAULT_FLUSH_INTERVAL_MILLIS;
+
+  /**
+   * File system managers only. The number of pending metadata changes that triggers a background flush.
+   */
+  @Builder.Default
+  private int metadataFlushMaxPendingChanges = MetadataFlusher.DEFAULT_MAX_PENDING_CHANGES;
+
+  /**
+   * File system managers only. Max number of threads that load bucket metadata at startup.
+   */
+  @Builder.Default
+  private int metadataLoadParallelism = ParallelMetadataFetcher.DEFAULT_PARALLELISM;
+
+  /**
+   * File system managers only. If {@code true}, the metadata of a bucket is loaded on first access.
+   */
+  private boolean lazyMetadataLoadingEnabled;
+
+  /**
+   * If {@code true}, identical object contents are stored once.
+   */
+  private boolean deduplicationEnabled;
+
+  /**
+   * The data structure that indexes the objects of each bucket.
+   */
+  @Builder.Default
+  private ObjectIndex objectIndex = ObjectIndex.SKIP_LIST;
+
+}
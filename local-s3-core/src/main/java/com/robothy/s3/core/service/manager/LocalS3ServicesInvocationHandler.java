@@ -3,93 +3,83 @@ package com.robothy.s3.core.service.manager;
 import com.robothy.s3.core.annotations.BucketChanged;
 import com.robothy.s3.core.annotations.BucketReadLock;
 import com.robothy.s3.core.annotations.BucketWriteLock;
-import com.robothy.s3.core.model.internal.BucketMetadata;
-import com.robothy.s3.core.model.internal.LocalS3Metadata;
-import com.robothy.s3.core.service.locks.BucketLock;
+import com.robothy.s3.core.storage.DeferredDeletes;
 import com.robothy.s3.core.storage.MetadataStore;
 import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
 import java.util.function.Function;
 
 
+/**
+ * Invocation handler of service proxies. Holds the bucket locks declared by
+ * {@linkplain BucketReadLock} and {@linkplain BucketWriteLock} during an invocation, and persists
+ * buckets declared by {@linkplain BucketChanged} afterwards. Contents released by an invocation
+ * are deleted once its change is persisted, see {@linkplain DeferredDeletes}. Each method is
+ * prepared as a {@linkplain ServiceMethod} on its first invocation.
+ */
 public final class LocalS3ServicesInvocationHandler<T> implements InvocationHandler {
 
   private final Object proxy;
 
-  private final MetadataStore<T> bucketMetaStore;
+  private final MetadataFlusher<T> metadataFlusher;
 
-  private final Function<String, T> bucketMetadataLoader;
+  private final Map<Method, ServiceMethod> serviceMethods = new ConcurrentHashMap<>();
 
   public LocalS3ServicesInvocationHandler(Object proxy, Function<String, T> bucketMetadataLoader, MetadataStore<T> bucketMetaStore) {
+    this(proxy, Objects.isNull(bucketMetaStore) ? null : MetadataFlusher.sync(bucketMetaStore, bucketMetadataLoader));
+  }
+
+  public LocalS3ServicesInvocationHandler(Object proxy, MetadataFlusher<T> metadataFlusher) {
     this.proxy = proxy;
-    this.bucketMetaStore = bucketMetaStore;
-    this.bucketMetadataLoader = bucketMetadataLoader;
+    this.metadataFlusher = metadataFlusher;
   }
 
   @Override
   public Object invoke(Object __, Method method, Object[] args) throws Throwable {
-    BucketChanged bucketChanged = method.getDeclaredAnnotation(BucketChanged.class);
-    boolean isReadBucket = Objects.nonNull(method.getDeclaredAnnotation(BucketReadLock.class));
-    boolean isWriteBucket = Objects.nonNull(method.getDeclaredAnnotation(BucketWriteLock.class));
-
-    lockIfNeeded(args, isReadBucket, isWriteBucket);
-    try {
-      Object result = method.invoke(proxy, args);
-      persistBucketIfNeeded(args, bucketChanged);
-      return result;
-    } catch (InvocationTargetException e) {
-      throw e.getCause();
-    } finally {
-      unlockIfNeeded(args, isReadBucket, isWriteBucket);
+    ServiceMethod serviceMethod = serviceMethods.get(method);
+    if (serviceMethod == null) {
+      serviceMethod = serviceMethods.computeIfAbsent(method, m -> ServiceMethod.resolve(m, proxy));
     }
-  }
-
-  void lockIfNeeded(Object[] args, boolean isRead, boolean isWrite) {
-    if (isRead || isWrite) {
-      String bucketName = (String) args[0];
-      BucketLock lock = BucketLock.getInstance();
-      if (isRead) {
-        lock.readLock(bucketName).lock();
-      }
+    Lock lock = serviceMethod.lock(args);
 
-      if (isWrite) {
-        lock.writeLock(bucketName).lock();
-      }
+    Object result;
+    CompletableFuture<Void> persisted;
+    if (lock != null) {
+      lock.lock();
     }
-  }
-
-  void unlockIfNeeded(Object[] args, boolean isRead, boolean isWrite) {
-    if (isRead || isWrite) {
-      String bucketName = (String) args[0];
-      BucketLock lock = BucketLock.getInstance();
-      if (isRead) {
-        lock.readLock(bucketName).unlock();
+    try {
+      List<Runnable> deletes = DeferredDeletes.begin();
+      try {
+        result = serviceMethod.invoke(args);
+      } catch (Throwable e) {
+        // A failed invocation persists nothing; delete as if nothing was deferred.
+        DeferredDeletes.end(deletes);
+        DeferredDeletes.run(deletes);
+        throw e;
+      } finally {
+        DeferredDeletes.end(deletes);
       }
-
-      if (isWrite) {
-        lock.writeLock(bucketName).unlock();
+      persisted = serviceMethod.persist(metadataFlusher, args, deletes);
+    } finally {
+      if (lock != null) {
+        lock.unlock();
       }
     }
-  }
-
-  void persistBucketIfNeeded(Object[] args, BucketChanged bucketChanged) {
-    if (Objects.isNull(bucketChanged) || Objects.isNull(bucketMetaStore)) {
-      return;
-    }
 
-    String bucketName = (String) args[0];
-    switch (bucketChanged.type()) {
-      case UPDATE:
-      case CREATE:
-        bucketMetaStore.store(bucketName, bucketMetadataLoader.apply(bucketName));
-        break;
-      case DELETE:
-        bucketMetaStore.delete(bucketName);
-        break;
+    // Wait outside the bucket lock, so that changes of the same bucket can join the batch.
+    try {
+      persisted.join();
+    } catch (CompletionException e) {
+      throw e.getCause();
     }
+    return result;
   }
 
-
 }
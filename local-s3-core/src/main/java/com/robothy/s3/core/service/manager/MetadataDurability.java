@@ -0,0 +1,26 @@
+package com.robothy.s3.core.service.manager;
+
+/**
+ * When bucket metadata changes are persisted, relative to the response of the request that
+ * made them.
+ */
+public enum MetadataDurability {
+
+  /**
+   * Persist and force the change to the storage device before responding.
+   */
+  SYNC,
+
+  /**
+   * Persist changes of concurrent requests in batches on a background thread; each request
+   * waits for the batch that contains its change.
+   */
+  GROUP_COMMIT,
+
+  /**
+   * Persist changes in batches on a background thread; requests respond immediately.
+   * Changes of the last batch may be lost if the process crashes.
+   */
+  ASYNC
+
+}
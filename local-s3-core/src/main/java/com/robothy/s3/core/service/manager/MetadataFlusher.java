@@ -0,0 +1,298 @@
+package com.robothy.s3.core.service.manager;
+
+import com.robothy.s3.core.annotations.BucketChanged;
+import com.robothy.s3.core.service.locks.BucketLock;
+import com.robothy.s3.core.storage.DeferredDeletes;
+import com.robothy.s3.core.storage.MetadataStore;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Persists bucket metadata changes to a {@linkplain MetadataStore} according to a
+ * {@linkplain MetadataDurability}.
+ *
+ * <p>With {@linkplain MetadataDurability#SYNC} each change is written by the calling thread.
+ * Otherwise changes are coalesced per bucket and written by a background thread, once
+ * {@code flushIntervalMillis} passed since the first pending change or {@code maxPendingChanges}
+ * changes are pending, whichever comes first. Several changes of a bucket become one
+ * journal write, or one snapshot if any of them is not confined to an object key. Under
+ * {@linkplain MetadataDurability#GROUP_COMMIT} the changes of each bucket complete on their own,
+ * so a bucket that fails to flush does not fail the changes of other buckets in the batch.
+ *
+ * @param <T> the bucket metadata type.
+ */
+@Slf4j
+public final class MetadataFlusher<T> implements AutoCloseable {
+
+  static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 0;
+
+  static final int DEFAULT_MAX_PENDING_CHANGES = 1000;
+
+  private final MetadataStore<T> store;
+
+  private final Function<String, T> bucketMetadataLoader;
+
+  private final MetadataDurability durability;
+
+  private final long flushIntervalMillis;
+
+  private final int maxPendingChanges;
+
+  private final Thread flusherThread;
+
+  private Map<String, PendingChange> pending = new LinkedHashMap<>();
+
+  private int pendingChanges;
+
+  private long firstPendingAt;
+
+  private boolean closed;
+
+  /**
+   * Create a {@linkplain MetadataFlusher} that persists each change in the calling thread.
+   *
+   * @param store the metadata store.
+   * @param bucketMetadataLoader gets the current metadata of a bucket.
+   * @return a new {@linkplain MetadataFlusher} instance.
+   */
+  public static <T> MetadataFlusher<T> sync(MetadataStore<T> store, Function<String, T> bucketMetadataLoader) {
+    return new MetadataFlusher<>(store, bucketMetadataLoader, MetadataDurability.SYNC, 0, 1);
+  }
+
+  /**
+   * Create a {@linkplain MetadataFlusher} with the default flush interval and batch size.
+   *
+   * @param store the metadata store.
+   * @param bucketMetadataLoader gets the current metadata of a bucket.
+   * @param durability the durability level.
+   * @return a new {@linkplain MetadataFlusher} instance.
+   */
+  public static <T> MetadataFlusher<T> create(MetadataStore<T> store, Function<String, T> bucketMetadataLoader,
+                                              MetadataDurability durability) {
+    return new MetadataFlusher<>(store, bucketMetadataLoader, durability,
+        DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_MAX_PENDING_CHANGES);
+  }
+
+  /**
+   * Create a {@linkplain MetadataFlusher}.
+   *
+   * @param store the metadata store.
+   * @param bucketMetadataLoader gets the current metadata of a bucket.
+   * @param durability the durability level.
+   * @param flushIntervalMillis the max time a change stays pending; {@code 0} flushes as soon as the flusher is idle.
+   * @param maxPendingChanges the number of pending changes that triggers a flush.
+   * @return a new {@linkplain MetadataFlusher} instance.
+   */
+  public static <T> MetadataFlusher<T> create(MetadataStore<T> store, Function<String, T> bucketMetadataLoader,
+                                              MetadataDurability durability, long flushIntervalMillis,
+                                              int maxPendingChanges) {
+    return new MetadataFlusher<>(store, bucketMetadataLoader, durability, flushIntervalMillis, maxPendingChanges);
+  }
+
+  private MetadataFlusher(MetadataStore<T> store, Function<String, T> bucketMetadataLoader,
+                          MetadataDurability durability, long flushIntervalMillis, int maxPendingChanges) {
+    this.store = store;
+    this.bucketMetadataLoader = bucketMetadataLoader;
+    this.durability = durability;
+    this.flushIntervalMillis = Math.max(0, flushIntervalMillis);
+    this.maxPendingChanges = Math.max(1, maxPendingChanges);
+    if (durability == MetadataDurability.SYNC) {
+      this.flusherThread = null;
+    } else {
+      this.flusherThread = new Thread(this::run, "locals3-metadata-flusher");
+      this.flusherThread.setDaemon(true);
+      this.flusherThread.start();
+    }
+  }
+
+  /**
+   * Persist, or schedule persisting, a change of bucket {@code bucketName}.
+   *
+   * @param bucketName the changed bucket.
+   * @param type the change type.
+   * @param key the only changed object key; {@code null} if the change is not confined to one key.
+   * @return completes when the change is persisted as required by the durability level.
+   */
+  public CompletableFuture<Void> bucketChanged(String bucketName, BucketChanged.Type type, String key) {
+    return bucketChanged(bucketName, type, key, null);
+  }
+
+  /**
+   * Persist, or schedule persisting, a change of bucket {@code bucketName}, then run the deletes
+   * of the contents that the change released. If the change fails to persist, the contents are
+   * kept, since the persisted metadata may still reference them.
+   *
+   * @param bucketName the changed bucket.
+   * @param type the change type.
+   * @param key the only changed object key; {@code null} if the change is not confined to one key.
+   * @param deletes the deletes to run once the change is persisted; may be {@code null}.
+   * @return completes when the change is persisted as required by the durability level.
+   */
+  public CompletableFuture<Void> bucketChanged(String bucketName, BucketChanged.Type type, String key,
+                                               List<Runnable> deletes) {
+    synchronized (this) {
+      if (flusherThread != null && !closed) {
+        PendingChange change = pending.computeIfAbsent(bucketName, k -> new PendingChange());
+        change.merge(type, key, deletes);
+        if (pendingChanges++ == 0) {
+          firstPendingAt = System.currentTimeMillis();
+        }
+        notifyAll();
+        return durability == MetadataDurability.GROUP_COMMIT ? change.flushed : CompletableFuture.completedFuture(null);
+      }
+    }
+
+    PendingChange change = new PendingChange();
+    change.merge(type, key, deletes);
+    flush(bucketName, change);
+    DeferredDeletes.run(change.deletes);
+    return CompletableFuture.completedFuture(null);
+  }
+
+  /**
+   * Flush pending changes and stop the background thread. Changes made after closing are
+   * persisted in the calling thread.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      notifyAll();
+    }
+
+    if (flusherThread != null) {
+      try {
+        flusherThread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void run() {
+    while (true) {
+      Map<String, PendingChange> batch;
+      synchronized (this) {
+        try {
+          while (pending.isEmpty() && !closed) {
+            wait();
+          }
+          long remaining;
+          while (!closed && pendingChanges < maxPendingChanges
+              && (remaining = firstPendingAt + flushIntervalMillis - System.currentTimeMillis()) > 0) {
+            wait(remaining);
+          }
+        } catch (InterruptedException e) {
+          closed = true;
+        }
+
+        if (pending.isEmpty()) {
+          return;
+        }
+        batch = pending;
+        pending = new LinkedHashMap<>();
+        pendingChanges = 0;
+      }
+
+      for (Map.Entry<String, PendingChange> entry : batch.entrySet()) {
+        PendingChange change = entry.getValue();
+        try {
+          flush(entry.getKey(), change);
+        } catch (Throwable e) {
+          log.error("Failed to flush metadata of bucket {}; kept {} released contents.", entry.getKey(),
+              change.deletes.size(), e);
+          change.flushed.completeExceptionally(e);
+          continue;
+        }
+        DeferredDeletes.run(change.deletes);
+        change.flushed.complete(null);
+      }
+    }
+  }
+
+  /**
+   * Write the change of a bucket. The bucket read lock only keeps bucket-level operations, such as
+   * deleting the bucket, from running while the change is written; object writers share it and
+   * keep running. The written metadata is still consistent per object: writers publish copies of
+   * object, version and upload part metadata instead of modifying them, into concurrent maps. So
+   * each written entry is a published snapshot at least as new as the change, and entries that
+   * change meanwhile are written again by their own flush.
+   */
+  private void flush(String bucketName, PendingChange change) {
+    Lock lock = BucketLock.getInstance().readLock(bucketName);
+    lock.lock();
+    try {
+      if (change.full) {
+        store.store(bucketName, bucketMetadataLoader.apply(bucketName));
+      } else if (change.deleted) {
+        deleteIfStored(bucketName);
+      } else if (change.keys.size() == 1) {
+        store.storeEntry(bucketName, bucketMetadataLoader.apply(bucketName), change.keys.iterator().next());
+      } else {
+        store.storeEntries(bucketName, bucketMetadataLoader.apply(bucketName), change.keys);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * A bucket created and deleted within one batch was never stored.
+   */
+  private void deleteIfStored(String bucketName) {
+    try {
+      store.delete(bucketName);
+    } catch (IllegalStateException e) {
+      if (durability == MetadataDurability.SYNC) {
+        throw e;
+      }
+      log.debug("Metadata of deleted bucket {} was not stored.", bucketName);
+    }
+  }
+
+  /**
+   * Coalesced changes of a bucket since the last flush.
+   */
+  private static class PendingChange {
+
+    private boolean full;
+
+    private boolean deleted;
+
+    private final Set<String> keys = new LinkedHashSet<>();
+
+    private final List<Runnable> deletes = new ArrayList<>();
+
+    private final CompletableFuture<Void> flushed = new CompletableFuture<>();
+
+    void merge(BucketChanged.Type type, String key, List<Runnable> deletes) {
+      if (deletes != null) {
+        this.deletes.addAll(deletes);
+      }
+      if (type == BucketChanged.Type.DELETE) {
+        deleted = true;
+        full = false;
+        keys.clear();
+      } else if (key == null) {
+        full = true;
+        deleted = false;
+        keys.clear();
+      } else if (!full) {
+        keys.add(key);
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,130 @@
+package com.robothy.s3.core.service.manager;
+
+import com.robothy.s3.core.annotations.BucketChanged;
+import com.robothy.s3.core.annotations.BucketReadLock;
+import com.robothy.s3.core.annotations.BucketWriteLock;
+import com.robothy.s3.core.service.locks.BucketLock;
+import com.robothy.s3.core.storage.DeferredDeletes;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * A service method prepared for {@linkplain LocalS3ServicesInvocationHandler}: its lock and
+ * persistence annotations are resolved once, and it is invoked through a method handle bound to
+ * the service implementation instead of {@linkplain Method#invoke(Object, Object...)}.
+ */
+final class ServiceMethod {
+
+  private enum LockType {
+    NONE, READ, WRITE, KEY_READ, KEY_WRITE
+  }
+
+  private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+  private final MethodHandle invoker;
+
+  private final LockType lockType;
+
+  private final int lockKeyIndex;
+
+  private final BucketChanged.Type changeType;
+
+  private final int changedKeyIndex;
+
+  private ServiceMethod(MethodHandle invoker, LockType lockType, int lockKeyIndex,
+                        BucketChanged.Type changeType, int changedKeyIndex) {
+    this.invoker = invoker;
+    this.lockType = lockType;
+    this.lockKeyIndex = lockKeyIndex;
+    this.changeType = changeType;
+    this.changedKeyIndex = changedKeyIndex;
+  }
+
+  /**
+   * Prepare {@code method} of a service interface to be invoked on {@code service}.
+   *
+   * @param method a method of the service interface.
+   * @param service the service implementation.
+   * @return the prepared method.
+   */
+  static ServiceMethod resolve(Method method, Object service) {
+    MethodHandle invoker;
+    try {
+      invoker = MethodHandles.lookup().unreflect(method)
+          .bindTo(service)
+          .asSpreader(Object[].class, method.getParameterCount())
+          .asType(INVOKER_TYPE);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException("Cannot access service method " + method, e);
+    }
+
+    LockType lockType = LockType.NONE;
+    int lockKeyIndex = -1;
+    BucketWriteLock writeLock = method.getDeclaredAnnotation(BucketWriteLock.class);
+    BucketReadLock readLock = method.getDeclaredAnnotation(BucketReadLock.class);
+    if (writeLock != null) {
+      lockKeyIndex = writeLock.objectKeyIndex();
+      lockType = lockKeyIndex >= 0 ? LockType.KEY_WRITE : LockType.WRITE;
+    } else if (readLock != null) {
+      lockKeyIndex = readLock.objectKeyIndex();
+      lockType = lockKeyIndex >= 0 ? LockType.KEY_READ : LockType.READ;
+    }
+
+    BucketChanged bucketChanged = method.getDeclaredAnnotation(BucketChanged.class);
+    BucketChanged.Type changeType = bucketChanged == null ? null : bucketChanged.type();
+    int changedKeyIndex = bucketChanged != null && bucketChanged.type() == BucketChanged.Type.UPDATE
+        ? bucketChanged.objectKeyIndex() : -1;
+    return new ServiceMethod(invoker, lockType, lockKeyIndex, changeType, changedKeyIndex);
+  }
+
+  /**
+   * Invoke the method. Exceptions thrown by the method are propagated as they are.
+   */
+  Object invoke(Object[] args) throws Throwable {
+    return (Object) invoker.invokeExact(args);
+  }
+
+  /**
+   * Get the lock required by the lock annotation of the method.
+   *
+   * @return the lock to hold during the invocation; {@code null} if the method is not annotated.
+   */
+  Lock lock(Object[] args) {
+    switch (lockType) {
+      case READ:
+        return BucketLock.getInstance().readLock((String) args[0]);
+      case WRITE:
+        return BucketLock.getInstance().writeLock((String) args[0]);
+      case KEY_READ:
+        return BucketLock.getInstance().keyReadLock((String) args[0], (String) args[lockKeyIndex]);
+      case KEY_WRITE:
+        return BucketLock.getInstance().keyWriteLock((String) args[0], (String) args[lockKeyIndex]);
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Persist the bucket changed by the method.
+   *
+   * @param deletes the deletes deferred by the invocation, run once the change is persisted;
+   *     may be {@code null}.
+   * @return completes once the change is persisted with the durability of {@code metadataFlusher}.
+   */
+  CompletableFuture<Void> persist(MetadataFlusher<?> metadataFlusher, Object[] args, List<Runnable> deletes) {
+    if (Objects.isNull(changeType) || Objects.isNull(metadataFlusher)) {
+      DeferredDeletes.run(deletes);
+      return CompletableFuture.completedFuture(null);
+    }
+
+    String key = changedKeyIndex >= 0 ? (String) args[changedKeyIndex] : null;
+    return metadataFlusher.bucketChanged((String) args[0], changeType, key, deletes);
+  }
+
+}
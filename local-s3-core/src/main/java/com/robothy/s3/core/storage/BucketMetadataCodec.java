@@ -0,0 +1,607 @@
+package com.robothy.s3.core.storage;
+
+import com.robothy.s3.core.model.internal.BucketMetadata;
+import com.robothy.s3.core.model.internal.ObjectMetadata;
+import com.robothy.s3.core.model.internal.UploadMetadata;
+import com.robothy.s3.core.model.internal.UploadPartMetadata;
+import com.robothy.s3.core.model.internal.VersionedObjectMetadata;
+import com.robothy.s3.core.util.JsonUtils;
+import com.robothy.s3.datatypes.AccessControlPolicy;
+import com.robothy.s3.datatypes.PublicAccessBlockConfiguration;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Binary encoding of {@linkplain BucketMetadata}.
+ *
+ * <p>An encoded bucket starts with {@linkplain #MAGIC}, the format version and the journal
+ * generation of the snapshot, followed by a length-prefixed bucket record, the objects and the multipart uploads. Each object and each
+ * upload is a length-prefixed record, so that a truncated or corrupted file is detected and
+ * later format versions can append fields to a record. Numbers are varints, signed ones
+ * zigzag encoded. Content types, user metadata and tag keys and values and regions are
+ * written once into a string table that grows while encoding; later occurrences refer
+ * to their table index.
+ */
+public final class BucketMetadataCodec {
+
+  /**
+   * First bytes of an encoded bucket. JSON bucket metadata always starts with <code>'{'</code>.
+   */
+  static final byte[] MAGIC = {'L', 'S', '3', 'B'};
+
+  static final int FORMAT_VERSION = 3;
+
+  /**
+   * The oldest format version that can be decoded. Version 1 has no objects composed of parts,
+   * versions before 3 have no journal generation.
+   */
+  private static final int MIN_FORMAT_VERSION = 1;
+
+  private static final int NULL = 0;
+
+  private static final int NEW_STRING = 1;
+
+  private static final int SINGLE_FILE = 1;
+
+  private static final int PART_FILES = 2;
+
+  private BucketMetadataCodec() {
+
+  }
+
+  /**
+   * Check whether {@code data} is an encoded bucket.
+   *
+   * @param data the file content.
+   * @return {@code true} if {@code data} starts with {@linkplain #MAGIC}.
+   */
+  public static boolean isEncoded(byte[] data) {
+    return data.length >= MAGIC.length && Arrays.equals(data, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+  }
+
+  /**
+   * Encode a bucket with journal generation {@code 0}.
+   *
+   * @param bucketMetadata the bucket metadata.
+   * @return encoded bytes.
+   */
+  public static byte[] encode(BucketMetadata bucketMetadata) {
+    return encode(bucketMetadata, 0);
+  }
+
+  /**
+   * Encode a bucket.
+   *
+   * @param bucketMetadata the bucket metadata.
+   * @param journalGeneration the generation of the journal records that apply on top of this snapshot.
+   * @return encoded bytes.
+   */
+  public static byte[] encode(BucketMetadata bucketMetadata, long journalGeneration) {
+    Writer writer = new Writer(new HashMap<>());
+    writer.writeBytes(MAGIC);
+    writer.writeVarInt(FORMAT_VERSION);
+    writer.writeVarLong(journalGeneration);
+
+    Writer bucket = writer.child();
+    bucket.writeString(bucketMetadata.getBucketName());
+    bucket.writeVarLong(bucketMetadata.getCreationDate());
+    bucket.writeTableString(bucketMetadata.getRegion());
+    bucket.writeBoolean(bucketMetadata.getVersioningEnabled());
+    bucket.writeString(bucketMetadata.getPolicy().orElse(null));
+    bucket.writeString(bucketMetadata.getReplication().orElse(null));
+    bucket.writeString(bucketMetadata.getEncryption().orElse(null));
+    bucket.writeString(bucketMetadata.getAcl().map(JsonUtils::toJson).orElse(null));
+    bucket.writeString(bucketMetadata.getPublicAccessBlock().map(JsonUtils::toJson).orElse(null));
+    bucket.writeBucketTagging(bucketMetadata.getTagging().orElse(null));
+    writer.writeRecord(bucket);
+
+    writer.writeVarInt(bucketMetadata.getObjectMap().size());
+    bucketMetadata.getObjectMap().forEach((key, objectMetadata) -> {
+      writer.writeString(key);
+      Writer object = writer.child();
+      object.writeString(objectMetadata.getVirtualVersion().orElse(null));
+      object.writeVarInt(objectMetadata.getVersionCount());
+      objectMetadata.forEachVersion((versionId, version) -> {
+        object.writeString(versionId);
+        object.writeVersion(version);
+      });
+      writer.writeRecord(object);
+    });
+
+    writer.writeVarInt(bucketMetadata.getUploads().size());
+    bucketMetadata.getUploads().forEach((key, uploads) -> {
+      writer.writeString(key);
+      writer.writeVarInt(uploads.size());
+      uploads.forEach((uploadId, uploadMetadata) -> {
+        writer.writeString(uploadId);
+        Writer upload = writer.child();
+        upload.writeUpload(uploadMetadata);
+        writer.writeRecord(upload);
+      });
+    });
+    return writer.toByteArray();
+  }
+
+  /**
+   * Read the journal generation of an encoded bucket. Only the header is read, so {@code data}
+   * may be a prefix of the encoded bytes.
+   *
+   * @param data encoded bytes.
+   * @return the journal generation, or {@code 0} for format versions without one.
+   * @throws IllegalArgumentException if {@code data} is not an encoded bucket or is corrupted.
+   */
+  public static long journalGeneration(byte[] data) {
+    if (!isEncoded(data)) {
+      throw new IllegalArgumentException("Not an encoded bucket metadata.");
+    }
+
+    Reader reader = new Reader(data, MAGIC.length);
+    try {
+      return readHeader(reader);
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Truncated bucket metadata.", e);
+    }
+  }
+
+  /**
+   * Decode a bucket encoded by {@linkplain #encode(BucketMetadata, long)}.
+   *
+   * @param data encoded bytes.
+   * @return the decoded bucket metadata.
+   * @throws IllegalArgumentException if {@code data} is not an encoded bucket or is corrupted.
+   */
+  public static BucketMetadata decode(byte[] data) {
+    if (!isEncoded(data)) {
+      throw new IllegalArgumentException("Not an encoded bucket metadata.");
+    }
+
+    Reader reader = new Reader(data, MAGIC.length);
+    try {
+      readHeader(reader);
+
+      BucketMetadata bucketMetadata = new BucketMetadata();
+      int bucketEnd = reader.beginRecord();
+      bucketMetadata.setBucketName(reader.readString());
+      bucketMetadata.setCreationDate(reader.readVarLong());
+      bucketMetadata.setRegion(reader.readTableString());
+      bucketMetadata.setVersioningEnabled(reader.readBoolean());
+      bucketMetadata.setPolicy(reader.readString());
+      bucketMetadata.setReplication(reader.readString());
+      bucketMetadata.setEncryption(reader.readString());
+      String acl = reader.readString();
+      bucketMetadata.setAcl(acl == null ? null : JsonUtils.fromJson(acl, AccessControlPolicy.class));
+      String publicAccessBlock = reader.readString();
+      bucketMetadata.setPublicAccessBlock(publicAccessBlock == null ? null
+          : JsonUtils.fromJson(publicAccessBlock, PublicAccessBlockConfiguration.class));
+      bucketMetadata.setTagging(reader.readBucketTagging());
+      reader.endRecord(bucketEnd);
+
+      int objectCount = reader.readVarInt();
+      for (int i = 0; i < objectCount; i++) {
+        String key = reader.readString();
+        int objectEnd = reader.beginRecord();
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setVirtualVersion(reader.readString());
+        int versionCount = reader.readVarInt();
+        for (int j = 0; j < versionCount; j++) {
+          String versionId = reader.readString();
+          objectMetadata.putVersionedObjectMetadata(versionId, reader.readVersion());
+        }
+        reader.endRecord(objectEnd);
+        bucketMetadata.putObjectMetadata(key, objectMetadata);
+      }
+
+      int uploadKeyCount = reader.readVarInt();
+      for (int i = 0; i < uploadKeyCount; i++) {
+        String key = reader.readString();
+        NavigableMap<String, UploadMetadata> uploads = new ConcurrentSkipListMap<>();
+        int uploadCount = reader.readVarInt();
+        for (int j = 0; j < uploadCount; j++) {
+          String uploadId = reader.readString();
+          int uploadEnd = reader.beginRecord();
+          uploads.put(uploadId, reader.readUpload());
+          reader.endRecord(uploadEnd);
+        }
+        bucketMetadata.getUploads().put(key, uploads);
+      }
+      return bucketMetadata;
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Truncated bucket metadata.", e);
+    }
+  }
+
+  /**
+   * Read the format version and, since version 3, the journal generation.
+   *
+   * @return the journal generation.
+   */
+  private static long readHeader(Reader reader) {
+    int version = reader.readVarInt();
+    if (version < MIN_FORMAT_VERSION || version > FORMAT_VERSION) {
+      throw new IllegalArgumentException("Unsupported bucket metadata format version " + version + ".");
+    }
+    return version >= 3 ? reader.readVarLong() : 0;
+  }
+
+  /**
+   * Appends to a growable byte array.
+   */
+  private static class Writer {
+
+    private final Map<String, Integer> stringTable;
+
+    private byte[] buffer = new byte[256];
+
+    private int size;
+
+    Writer(Map<String, Integer> stringTable) {
+      this.stringTable = stringTable;
+    }
+
+    /**
+     * Create a writer for a nested record that shares the string table.
+     */
+    Writer child() {
+      return new Writer(stringTable);
+    }
+
+    void writeRecord(Writer record) {
+      writeVarInt(record.size);
+      writeBytes(record.buffer, record.size);
+    }
+
+    void writeVersion(VersionedObjectMetadata version) {
+      writeString(version.getEtag());
+      writeTableString(version.getContentType());
+      writeVarLong(version.getCreationDate());
+      writeVarLong(version.getSize());
+      writeBoolean(version.isDeleted());
+      if (version.getPartFileIds() != null) {
+        writeVarInt(PART_FILES);
+        writeVarInt(version.getPartFileIds().length);
+        for (int i = 0; i < version.getPartFileIds().length; i++) {
+          writeVarLong(version.getPartFileIds()[i]);
+          writeVarLong(version.getPartOffsets()[i]);
+        }
+      } else if (version.getFileId() == null) {
+        writeVarInt(NULL);
+      } else {
+        writeVarInt(SINGLE_FILE);
+        writeVarLong(version.getFileId());
+      }
+      writeTagging(version.getTagging().orElse(null));
+      writeStringMap(version.getUserMetadata());
+    }
+
+    void writeUpload(UploadMetadata upload) {
+      writeVarLong(upload.getCreateDate());
+      writeTableString(upload.getContentType());
+      writeTagging(upload.getTagging().orElse(null));
+      writeStringMap(upload.getUserMetadata());
+      Map<Integer, UploadPartMetadata> parts = upload.getParts() == null ? Map.of() : upload.getParts();
+      writeVarInt(parts.size());
+      parts.forEach((partNumber, part) -> {
+        writeVarInt(partNumber);
+        writeString(part.getEtag());
+        writeVarLong(part.getLastModified());
+        writeVarLong(part.getSize());
+        writeVarLong(part.getFileId());
+      });
+    }
+
+    void writeTagging(String[][] tagging) {
+      if (tagging == null) {
+        writeVarInt(NULL);
+        return;
+      }
+      writeVarInt(tagging.length + 1);
+      for (String[] tag : tagging) {
+        writeVarInt(tag.length);
+        for (String value : tag) {
+          writeTableString(value);
+        }
+      }
+    }
+
+    void writeBucketTagging(Collection<Map<String, String>> tagging) {
+      if (tagging == null) {
+        writeVarInt(NULL);
+        return;
+      }
+      writeVarInt(tagging.size() + 1);
+      tagging.forEach(this::writeStringMap);
+    }
+
+    void writeStringMap(Map<String, String> map) {
+      if (map == null) {
+        writeVarInt(NULL);
+        return;
+      }
+      writeVarInt(map.size() + 1);
+      map.forEach((key, value) -> {
+        writeTableString(key);
+        writeTableString(value);
+      });
+    }
+
+    /**
+     * Write a string that is likely repeated in the bucket: {@code 0} for {@code null},
+     * {@code 1} followed by the string for its first occurrence, or its table index plus 2.
+     */
+    void writeTableString(String value) {
+      if (value == null) {
+        writeVarInt(NULL);
+        return;
+      }
+      Integer index = stringTable.get(value);
+      if (index != null) {
+        writeVarInt(index + 2);
+        return;
+      }
+      stringTable.put(value, stringTable.size());
+      writeVarInt(NEW_STRING);
+      writeUtf8(value);
+    }
+
+    /**
+     * Write a string: {@code 0} for {@code null}, otherwise the UTF-8 length plus 1 and the bytes.
+     */
+    void writeString(String value) {
+      if (value == null) {
+        writeVarInt(NULL);
+        return;
+      }
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeVarInt(bytes.length + 1);
+      writeBytes(bytes, bytes.length);
+    }
+
+    private void writeUtf8(String value) {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeVarInt(bytes.length);
+      writeBytes(bytes, bytes.length);
+    }
+
+    void writeBoolean(Boolean value) {
+      writeByte(value == null ? 0 : value ? 2 : 1);
+    }
+
+    void writeVarLong(long value) {
+      long zigzag = (value << 1) ^ (value >> 63);
+      while ((zigzag & ~0x7FL) != 0) {
+        writeByte((int) ((zigzag & 0x7F) | 0x80));
+        zigzag >>>= 7;
+      }
+      writeByte((int) zigzag);
+    }
+
+    void writeVarInt(int value) {
+      while ((value & ~0x7F) != 0) {
+        writeByte((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      writeByte(value);
+    }
+
+    void writeBytes(byte[] bytes) {
+      writeBytes(bytes, bytes.length);
+    }
+
+    void writeBytes(byte[] bytes, int length) {
+      ensureCapacity(length);
+      System.arraycopy(bytes, 0, buffer, size, length);
+      size += length;
+    }
+
+    private void writeByte(int value) {
+      ensureCapacity(1);
+      buffer[size++] = (byte) value;
+    }
+
+    private void ensureCapacity(int length) {
+      if (size + length > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + length));
+      }
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(buffer, size);
+    }
+
+  }
+
+  /**
+   * Reads from a byte array.
+   */
+  private static class Reader {
+
+    private final List<String> stringTable = new ArrayList<>();
+
+    private final byte[] data;
+
+    private int position;
+
+    Reader(byte[] data, int position) {
+      this.data = data;
+      this.position = position;
+    }
+
+    /**
+     * Read a record length.
+     *
+     * @return the end position of the record.
+     */
+    int beginRecord() {
+      int length = readVarInt();
+      if (length < 0 || length > data.length - position) {
+        throw new IllegalArgumentException("Corrupted bucket metadata record at offset " + position + ".");
+      }
+      return position + length;
+    }
+
+    /**
+     * Skip fields of the record appended by later format versions.
+     */
+    void endRecord(int end) {
+      if (position > end) {
+        throw new IllegalArgumentException("Corrupted bucket metadata record ending at offset " + end + ".");
+      }
+      position = end;
+    }
+
+    VersionedObjectMetadata readVersion() {
+      VersionedObjectMetadata version = new VersionedObjectMetadata();
+      version.setEtag(readString());
+      version.setContentType(readTableString());
+      version.setCreationDate(readVarLong());
+      version.setSize(readVarLong());
+      version.setDeleted(Boolean.TRUE.equals(readBoolean()));
+      int content = readVarInt();
+      if (content == SINGLE_FILE) {
+        version.setFileId(readVarLong());
+      } else if (content == PART_FILES) {
+        int partCount = readVarInt();
+        long[] partFileIds = new long[partCount];
+        long[] partOffsets = new long[partCount];
+        for (int i = 0; i < partCount; i++) {
+          partFileIds[i] = readVarLong();
+          partOffsets[i] = readVarLong();
+        }
+        version.setPartFileIds(partFileIds);
+        version.setPartOffsets(partOffsets);
+      }
+      version.setTagging(readTagging());
+      version.setUserMetadata(readStringMap());
+      return version;
+    }
+
+    UploadMetadata readUpload() {
+      UploadMetadata upload = new UploadMetadata();
+      upload.setCreateDate(readVarLong());
+      upload.setContentType(readTableString());
+      upload.setTagging(readTagging());
+      upload.setUserMetadata(readStringMap());
+      NavigableMap<Integer, UploadPartMetadata> parts = new ConcurrentSkipListMap<>();
+      int partCount = readVarInt();
+      for (int i = 0; i < partCount; i++) {
+        int partNumber = readVarInt();
+        UploadPartMetadata part = new UploadPartMetadata();
+        part.setEtag(readString());
+        part.setLastModified(readVarLong());
+        part.setSize(readVarLong());
+        part.setFileId(readVarLong());
+        parts.put(partNumber, part);
+      }
+      upload.setParts(parts);
+      return upload;
+    }
+
+    String[][] readTagging() {
+      int length = readVarInt();
+      if (length == NULL) {
+        return null;
+      }
+      String[][] tagging = new String[length - 1][];
+      for (int i = 0; i < tagging.length; i++) {
+        tagging[i] = new String[readVarInt()];
+        for (int j = 0; j < tagging[i].length; j++) {
+          tagging[i][j] = readTableString();
+        }
+      }
+      return tagging;
+    }
+
+    Collection<Map<String, String>> readBucketTagging() {
+      int size = readVarInt();
+      if (size == NULL) {
+        return null;
+      }
+      List<Map<String, String>> tagging = new ArrayList<>(size - 1);
+      for (int i = 0; i < size - 1; i++) {
+        tagging.add(readStringMap());
+      }
+      return tagging;
+    }
+
+    Map<String, String> readStringMap() {
+      int size = readVarInt();
+      if (size == NULL) {
+        return null;
+      }
+      Map<String, String> map = new LinkedHashMap<>();
+      for (int i = 0; i < size - 1; i++) {
+        map.put(readTableString(), readTableString());
+      }
+      return map;
+    }
+
+    String readTableString() {
+      int tag = readVarInt();
+      if (tag == NULL) {
+        return null;
+      }
+      if (tag == NEW_STRING) {
+        String value = readUtf8(readVarInt());
+        stringTable.add(value);
+        return value;
+      }
+      if (tag - 2 >= stringTable.size()) {
+        throw new IllegalArgumentException("Unknown string table index " + (tag - 2) + ".");
+      }
+      return stringTable.get(tag - 2);
+    }
+
+    String readString() {
+      int length = readVarInt();
+      return length == NULL ? null : readUtf8(length - 1);
+    }
+
+    private String readUtf8(int length) {
+      if (length < 0 || length > data.length - position) {
+        throw new IllegalArgumentException("Corrupted string at offset " + position + ".");
+      }
+      String value = new String(data, position, length, StandardCharsets.UTF_8);
+      position += length;
+      return value;
+    }
+
+    Boolean readBoolean() {
+      int value = data[position++];
+      return value == 0 ? null : value == 2;
+    }
+
+    long readVarLong() {
+      long zigzag = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = data[position++];
+        zigzag |= (long) (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    int readVarInt() {
+      int value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = data[position++];
+        value |= (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return value;
+    }
+
+  }
+
+}
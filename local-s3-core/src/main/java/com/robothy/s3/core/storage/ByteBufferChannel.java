@@ -0,0 +1,44 @@
+package com.robothy.s3.core.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * A {@linkplain ReadableByteChannel} that reads the remaining bytes of a buffer without copying it first.
+ */
+class ByteBufferChannel implements ReadableByteChannel {
+
+  private final ByteBuffer content;
+
+  private volatile boolean open = true;
+
+  ByteBufferChannel(ByteBuffer content) {
+    this.content = content;
+  }
+
+  @Override
+  public int read(ByteBuffer dst) throws ClosedChannelException {
+    if (!open) {
+      throw new ClosedChannelException();
+    }
+    if (!content.hasRemaining()) {
+      return -1;
+    }
+    int length = Math.min(dst.remaining(), content.remaining());
+    dst.put(content.slice().limit(length));
+    content.position(content.position() + length);
+    return length;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return open;
+  }
+
+  @Override
+  public void close() {
+    open = false;
+  }
+
+}
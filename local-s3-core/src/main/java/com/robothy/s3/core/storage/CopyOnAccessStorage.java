@@ -1,8 +1,12 @@
 package com.robothy.s3.core.storage;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.util.Arrays;
 import java.util.Objects;
+import java.util.Optional;
 
 /**
  * A {@linkplain  CopyOnAccessStorage} contains a base storage. When access
@@ -22,9 +26,21 @@ class CopyOnAccessStorage implements Storage {
    * @param base the base storage is where objects copy from.
    */
   CopyOnAccessStorage(Storage base) {
+    this(base, Storage.createInMemory());
+  }
+
+  /**
+   * Create a {@linkplain CopyOnAccessStorage} instance with a base storage and a storage
+   * that holds the copies.
+   *
+   * @param base the base storage is where objects copy from.
+   * @param real the storage is where objects copy to.
+   */
+  CopyOnAccessStorage(Storage base, Storage real) {
     Objects.requireNonNull(base);
+    Objects.requireNonNull(real);
     this.base = base;
-    this.real = Storage.createInMemory();
+    this.real = real;
   }
 
   @Override
@@ -59,6 +75,44 @@ class CopyOnAccessStorage implements Storage {
     return this.real.getInputStream(id);
   }
 
+  @Override
+  public ByteBuffer getByteBuffer(Long id) {
+    if (!this.real.isExist(id)) {
+      this.real.put(id, this.base.getBytes(id));
+    }
+    return this.real.getByteBuffer(id);
+  }
+
+  /**
+   * Read a range of the object. A range read doesn't copy the object from the base
+   * storage, so that ranged downloads of large objects stay proportional to the range.
+   */
+  @Override
+  public ByteBuffer read(Long id, long offset, long length) {
+    return this.real.isExist(id) ? this.real.read(id, offset, length) : this.base.read(id, offset, length);
+  }
+
+  /**
+   * Open a channel on the object. Like a range read, it doesn't copy the object from the base storage.
+   */
+  @Override
+  public ReadableByteChannel getChannel(Long id, long offset) {
+    return this.real.isExist(id) ? this.real.getChannel(id, offset) : this.base.getChannel(id, offset);
+  }
+
+  @Override
+  public Optional<FileChannel> getFileChannel(Long id, long offset) {
+    return this.real.isExist(id) ? this.real.getFileChannel(id, offset) : this.base.getFileChannel(id, offset);
+  }
+
+  /**
+   * Close the storage of copied objects. The base storage is owned by its creator.
+   */
+  @Override
+  public void close() {
+    this.real.close();
+  }
+
 
   @Override
   public Long delete(Long id) {
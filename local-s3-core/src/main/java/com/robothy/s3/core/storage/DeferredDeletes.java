@@ -0,0 +1,83 @@
+package com.robothy.s3.core.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Defers deletes of object contents until the metadata change that released them is persisted.
+ * Otherwise a crash after a content is deleted, but before the bucket metadata that no longer
+ * references it is written, would leave persisted metadata that references a missing content.
+ *
+ * <p>A service invocation that changes a bucket calls {@linkplain #begin()} before it runs, and
+ * runs the returned deletes with {@linkplain #run(List)} once its change is persisted. Deletes
+ * requested by other threads, or outside an invocation, run immediately.
+ */
+@Slf4j
+public final class DeferredDeletes {
+
+  private static final ThreadLocal<List<Runnable>> DEFERRED = new ThreadLocal<>();
+
+  private DeferredDeletes() {
+  }
+
+  /**
+   * Start deferring the deletes requested by the current thread.
+   *
+   * @return the list that collects the deferred deletes; {@code null} if the current thread
+   *     already defers them, then the outer invocation runs them.
+   */
+  public static List<Runnable> begin() {
+    if (DEFERRED.get() != null) {
+      return null;
+    }
+    List<Runnable> deletes = new ArrayList<>();
+    DEFERRED.set(deletes);
+    return deletes;
+  }
+
+  /**
+   * Stop deferring the deletes requested by the current thread.
+   *
+   * @param deletes the list returned by {@linkplain #begin()}.
+   */
+  public static void end(List<Runnable> deletes) {
+    if (deletes != null) {
+      DEFERRED.remove();
+    }
+  }
+
+  /**
+   * Defer {@code delete} if the current thread defers deletes.
+   *
+   * @param delete deletes a content.
+   * @return {@code true} if the delete is deferred; otherwise the caller deletes the content now.
+   */
+  public static boolean defer(Runnable delete) {
+    List<Runnable> deletes = DEFERRED.get();
+    if (deletes == null) {
+      return false;
+    }
+    deletes.add(delete);
+    return true;
+  }
+
+  /**
+   * Run the deletes deferred by an invocation. A failed delete is logged and the others still run.
+   *
+   * @param deletes the list returned by {@linkplain #begin()}; may be {@code null}.
+   */
+  public static void run(List<Runnable> deletes) {
+    if (deletes == null) {
+      return;
+    }
+    for (Runnable delete : deletes) {
+      try {
+        delete.run();
+      } catch (RuntimeException e) {
+        log.warn("Failed to delete a released content.", e);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,299 @@
+package com.robothy.s3.core.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A two-level hashed directory layout for files named by numeric ids. The file of id
+ * {@code 42} is stored as {@code <directory>/ab/cd/42}, where {@code ab} and {@code cd} are
+ * derived from a hash of the id, giving 65536 leaf directories, so that no single directory grows beyond a few hundred
+ * entries even with millions of files.
+ *
+ * <p>The layout version is recorded in a {@value #FORMAT_FILE} file. A directory without the
+ * marker that already contains files is a flat (version 1) directory; its files are moved
+ * into the hashed layout by a background thread while the directory stays readable and
+ * writable. The marker is written once the migration completes.
+ */
+@Slf4j
+public class FanOutDirectory {
+
+  static final String FORMAT_FILE = ".format";
+
+  static final int FORMAT_VERSION = 2;
+
+  private final Path directory;
+
+  private volatile boolean migrating;
+
+  private volatile CompletableFuture<Void> migration = CompletableFuture.completedFuture(null);
+
+  private FanOutDirectory(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Open {@code directory} in the hashed layout, creating it if absent. Migration of an existing
+   * flat directory starts in the background.
+   *
+   * @param directory the root directory.
+   * @return a {@linkplain FanOutDirectory} instance.
+   */
+  public static FanOutDirectory open(Path directory) {
+    FanOutDirectory fanOut = new FanOutDirectory(directory);
+    fanOut.init();
+    return fanOut;
+  }
+
+  /**
+   * The path where the file of {@code id} is written. Parent directories are created.
+   *
+   * @param id file id.
+   * @return the hashed path of the file.
+   */
+  public Path pathForWrite(Long id) throws IOException {
+    Path path = hashedPath(id);
+    Files.createDirectories(path.getParent());
+    return path;
+  }
+
+  /**
+   * Read the file of {@code id} with {@code reader}. While a migration is in progress the file
+   * may still be at its flat path, or be moved between locating and opening it; both cases are
+   * retried here.
+   *
+   * @param id file id.
+   * @param reader reads the file at the given path.
+   * @return the result of {@code reader}.
+   * @throws NoSuchFileException if the file does not exist.
+   */
+  public <T> T read(Long id, PathReader<T> reader) throws IOException {
+    try {
+      return reader.read(hashedPath(id));
+    } catch (NoSuchFileException e) {
+      if (!migrating) {
+        throw e;
+      }
+    }
+
+    try {
+      return reader.read(flatPath(id));
+    } catch (NoSuchFileException e) {
+      return reader.read(hashedPath(id));
+    }
+  }
+
+  /**
+   * Check whether the file of {@code id} exists.
+   *
+   * @param id file id.
+   * @return {@code true} if the file exists.
+   */
+  public boolean exists(Long id) {
+    Path hashed = hashedPath(id);
+    if (Files.exists(hashed)) {
+      return true;
+    }
+    return migrating && (Files.exists(flatPath(id)) || Files.exists(hashed));
+  }
+
+  /**
+   * Delete the file of {@code id}. While a migration is in progress the file may be moved from
+   * its flat path to its hashed path after the hashed path is deleted, so the hashed path is
+   * deleted again once the flat one is gone; a file can no longer be moved at that point.
+   *
+   * @param id file id.
+   * @return {@code true} if the file was deleted; {@code false} if it did not exist.
+   */
+  public boolean delete(Long id) throws IOException {
+    Path hashed = hashedPath(id);
+    boolean deleted = Files.deleteIfExists(hashed);
+    if (migrating) {
+      deleted |= Files.deleteIfExists(flatPath(id));
+      deleted |= Files.deleteIfExists(hashed);
+    }
+    return deleted;
+  }
+
+  /**
+   * Count files in both the hashed and the flat layout.
+   *
+   * @return the number of id-named files.
+   */
+  public long count() throws IOException {
+    try (Stream<Path> files = Files.walk(directory, 3)) {
+      return files.filter(this::isDataFile).count();
+    }
+  }
+
+  /**
+   * @return {@code true} if a flat directory is being migrated.
+   */
+  public boolean isMigrating() {
+    return migrating;
+  }
+
+  /**
+   * Wait for the background migration to finish.
+   */
+  void awaitMigration() {
+    migration.join();
+  }
+
+  Path hashedPath(Long id) {
+    int hash = hash(id);
+    return directory.resolve(level((hash >>> 8) & 0xff))
+        .resolve(level(hash & 0xff))
+        .resolve(String.valueOf(id));
+  }
+
+  /**
+   * Name a subdirectory by the nibbles of {@code b} as letters {@code a-p}, so that it never
+   * collides with a numeric file name of the flat layout.
+   */
+  private static String level(int b) {
+    return new String(new char[] {(char) ('a' + (b >>> 4)), (char) ('a' + (b & 0xf))});
+  }
+
+  private Path flatPath(Long id) {
+    return directory.resolve(String.valueOf(id));
+  }
+
+  private void init() {
+    try {
+      Files.createDirectories(directory);
+      Path formatFile = directory.resolve(FORMAT_FILE);
+      if (Files.exists(formatFile)) {
+        int version = Integer.parseInt(Files.readString(formatFile, StandardCharsets.UTF_8).trim());
+        if (version != FORMAT_VERSION) {
+          throw new IllegalStateException("Unsupported storage format version " + version + " in " + directory);
+        }
+        return;
+      }
+
+      if (!hasFlatFiles()) {
+        writeFormatFileQuietly();
+        return;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    log.info("Migrating flat storage directory {} to the hashed layout.", directory);
+    migrating = true;
+    migration = CompletableFuture.runAsync(this::migrate, runnable -> {
+      Thread thread = new Thread(runnable, "fan-out-migration");
+      thread.setDaemon(true);
+      thread.start();
+    });
+  }
+
+  private boolean hasFlatFiles() throws IOException {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, this::isDataFile)) {
+      return files.iterator().hasNext();
+    }
+  }
+
+  /**
+   * Move every flat file to its hashed path. The file is linked to the hashed path before the
+   * flat one is removed, so readers always find it in one of the two places. A hashed file that
+   * already exists was written after the migration started and wins over the flat one.
+   */
+  private void migrate() {
+    long moved = 0;
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, this::isDataFile)) {
+      for (Path flat : files) {
+        if (moveToHashedPath(flat)) {
+          moved++;
+        }
+      }
+      writeFormatFile();
+      migrating = false;
+      log.info("Migrated {} files in {} to the hashed layout.", moved, directory);
+    } catch (IOException e) {
+      log.error("Failed to migrate {} to the hashed layout; will retry on next start.", directory, e);
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private boolean moveToHashedPath(Path flat) throws IOException {
+    Path hashed = pathForWrite(Long.parseLong(flat.getFileName().toString()));
+    try {
+      Files.createLink(hashed, flat);
+    } catch (FileAlreadyExistsException | NoSuchFileException e) {
+      // Overridden or deleted after the migration started.
+      Files.deleteIfExists(flat);
+      return false;
+    } catch (UnsupportedOperationException e) {
+      Files.move(flat, hashed);
+      return true;
+    }
+    Files.deleteIfExists(flat);
+    return true;
+  }
+
+  /**
+   * The marker of an empty directory is informational; a read-only directory is still usable.
+   */
+  private void writeFormatFileQuietly() {
+    try {
+      writeFormatFile();
+    } catch (IOException e) {
+      log.warn("Failed to write the storage format marker in {}.", directory, e);
+    }
+  }
+
+  private void writeFormatFile() throws IOException {
+    Files.writeString(directory.resolve(FORMAT_FILE), String.valueOf(FORMAT_VERSION), StandardCharsets.UTF_8);
+  }
+
+  private boolean isDataFile(Path file) {
+    return isIdFile(file) && Files.isRegularFile(file);
+  }
+
+  private boolean isIdFile(Path file) {
+    String name = file.getFileName().toString();
+    if (name.isEmpty() || name.length() > 19) {
+      return false;
+    }
+    for (int i = 0; i < name.length(); i++) {
+      if (!Character.isDigit(name.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Mix the bits of {@code id}. Snowflake ids differ mostly in their low and middle bits, which
+   * would otherwise cluster consecutive ids into the same directories.
+   */
+  private static int hash(long id) {
+    long h = id;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return (int) h;
+  }
+
+  /**
+   * Reads a file at a path.
+   */
+  @FunctionalInterface
+  public interface PathReader<T> {
+
+    T read(Path path) throws IOException;
+
+  }
+
+}
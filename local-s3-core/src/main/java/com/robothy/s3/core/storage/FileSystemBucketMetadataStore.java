@@ -1,24 +1,77 @@
 package com.robothy.s3.core.storage;
 
+import com.robothy.s3.core.model.internal.BucketJournalRecord;
 import com.robothy.s3.core.model.internal.BucketMetadata;
 import com.robothy.s3.core.util.JsonUtils;
 import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
+/**
+ * Stores each bucket as a snapshot {@code <bucket>.bucket.meta} plus an append-only
+ * journal {@code <bucket>.bucket.journal}. A change confined to object keys appends a
+ * {@linkplain BucketJournalRecord} line per key to the journal; other changes, and reaching
+ * {@code checkpointInterval} journal records, rewrite the snapshot and truncate the journal.
+ * {@linkplain #fetch(String)} replays the journal over the snapshot.
+ *
+ * <p>Each snapshot carries a journal generation, and each journal record the generation of
+ * the snapshot it was appended after. Rewriting the snapshot increments the generation before
+ * the journal is discarded, so if a crash leaves the old journal behind, its records are older
+ * than the snapshot and replay skips them instead of regressing keys.
+ *
+ * <p>Snapshots are written in the format of {@linkplain BucketMetadataCodec}. Snapshots written
+ * as JSON by earlier versions are still read.
+ */
 @Slf4j
 public class FileSystemBucketMetadataStore implements MetadataStore<BucketMetadata> {
 
   private static final String BUCKET_METADATA_FILE_SUFFIX = ".bucket.meta";
 
+  private static final String BUCKET_JOURNAL_FILE_SUFFIX = ".bucket.journal";
+
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+  /**
+   * Enough bytes of a snapshot to hold the magic, the format version and the journal generation.
+   */
+  private static final int HEADER_PREFIX_LENGTH = 32;
+
+  public static final int DEFAULT_CHECKPOINT_INTERVAL = 1000;
+
   public static MetadataStore<BucketMetadata> create(Path dataPath) {
+    return create(dataPath, DEFAULT_CHECKPOINT_INTERVAL, false);
+  }
+
+  public static MetadataStore<BucketMetadata> create(Path dataPath, int checkpointInterval) {
+    return create(dataPath, checkpointInterval, false);
+  }
+
+  /**
+   * Create a {@linkplain FileSystemBucketMetadataStore} instance.
+   *
+   * @param dataPath the directory of bucket metadata files.
+   * @param checkpointInterval the number of journal records of a bucket after which the bucket snapshot is rewritten.
+   * @param forceWrites if {@code true}, each write is forced to the storage device before returning.
+   * @return a new {@linkplain MetadataStore} instance.
+   */
+  public static MetadataStore<BucketMetadata> create(Path dataPath, int checkpointInterval, boolean forceWrites) {
     Objects.requireNonNull(dataPath);
     File file = dataPath.toFile();
     if (!file.exists() || !file.isDirectory()) {
@@ -26,49 +79,274 @@ public class FileSystemBucketMetadataStore implements MetadataStore<BucketMetada
         throw new IllegalStateException("Failed to create directory " + dataPath.toAbsolutePath());
       }
     }
-    return new FileSystemBucketMetadataStore(dataPath);
+    return new FileSystemBucketMetadataStore(dataPath, checkpointInterval, forceWrites);
   }
 
   private final Path dataPath;
 
-  private FileSystemBucketMetadataStore(Path path) {
+  private final int checkpointInterval;
+
+  private final boolean forceWrites;
+
+  private final Map<String, Journal> journals = new ConcurrentHashMap<>();
+
+  private FileSystemBucketMetadataStore(Path path, int checkpointInterval, boolean forceWrites) {
     this.dataPath = path;
+    this.checkpointInterval = checkpointInterval;
+    this.forceWrites = forceWrites;
   }
 
   @SneakyThrows
   @Override
   public BucketMetadata fetch(String bucketName) {
     log.debug("Fetching metadata of bucket {}.", bucketName);
-    return JsonUtils.fromJson(new File(dataPath.toFile(), bucketName + BUCKET_METADATA_FILE_SUFFIX), BucketMetadata.class);
+    byte[] snapshot = Files.readAllBytes(snapshotFile(bucketName));
+    boolean encoded = BucketMetadataCodec.isEncoded(snapshot);
+    BucketMetadata bucketMetadata = encoded ? BucketMetadataCodec.decode(snapshot)
+        : JsonUtils.fromJson(new String(snapshot, StandardCharsets.UTF_8), BucketMetadata.class);
+    replayJournal(bucketName, bucketMetadata, encoded ? BucketMetadataCodec.journalGeneration(snapshot) : 0);
+    return bucketMetadata;
   }
 
+  /**
+   * Write a snapshot of the whole bucket and discard its journal. The snapshot is written to a
+   * temporary file first, so that a crash never leaves a partially written snapshot behind, and
+   * with the next journal generation, so that a crash before the journal is discarded never
+   * replays the old journal over it.
+   */
   @Override
+  @SneakyThrows
   public String store(String bucketName, BucketMetadata bucketMetadata) {
     if (StringUtils.isBlank(bucketMetadata.getBucketName())) {
       throw new IllegalArgumentException("Invalid bucket name '" + bucketMetadata.getBucketName() + "'.");
     }
 
-    JsonUtils.toJson(new File(dataPath.toFile(), bucketMetadata.getBucketName() + BUCKET_METADATA_FILE_SUFFIX), bucketMetadata);
-    return bucketMetadata.getBucketName();
+    String name = bucketMetadata.getBucketName();
+    Journal journal = journals.computeIfAbsent(name, Journal::new);
+    synchronized (journal) {
+      Path snapshot = snapshotFile(name);
+      Path temp = dataPath.resolve(name + BUCKET_METADATA_FILE_SUFFIX + TEMP_FILE_SUFFIX);
+      long generation = journal.generation() + 1;
+      try (FileChannel channel = FileChannel.open(temp,
+          StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        ByteBuffer buffer = ByteBuffer.wrap(BucketMetadataCodec.encode(bucketMetadata, generation));
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+        if (forceWrites) {
+          channel.force(true);
+        }
+      }
+      Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      journal.truncate(generation);
+    }
+    return name;
+  }
+
+  /**
+   * Append the state of object {@code key} to the bucket journal. Falls back to
+   * {@linkplain #store(String, BucketMetadata)} when no snapshot exists yet or the journal
+   * reached the checkpoint interval.
+   */
+  @Override
+  public String storeEntry(String bucketName, BucketMetadata bucketMetadata, String key) {
+    return storeEntries(bucketName, bucketMetadata, List.of(key));
+  }
+
+  /**
+   * Append the state of each object of {@code keys} to the bucket journal in a single write.
+   */
+  @Override
+  @SneakyThrows
+  public String storeEntries(String bucketName, BucketMetadata bucketMetadata, Collection<String> keys) {
+    Journal journal = journals.computeIfAbsent(bucketName, Journal::new);
+    synchronized (journal) {
+      if (journal.records + keys.size() > checkpointInterval || !Files.exists(snapshotFile(bucketName))) {
+        return store(bucketName, bucketMetadata);
+      }
+
+      StringBuilder lines = new StringBuilder();
+      long generation = journal.generation();
+      for (String key : keys) {
+        BucketJournalRecord record = new BucketJournalRecord(generation, key,
+            bucketMetadata.getObjectMap().get(key), bucketMetadata.getUploads().get(key));
+        lines.append(JsonUtils.toJson(record)).append('\n');
+      }
+      journal.append(lines.toString(), keys.size());
+    }
+    return bucketName;
   }
 
+  /**
+   * Delete the snapshot before the journal, so that a crash in between leaves no snapshot to
+   * replay the journal over. A journal left behind is discarded before a bucket with the same
+   * name is stored again.
+   */
   @Override
+  @SneakyThrows
   public void delete(String bucketName) {
-    if (!new File(dataPath.toFile(), bucketName + BUCKET_METADATA_FILE_SUFFIX).delete()) {
+    if (!snapshotFile(bucketName).toFile().delete()) {
       throw new IllegalStateException("Failed to delete metadata of bucket " + bucketName);
     }
+
+    Journal journal = journals.remove(bucketName);
+    if (journal != null) {
+      synchronized (journal) {
+        journal.truncate(0);
+      }
+    }
+    Files.deleteIfExists(journalFile(bucketName));
   }
 
   @Override
-  @SneakyThrows
   public List<BucketMetadata> fetchAll() {
+    return listNames().stream()
+        .map(this::fetch)
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  @SneakyThrows
+  public List<String> listNames() {
     try (Stream<Path> pathStream = Files.walk(dataPath, 1)) {
       return pathStream
           .filter(path -> path.toString().endsWith(BUCKET_METADATA_FILE_SUFFIX))
           .map(path -> path.getFileName().toString())
           .map(fileName -> fileName.substring(0, fileName.lastIndexOf(BUCKET_METADATA_FILE_SUFFIX)))
-          .map(this::fetch)
           .collect(Collectors.toList());
     }
   }
+
+  /**
+   * Apply journal records of {@code generation} and later in order. Older records were left
+   * behind by a crash after the snapshot was rewritten and are already part of the snapshot.
+   * A record that cannot be parsed is the tail of an interrupted append; it and everything
+   * after it are cut off so that later appends start on a clean line.
+   */
+  @SneakyThrows
+  private void replayJournal(String bucketName, BucketMetadata bucketMetadata, long generation) {
+    Path journalFile = journalFile(bucketName);
+    if (!Files.exists(journalFile)) {
+      return;
+    }
+
+    byte[] content = Files.readAllBytes(journalFile);
+    int start = 0;
+    int replayed = 0;
+    int skipped = 0;
+    while (start < content.length) {
+      int end = start;
+      while (end < content.length && content[end] != '\n') {
+        end++;
+      }
+
+      BucketJournalRecord record = null;
+      if (end < content.length) {
+        try {
+          record = JsonUtils.fromJson(new String(content, start, end - start, StandardCharsets.UTF_8), BucketJournalRecord.class);
+        } catch (Exception e) {
+          log.warn("Skip corrupted journal record of bucket {} at offset {}.", bucketName, start, e);
+        }
+      }
+
+      if (record == null) {
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+          channel.truncate(start);
+        }
+        break;
+      }
+
+      if (record.getGeneration() < generation) {
+        skipped++;
+      } else {
+        record.applyTo(bucketMetadata);
+        replayed++;
+      }
+      start = end + 1;
+    }
+    log.debug("Replayed {} journal records of bucket {}, skipped {} stale ones.", replayed, bucketName, skipped);
+  }
+
+  private Path snapshotFile(String bucketName) {
+    return dataPath.resolve(bucketName + BUCKET_METADATA_FILE_SUFFIX);
+  }
+
+  private Path journalFile(String bucketName) {
+    return dataPath.resolve(bucketName + BUCKET_JOURNAL_FILE_SUFFIX);
+  }
+
+  /**
+   * The journal file of a bucket, the number of records appended since the last checkpoint and
+   * the generation of the current snapshot.
+   */
+  private class Journal {
+
+    private final String bucketName;
+
+    private FileChannel channel;
+
+    private int records;
+
+    private long generation = -1;
+
+    Journal(String bucketName) {
+      this.bucketName = bucketName;
+    }
+
+    /**
+     * The generation of the current snapshot, read from the snapshot header on first use.
+     * A JSON snapshot has generation {@code 0}. Without a snapshot, a journal is what a crash
+     * during {@linkplain #delete(String)} left behind and is discarded.
+     */
+    @SneakyThrows
+    long generation() {
+      if (generation < 0) {
+        Path snapshot = snapshotFile(bucketName);
+        generation = 0;
+        if (!Files.exists(snapshot)) {
+          Files.deleteIfExists(journalFile(bucketName));
+        } else {
+          byte[] header = new byte[HEADER_PREFIX_LENGTH];
+          int length;
+          try (InputStream in = Files.newInputStream(snapshot)) {
+            length = in.readNBytes(header, 0, header.length);
+          }
+          byte[] prefix = Arrays.copyOf(header, length);
+          if (BucketMetadataCodec.isEncoded(prefix)) {
+            generation = BucketMetadataCodec.journalGeneration(prefix);
+          }
+        }
+      }
+      return generation;
+    }
+
+    @SneakyThrows
+    void append(String lines, int count) {
+      if (channel == null) {
+        channel = FileChannel.open(journalFile(bucketName),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+      }
+      ByteBuffer buffer = StandardCharsets.UTF_8.encode(lines);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      if (forceWrites) {
+        channel.force(false);
+      }
+      records += count;
+    }
+
+    @SneakyThrows
+    void truncate(long generation) {
+      if (channel != null) {
+        channel.close();
+        channel = null;
+      }
+      Files.deleteIfExists(journalFile(bucketName));
+      records = 0;
+      this.generation = generation;
+    }
+
+  }
+
 }
@@ -3,6 +3,7 @@ package com.robothy.s3.core.storage;
 import com.robothy.s3.core.exception.TotalSizeExceedException;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -64,6 +65,20 @@ class InMemoryStorage implements Storage {
     return new ByteArrayInputStream(data);
   }
 
+  @Override
+  public ByteBuffer getByteBuffer(Long id) {
+    ensureObjectExist(id);
+    return ByteBuffer.wrap(store.get(id)).asReadOnlyBuffer();
+  }
+
+  @Override
+  public ByteBuffer read(Long id, long offset, long length) {
+    ensureObjectExist(id);
+    byte[] data = store.get(id);
+    int bufferLength = StorageRanges.checkRange(id, offset, length, data.length);
+    return ByteBuffer.wrap(data, (int) offset, bufferLength).slice().asReadOnlyBuffer();
+  }
+
   @Override
   public Long delete(Long id) {
     ensureObjectExist(id);
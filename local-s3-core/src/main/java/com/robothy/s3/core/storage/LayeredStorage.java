@@ -1,7 +1,11 @@
 package com.robothy.s3.core.storage;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.util.Objects;
+import java.util.Optional;
 
 /**
  * A {@linkplain LayeredStorage} has a backend and frontend {@linkplain Storage}.
@@ -50,6 +54,35 @@ class LayeredStorage implements Storage {
     return front.isExist(id) ? front.getInputStream(id) : back.getInputStream(id);
   }
 
+  @Override
+  public ByteBuffer getByteBuffer(Long id) {
+    return front.isExist(id) ? front.getByteBuffer(id) : back.getByteBuffer(id);
+  }
+
+  @Override
+  public ByteBuffer read(Long id, long offset, long length) {
+    return front.isExist(id) ? front.read(id, offset, length) : back.read(id, offset, length);
+  }
+
+  @Override
+  public ReadableByteChannel getChannel(Long id, long offset) {
+    return front.isExist(id) ? front.getChannel(id, offset) : back.getChannel(id, offset);
+  }
+
+  @Override
+  public Optional<FileChannel> getFileChannel(Long id, long offset) {
+    return front.isExist(id) ? front.getFileChannel(id, offset) : back.getFileChannel(id, offset);
+  }
+
+  @Override
+  public void close() {
+    try {
+      front.close();
+    } finally {
+      back.close();
+    }
+  }
+
   /**
    * Delete the object ID from the front storage if exists.
    *
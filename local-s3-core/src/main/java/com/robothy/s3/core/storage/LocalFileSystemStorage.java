@@ -1,22 +1,27 @@
 package com.robothy.s3.core.storage;
 
-import com.robothy.s3.core.util.PathUtils;
+import java.io.EOFException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.util.Objects;
+import java.util.Optional;
 import lombok.SneakyThrows;
 import org.apache.commons.io.IOUtils;
 
 /**
- * An implementation of {@linkplain Storage} based on a local directory.
+ * An implementation of {@linkplain Storage} based on a local directory. Object files are
+ * spread over hashed subdirectories, see {@linkplain FanOutDirectory}.
  */
 class LocalFileSystemStorage implements Storage {
 
-  private final Path directory;
+  private final FanOutDirectory directory;
 
   /**
    * Construct a {@linkplain LocalFileSystemStorage} instance.
@@ -25,14 +30,13 @@ class LocalFileSystemStorage implements Storage {
    */
   public LocalFileSystemStorage(Path dataPath) {
     Objects.requireNonNull(dataPath);
-    this.directory = dataPath;
-    PathUtils.createDirectoryIfNotExit(directory);
+    this.directory = FanOutDirectory.open(dataPath);
   }
 
   @Override
   @SneakyThrows
   public Long put(Long id, byte[] data) {
-    Files.write(Paths.get(directory.toString(), String.valueOf(id)), data,
+    Files.write(directory.pathForWrite(id), data,
         StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.CREATE);
     return id;
   }
@@ -40,7 +44,7 @@ class LocalFileSystemStorage implements Storage {
   @Override
   @SneakyThrows
   public Long put(Long id, InputStream data) {
-    Path objectPath = Paths.get(directory.toString(), String.valueOf(id));
+    Path objectPath = directory.pathForWrite(id);
     try (InputStream _data = data; OutputStream out = Files.newOutputStream(objectPath, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.CREATE)) {
       IOUtils.copy(_data, out);
     }
@@ -51,27 +55,93 @@ class LocalFileSystemStorage implements Storage {
   @SneakyThrows
   public byte[] getBytes(Long id) {
     ensureExists(id);
-    return Files.readAllBytes(Paths.get(directory.toString(), String.valueOf(id)));
+    return directory.read(id, Files::readAllBytes);
   }
 
   @Override
   @SneakyThrows
   public InputStream getInputStream(Long id) {
     ensureExists(id);
-    return Files.newInputStream(Paths.get(directory.toString(), String.valueOf(id)));
+    return directory.read(id, Files::newInputStream);
+  }
+
+  /**
+   * Read the object file into the heap. Files are not memory-mapped: a mapping is only released
+   * by the garbage collector, which leaks address space and keeps the file from being deleted on
+   * Windows. Large objects are read with {@linkplain #getChannel(Long, long)}.
+   */
+  @Override
+  @SneakyThrows
+  public ByteBuffer getByteBuffer(Long id) {
+    ensureExists(id);
+    try (FileChannel channel = directory.read(id, path -> FileChannel.open(path, StandardOpenOption.READ))) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Object id='" + id + "' of " + size + " bytes is too large for a buffer.");
+      }
+      return readFully(channel, 0, (int) size);
+    }
+  }
+
+  @Override
+  @SneakyThrows
+  public ByteBuffer read(Long id, long offset, long length) {
+    ensureExists(id);
+    try (FileChannel channel = directory.read(id, path -> FileChannel.open(path, StandardOpenOption.READ))) {
+      int bufferLength = StorageRanges.checkRange(id, offset, length, channel.size());
+      return readFully(channel, offset, bufferLength);
+    }
+  }
+
+  /**
+   * Open the object file positioned at {@code offset}; the file is read as the channel is consumed.
+   */
+  @Override
+  public ReadableByteChannel getChannel(Long id, long offset) {
+    return openFile(id, offset);
+  }
+
+  @Override
+  public Optional<FileChannel> getFileChannel(Long id, long offset) {
+    return Optional.of(openFile(id, offset));
+  }
+
+  @SneakyThrows
+  private FileChannel openFile(Long id, long offset) {
+    ensureExists(id);
+    FileChannel channel = directory.read(id, path -> FileChannel.open(path, StandardOpenOption.READ));
+    try {
+      if (offset < 0 || offset > channel.size()) {
+        throw new IllegalArgumentException("Offset " + offset + " is out of bounds of object id='" + id + "'.");
+      }
+      return channel.position(offset);
+    } catch (Exception e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException("Unexpected end of file at " + (position + buffer.position()) + ".");
+      }
+    }
+    return buffer.flip().asReadOnlyBuffer();
   }
 
   @Override
   @SneakyThrows
   public Long delete(Long id) {
     ensureExists(id);
-    Files.delete(Paths.get(directory.toString(), String.valueOf(id)));
+    directory.delete(id);
     return id;
   }
 
   @Override
   public boolean isExist(Long id) {
-    return Files.exists(Paths.get(directory.toString(), String.valueOf(id)));
+    return directory.exists(id);
   }
 
   private void ensureExists(Long id) {
@@ -1,5 +1,6 @@
 package com.robothy.s3.core.storage;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -26,6 +27,33 @@ public interface MetadataStore<T> {
    */
   String store(String name, T metadataObject);
 
+  /**
+   * Store a metadata instance of which only the entry {@code key} changed since it was
+   * last stored. Implementations may persist the changed entry only; the default
+   * implementation stores the whole metadata instance.
+   *
+   * @param name the metadata instance name.
+   * @param metadataObject metadata instance to store.
+   * @param key the changed entry.
+   * @return the name of stored metadata.
+   */
+  default String storeEntry(String name, T metadataObject, String key) {
+    return store(name, metadataObject);
+  }
+
+  /**
+   * Store a metadata instance of which only the entries {@code keys} changed since it was
+   * last stored. The default implementation stores the whole metadata instance once.
+   *
+   * @param name the metadata instance name.
+   * @param metadataObject metadata instance to store.
+   * @param keys the changed entries.
+   * @return the name of stored metadata.
+   */
+  default String storeEntries(String name, T metadataObject, Collection<String> keys) {
+    return store(name, metadataObject);
+  }
+
   /**
    * Delete a metadata from store by name.
    *
@@ -41,4 +69,11 @@ public interface MetadataStore<T> {
    */
   List<T> fetchAll();
 
+  /**
+   * List names of all metadata instances in the store without fetching them.
+   *
+   * @return names of all metadata instances in the store.
+   */
+  List<String> listNames();
+
 }
@@ -0,0 +1,182 @@
+package com.robothy.s3.core.storage;
+
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.robothy.s3.core.exception.TotalSizeExceedException;
+import com.robothy.s3.core.service.locks.EpochReclaimer;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.SneakyThrows;
+
+/**
+ * {@linkplain Storage} implementation that keeps object data outside the Java heap.
+ * Objects are stored in direct buffer chunks handed out by a {@linkplain SlabAllocator};
+ * chunks of deleted or overridden objects are reused by later writes.
+ *
+ * <p>Buffers and streams returned by this storage are views of the stored chunk. The chunk of
+ * a deleted or overridden object is retired to the {@linkplain EpochReclaimer}, so that its
+ * views stay valid for readers that pinned an epoch or hold the object ID, such as a GetObject
+ * response that is still being written.
+ */
+class OffHeapStorage implements Storage {
+
+  private static final int INITIAL_STREAM_CHUNK_SIZE = 8 * 1024;
+
+  private final Map<Long, Block> store = new ConcurrentHashMap<>();
+
+  private final SlabAllocator allocator = new SlabAllocator();
+
+  private final AtomicLong totalSize = new AtomicLong(0);
+
+  private final long maxTotalSize;
+
+  /**
+   * Create an {@linkplain OffHeapStorage} instance with total size limitation.
+   *
+   * @param maxTotalSize max total size.
+   */
+  OffHeapStorage(long maxTotalSize) {
+    this.maxTotalSize = maxTotalSize;
+  }
+
+  /**
+   * Create an {@linkplain OffHeapStorage} instance without total size limitation.
+   */
+  OffHeapStorage() {
+    this(Long.MAX_VALUE);
+  }
+
+  @Override
+  public Long put(Long id, byte[] data) {
+    ensureNotExceedTotalSize(data.length);
+    ByteBuffer chunk = allocator.allocate(data.length);
+    chunk.put(data);
+    store(id, new Block(chunk, data.length));
+    return id;
+  }
+
+  /**
+   * Copy the stream into direct chunks; a full chunk is replaced by one of the next size class.
+   * The stream is never buffered on the heap as a whole.
+   */
+  @Override
+  @SneakyThrows
+  public Long put(Long id, InputStream data) {
+    ByteBuffer chunk = allocator.allocate(INITIAL_STREAM_CHUNK_SIZE);
+    try (InputStream in = data) {
+      byte[] buf = new byte[8192];
+      int len;
+      while ((len = in.read(buf)) != -1) {
+        ensureNotExceedTotalSize((long) chunk.position() + len);
+        if (chunk.remaining() < len) {
+          ByteBuffer bigger = allocator.allocate(
+              (int) Math.max(Math.min(chunk.capacity() * 2L, Integer.MAX_VALUE), chunk.position() + len));
+          chunk.flip();
+          bigger.put(chunk);
+          allocator.release(chunk);
+          chunk = bigger;
+        }
+        chunk.put(buf, 0, len);
+      }
+    } catch (Exception e) {
+      allocator.release(chunk);
+      throw e;
+    }
+    store(id, new Block(chunk, chunk.position()));
+    return id;
+  }
+
+  @Override
+  public byte[] getBytes(Long id) {
+    ByteBuffer view = getByteBuffer(id);
+    byte[] data = new byte[view.remaining()];
+    view.get(data);
+    return data;
+  }
+
+  @Override
+  public InputStream getInputStream(Long id) {
+    return new ByteBufferBackedInputStream(getByteBuffer(id));
+  }
+
+  @Override
+  public ByteBuffer getByteBuffer(Long id) {
+    Block block = ensureObjectExist(id);
+    return block.view(0, block.length);
+  }
+
+  @Override
+  public ByteBuffer read(Long id, long offset, long length) {
+    Block block = ensureObjectExist(id);
+    int bufferLength = StorageRanges.checkRange(id, offset, length, block.length);
+    return block.view((int) offset, bufferLength);
+  }
+
+  @Override
+  public Long delete(Long id) {
+    Block block = store.remove(id);
+    if (block == null) {
+      throw new IllegalArgumentException("Object id='" + id + "' not exists.");
+    }
+    free(id, block);
+    return id;
+  }
+
+  @Override
+  public boolean isExist(Long id) {
+    return store.containsKey(id);
+  }
+
+  private void store(Long id, Block block) {
+    totalSize.addAndGet(block.length);
+    Block previous = store.put(id, block);
+    if (previous != null) {
+      free(id, previous);
+    }
+  }
+
+  /**
+   * The size is freed immediately; the chunk is reused once no reader may still read it.
+   */
+  private void free(Long id, Block block) {
+    totalSize.addAndGet(-block.length);
+    EpochReclaimer.getInstance().retire(id, () -> allocator.release(block.chunk));
+  }
+
+  private Block ensureObjectExist(Long id) {
+    Block block = store.get(id);
+    if (block == null) {
+      throw new IllegalArgumentException("Object id='" + id + "' not exists.");
+    }
+    return block;
+  }
+
+  private void ensureNotExceedTotalSize(long incrementalSize) {
+    if (totalSize.get() + incrementalSize > maxTotalSize) {
+      throw new TotalSizeExceedException(maxTotalSize, totalSize.get() + incrementalSize);
+    }
+  }
+
+  /**
+   * An allocated chunk and the number of object bytes in it.
+   */
+  private static class Block {
+
+    private final ByteBuffer chunk;
+
+    private final int length;
+
+    Block(ByteBuffer chunk, int length) {
+      this.chunk = chunk;
+      this.length = length;
+    }
+
+    ByteBuffer view(int offset, int length) {
+      return chunk.duplicate().position(offset).limit(offset + length).slice().asReadOnlyBuffer();
+    }
+
+  }
+
+}
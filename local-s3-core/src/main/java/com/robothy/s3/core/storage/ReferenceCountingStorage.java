@@ -0,0 +1,518 @@
+package com.robothy.s3.core.storage;
+
+import com.robothy.s3.core.util.IdUtils;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * A {@linkplain Storage} whose contents can be shared by several references.
+ * {@linkplain #retain(Long)} adds a reference to a content; {@linkplain #delete(Long)} releases
+ * one, and deletes the content from the underlying storage when the last reference goes away.
+ * Only shared contents are counted; any other content has a single reference.
+ *
+ * <p>If deduplication is enabled, identical contents are stored once. Contents put without an
+ * explicit ID are counted and keyed by their MD5 digest and size; putting a content that is
+ * already stored returns the ID of the stored content and adds a reference to it. Contents put
+ * with an explicit ID and contents stored before deduplication was enabled are not deduplicated.
+ *
+ * <p>If an index file is given, each reference count change appends a record
+ * {@code [id:long][md5:16 bytes][size:long][references:int]} to it, so that reference counts
+ * survive restarts; the size of a content without digest is {@code -1}. The file is compacted when
+ * the storage is created. A record is appended before the reference is published in the bucket
+ * metadata, so a crash can only leave a count higher than the actual references, never lower.
+ * For the same reason, releasing a reference is deferred until the metadata change that released
+ * it is persisted, see {@linkplain DeferredDeletes}.
+ *
+ * <p>Counts are updated atomically per content with {@linkplain ConcurrentHashMap#compute}, so
+ * operations on different contents don't contend. Records are queued while a count is updated
+ * and appended afterwards; concurrent writers append all queued records with one write and at
+ * most one force.
+ */
+@Slf4j
+class ReferenceCountingStorage implements Storage {
+
+  private static final int MD5_LENGTH = 16;
+
+  private static final int RECORD_SIZE = Long.BYTES + MD5_LENGTH + Long.BYTES + Integer.BYTES;
+
+  private static final ContentKey NO_DIGEST = new ContentKey(new byte[MD5_LENGTH], -1);
+
+  private final Storage storage;
+
+  private final boolean deduplicate;
+
+  private final FileChannel index;
+
+  private final boolean forceWrites;
+
+  private final ConcurrentMap<Long, Blob> blobs = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<ContentKey, Long> ids = new ConcurrentHashMap<>();
+
+  /**
+   * Records of count changes, in the order of the changes of each content, to be appended.
+   */
+  private final Queue<ByteBuffer> pendingRecords = new ConcurrentLinkedQueue<>();
+
+  private final ReentrantLock indexLock = new ReentrantLock();
+
+  /**
+   * Create a {@linkplain ReferenceCountingStorage} whose reference counts are kept in memory.
+   *
+   * @param storage the storage where contents are stored.
+   * @param deduplicate if {@code true}, identical contents are stored once.
+   */
+  ReferenceCountingStorage(Storage storage, boolean deduplicate) {
+    this.storage = Objects.requireNonNull(storage);
+    this.deduplicate = deduplicate;
+    this.index = null;
+    this.forceWrites = false;
+  }
+
+  /**
+   * Create a {@linkplain ReferenceCountingStorage} whose reference counts are persisted in {@code indexFile}.
+   *
+   * @param storage the storage where contents are stored.
+   * @param deduplicate if {@code true}, identical contents are stored once.
+   * @param indexFile the file where reference counts are persisted. Created if not exists.
+   * @param forceWrites if {@code true}, each reference count change is forced to the storage device.
+   */
+  ReferenceCountingStorage(Storage storage, boolean deduplicate, Path indexFile, boolean forceWrites) {
+    this.storage = Objects.requireNonNull(storage);
+    this.deduplicate = deduplicate;
+    this.forceWrites = forceWrites;
+    loadIndex(Objects.requireNonNull(indexFile));
+    this.index = compactIndex(indexFile);
+  }
+
+  @Override
+  public Long put(Long id, byte[] data) {
+    return storage.put(id, data);
+  }
+
+  @Override
+  public Long put(Long id, InputStream data) {
+    return storage.put(id, data);
+  }
+
+  @Override
+  public Long put(byte[] data) {
+    if (!deduplicate) {
+      return storage.put(data);
+    }
+
+    ContentKey key = new ContentKey(DigestUtils.md5(data), data.length);
+    Long existing = ids.get(key);
+    if (existing != null && increment(existing)) {
+      appendRecords();
+      return existing;
+    }
+    return add(storage.put(IdUtils.stripedGenerator().nextId(), data), key);
+  }
+
+  /**
+   * Write the content and then look up its digest. The digest of an MD5
+   * {@linkplain DigestInputStream}, e.g. the one computing the ETag, is reused.
+   */
+  @Override
+  public Long put(InputStream data) {
+    if (!deduplicate) {
+      return storage.put(data);
+    }
+
+    CountingInputStream content = new CountingInputStream(data);
+    Long id = storage.put(IdUtils.stripedGenerator().nextId(), content);
+    return add(id, new ContentKey(content.md5(), content.count));
+  }
+
+  @Override
+  public byte[] getBytes(Long id) {
+    return storage.getBytes(id);
+  }
+
+  @Override
+  public InputStream getInputStream(Long id) {
+    return storage.getInputStream(id);
+  }
+
+  @Override
+  public ByteBuffer getByteBuffer(Long id) {
+    return storage.getByteBuffer(id);
+  }
+
+  @Override
+  public ByteBuffer read(Long id, long offset, long length) {
+    return storage.read(id, offset, length);
+  }
+
+  @Override
+  public ReadableByteChannel getChannel(Long id, long offset) {
+    return storage.getChannel(id, offset);
+  }
+
+  @Override
+  public Optional<FileChannel> getFileChannel(Long id, long offset) {
+    return storage.getFileChannel(id, offset);
+  }
+
+  @Override
+  @SneakyThrows
+  public void close() {
+    try {
+      if (index != null) {
+        index.close();
+      }
+    } finally {
+      storage.close();
+    }
+  }
+
+  /**
+   * Add a reference to the content. It is shared instead of copied.
+   *
+   * @param id the object ID.
+   * @return {@code true}.
+   * @throws IllegalArgumentException if the object not exists.
+   */
+  @Override
+  public boolean retain(Long id) {
+    blobs.compute(id, (k, blob) -> {
+      if (blob == null) {
+        if (!storage.isExist(id)) {
+          throw new IllegalArgumentException("Object " + id + " not exists.");
+        }
+        blob = new Blob(NO_DIGEST, 1);
+      }
+      return counted(id, blob.withReferences(blob.references + 1));
+    });
+    appendRecords();
+    return true;
+  }
+
+  /**
+   * Release a reference of the content. The content is deleted from the underlying storage when
+   * its last reference is released. Within a service invocation, the release is deferred until
+   * the change of the invocation is persisted, see {@linkplain DeferredDeletes}.
+   *
+   * @param id the object ID.
+   * @return deleted Object ID.
+   */
+  @Override
+  public Long delete(Long id) {
+    if (DeferredDeletes.defer(() -> release(id))) {
+      return id;
+    }
+    return release(id);
+  }
+
+  @Override
+  public boolean isExist(Long id) {
+    return storage.isExist(id);
+  }
+
+  /**
+   * Get the number of references of the content.
+   *
+   * @param id the object ID.
+   * @return the number of references; {@code 0} if the content is not counted.
+   */
+  int references(Long id) {
+    Blob blob = blobs.get(id);
+    return blob == null ? 0 : blob.references;
+  }
+
+  private Long release(Long id) {
+    boolean[] shared = new boolean[1];
+    Blob[] uncounted = new Blob[1];
+    blobs.computeIfPresent(id, (k, blob) -> {
+      shared[0] = blob.references > 1;
+      Blob released = counted(id, blob.withReferences(blob.references - 1));
+      if (released == null) {
+        uncounted[0] = blob;
+      }
+      return released;
+    });
+    if (uncounted[0] != null) {
+      ids.remove(uncounted[0].key, id);
+    }
+    appendRecords();
+    return shared[0] ? id : storage.delete(id);
+  }
+
+  /**
+   * Add a reference of the content just written with {@code id}. If an identical content is
+   * already stored, the written one is deleted and the ID of the stored one is returned.
+   */
+  private Long add(Long id, ContentKey key) {
+    Long stored = ids.compute(key, (k, existing) -> {
+      if (existing != null && increment(existing)) {
+        return existing;
+      }
+      blobs.put(id, counted(id, new Blob(key, 1)));
+      return id;
+    });
+    appendRecords();
+    if (!stored.equals(id)) {
+      storage.delete(id);
+    }
+    return stored;
+  }
+
+  /**
+   * Add a reference to a counted content.
+   *
+   * @return {@code false} if the content is not counted, e.g. its last reference was just released.
+   */
+  private boolean increment(Long id) {
+    return blobs.computeIfPresent(id, (k, blob) -> counted(id, blob.withReferences(blob.references + 1))) != null;
+  }
+
+  /**
+   * Queue the record of a new count. Must be called while the count is updated, so that the
+   * records of a content are queued in the order of its changes.
+   *
+   * @return {@code blob} if it is still counted; otherwise {@code null}, which removes it.
+   */
+  private Blob counted(Long id, Blob blob) {
+    if (index != null) {
+      ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+      record.putLong(id).put(blob.key.md5).putLong(blob.key.size).putInt(blob.references).flip();
+      pendingRecords.add(record);
+    }
+    return blob.isCounted() ? blob : null;
+  }
+
+  /**
+   * Append the queued records, including the ones of the current thread. Records queued by
+   * other threads are appended in the same write.
+   */
+  @SneakyThrows
+  private void appendRecords() {
+    if (index == null) {
+      return;
+    }
+    indexLock.lock();
+    try {
+      List<ByteBuffer> records = new ArrayList<>();
+      for (ByteBuffer record = pendingRecords.poll(); record != null; record = pendingRecords.poll()) {
+        records.add(record);
+      }
+      if (records.isEmpty()) {
+        // Appended by another thread before this one took the lock.
+        return;
+      }
+      ByteBuffer[] buffers = records.toArray(new ByteBuffer[0]);
+      while (buffers[buffers.length - 1].hasRemaining()) {
+        index.write(buffers);
+      }
+      if (forceWrites) {
+        index.force(false);
+      }
+    } finally {
+      indexLock.unlock();
+    }
+  }
+
+  /**
+   * Replay the index file; the last record of an ID wins. A partially written record at the end
+   * of the file is ignored.
+   */
+  @SneakyThrows
+  private void loadIndex(Path indexFile) {
+    if (!Files.exists(indexFile)) {
+      return;
+    }
+
+    ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+    while (records.remaining() >= RECORD_SIZE) {
+      long id = records.getLong();
+      byte[] md5 = new byte[MD5_LENGTH];
+      records.get(md5);
+      ContentKey key = new ContentKey(md5, records.getLong());
+      int references = records.getInt();
+      Blob previous = blobs.remove(id);
+      if (previous != null) {
+        ids.remove(previous.key, id);
+      }
+      Blob blob = new Blob(key.size < 0 ? NO_DIGEST : key, references);
+      if (blob.isCounted()) {
+        blobs.put(id, blob);
+        if (blob.key != NO_DIGEST) {
+          ids.put(key, id);
+        }
+      }
+    }
+    if (records.hasRemaining()) {
+      log.warn("Ignored a partially written record at the end of {}.", indexFile.toAbsolutePath());
+    }
+  }
+
+  /**
+   * Rewrite the index file with one record per counted content, and open it for appending.
+   */
+  @SneakyThrows
+  private FileChannel compactIndex(Path indexFile) {
+    Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temp,
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer records = ByteBuffer.allocate(blobs.size() * RECORD_SIZE);
+      blobs.forEach((id, blob) -> records.putLong(id).put(blob.key.md5).putLong(blob.key.size).putInt(blob.references));
+      records.flip();
+      while (records.hasRemaining()) {
+        channel.write(records);
+      }
+      channel.force(false);
+    }
+    Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    return FileChannel.open(indexFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+  }
+
+  private static final class Blob {
+
+    private final ContentKey key;
+
+    private final int references;
+
+    private Blob(ContentKey key, int references) {
+      this.key = key;
+      this.references = references;
+    }
+
+    private Blob withReferences(int references) {
+      return new Blob(key, references);
+    }
+
+    /**
+     * A content without digest is not counted when it has a single reference.
+     */
+    private boolean isCounted() {
+      return references > (key == NO_DIGEST ? 1 : 0);
+    }
+
+  }
+
+  private static final class ContentKey {
+
+    private final byte[] md5;
+
+    private final long size;
+
+    private ContentKey(byte[] md5, long size) {
+      this.md5 = md5;
+      this.size = size;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof ContentKey)) {
+        return false;
+      }
+      ContentKey that = (ContentKey) o;
+      return size == that.size && Arrays.equals(md5, that.md5);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * Arrays.hashCode(md5) + Long.hashCode(size);
+    }
+
+  }
+
+  /**
+   * Counts the bytes read, and calculates the MD5 digest unless the wrapped stream already does.
+   */
+  private static final class CountingInputStream extends FilterInputStream {
+
+    private final MessageDigest md5;
+
+    private final boolean reused;
+
+    private long count;
+
+    private CountingInputStream(InputStream in) {
+      super(in);
+      MessageDigest digest = in instanceof DigestInputStream ? ((DigestInputStream) in).getMessageDigest() : null;
+      this.reused = digest != null && "MD5".equalsIgnoreCase(digest.getAlgorithm());
+      this.md5 = reused ? digest : DigestUtils.getMd5Digest();
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = in.read();
+      if (b >= 0) {
+        count++;
+        if (!reused) {
+          md5.update((byte) b);
+        }
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = in.read(b, off, len);
+      if (n > 0) {
+        count += n;
+        if (!reused) {
+          md5.update(b, off, n);
+        }
+      }
+      return n;
+    }
+
+    /**
+     * Skipped bytes are read, so that they are counted and digested.
+     */
+    @Override
+    public long skip(long n) throws IOException {
+      byte[] buffer = new byte[(int) Math.min(n, 8192)];
+      long skipped = 0;
+      int read;
+      while (skipped < n && (read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped))) > 0) {
+        skipped += read;
+      }
+      return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    /**
+     * Get the digest without resetting a reused digest, of which the owner reads the result.
+     */
+    @SneakyThrows
+    private byte[] md5() {
+      return reused ? ((MessageDigest) md5.clone()).digest() : md5.digest();
+    }
+
+  }
+
+}
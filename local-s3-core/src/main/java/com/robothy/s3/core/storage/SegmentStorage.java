@@ -0,0 +1,615 @@
+package com.robothy.s3.core.storage;
+
+import com.robothy.s3.core.util.PathUtils;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A log-structured {@linkplain Storage} that appends objects to large segment files instead
+ * of creating one file per object. It is designed for a large number of small objects.
+ *
+ * <p>Each record in a segment is {@code [magic:int][id:long][length:int][data]}; a delete
+ * appends a tombstone record whose length is {@code -1}. When a segment reaches the segment size,
+ * it is sealed with a footer that lists all its records, and a new segment is opened.
+ * On startup, the in-memory {@code id -> (segment, offset, length)} index is rebuilt from the
+ * footers of sealed segments, only the last unsealed segment is scanned record by record.
+ *
+ * <p>Streamed objects are read outside the lock, into memory if they are small or into a spool
+ * file otherwise, so that a slow client doesn't block other writers and readers; the lock is
+ * held only to append the record and update the index.
+ *
+ * <p>A background task compacts sealed segments where at least half of the bytes belong to
+ * deleted or overridden objects: live records are copied to the active segment and the old
+ * segment file is removed. The task is cancelled by {@linkplain #close()}.
+ */
+@Slf4j
+class SegmentStorage implements Storage {
+
+  static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+
+  static final double COMPACTION_GARBAGE_RATIO = 0.5;
+
+  private static final long COMPACTION_INTERVAL_SECONDS = 60;
+
+  static final int SPOOL_THRESHOLD = 1024 * 1024;
+
+  private static final String SEGMENT_FILE_SUFFIX = ".segment";
+
+  private static final String SPOOL_FILE_SUFFIX = ".spool";
+
+  private static final int RECORD_MAGIC = 0xA5E90C1D;
+
+  private static final long FOOTER_MAGIC = 0x4C53335345474D54L;
+
+  private static final int RECORD_HEADER_SIZE = Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+  private static final int FOOTER_ENTRY_SIZE = Long.BYTES + Long.BYTES + Integer.BYTES;
+
+  private static final int FOOTER_TRAILER_SIZE = Integer.BYTES + Long.BYTES + Long.BYTES;
+
+  private static final int TOMBSTONE = -1;
+
+  private static final int IN_PROGRESS = -2;
+
+  static final ScheduledThreadPoolExecutor COMPACTOR = new ScheduledThreadPoolExecutor(1, runnable -> {
+    Thread thread = new Thread(runnable, "locals3-segment-compactor");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  static {
+    // Drop the tasks of closed storages from the queue instead of keeping them until their next run.
+    COMPACTOR.setRemoveOnCancelPolicy(true);
+  }
+
+  private final Path directory;
+
+  private final long segmentSize;
+
+  private final NavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+  private final Map<Long, Location> index = new ConcurrentHashMap<>();
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private Segment active;
+
+  private ScheduledFuture<?> compaction;
+
+  private boolean closed;
+
+  /**
+   * Create a {@linkplain SegmentStorage} in the given directory with the default segment size.
+   *
+   * @param directory where segment files store in.
+   */
+  SegmentStorage(Path directory) {
+    this(directory, DEFAULT_SEGMENT_SIZE);
+    this.compaction = COMPACTOR.scheduleWithFixedDelay(this::compactQuietly,
+        COMPACTION_INTERVAL_SECONDS, COMPACTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Create a {@linkplain SegmentStorage} without background compaction.
+   *
+   * @param directory where segment files store in.
+   * @param segmentSize the size in bytes that a segment is sealed at.
+   */
+  SegmentStorage(Path directory, long segmentSize) {
+    Objects.requireNonNull(directory);
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    PathUtils.createDirectoryIfNotExit(directory);
+    load();
+  }
+
+  @Override
+  public Long put(Long id, byte[] data) {
+    lock.writeLock().lock();
+    try {
+      append(id, data);
+      return id;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Read the stream outside the lock, then append it to the active segment. Objects up to
+   * {@linkplain #SPOOL_THRESHOLD} bytes are read into memory, larger ones into a spool file
+   * that is deleted once appended.
+   */
+  @Override
+  @SneakyThrows
+  public Long put(Long id, InputStream data) {
+    try (InputStream in = data) {
+      byte[] head = in.readNBytes(SPOOL_THRESHOLD);
+      if (head.length < SPOOL_THRESHOLD) {
+        return put(id, head);
+      }
+
+      Path spoolFile = Files.createTempFile(directory, "put-", SPOOL_FILE_SUFFIX);
+      try (FileChannel spool = FileChannel.open(spoolFile, StandardOpenOption.READ, StandardOpenOption.WRITE,
+          StandardOpenOption.DELETE_ON_CLOSE)) {
+        writeFully(spool, ByteBuffer.wrap(head), 0);
+        long length = head.length;
+        byte[] buf = new byte[8192];
+        int len;
+        while ((len = in.read(buf)) != -1) {
+          writeFully(spool, ByteBuffer.wrap(buf, 0, len), length);
+          length += len;
+        }
+        if (length > Integer.MAX_VALUE) {
+          throw new IllegalArgumentException("Object id='" + id + "' is too large for segment storage.");
+        }
+
+        lock.writeLock().lock();
+        try {
+          append(id, spool, (int) length);
+          return id;
+        } finally {
+          lock.writeLock().unlock();
+        }
+      }
+    }
+  }
+
+  @Override
+  public byte[] getBytes(Long id) {
+    lock.readLock().lock();
+    try {
+      Location location = ensureExists(id);
+      return readBytes(location, 0, location.length);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public InputStream getInputStream(Long id) {
+    return new ByteArrayInputStream(getBytes(id));
+  }
+
+  @Override
+  public ByteBuffer getByteBuffer(Long id) {
+    return ByteBuffer.wrap(getBytes(id)).asReadOnlyBuffer();
+  }
+
+  @Override
+  public ByteBuffer read(Long id, long offset, long length) {
+    lock.readLock().lock();
+    try {
+      Location location = ensureExists(id);
+      int bufferLength = StorageRanges.checkRange(id, offset, length, location.length);
+      return ByteBuffer.wrap(readBytes(location, offset, bufferLength)).asReadOnlyBuffer();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public Long delete(Long id) {
+    lock.writeLock().lock();
+    try {
+      ensureExists(id);
+      appendTombstone(id);
+      return id;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean isExist(Long id) {
+    return index.containsKey(id);
+  }
+
+  /**
+   * Compact sealed segments that have enough garbage. Tombstones are carried to the active
+   * segment unless the compacted segment is the oldest one, so that deleted objects in older
+   * segments are not resurrected on the next startup.
+   */
+  @SneakyThrows
+  void compact() {
+    lock.writeLock().lock();
+    try {
+      if (closed) {
+        return;
+      }
+      for (Segment segment : new ArrayList<>(segments.values())) {
+        if (!segment.sealed || segment.garbage < segment.size * COMPACTION_GARBAGE_RATIO) {
+          continue;
+        }
+
+        boolean isOldest = segment.number == segments.firstKey();
+        for (Entry entry : readFooter(segment)) {
+          if (entry.length == TOMBSTONE) {
+            if (!isOldest && !index.containsKey(entry.id)) {
+              appendTombstone(entry.id);
+            }
+            continue;
+          }
+
+          Location location = index.get(entry.id);
+          if (location != null && location.segment == segment && location.offset == entry.offset + RECORD_HEADER_SIZE) {
+            append(entry.id, readBytes(location, 0, location.length));
+          }
+        }
+
+        // The copied records and tombstones must be durable before their only other copy is removed.
+        active.channel.force(false);
+        segments.remove(segment.number);
+        segment.channel.close();
+        Files.delete(segment.path);
+        log.debug("Compacted segment {}.", segment.path);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Cancel the background compaction and close the segment files. Stored objects are kept.
+   */
+  @Override
+  @SneakyThrows
+  public void close() {
+    if (compaction != null) {
+      compaction.cancel(false);
+    }
+    lock.writeLock().lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      for (Segment segment : segments.values()) {
+        segment.channel.close();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void compactQuietly() {
+    try {
+      compact();
+    } catch (Exception e) {
+      log.warn("Failed to compact segments in {}.", directory, e);
+    }
+  }
+
+  /**
+   * Open all segments and rebuild the index. Sealed segments are read from their footers;
+   * an unsealed segment is scanned and its incomplete tail record is truncated.
+   */
+  @SneakyThrows
+  private void load() {
+    List<Path> spoolFiles;
+    try (Stream<Path> files = Files.list(directory)) {
+      spoolFiles = files.filter(path -> path.getFileName().toString().endsWith(SPOOL_FILE_SUFFIX))
+          .collect(Collectors.toList());
+    }
+    for (Path spoolFile : spoolFiles) {
+      Files.deleteIfExists(spoolFile);
+    }
+
+    List<Path> segmentFiles;
+    try (Stream<Path> files = Files.list(directory)) {
+      segmentFiles = files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_FILE_SUFFIX))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+
+    for (Path segmentFile : segmentFiles) {
+      String fileName = segmentFile.getFileName().toString();
+      long number = Long.parseLong(fileName.substring(0, fileName.length() - SEGMENT_FILE_SUFFIX.length()));
+      Segment segment = new Segment(number, segmentFile);
+      List<Entry> entries = readFooter(segment);
+      if (entries == null) {
+        entries = scan(segment);
+        segment.entries.addAll(entries);
+      }
+      segments.put(number, segment);
+      for (Entry entry : entries) {
+        if (entry.length == TOMBSTONE) {
+          segment.garbage += RECORD_HEADER_SIZE;
+          updateIndex(entry.id, null);
+        } else {
+          updateIndex(entry.id, new Location(segment, entry.offset + RECORD_HEADER_SIZE, entry.length));
+        }
+      }
+    }
+
+    for (Segment segment : segments.values()) {
+      if (!segment.sealed && segment != segments.lastEntry().getValue()) {
+        seal(segment);
+      }
+    }
+
+    if (segments.isEmpty() || segments.lastEntry().getValue().sealed) {
+      active = createSegment(segments.isEmpty() ? 0 : segments.lastKey() + 1);
+    } else {
+      active = segments.lastEntry().getValue();
+    }
+  }
+
+  private void append(long id, byte[] data) {
+    long offset = active.size;
+    writeFully(active.channel, recordHeader(id, data.length), offset);
+    writeFully(active.channel, ByteBuffer.wrap(data), offset + RECORD_HEADER_SIZE);
+    appended(id, offset, data.length);
+  }
+
+  /**
+   * Append {@code length} bytes from the beginning of {@code source}. The record is written with
+   * an in-progress length, which is replaced with the real length once the data is written.
+   */
+  @SneakyThrows
+  private void append(long id, FileChannel source, int length) {
+    long offset = active.size;
+    writeFully(active.channel, recordHeader(id, IN_PROGRESS), offset);
+    try {
+      long position = offset + RECORD_HEADER_SIZE;
+      source.position(0);
+      for (long transferred = 0; transferred < length; ) {
+        long n = active.channel.transferFrom(source, position + transferred, length - transferred);
+        if (n <= 0) {
+          throw new IOException("Unexpected end of the spool file of object id='" + id + "'.");
+        }
+        transferred += n;
+      }
+      ByteBuffer lengthBuffer = ByteBuffer.allocate(Integer.BYTES).putInt(0, length);
+      writeFully(active.channel, lengthBuffer, offset + Integer.BYTES + Long.BYTES);
+    } catch (Exception e) {
+      active.channel.truncate(offset);
+      throw e;
+    }
+    appended(id, offset, length);
+  }
+
+  private void appendTombstone(long id) {
+    long offset = active.size;
+    writeFully(active.channel, recordHeader(id, TOMBSTONE), offset);
+    active.garbage += RECORD_HEADER_SIZE;
+    appended(id, offset, TOMBSTONE);
+  }
+
+  private void appended(long id, long offset, int length) {
+    Segment segment = active;
+    segment.size = offset + RECORD_HEADER_SIZE + Math.max(length, 0);
+    segment.entries.add(new Entry(id, offset, length));
+    updateIndex(id, length == TOMBSTONE ? null : new Location(segment, offset + RECORD_HEADER_SIZE, length));
+    if (segment.size >= segmentSize) {
+      seal(segment);
+      active = createSegment(segment.number + 1);
+    }
+  }
+
+  private void updateIndex(long id, Location location) {
+    Location previous = location == null ? index.remove(id) : index.put(id, location);
+    if (previous != null) {
+      previous.segment.garbage += RECORD_HEADER_SIZE + previous.length;
+    }
+  }
+
+  /**
+   * Write the footer {@code [id:long][offset:long][length:int]...[count:int][footerStart:long][magic:long]}
+   * after the last record of the segment. The trailer is written last so that a partially
+   * written footer is detected as an unsealed segment.
+   */
+  @SneakyThrows
+  private void seal(Segment segment) {
+    ByteBuffer footer = ByteBuffer.allocate(segment.entries.size() * FOOTER_ENTRY_SIZE + FOOTER_TRAILER_SIZE);
+    for (Entry entry : segment.entries) {
+      footer.putLong(entry.id).putLong(entry.offset).putInt(entry.length);
+    }
+    footer.putInt(segment.entries.size()).putLong(segment.size).putLong(FOOTER_MAGIC);
+    footer.flip();
+    writeFully(segment.channel, footer, segment.size);
+    segment.channel.force(false);
+    segment.sealed = true;
+    segment.entries.clear();
+  }
+
+  /**
+   * Read the entries from the footer of a segment.
+   *
+   * @return the entries, or {@code null} if the segment is not sealed.
+   */
+  @SneakyThrows
+  private List<Entry> readFooter(Segment segment) {
+    long fileSize = segment.channel.size();
+    if (fileSize < FOOTER_TRAILER_SIZE) {
+      return null;
+    }
+
+    ByteBuffer trailer = ByteBuffer.allocate(FOOTER_TRAILER_SIZE);
+    readFully(segment.channel, trailer, fileSize - FOOTER_TRAILER_SIZE);
+    trailer.flip();
+    int count = trailer.getInt();
+    long footerStart = trailer.getLong();
+    if (trailer.getLong() != FOOTER_MAGIC
+        || footerStart + (long) count * FOOTER_ENTRY_SIZE + FOOTER_TRAILER_SIZE != fileSize) {
+      return null;
+    }
+
+    ByteBuffer footer = ByteBuffer.allocate(count * FOOTER_ENTRY_SIZE);
+    readFully(segment.channel, footer, footerStart);
+    footer.flip();
+    List<Entry> entries = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      entries.add(new Entry(footer.getLong(), footer.getLong(), footer.getInt()));
+    }
+    segment.size = footerStart;
+    segment.sealed = true;
+    return entries;
+  }
+
+  @SneakyThrows
+  private List<Entry> scan(Segment segment) {
+    List<Entry> entries = new ArrayList<>();
+    long fileSize = segment.channel.size();
+    long position = 0;
+    ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+    while (position + RECORD_HEADER_SIZE <= fileSize) {
+      header.clear();
+      readFully(segment.channel, header, position);
+      header.flip();
+      if (header.getInt() != RECORD_MAGIC) {
+        break;
+      }
+      long id = header.getLong();
+      int length = header.getInt();
+      if (length == IN_PROGRESS || position + RECORD_HEADER_SIZE + Math.max(length, 0) > fileSize) {
+        break;
+      }
+      entries.add(new Entry(id, position, length));
+      position += RECORD_HEADER_SIZE + Math.max(length, 0);
+    }
+
+    if (position < fileSize) {
+      log.warn("Truncate incomplete records of segment {} from position {}.", segment.path, position);
+      segment.channel.truncate(position);
+    }
+    segment.size = position;
+    return entries;
+  }
+
+  private Segment createSegment(long number) {
+    Segment segment = new Segment(number, directory.resolve(String.format("%020d", number) + SEGMENT_FILE_SUFFIX));
+    segments.put(number, segment);
+    return segment;
+  }
+
+  private byte[] readBytes(Location location, long offset, int length) {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    readFully(location.segment.channel, buffer, location.offset + offset);
+    return buffer.array();
+  }
+
+  private Location ensureExists(Long id) {
+    Location location = index.get(id);
+    if (location == null) {
+      throw new IllegalArgumentException("Object id='" + id + "' not exist.");
+    }
+    return location;
+  }
+
+  private static ByteBuffer recordHeader(long id, int length) {
+    return ByteBuffer.allocate(RECORD_HEADER_SIZE).putInt(RECORD_MAGIC).putLong(id).putInt(length).flip();
+  }
+
+  @SneakyThrows
+  private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) {
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+  }
+
+  @SneakyThrows
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position) {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position);
+      if (read < 0) {
+        throw new IOException("Unexpected end of segment at position " + position + ".");
+      }
+      position += read;
+    }
+  }
+
+  private static class Segment {
+
+    private final long number;
+
+    private final Path path;
+
+    private final FileChannel channel;
+
+    /**
+     * Records appended to this segment, written as the footer when the segment is sealed.
+     */
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * Size of records in bytes, excluding the footer.
+     */
+    private long size;
+
+    /**
+     * Bytes of tombstones and records of deleted or overridden objects.
+     */
+    private long garbage;
+
+    private boolean sealed;
+
+    @SneakyThrows
+    Segment(long number, Path path) {
+      this.number = number;
+      this.path = path;
+      this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+  }
+
+  private static class Entry {
+
+    private final long id;
+
+    /**
+     * Position of the record header in the segment.
+     */
+    private final long offset;
+
+    private final int length;
+
+    Entry(long id, long offset, int length) {
+      this.id = id;
+      this.offset = offset;
+      this.length = length;
+    }
+
+  }
+
+  private static class Location {
+
+    private final Segment segment;
+
+    /**
+     * Position of the object data in the segment.
+     */
+    private final long offset;
+
+    private final int length;
+
+    Location(Segment segment, long offset, int length) {
+      this.segment = segment;
+      this.offset = offset;
+      this.length = length;
+    }
+
+  }
+
+}
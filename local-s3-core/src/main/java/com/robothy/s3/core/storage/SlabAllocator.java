@@ -0,0 +1,88 @@
+package com.robothy.s3.core.storage;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A size-class allocator of direct {@linkplain ByteBuffer} chunks. Chunks are carved from
+ * fixed-size direct slabs and returned to a per size-class free list when released, so
+ * that memory is reused instead of allocated for each object.
+ *
+ * <p>Size classes are powers of two from {@linkplain #MIN_CHUNK_SIZE} to {@linkplain #SLAB_SIZE}.
+ * Requests larger than a slab get a dedicated direct buffer, which is reclaimed by GC once released.
+ */
+class SlabAllocator {
+
+  static final int MIN_CHUNK_SIZE = 64;
+
+  static final int SLAB_SIZE = 4 * 1024 * 1024;
+
+  private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_CHUNK_SIZE);
+
+  private final List<Queue<ByteBuffer>> freeLists;
+
+  SlabAllocator() {
+    int classes = Integer.numberOfTrailingZeros(SLAB_SIZE) - MIN_SHIFT + 1;
+    List<Queue<ByteBuffer>> freeLists = new ArrayList<>(classes);
+    for (int i = 0; i < classes; i++) {
+      freeLists.add(new ConcurrentLinkedQueue<>());
+    }
+    this.freeLists = List.copyOf(freeLists);
+  }
+
+  /**
+   * Allocate a chunk that can hold at least {@code size} bytes. The capacity of the
+   * returned buffer is the size class of the request.
+   *
+   * @param size requested size in bytes.
+   * @return a cleared direct buffer.
+   */
+  ByteBuffer allocate(int size) {
+    if (size > SLAB_SIZE) {
+      return ByteBuffer.allocateDirect(size);
+    }
+
+    int sizeClass = sizeClass(size);
+    ByteBuffer chunk = freeLists.get(sizeClass).poll();
+    if (chunk == null) {
+      chunk = carveSlab(sizeClass);
+    }
+    chunk.clear();
+    return chunk;
+  }
+
+  /**
+   * Return a chunk allocated by {@linkplain #allocate(int)} to its free list.
+   *
+   * @param chunk the chunk to release.
+   */
+  void release(ByteBuffer chunk) {
+    if (chunk.capacity() > SLAB_SIZE) {
+      return;
+    }
+    freeLists.get(sizeClass(chunk.capacity())).offer(chunk);
+  }
+
+  /**
+   * Split a new slab into chunks of the size class, keep one and put the others into the free list.
+   */
+  private ByteBuffer carveSlab(int sizeClass) {
+    int chunkSize = MIN_CHUNK_SIZE << sizeClass;
+    ByteBuffer slab = ByteBuffer.allocateDirect(SLAB_SIZE);
+    for (int offset = chunkSize; offset < SLAB_SIZE; offset += chunkSize) {
+      freeLists.get(sizeClass).offer(slab.duplicate().position(offset).limit(offset + chunkSize).slice());
+    }
+    return slab.duplicate().limit(chunkSize).slice();
+  }
+
+  private static int sizeClass(int size) {
+    if (size <= MIN_CHUNK_SIZE) {
+      return 0;
+    }
+    return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+  }
+
+}
@@ -2,12 +2,16 @@ package com.robothy.s3.core.storage;
 
 import com.robothy.s3.core.util.IdUtils;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Path;
+import java.util.Optional;
 
 /**
  * Key-Value based storage abstraction.
  */
-public interface Storage {
+public interface Storage extends AutoCloseable {
 
   /**
    * Create an {@linkplain InMemoryStorage} without total size limitation.
@@ -24,10 +28,29 @@ public interface Storage {
    * @param maxTotalSize max total size.
    * @return a {@linkplain Storage} instance.
    */
-  static Storage createInMemory(int maxTotalSize) {
+  static Storage createInMemory(long maxTotalSize) {
     return new InMemoryStorage(maxTotalSize);
   }
 
+  /**
+   * Create an {@linkplain OffHeapStorage} without total size limitation.
+   *
+   * @return a {@linkplain Storage} instance that stores data outside the Java heap.
+   */
+  static Storage createOffHeap() {
+    return new OffHeapStorage();
+  }
+
+  /**
+   * Create an {@linkplain OffHeapStorage} instance with max total size limit.
+   *
+   * @param maxTotalSize max total size in bytes.
+   * @return a {@linkplain Storage} instance that stores data outside the Java heap.
+   */
+  static Storage createOffHeap(long maxTotalSize) {
+    return new OffHeapStorage(maxTotalSize);
+  }
+
   /**
    * Create a persistent storage with a specified path. The path
    * will be created if not exists.
@@ -39,6 +62,17 @@ public interface Storage {
     return new LocalFileSystemStorage(path);
   }
 
+  /**
+   * Create a log-structured persistent storage that appends objects to segment files
+   * under the specified path. The path will be created if not exists.
+   *
+   * @param path where segment files store in.
+   * @return a {@linkplain Storage} instance.
+   */
+  static Storage createSegmented(Path path) {
+    return new SegmentStorage(path);
+  }
+
   /**
    * Create a {@linkplain LayeredStorage} instance.
    *
@@ -60,6 +94,41 @@ public interface Storage {
     return new CopyOnAccessStorage(base);
   }
 
+  /**
+   * Create a {@linkplain CopyOnAccessStorage} instance that copies accessed objects into {@code cache}.
+   *
+   * @param base the base storage of the {@linkplain CopyOnAccessStorage}.
+   * @param cache the storage where accessed objects are copied to.
+   * @return a {@linkplain CopyOnAccessStorage} instance.
+   */
+  static Storage createCopyOnAccess(Storage base, Storage cache) {
+    return new CopyOnAccessStorage(base, cache);
+  }
+
+  /**
+   * Create a {@linkplain ReferenceCountingStorage} whose reference counts are kept in memory.
+   *
+   * @param storage the storage where contents are stored.
+   * @param deduplicate if {@code true}, identical contents are stored once.
+   * @return a {@linkplain ReferenceCountingStorage} instance.
+   */
+  static Storage createReferenceCounting(Storage storage, boolean deduplicate) {
+    return new ReferenceCountingStorage(storage, deduplicate);
+  }
+
+  /**
+   * Create a {@linkplain ReferenceCountingStorage} whose reference counts are persisted in {@code indexFile}.
+   *
+   * @param storage the storage where contents are stored.
+   * @param deduplicate if {@code true}, identical contents are stored once.
+   * @param indexFile the file where reference counts are persisted. Created if not exists.
+   * @param forceWrites if {@code true}, each reference count change is forced to the storage device.
+   * @return a {@linkplain ReferenceCountingStorage} instance.
+   */
+  static Storage createReferenceCounting(Storage storage, boolean deduplicate, Path indexFile, boolean forceWrites) {
+    return new ReferenceCountingStorage(storage, deduplicate, indexFile, forceWrites);
+  }
+
   /**
    * Put binary data to the storage.
    *
@@ -67,7 +136,7 @@ public interface Storage {
    * @return object id.
    */
   default Long put(byte[] data) {
-    return put(IdUtils.defaultGenerator().nextId(), data);
+    return put(IdUtils.stripedGenerator().nextId(), data);
   }
 
   /**
@@ -86,7 +155,7 @@ public interface Storage {
    * @return the storage generated object ID.
    */
   default Long put(InputStream data) {
-    return put(IdUtils.defaultGenerator().nextId(), data);
+    return put(IdUtils.stripedGenerator().nextId(), data);
   }
 
   /**
@@ -110,6 +179,74 @@ public interface Storage {
    */
   InputStream getInputStream(Long id);
 
+  /**
+   * Get a read-only {@linkplain ByteBuffer} view of the object. In-memory implementations
+   * expose the stored bytes directly (e.g. the backing array) instead of copying them to a
+   * new heap buffer; file based implementations read the object into the heap. Use
+   * {@linkplain #getChannel(Long, long)} to read large objects.
+   *
+   * @param id the object ID.
+   * @return a read-only buffer whose remaining bytes are the object content.
+   */
+  ByteBuffer getByteBuffer(Long id);
+
+  /**
+   * Open a channel that reads the object from {@code offset} to its end. The object is read as
+   * the channel is consumed, so objects of any size are read with bounded memory.
+   *
+   * @param id the object ID.
+   * @param offset position of the first byte to read.
+   * @return a new channel, which must be closed.
+   * @throws IllegalArgumentException if the object not exists or the offset is out of the object bounds.
+   */
+  default ReadableByteChannel getChannel(Long id, long offset) {
+    ByteBuffer content = getByteBuffer(id);
+    if (offset < 0 || offset > content.remaining()) {
+      throw new IllegalArgumentException("Offset " + offset + " is out of bounds of object id='" + id + "'.");
+    }
+    return new ByteBufferChannel(content.position(content.position() + (int) offset));
+  }
+
+  /**
+   * Open the file that holds the object positioned at {@code offset}, if the object is stored in
+   * a file of its own. The file can then be transferred without being read into the heap, e.g.
+   * with {@linkplain FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}.
+   *
+   * @param id the object ID.
+   * @param offset position of the first byte to read.
+   * @return a new channel, which must be closed; empty if the object is not stored in a file of its own.
+   * @throws IllegalArgumentException if the object not exists or the offset is out of the object bounds.
+   */
+  default Optional<FileChannel> getFileChannel(Long id, long offset) {
+    return Optional.empty();
+  }
+
+  /**
+   * Read {@code length} bytes of the object starting at {@code offset}. Only the
+   * requested range is accessed; bytes before {@code offset} are never read.
+   *
+   * @param id the object ID.
+   * @param offset position of the first byte to read.
+   * @param length number of bytes to read.
+   * @return a read-only buffer whose remaining bytes are the requested range.
+   * @throws IllegalArgumentException if the object not exists, the range is out of the object bounds,
+   *     or the range is longer than {@linkplain Integer#MAX_VALUE} bytes; read such ranges with
+   *     {@linkplain #getChannel(Long, long)}.
+   */
+  ByteBuffer read(Long id, long offset, long length);
+
+  /**
+   * Add a reference to the object, so that the object is shared instead of copied. A retained
+   * object is deleted once {@linkplain #delete(Long)} is called for each of its references.
+   *
+   * @param id the object ID.
+   * @return {@code true} if the reference is added; {@code false} if this storage does not share
+   *         objects, then the object must be copied.
+   */
+  default boolean retain(Long id) {
+    return false;
+  }
+
   /**
    * Delete an object by ID.
    *
@@ -126,4 +263,12 @@ public interface Storage {
    */
   boolean isExist(Long id);
 
+  /**
+   * Release resources held by this storage, such as open files and background tasks. Stored
+   * objects are kept; the storage must not be used after it is closed.
+   */
+  @Override
+  default void close() {
+  }
+
 }
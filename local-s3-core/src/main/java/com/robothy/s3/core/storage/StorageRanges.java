@@ -0,0 +1,34 @@
+package com.robothy.s3.core.storage;
+
+/**
+ * Validate the ranges passed to {@linkplain Storage#read(Long, long, long)}.
+ */
+final class StorageRanges {
+
+  private StorageRanges() {
+  }
+
+  /**
+   * Check that a range lies within an object and fits in a single buffer. The check does not
+   * overflow for offsets and lengths of any size.
+   *
+   * @param id the object ID.
+   * @param offset position of the first byte of the range.
+   * @param length number of bytes of the range.
+   * @param size number of bytes of the object.
+   * @return {@code length} as an {@code int}.
+   * @throws IllegalArgumentException if the range is out of the object bounds or longer than
+   *     {@linkplain Integer#MAX_VALUE} bytes.
+   */
+  static int checkRange(Long id, long offset, long length, long size) {
+    if (offset < 0 || length < 0 || offset > size || length > size - offset) {
+      throw new IllegalArgumentException("Range [" + offset + ", " + (offset + length) + ") is out of bounds of object id='" + id + "'.");
+    }
+    if (length > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Range [" + offset + ", " + (offset + length) + ") of object id='" + id
+          + "' is too large for a buffer, read it with getChannel() instead.");
+    }
+    return (int) length;
+  }
+
+}
@@ -80,14 +80,20 @@ public class FileSystemVectorBucketMetadataStore implements MetadataStore<Vector
   }
 
   @Override
-  @SneakyThrows
   public List<VectorBucketMetadata> fetchAll() {
+    return listNames().stream()
+        .map(this::fetch)
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  @SneakyThrows
+  public List<String> listNames() {
     try (Stream<Path> pathStream = Files.walk(dataPath, 1)) {
       return pathStream
           .filter(path -> path.toString().endsWith(VECTOR_BUCKET_METADATA_FILE_SUFFIX))
           .map(path -> path.getFileName().toString())
           .map(fileName -> fileName.substring(0, fileName.lastIndexOf(VECTOR_BUCKET_METADATA_FILE_SUFFIX)))
-          .map(this::fetch)
           .collect(Collectors.toList());
     }
   }
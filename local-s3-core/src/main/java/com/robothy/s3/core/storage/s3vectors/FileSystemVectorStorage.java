@@ -1,5 +1,6 @@
 package com.robothy.s3.core.storage.s3vectors;
 
+import com.robothy.s3.core.storage.FanOutDirectory;
 import com.robothy.s3.core.util.IdUtils;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
@@ -14,13 +15,15 @@ import lombok.extern.slf4j.Slf4j;
 
 /**
  * File system implementation of {@linkplain VectorStorage} with LRU memory caching.
- * Stores vector data as individual files in the specified directory.
+ * Stores vector data as individual files spread over hashed subdirectories of the specified
+ * directory, see {@linkplain FanOutDirectory}.
  * Uses least recently used (LRU) eviction strategy for memory cache.
  */
 @Slf4j
 class FileSystemVectorStorage implements VectorStorage {
 
   private final Path storageDirectory;
+  private final FanOutDirectory vectorFiles;
   private final int maxCachedVectorCount;
   private final ReadWriteLock cacheLock = new ReentrantReadWriteLock();
 
@@ -47,11 +50,11 @@ class FileSystemVectorStorage implements VectorStorage {
 
     try {
       // Create storage directory if it doesn't exist
-      Files.createDirectories(storageDirectory);
+      this.vectorFiles = FanOutDirectory.open(storageDirectory);
 
       log.info("FileSystemVectorStorage initialized with directory: {}, max cache size: {}",
           storageDirectory, maxCachedVectorCount);
-    } catch (IOException e) {
+    } catch (RuntimeException e) {
       throw new RuntimeException("Failed to initialize storage directory: " + storageDirectory, e);
     }
   }
@@ -70,11 +73,11 @@ class FileSystemVectorStorage implements VectorStorage {
       }
     }
 
-    Long storageId = IdUtils.defaultGenerator().nextId();
-    Path vectorFile = storageDirectory.resolve(String.valueOf(storageId));
+    Long storageId = IdUtils.stripedGenerator().nextId();
 
     try {
       // Write vector data to file
+      Path vectorFile = vectorFiles.pathForWrite(storageId);
       writeVectorToFile(vectorFile, vectorData);
 
       // Add to cache
@@ -90,7 +93,7 @@ class FileSystemVectorStorage implements VectorStorage {
       return storageId;
 
     } catch (IOException e) {
-      log.error("Failed to write vector data to file: {}", vectorFile, e);
+      log.error("Failed to write vector data with storage ID: {}", storageId, e);
       throw new RuntimeException("Failed to store vector data", e);
     }
   }
@@ -113,14 +116,12 @@ class FileSystemVectorStorage implements VectorStorage {
     }
 
     // Load from file if not in cache
-    Path vectorFile = storageDirectory.resolve(String.valueOf(storageId));
-
     try {
-      if (!Files.exists(vectorFile)) {
+      if (!vectorFiles.exists(storageId)) {
         return null;
       }
 
-      float[] vectorData = readVectorFromFile(vectorFile);
+      float[] vectorData = vectorFiles.read(storageId, this::readVectorFromFile);
 
       // Add to cache
       cacheLock.writeLock().lock();
@@ -133,7 +134,7 @@ class FileSystemVectorStorage implements VectorStorage {
       return vectorData;
 
     } catch (IOException e) {
-      log.error("Failed to read vector data from file: {}", vectorFile, e);
+      log.error("Failed to read vector data with storage ID: {}", storageId, e);
       return null;
     }
   }
@@ -144,15 +145,13 @@ class FileSystemVectorStorage implements VectorStorage {
       return false;
     }
 
-    Path vectorFile = storageDirectory.resolve(String.valueOf(storageId));
-    boolean deleted = false;
+    boolean deleted;
 
     try {
       // Remove from file system
-      if (Files.exists(vectorFile)) {
-        Files.delete(vectorFile);
-        deleted = true;
-        log.debug("Deleted vector file: {}", vectorFile);
+      deleted = vectorFiles.delete(storageId);
+      if (deleted) {
+        log.debug("Deleted vector file with storage ID: {}", storageId);
       }
 
       // Remove from cache
@@ -166,7 +165,7 @@ class FileSystemVectorStorage implements VectorStorage {
       return deleted;
 
     } catch (IOException e) {
-      log.error("Failed to delete vector file: {}", vectorFile, e);
+      log.error("Failed to delete vector file with storage ID: {}", storageId, e);
       return false;
     }
   }
@@ -188,23 +187,13 @@ class FileSystemVectorStorage implements VectorStorage {
     }
 
     // Check file system
-    Path vectorFile = storageDirectory.resolve(String.valueOf(storageId));
-    return Files.exists(vectorFile);
+    return vectorFiles.exists(storageId);
   }
 
   @Override
   public long getStoredVectorCount() {
-    try (var files = Files.list(storageDirectory)) {
-      return files.filter(Files::isRegularFile)
-          .filter(file -> {
-            try {
-              Long.parseLong(file.getFileName().toString());
-              return true;
-            } catch (NumberFormatException e) {
-              return false;
-            }
-          })
-          .count();
+    try {
+      return vectorFiles.count();
     } catch (IOException e) {
       log.error("Failed to count vector files in directory: {}", storageDirectory, e);
       return 0;
@@ -229,17 +218,18 @@ class FileSystemVectorStorage implements VectorStorage {
     }
 
     // Check file system
-    Path vectorFile = storageDirectory.resolve(String.valueOf(storageId));
     try {
-      if (!Files.exists(vectorFile)) {
+      if (!vectorFiles.exists(storageId)) {
         return -1;
       }
 
       // Read just the dimension count to calculate size
-      try (DataInputStream dis = new DataInputStream(Files.newInputStream(vectorFile))) {
-        int dimensions = dis.readInt();
-        return dimensions * 4L;
-      }
+      return vectorFiles.read(storageId, vectorFile -> {
+        try (DataInputStream dis = new DataInputStream(Files.newInputStream(vectorFile))) {
+          int dimensions = dis.readInt();
+          return dimensions * 4L;
+        }
+      });
 
     } catch (IOException e) {
       log.error("Failed to get vector data size for storage ID: {}", storageId, e);
@@ -1,6 +1,7 @@
 package com.robothy.s3.core.util;
 
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class IdUtils {
 
@@ -21,20 +22,47 @@ public class IdUtils {
   private final static long DATACENTER_ID_SHIFT = SEQUENCE_ID_BITS + WORKER_ID_BITS;
   private final static long TIMESTMP_SHIFT = DATACENTER_ID_SHIFT + DATACENTER_BITS;
 
-  private long datacenterId;
-  private long machineId;
-  private long sequence = 0L;
-  private long lastStmp = -1L;
+  private static final int STRIPES = 64;
+
+  private final long datacenterId;
+  private final long machineId;
+
+  /**
+   * The last issued {@code timestamp << SEQUENCE_ID_BITS | sequence}.
+   */
+  private final AtomicLong lastTick = new AtomicLong(-1L);
 
   private static final IdUtils GENERATOR = new IdUtils(0, 0);
 
+  private static final IdUtils[] STRIPED_GENERATORS = new IdUtils[STRIPES];
+
+  static {
+    // Datacenter 0 is taken by the default generator, so that striped IDs never collide with its IDs.
+    for (int i = 0; i < STRIPES; i++) {
+      STRIPED_GENERATORS[i] = new IdUtils(1 + (i >> WORKER_ID_BITS), i & MAX_WORKER_ID);
+    }
+  }
+
   /**
-   * Snow flake ID generator.
+   * Snow flake ID generator. IDs of this generator are strictly increasing, so that version IDs
+   * issued one after another sort in issue order.
    */
   public static IdUtils defaultGenerator() {
     return GENERATOR;
   }
 
+  /**
+   * Get the generator of the stripe the current thread maps to. IDs are unique across all generators
+   * and roughly time-ordered, but IDs issued by different threads are not ordered. Use it for IDs that
+   * only need to be unique, e.g. storage IDs, to avoid contending on the default generator.
+   *
+   * @return the generator of the current thread.
+   */
+  public static IdUtils stripedGenerator() {
+    int hash = System.identityHashCode(Thread.currentThread());
+    return STRIPED_GENERATORS[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+  }
+
   /**
    * Generate an UUID.
    * @return an UUID.
@@ -58,37 +86,26 @@ public class IdUtils {
     return String.valueOf(nextId());
   }
 
-  public synchronized long nextId() {
-    long currStmp = getNewTimestamp();
-    if (currStmp < lastStmp) {
-      throw new RuntimeException("Clock moved backwards.  Refusing to generate id");
-    }
-
-    if (currStmp == lastStmp) {
-      sequence = (sequence + 1) & MAX_SEQUENCE;
-      if (sequence == 0L) {
-        currStmp = getNextMill();
-      }
-    } else {
-      sequence = 0L;
-    }
-
-    lastStmp = currStmp;
+  /**
+   * Generate the next ID without locking. The timestamp and sequence are advanced together by a
+   * single CAS: the sequence restarts in a new millisecond, and when it overflows, the ID borrows
+   * the next millisecond instead of waiting for it. If the clock moves backwards, IDs keep
+   * increasing from the last one.
+   *
+   * @return an ID greater than all IDs previously returned by this generator.
+   */
+  public long nextId() {
+    long nowTick = getNewTimestamp() << SEQUENCE_ID_BITS;
+    long tick = lastTick.accumulateAndGet(nowTick, (last, now) -> Math.max(last + 1, now));
+    long timestamp = tick >>> SEQUENCE_ID_BITS;
+    long sequence = tick & MAX_SEQUENCE;
 
-    return (currStmp - S4_EPOCH) << TIMESTMP_SHIFT
+    return (timestamp - S4_EPOCH) << TIMESTMP_SHIFT
         | datacenterId << DATACENTER_ID_SHIFT
         | machineId << SEQUENCE_SHIFT
         | sequence;
   }
 
-  private long getNextMill() {
-    long mill = getNewTimestamp();
-    while (mill <= lastStmp) {
-      mill = getNewTimestamp();
-    }
-    return mill;
-  }
-
   private long getNewTimestamp() {
     return System.currentTimeMillis();
   }
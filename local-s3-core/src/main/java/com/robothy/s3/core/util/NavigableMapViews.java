@@ -0,0 +1,432 @@
+package com.robothy.s3.core.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.function.Supplier;
+
+/**
+ * Views shared by the {@linkplain ConcurrentNavigableMap} implementations of this package, which
+ * only need to provide their navigation methods and entry iterators.
+ */
+final class NavigableMapViews {
+
+  private NavigableMapViews() {
+  }
+
+  /**
+   * The entries of a map, iterated by the given iterator.
+   */
+  static final class EntrySet<V> extends AbstractSet<Entry<String, V>> {
+
+    private final ConcurrentNavigableMap<String, V> map;
+
+    private final Supplier<Iterator<Entry<String, V>>> iterator;
+
+    EntrySet(ConcurrentNavigableMap<String, V> map, Supplier<Iterator<Entry<String, V>>> iterator) {
+      this.map = map;
+      this.iterator = iterator;
+    }
+
+    @Override
+    public Iterator<Entry<String, V>> iterator() {
+      return iterator.get();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      if (!(o instanceof Map.Entry)) {
+        return false;
+      }
+      Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+      V value = entry.getKey() instanceof String ? map.get(entry.getKey()) : null;
+      return value != null && value.equals(entry.getValue());
+    }
+
+    @Override
+    public boolean remove(Object o) {
+      if (!(o instanceof Map.Entry)) {
+        return false;
+      }
+      Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+      return entry.getKey() instanceof String && map.remove(entry.getKey(), entry.getValue());
+    }
+
+    @Override
+    public int size() {
+      return map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return map.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+      map.clear();
+    }
+  }
+
+  /**
+   * The keys of an ascending or a descending map.
+   */
+  static final class KeySet<V> extends AbstractSet<String> implements NavigableSet<String> {
+
+    private final ConcurrentNavigableMap<String, V> map;
+
+    KeySet(ConcurrentNavigableMap<String, V> map) {
+      this.map = map;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+      Iterator<Entry<String, V>> entries = map.entrySet().iterator();
+      return new Iterator<>() {
+        @Override
+        public boolean hasNext() {
+          return entries.hasNext();
+        }
+
+        @Override
+        public String next() {
+          return entries.next().getKey();
+        }
+
+        @Override
+        public void remove() {
+          entries.remove();
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return map.isEmpty();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return map.containsKey(o);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+      return map.remove(o) != null;
+    }
+
+    @Override
+    public void clear() {
+      map.clear();
+    }
+
+    @Override
+    public String lower(String key) {
+      return map.lowerKey(key);
+    }
+
+    @Override
+    public String floor(String key) {
+      return map.floorKey(key);
+    }
+
+    @Override
+    public String ceiling(String key) {
+      return map.ceilingKey(key);
+    }
+
+    @Override
+    public String higher(String key) {
+      return map.higherKey(key);
+    }
+
+    @Override
+    public String pollFirst() {
+      Entry<String, V> entry = map.pollFirstEntry();
+      return entry == null ? null : entry.getKey();
+    }
+
+    @Override
+    public String pollLast() {
+      Entry<String, V> entry = map.pollLastEntry();
+      return entry == null ? null : entry.getKey();
+    }
+
+    @Override
+    public Comparator<? super String> comparator() {
+      return map.comparator();
+    }
+
+    @Override
+    public String first() {
+      return map.firstKey();
+    }
+
+    @Override
+    public String last() {
+      return map.lastKey();
+    }
+
+    @Override
+    public NavigableSet<String> subSet(String fromElement, boolean fromInclusive,
+                                       String toElement, boolean toInclusive) {
+      return map.subMap(fromElement, fromInclusive, toElement, toInclusive).navigableKeySet();
+    }
+
+    @Override
+    public NavigableSet<String> headSet(String toElement, boolean inclusive) {
+      return map.headMap(toElement, inclusive).navigableKeySet();
+    }
+
+    @Override
+    public NavigableSet<String> tailSet(String fromElement, boolean inclusive) {
+      return map.tailMap(fromElement, inclusive).navigableKeySet();
+    }
+
+    @Override
+    public SortedSet<String> subSet(String fromElement, String toElement) {
+      return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<String> headSet(String toElement) {
+      return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<String> tailSet(String fromElement) {
+      return tailSet(fromElement, true);
+    }
+
+    @Override
+    public NavigableSet<String> descendingSet() {
+      return map.descendingMap().navigableKeySet();
+    }
+
+    @Override
+    public Iterator<String> descendingIterator() {
+      return descendingSet().iterator();
+    }
+  }
+
+  /**
+   * A view of an ascending map in descending key order. Navigation methods are mapped to their
+   * mirrors on the ascending map, e.g. {@code lowerKey} to {@code higherKey}.
+   */
+  static final class DescendingMap<V> extends AbstractMap<String, V> implements ConcurrentNavigableMap<String, V> {
+
+    private final ConcurrentNavigableMap<String, V> map;
+
+    private final Supplier<Iterator<Entry<String, V>>> descendingIterator;
+
+    private KeySet<V> keySet;
+
+    private EntrySet<V> entrySet;
+
+    DescendingMap(ConcurrentNavigableMap<String, V> map, Supplier<Iterator<Entry<String, V>>> descendingIterator) {
+      this.map = map;
+      this.descendingIterator = descendingIterator;
+    }
+
+    @Override
+    public V get(Object key) {
+      return map.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return map.containsKey(key);
+    }
+
+    @Override
+    public V put(String key, V value) {
+      return map.put(key, value);
+    }
+
+    @Override
+    public V putIfAbsent(String key, V value) {
+      return map.putIfAbsent(key, value);
+    }
+
+    @Override
+    public V remove(Object key) {
+      return map.remove(key);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+      return map.remove(key, value);
+    }
+
+    @Override
+    public boolean replace(String key, V oldValue, V newValue) {
+      return map.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public V replace(String key, V value) {
+      return map.replace(key, value);
+    }
+
+    @Override
+    public int size() {
+      return map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return map.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+      map.clear();
+    }
+
+    @Override
+    public Comparator<? super String> comparator() {
+      return Comparator.reverseOrder();
+    }
+
+    @Override
+    public String firstKey() {
+      return map.lastKey();
+    }
+
+    @Override
+    public String lastKey() {
+      return map.firstKey();
+    }
+
+    @Override
+    public Entry<String, V> firstEntry() {
+      return map.lastEntry();
+    }
+
+    @Override
+    public Entry<String, V> lastEntry() {
+      return map.firstEntry();
+    }
+
+    @Override
+    public Entry<String, V> pollFirstEntry() {
+      return map.pollLastEntry();
+    }
+
+    @Override
+    public Entry<String, V> pollLastEntry() {
+      return map.pollFirstEntry();
+    }
+
+    @Override
+    public Entry<String, V> lowerEntry(String key) {
+      return map.higherEntry(key);
+    }
+
+    @Override
+    public String lowerKey(String key) {
+      return map.higherKey(key);
+    }
+
+    @Override
+    public Entry<String, V> floorEntry(String key) {
+      return map.ceilingEntry(key);
+    }
+
+    @Override
+    public String floorKey(String key) {
+      return map.ceilingKey(key);
+    }
+
+    @Override
+    public Entry<String, V> ceilingEntry(String key) {
+      return map.floorEntry(key);
+    }
+
+    @Override
+    public String ceilingKey(String key) {
+      return map.floorKey(key);
+    }
+
+    @Override
+    public Entry<String, V> higherEntry(String key) {
+      return map.lowerEntry(key);
+    }
+
+    @Override
+    public String higherKey(String key) {
+      return map.lowerKey(key);
+    }
+
+    @Override
+    public ConcurrentNavigableMap<String, V> subMap(String fromKey, boolean fromInclusive,
+                                                    String toKey, boolean toInclusive) {
+      return map.subMap(toKey, toInclusive, fromKey, fromInclusive).descendingMap();
+    }
+
+    @Override
+    public ConcurrentNavigableMap<String, V> headMap(String toKey, boolean inclusive) {
+      return map.tailMap(toKey, inclusive).descendingMap();
+    }
+
+    @Override
+    public ConcurrentNavigableMap<String, V> tailMap(String fromKey, boolean inclusive) {
+      return map.headMap(fromKey, inclusive).descendingMap();
+    }
+
+    @Override
+    public ConcurrentNavigableMap<String, V> subMap(String fromKey, String toKey) {
+      return subMap(fromKey, true, toKey, false);
+    }
+
+    @Override
+    public ConcurrentNavigableMap<String, V> headMap(String toKey) {
+      return headMap(toKey, false);
+    }
+
+    @Override
+    public ConcurrentNavigableMap<String, V> tailMap(String fromKey) {
+      return tailMap(fromKey, true);
+    }
+
+    @Override
+    public ConcurrentNavigableMap<String, V> descendingMap() {
+      return map;
+    }
+
+    @Override
+    public NavigableSet<String> navigableKeySet() {
+      KeySet<V> keys = keySet;
+      return keys != null ? keys : (keySet = new KeySet<>(this));
+    }
+
+    @Override
+    public NavigableSet<String> keySet() {
+      return navigableKeySet();
+    }
+
+    @Override
+    public NavigableSet<String> descendingKeySet() {
+      return map.navigableKeySet();
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+      EntrySet<V> entries = entrySet;
+      return entries != null ? entries : (entrySet = new EntrySet<>(this, descendingIterator));
+    }
+  }
+
+}
@@ -0,0 +1,148 @@
+package com.robothy.s3.core.util;
+
+import com.robothy.s3.core.model.answers.ObjectContent;
+import com.robothy.s3.core.model.internal.VersionedObjectMetadata;
+import com.robothy.s3.core.service.locks.EpochReclaimer;
+import com.robothy.s3.core.storage.DeferredDeletes;
+import com.robothy.s3.core.storage.Storage;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Access the content of a versioned object, which is either a single file or the files of
+ * the parts of a completed multipart upload.
+ */
+public class ObjectContentUtils {
+
+  /**
+   * Check whether the content of the versioned object is composed of parts.
+   */
+  public static boolean isComposite(VersionedObjectMetadata versionedObjectMetadata) {
+    return Objects.nonNull(versionedObjectMetadata.getPartFileIds());
+  }
+
+  /**
+   * Get the whole content of the versioned object, which is each file to its end. Nothing is
+   * read until the content is consumed.
+   *
+   * @param storage the storage.
+   * @param versionedObjectMetadata a versioned object that is not a delete marker.
+   * @return the content, composed of one range for each file.
+   */
+  public static ObjectContent content(Storage storage, VersionedObjectMetadata versionedObjectMetadata) {
+    long[] fileIds = isComposite(versionedObjectMetadata)
+        ? versionedObjectMetadata.getPartFileIds()
+        : new long[] {versionedObjectMetadata.getFileId()};
+    long[] lengths = new long[fileIds.length];
+    Arrays.fill(lengths, ObjectContent.TO_END);
+    return new ObjectContent(storage, versionedObjectMetadata.getSize(), fileIds, new long[fileIds.length], lengths);
+  }
+
+  /**
+   * Get a range of the content of the versioned object. Only the parts that overlap the range
+   * are read, and nothing is read until the content is consumed.
+   *
+   * @param storage the storage.
+   * @param versionedObjectMetadata a versioned object that is not a delete marker.
+   * @param offset the offset of the range in the content.
+   * @param length the length of the range.
+   * @return the range, composed of one range for each file that overlaps it.
+   */
+  public static ObjectContent content(Storage storage, VersionedObjectMetadata versionedObjectMetadata,
+                                      long offset, long length) {
+    if (!isComposite(versionedObjectMetadata)) {
+      return new ObjectContent(storage, length, new long[] {versionedObjectMetadata.getFileId()},
+          new long[] {offset}, new long[] {length});
+    }
+
+    long[] partFileIds = versionedObjectMetadata.getPartFileIds();
+    long[] partOffsets = versionedObjectMetadata.getPartOffsets();
+    int part = Arrays.binarySearch(partOffsets, offset);
+    // The part that starts before the offset; skip empty parts that start at the offset.
+    part = part >= 0 ? part : -part - 2;
+    int first = part;
+    long end = offset + length;
+    long[] fileIds = new long[partFileIds.length - first];
+    long[] offsets = new long[fileIds.length];
+    long[] lengths = new long[fileIds.length];
+    int files = 0;
+    for (long position = offset; position < end; part++) {
+      long partEnd = part + 1 < partOffsets.length ? partOffsets[part + 1] : versionedObjectMetadata.getSize();
+      if (partEnd > position) {
+        long partLength = Math.min(partEnd, end) - position;
+        fileIds[files] = partFileIds[part];
+        offsets[files] = position - partOffsets[part];
+        lengths[files++] = partLength;
+        position += partLength;
+      }
+    }
+    return new ObjectContent(storage, length, Arrays.copyOf(fileIds, files), Arrays.copyOf(offsets, files),
+        Arrays.copyOf(lengths, files));
+  }
+
+  /**
+   * Add a reference to each file of the versioned object, see {@linkplain Storage#retain(Long)},
+   * so that a new object shares the content. Either all files are retained or none.
+   *
+   * @param storage the storage.
+   * @param versionedObjectMetadata a versioned object that is not a delete marker.
+   * @throws IllegalStateException if the storage does not share contents.
+   */
+  public static void retain(Storage storage, VersionedObjectMetadata versionedObjectMetadata) {
+    long[] fileIds = isComposite(versionedObjectMetadata)
+        ? versionedObjectMetadata.getPartFileIds()
+        : new long[] {versionedObjectMetadata.getFileId()};
+    for (int i = 0; i < fileIds.length; i++) {
+      if (!storage.retain(fileIds[i])) {
+        for (int j = 0; j < i; j++) {
+          storage.delete(fileIds[j]);
+        }
+        throw new IllegalStateException("The storage does not share contents.");
+      }
+    }
+  }
+
+  /**
+   * Keep the content of the versioned object from being deleted after the current reader leaves
+   * its epoch, see {@linkplain EpochReclaimer#hold(Object...)}. Must be called before the reader leaves.
+   *
+   * @param versionedObjectMetadata a versioned object that is not a delete marker.
+   * @return a guard that releases the content when closed.
+   */
+  public static EpochReclaimer.Guard hold(VersionedObjectMetadata versionedObjectMetadata) {
+    if (!isComposite(versionedObjectMetadata)) {
+      return EpochReclaimer.getInstance().hold(versionedObjectMetadata.getFileId());
+    }
+    return EpochReclaimer.getInstance().hold(Arrays.stream(versionedObjectMetadata.getPartFileIds()).boxed().toArray());
+  }
+
+  /**
+   * Delete the content of a versioned object that has been removed from the published
+   * metadata, once no lock-free reader may still be reading it and the content is not held.
+   * Within a service invocation, the content is retired once the removal is persisted, see
+   * {@linkplain DeferredDeletes}.
+   *
+   * @param storage the storage.
+   * @param versionedObjectMetadata the removed version; may be {@code null} or a delete marker.
+   */
+  public static void retire(Storage storage, VersionedObjectMetadata versionedObjectMetadata) {
+    if (Objects.isNull(versionedObjectMetadata) || versionedObjectMetadata.isDeleted()) {
+      return;
+    }
+    if (!DeferredDeletes.defer(() -> retireNow(storage, versionedObjectMetadata))) {
+      retireNow(storage, versionedObjectMetadata);
+    }
+  }
+
+  private static void retireNow(Storage storage, VersionedObjectMetadata versionedObjectMetadata) {
+    if (isComposite(versionedObjectMetadata)) {
+      for (long partFileId : versionedObjectMetadata.getPartFileIds()) {
+        EpochReclaimer.getInstance().retire(partFileId, () -> storage.delete(partFileId));
+      }
+    } else if (Objects.nonNull(versionedObjectMetadata.getFileId())) {
+      Long fileId = versionedObjectMetadata.getFileId();
+      EpochReclaimer.getInstance().retire(fileId, () -> storage.delete(fileId));
+    }
+  }
+
+}
@@ -0,0 +1,515 @@
+package com.robothy.s3.core.util;
+
+import com.robothy.s3.core.util.NavigableMapViews.DescendingMap;
+import com.robothy.s3.core.util.NavigableMapViews.EntrySet;
+import com.robothy.s3.core.util.NavigableMapViews.KeySet;
+import java.util.AbstractMap;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * A copy-on-write map of string keys over a base map that is no longer modified. Creating it
+ * copies nothing: puts and removes are written to an overlay map, a removed key of the base is
+ * marked by a tombstone, and reads merge the overlay with the base. So a fork costs the keys it
+ * changes instead of the keys of the base.
+ *
+ * <p>The base must not be modified after the overlay is created. Navigation methods look up both
+ * maps and skip tombstones, and iterators step with them, so they cost {@code O(log n)} per entry.
+ * Like {@linkplain java.util.concurrent.ConcurrentSkipListMap#size()}, {@linkplain #size()}
+ * counts the entries.
+ *
+ * <p>Views returned by {@linkplain #subMap}, {@linkplain #headMap}, {@linkplain #tailMap} and
+ * {@linkplain #descendingMap()} are supported. Iterators are weakly consistent.
+ *
+ * @param <V> the value type.
+ */
+public final class OverlayMap<V> extends AbstractMap<String, V> implements ConcurrentNavigableMap<String, V> {
+
+  private static final Object TOMBSTONE = new Object();
+
+  private final ConcurrentNavigableMap<String, V> base;
+
+  private final ConcurrentNavigableMap<String, Object> overlay;
+
+  private final String lo;
+
+  private final boolean loInclusive;
+
+  private final String hi;
+
+  private final boolean hiInclusive;
+
+  private KeySet<V> keySet;
+
+  private EntrySet<V> entrySet;
+
+  /**
+   * Create a map with the entries of {@code base}.
+   *
+   * @param base the initial entries; must not be modified afterwards.
+   * @param overlay an empty map that holds the changes, e.g. of the same kind as {@code base}.
+   */
+  public OverlayMap(ConcurrentNavigableMap<String, V> base, ConcurrentNavigableMap<String, Object> overlay) {
+    this(base, overlay, null, false, null, false);
+    if (base.comparator() != null || overlay.comparator() != null) {
+      throw new IllegalArgumentException("Only maps sorted by the natural order of keys are supported.");
+    }
+    if (!overlay.isEmpty()) {
+      throw new IllegalArgumentException("The overlay must be empty.");
+    }
+  }
+
+  private OverlayMap(ConcurrentNavigableMap<String, V> base, ConcurrentNavigableMap<String, Object> overlay,
+                     String lo, boolean loInclusive, String hi, boolean hiInclusive) {
+    this.base = base;
+    this.overlay = overlay;
+    this.lo = lo;
+    this.loInclusive = loInclusive;
+    this.hi = hi;
+    this.hiInclusive = hiInclusive;
+  }
+
+  /**
+   * Get the map under the overlay.
+   *
+   * @return the base map.
+   */
+  public ConcurrentNavigableMap<String, V> base() {
+    return base;
+  }
+
+  private boolean tooLow(String key) {
+    if (lo == null) {
+      return false;
+    }
+    int c = key.compareTo(lo);
+    return c < 0 || (c == 0 && !loInclusive);
+  }
+
+  private boolean tooHigh(String key) {
+    if (hi == null) {
+      return false;
+    }
+    int c = key.compareTo(hi);
+    return c > 0 || (c == 0 && !hiInclusive);
+  }
+
+  private boolean inRange(Object key) {
+    String k = (String) Objects.requireNonNull(key);
+    return !tooLow(k) && !tooHigh(k);
+  }
+
+  private void checkInRange(String key) {
+    if (!inRange(key)) {
+      throw new IllegalArgumentException("Key out of range: " + key);
+    }
+  }
+
+  /**
+   * Find the least entry greater than or equal to ({@code inclusive}) or greater than the key,
+   * ignoring the bounds of this view; {@code null} key finds the first entry.
+   */
+  @SuppressWarnings("unchecked")
+  private Entry<String, V> ceiling(String key, boolean inclusive) {
+    while (true) {
+      Entry<String, V> b = key == null ? base.firstEntry() : inclusive ? base.ceilingEntry(key) : base.higherEntry(key);
+      Entry<String, Object> o = key == null ? overlay.firstEntry()
+          : inclusive ? overlay.ceilingEntry(key) : overlay.higherEntry(key);
+      if (o == null || (b != null && b.getKey().compareTo(o.getKey()) < 0)) {
+        return b;
+      }
+      if (o.getValue() != TOMBSTONE) {
+        return new SimpleImmutableEntry<>(o.getKey(), (V) o.getValue());
+      }
+      key = o.getKey();
+      inclusive = false;
+    }
+  }
+
+  /**
+   * Find the greatest entry less than or equal to ({@code inclusive}) or less than the key,
+   * ignoring the bounds of this view; {@code null} key finds the last entry.
+   */
+  @SuppressWarnings("unchecked")
+  private Entry<String, V> floor(String key, boolean inclusive) {
+    while (true) {
+      Entry<String, V> b = key == null ? base.lastEntry() : inclusive ? base.floorEntry(key) : base.lowerEntry(key);
+      Entry<String, Object> o = key == null ? overlay.lastEntry()
+          : inclusive ? overlay.floorEntry(key) : overlay.lowerEntry(key);
+      if (o == null || (b != null && b.getKey().compareTo(o.getKey()) > 0)) {
+        return b;
+      }
+      if (o.getValue() != TOMBSTONE) {
+        return new SimpleImmutableEntry<>(o.getKey(), (V) o.getValue());
+      }
+      key = o.getKey();
+      inclusive = false;
+    }
+  }
+
+  private Entry<String, V> lowestEntry() {
+    Entry<String, V> entry = lo == null ? ceiling(null, true) : ceiling(lo, loInclusive);
+    return entry == null || tooHigh(entry.getKey()) ? null : entry;
+  }
+
+  private Entry<String, V> highestEntry() {
+    Entry<String, V> entry = hi == null ? floor(null, true) : floor(hi, hiInclusive);
+    return entry == null || tooLow(entry.getKey()) ? null : entry;
+  }
+
+  private Entry<String, V> ceilingEntry(String key, boolean inclusive) {
+    if (tooLow(Objects.requireNonNull(key))) {
+      return lowestEntry();
+    }
+    Entry<String, V> entry = ceiling(key, inclusive);
+    return entry == null || tooHigh(entry.getKey()) ? null : entry;
+  }
+
+  private Entry<String, V> floorEntry(String key, boolean inclusive) {
+    if (tooHigh(Objects.requireNonNull(key))) {
+      return highestEntry();
+    }
+    Entry<String, V> entry = floor(key, inclusive);
+    return entry == null || tooLow(entry.getKey()) ? null : entry;
+  }
+
+  private static String keyOrNull(Entry<String, ?> entry) {
+    return entry == null ? null : entry.getKey();
+  }
+
+  private static String key(Entry<String, ?> entry) {
+    if (entry == null) {
+      throw new NoSuchElementException();
+    }
+    return entry.getKey();
+  }
+
+  /**
+   * Replace the value of {@code key} with the result of {@code function}, atomically.
+   *
+   * @param function maps the current value, or {@code null} if absent, to the new value, or
+   *     {@code null} to remove the key.
+   * @return the previous value; {@code null} if absent.
+   */
+  @SuppressWarnings("unchecked")
+  private V update(String key, UnaryOperator<V> function) {
+    Object[] previous = new Object[1];
+    // The remapping function may be retried; the last attempt is the one applied.
+    overlay.compute(key, (k, current) -> {
+      V value = current == null ? base.get(k) : current == TOMBSTONE ? null : (V) current;
+      previous[0] = value;
+      V updated = function.apply(value);
+      if (updated == value) {
+        return current;
+      }
+      V original = base.get(k);
+      if (updated == null) {
+        return original == null ? null : TOMBSTONE;
+      }
+      // Restoring the value of the base drops the change.
+      return updated == original ? null : updated;
+    });
+    return (V) previous[0];
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V get(Object key) {
+    if (!inRange(key)) {
+      return null;
+    }
+    Object value = overlay.get(key);
+    if (value != null) {
+      return value == TOMBSTONE ? null : (V) value;
+    }
+    return base.get(key);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public V put(String key, V value) {
+    checkInRange(key);
+    Objects.requireNonNull(value);
+    return update(key, current -> value);
+  }
+
+  @Override
+  public V putIfAbsent(String key, V value) {
+    checkInRange(key);
+    Objects.requireNonNull(value);
+    return update(key, current -> current == null ? value : current);
+  }
+
+  @Override
+  public V remove(Object key) {
+    return inRange(key) ? update((String) key, current -> null) : null;
+  }
+
+  @Override
+  public boolean remove(Object key, Object value) {
+    return inRange(key) && value != null
+        && value.equals(update((String) key, current -> value.equals(current) ? null : current));
+  }
+
+  @Override
+  public boolean replace(String key, V oldValue, V newValue) {
+    checkInRange(key);
+    Objects.requireNonNull(oldValue);
+    Objects.requireNonNull(newValue);
+    return oldValue.equals(update(key, current -> oldValue.equals(current) ? newValue : current));
+  }
+
+  @Override
+  public V replace(String key, V value) {
+    checkInRange(key);
+    Objects.requireNonNull(value);
+    return update(key, current -> current == null ? null : value);
+  }
+
+  @Override
+  public int size() {
+    int size = 0;
+    for (Iterator<Entry<String, V>> entries = entryIterator(false); entries.hasNext(); entries.next()) {
+      size++;
+    }
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return lowestEntry() == null;
+  }
+
+  @Override
+  public void clear() {
+    for (Iterator<Entry<String, V>> entries = entryIterator(false); entries.hasNext(); ) {
+      entries.next();
+      entries.remove();
+    }
+  }
+
+  @Override
+  public Comparator<? super String> comparator() {
+    return null;
+  }
+
+  @Override
+  public String firstKey() {
+    return key(lowestEntry());
+  }
+
+  @Override
+  public String lastKey() {
+    return key(highestEntry());
+  }
+
+  @Override
+  public Entry<String, V> firstEntry() {
+    return lowestEntry();
+  }
+
+  @Override
+  public Entry<String, V> lastEntry() {
+    return highestEntry();
+  }
+
+  @Override
+  public Entry<String, V> pollFirstEntry() {
+    for (Entry<String, V> entry = lowestEntry(); entry != null; entry = lowestEntry()) {
+      if (remove(entry.getKey(), entry.getValue())) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public Entry<String, V> pollLastEntry() {
+    for (Entry<String, V> entry = highestEntry(); entry != null; entry = highestEntry()) {
+      if (remove(entry.getKey(), entry.getValue())) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public Entry<String, V> lowerEntry(String key) {
+    return floorEntry(key, false);
+  }
+
+  @Override
+  public String lowerKey(String key) {
+    return keyOrNull(floorEntry(key, false));
+  }
+
+  @Override
+  public Entry<String, V> floorEntry(String key) {
+    return floorEntry(key, true);
+  }
+
+  @Override
+  public String floorKey(String key) {
+    return keyOrNull(floorEntry(key, true));
+  }
+
+  @Override
+  public Entry<String, V> ceilingEntry(String key) {
+    return ceilingEntry(key, true);
+  }
+
+  @Override
+  public String ceilingKey(String key) {
+    return keyOrNull(ceilingEntry(key, true));
+  }
+
+  @Override
+  public Entry<String, V> higherEntry(String key) {
+    return ceilingEntry(key, false);
+  }
+
+  @Override
+  public String higherKey(String key) {
+    return keyOrNull(ceilingEntry(key, false));
+  }
+
+  @Override
+  public OverlayMap<V> subMap(String fromKey, boolean fromInclusive, String toKey, boolean toInclusive) {
+    return newView(Objects.requireNonNull(fromKey), fromInclusive, Objects.requireNonNull(toKey), toInclusive);
+  }
+
+  @Override
+  public OverlayMap<V> headMap(String toKey, boolean inclusive) {
+    return newView(null, false, Objects.requireNonNull(toKey), inclusive);
+  }
+
+  @Override
+  public OverlayMap<V> tailMap(String fromKey, boolean inclusive) {
+    return newView(Objects.requireNonNull(fromKey), inclusive, null, false);
+  }
+
+  @Override
+  public OverlayMap<V> subMap(String fromKey, String toKey) {
+    return subMap(fromKey, true, toKey, false);
+  }
+
+  @Override
+  public OverlayMap<V> headMap(String toKey) {
+    return headMap(toKey, false);
+  }
+
+  @Override
+  public OverlayMap<V> tailMap(String fromKey) {
+    return tailMap(fromKey, true);
+  }
+
+  /**
+   * Create a view of this map bounded by both the bounds of this map and the given bounds;
+   * {@code null} means unbounded.
+   */
+  private OverlayMap<V> newView(String fromKey, boolean fromInclusive, String toKey, boolean toInclusive) {
+    if (lo != null) {
+      if (fromKey == null) {
+        fromKey = lo;
+        fromInclusive = loInclusive;
+      } else {
+        int c = fromKey.compareTo(lo);
+        if (c < 0 || (c == 0 && !loInclusive && fromInclusive)) {
+          throw new IllegalArgumentException("Key out of range: " + fromKey);
+        }
+      }
+    }
+    if (hi != null) {
+      if (toKey == null) {
+        toKey = hi;
+        toInclusive = hiInclusive;
+      } else {
+        int c = toKey.compareTo(hi);
+        if (c > 0 || (c == 0 && !hiInclusive && toInclusive)) {
+          throw new IllegalArgumentException("Key out of range: " + toKey);
+        }
+      }
+    }
+    if (fromKey != null && toKey != null && fromKey.compareTo(toKey) > 0) {
+      throw new IllegalArgumentException("Inconsistent range: " + fromKey + " > " + toKey);
+    }
+    return new OverlayMap<>(base, overlay, fromKey, fromInclusive, toKey, toInclusive);
+  }
+
+  @Override
+  public ConcurrentNavigableMap<String, V> descendingMap() {
+    return new DescendingMap<>(this, () -> entryIterator(true));
+  }
+
+  @Override
+  public NavigableSet<String> navigableKeySet() {
+    KeySet<V> keys = keySet;
+    return keys != null ? keys : (keySet = new KeySet<>(this));
+  }
+
+  @Override
+  public NavigableSet<String> keySet() {
+    return navigableKeySet();
+  }
+
+  @Override
+  public NavigableSet<String> descendingKeySet() {
+    return descendingMap().navigableKeySet();
+  }
+
+  @Override
+  public Set<Entry<String, V>> entrySet() {
+    EntrySet<V> entries = entrySet;
+    return entries != null ? entries : (entrySet = new EntrySet<>(this, () -> entryIterator(false)));
+  }
+
+  /**
+   * Iterate the entries of this map in ascending or descending key order.
+   */
+  private Iterator<Entry<String, V>> entryIterator(boolean descending) {
+    return new Iterator<>() {
+
+      private Entry<String, V> next = descending ? highestEntry() : lowestEntry();
+
+      private Entry<String, V> last;
+
+      @Override
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      @Override
+      public Entry<String, V> next() {
+        if (next == null) {
+          throw new NoSuchElementException();
+        }
+        last = next;
+        next = descending ? floor(next.getKey(), false) : ceiling(next.getKey(), false);
+        if (next != null && (descending ? tooLow(next.getKey()) : tooHigh(next.getKey()))) {
+          next = null;
+        }
+        return last;
+      }
+
+      @Override
+      public void remove() {
+        if (last == null) {
+          throw new IllegalStateException();
+        }
+        update(last.getKey(), current -> null);
+        last = null;
+      }
+    };
+  }
+
+}
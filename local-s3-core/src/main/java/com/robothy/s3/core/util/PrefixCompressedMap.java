@@ -0,0 +1,972 @@
+package com.robothy.s3.core.util;
+
+import com.robothy.s3.core.util.NavigableMapViews.DescendingMap;
+import com.robothy.s3.core.util.NavigableMapViews.EntrySet;
+import com.robothy.s3.core.util.NavigableMapViews.KeySet;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A concurrent sorted map of string keys that stores its keys prefix-compressed. Entries are
+ * kept in immutable blocks of adjacent keys; each block stores the common prefix of its keys
+ * once and the remaining suffixes front-coded in a single byte array, so keys sharing long
+ * prefixes cost a few bytes each instead of a {@linkplain String} and a skip list node.
+ *
+ * <p>Blocks are indexed by their first keys in a {@linkplain ConcurrentSkipListMap}. Readers
+ * never lock: they search the block found in the index. Writers replace whole blocks, splitting
+ * full blocks and merging small ones with their successors. While a block is replaced, a key may
+ * briefly be found in two blocks; iterators skip such duplicates.
+ *
+ * <p>Writers are serialized by a single lock per map, so concurrent puts and removes of
+ * different keys in the same bucket wait for each other here even though their key locks do not
+ * conflict. The lock is held only to rebuild one or two blocks in memory, never during object
+ * I/O; buckets with a high write rate should use a {@linkplain ConcurrentSkipListMap} index
+ * instead.
+ *
+ * <p>Views returned by {@linkplain #subMap}, {@linkplain #headMap}, {@linkplain #tailMap} and
+ * {@linkplain #descendingMap()} are supported. Iterators are weakly consistent.
+ *
+ * @param <V> the value type.
+ */
+public final class PrefixCompressedMap<V> extends AbstractMap<String, V> implements ConcurrentNavigableMap<String, V> {
+
+  /**
+   * The default max number of entries in a block.
+   */
+  static final int DEFAULT_MAX_BLOCK_SIZE = 64;
+
+  private final Index<V> index;
+
+  private final String lo;
+
+  private final boolean loInclusive;
+
+  private final String hi;
+
+  private final boolean hiInclusive;
+
+  private KeySet<V> keySet;
+
+  private EntrySet<V> entrySet;
+
+  /**
+   * Create an empty map.
+   */
+  public PrefixCompressedMap() {
+    this(DEFAULT_MAX_BLOCK_SIZE);
+  }
+
+  /**
+   * Create a map with the entries of {@code map}. The blocks are built directly if {@code map}
+   * is sorted by the natural order of the keys.
+   *
+   * @param map the initial entries.
+   */
+  public PrefixCompressedMap(Map<String, ? extends V> map) {
+    this(DEFAULT_MAX_BLOCK_SIZE);
+    if (map instanceof SortedMap && ((SortedMap<String, ? extends V>) map).comparator() == null) {
+      index.load(map);
+    } else {
+      putAll(map);
+    }
+  }
+
+  PrefixCompressedMap(int maxBlockSize) {
+    this(new Index<>(maxBlockSize), null, false, null, false);
+  }
+
+  private PrefixCompressedMap(Index<V> index, String lo, boolean loInclusive, String hi, boolean hiInclusive) {
+    this.index = index;
+    this.lo = lo;
+    this.loInclusive = loInclusive;
+    this.hi = hi;
+    this.hiInclusive = hiInclusive;
+  }
+
+  private boolean isBounded() {
+    return lo != null || hi != null;
+  }
+
+  private boolean tooLow(String key) {
+    if (lo == null) {
+      return false;
+    }
+    int c = key.compareTo(lo);
+    return c < 0 || (c == 0 && !loInclusive);
+  }
+
+  private boolean tooHigh(String key) {
+    if (hi == null) {
+      return false;
+    }
+    int c = key.compareTo(hi);
+    return c > 0 || (c == 0 && !hiInclusive);
+  }
+
+  private boolean inRange(Object key) {
+    String k = (String) Objects.requireNonNull(key);
+    return !tooLow(k) && !tooHigh(k);
+  }
+
+  private void checkInRange(String key) {
+    if (!inRange(key)) {
+      throw new IllegalArgumentException("Key out of range: " + key);
+    }
+  }
+
+  private Node<V> lowestNode() {
+    Node<V> node = lo == null ? index.first() : index.ceiling(lo, loInclusive);
+    return node == null || tooHigh(node.getKey()) ? null : node;
+  }
+
+  private Node<V> highestNode() {
+    Node<V> node = hi == null ? index.last() : index.floor(hi, hiInclusive);
+    return node == null || tooLow(node.getKey()) ? null : node;
+  }
+
+  private Node<V> ceilingNode(String key, boolean inclusive) {
+    if (tooLow(Objects.requireNonNull(key))) {
+      return lowestNode();
+    }
+    Node<V> node = index.ceiling(key, inclusive);
+    return node == null || tooHigh(node.getKey()) ? null : node;
+  }
+
+  private Node<V> floorNode(String key, boolean inclusive) {
+    if (tooHigh(Objects.requireNonNull(key))) {
+      return highestNode();
+    }
+    Node<V> node = index.floor(key, inclusive);
+    return node == null || tooLow(node.getKey()) ? null : node;
+  }
+
+  private static String keyOrNull(Node<?> node) {
+    return node == null ? null : node.getKey();
+  }
+
+  private static String key(Node<?> node) {
+    if (node == null) {
+      throw new NoSuchElementException();
+    }
+    return node.getKey();
+  }
+
+  @Override
+  public V get(Object key) {
+    return inRange(key) ? index.get((String) key) : null;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public V put(String key, V value) {
+    checkInRange(key);
+    return index.put(key, Objects.requireNonNull(value), false);
+  }
+
+  @Override
+  public V putIfAbsent(String key, V value) {
+    checkInRange(key);
+    return index.put(key, Objects.requireNonNull(value), true);
+  }
+
+  @Override
+  public V remove(Object key) {
+    return inRange(key) ? index.remove((String) key, null) : null;
+  }
+
+  @Override
+  public boolean remove(Object key, Object value) {
+    return inRange(key) && value != null && index.remove((String) key, value) != null;
+  }
+
+  @Override
+  public boolean replace(String key, V oldValue, V newValue) {
+    checkInRange(key);
+    return index.replace(key, Objects.requireNonNull(oldValue), Objects.requireNonNull(newValue)) != null;
+  }
+
+  @Override
+  public V replace(String key, V value) {
+    checkInRange(key);
+    return index.replace(key, null, Objects.requireNonNull(value));
+  }
+
+  @Override
+  public int size() {
+    if (!isBounded()) {
+      return index.size;
+    }
+    int size = 0;
+    for (Node<V> node = lowestNode(); node != null && !tooHigh(node.getKey()); node = index.next(node)) {
+      size++;
+    }
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return isBounded() ? lowestNode() == null : index.size == 0;
+  }
+
+  @Override
+  public void clear() {
+    if (!isBounded()) {
+      index.clear();
+      return;
+    }
+    for (Node<V> node = lowestNode(); node != null && !tooHigh(node.getKey()); node = index.next(node)) {
+      index.remove(node.getKey(), null);
+    }
+  }
+
+  @Override
+  public Comparator<? super String> comparator() {
+    return null;
+  }
+
+  @Override
+  public String firstKey() {
+    return key(lowestNode());
+  }
+
+  @Override
+  public String lastKey() {
+    return key(highestNode());
+  }
+
+  @Override
+  public Entry<String, V> firstEntry() {
+    return lowestNode();
+  }
+
+  @Override
+  public Entry<String, V> lastEntry() {
+    return highestNode();
+  }
+
+  @Override
+  public Entry<String, V> pollFirstEntry() {
+    for (Node<V> node = lowestNode(); node != null; node = lowestNode()) {
+      if (index.remove(node.getKey(), node.getValue()) != null) {
+        return node;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public Entry<String, V> pollLastEntry() {
+    for (Node<V> node = highestNode(); node != null; node = highestNode()) {
+      if (index.remove(node.getKey(), node.getValue()) != null) {
+        return node;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public Entry<String, V> lowerEntry(String key) {
+    return floorNode(key, false);
+  }
+
+  @Override
+  public String lowerKey(String key) {
+    return keyOrNull(floorNode(key, false));
+  }
+
+  @Override
+  public Entry<String, V> floorEntry(String key) {
+    return floorNode(key, true);
+  }
+
+  @Override
+  public String floorKey(String key) {
+    return keyOrNull(floorNode(key, true));
+  }
+
+  @Override
+  public Entry<String, V> ceilingEntry(String key) {
+    return ceilingNode(key, true);
+  }
+
+  @Override
+  public String ceilingKey(String key) {
+    return keyOrNull(ceilingNode(key, true));
+  }
+
+  @Override
+  public Entry<String, V> higherEntry(String key) {
+    return ceilingNode(key, false);
+  }
+
+  @Override
+  public String higherKey(String key) {
+    return keyOrNull(ceilingNode(key, false));
+  }
+
+  @Override
+  public PrefixCompressedMap<V> subMap(String fromKey, boolean fromInclusive,
+                                                String toKey, boolean toInclusive) {
+    return newView(Objects.requireNonNull(fromKey), fromInclusive, Objects.requireNonNull(toKey), toInclusive);
+  }
+
+  @Override
+  public PrefixCompressedMap<V> headMap(String toKey, boolean inclusive) {
+    return newView(null, false, Objects.requireNonNull(toKey), inclusive);
+  }
+
+  @Override
+  public PrefixCompressedMap<V> tailMap(String fromKey, boolean inclusive) {
+    return newView(Objects.requireNonNull(fromKey), inclusive, null, false);
+  }
+
+  @Override
+  public PrefixCompressedMap<V> subMap(String fromKey, String toKey) {
+    return subMap(fromKey, true, toKey, false);
+  }
+
+  @Override
+  public PrefixCompressedMap<V> headMap(String toKey) {
+    return headMap(toKey, false);
+  }
+
+  @Override
+  public PrefixCompressedMap<V> tailMap(String fromKey) {
+    return tailMap(fromKey, true);
+  }
+
+  /**
+   * Create a view of this map bounded by both the bounds of this map and the given bounds;
+   * {@code null} means unbounded.
+   */
+  private PrefixCompressedMap<V> newView(String fromKey, boolean fromInclusive, String toKey, boolean toInclusive) {
+    if (lo != null) {
+      if (fromKey == null) {
+        fromKey = lo;
+        fromInclusive = loInclusive;
+      } else {
+        int c = fromKey.compareTo(lo);
+        if (c < 0 || (c == 0 && !loInclusive && fromInclusive)) {
+          throw new IllegalArgumentException("Key out of range: " + fromKey);
+        }
+      }
+    }
+    if (hi != null) {
+      if (toKey == null) {
+        toKey = hi;
+        toInclusive = hiInclusive;
+      } else {
+        int c = toKey.compareTo(hi);
+        if (c > 0 || (c == 0 && !hiInclusive && toInclusive)) {
+          throw new IllegalArgumentException("Key out of range: " + toKey);
+        }
+      }
+    }
+    if (fromKey != null && toKey != null && fromKey.compareTo(toKey) > 0) {
+      throw new IllegalArgumentException("Inconsistent range: " + fromKey + " > " + toKey);
+    }
+    return new PrefixCompressedMap<>(index, fromKey, fromInclusive, toKey, toInclusive);
+  }
+
+  @Override
+  public ConcurrentNavigableMap<String, V> descendingMap() {
+    return new DescendingMap<>(this, () -> entryIterator(true));
+  }
+
+  @Override
+  public NavigableSet<String> navigableKeySet() {
+    KeySet<V> keys = keySet;
+    return keys != null ? keys : (keySet = new KeySet<>(this));
+  }
+
+  @Override
+  public NavigableSet<String> keySet() {
+    return navigableKeySet();
+  }
+
+  @Override
+  public NavigableSet<String> descendingKeySet() {
+    return descendingMap().navigableKeySet();
+  }
+
+  @Override
+  public Set<Entry<String, V>> entrySet() {
+    EntrySet<V> entries = entrySet;
+    return entries != null ? entries : (entrySet = new EntrySet<>(this, () -> entryIterator(false)));
+  }
+
+  /**
+   * Iterate the entries of this map in ascending or descending key order.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private Iterator<Entry<String, V>> entryIterator(boolean descending) {
+    return (Iterator) nodeIterator(descending);
+  }
+
+  private Iterator<Node<V>> nodeIterator(boolean descending) {
+    return new Iterator<>() {
+
+      private Node<V> next = descending ? highestNode() : lowestNode();
+
+      private Node<V> last;
+
+      @Override
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      @Override
+      public Node<V> next() {
+        if (next == null) {
+          throw new NoSuchElementException();
+        }
+        last = next;
+        next = descending ? index.previous(next) : index.next(next);
+        if (next != null && (descending ? tooLow(next.getKey()) : tooHigh(next.getKey()))) {
+          next = null;
+        }
+        return last;
+      }
+
+      @Override
+      public void remove() {
+        if (last == null) {
+          throw new IllegalStateException();
+        }
+        index.remove(last.getKey(), null);
+        last = null;
+      }
+    };
+  }
+
+
+  /**
+   * An entry found in a block. It remembers its position, so that iterators continue from it
+   * within the block without searching the index again.
+   */
+  private static final class Node<V> extends SimpleImmutableEntry<String, V> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Block block;
+
+    private final int position;
+
+    @SuppressWarnings("unchecked")
+    Node(Block block, int position) {
+      super(block.keyAt(position), (V) block.values[position]);
+      this.block = block;
+      this.position = position;
+    }
+  }
+
+  /**
+   * The blocks shared by a map and its views.
+   */
+  private static final class Index<V> {
+
+    private final ConcurrentSkipListMap<String, Block> blocks = new ConcurrentSkipListMap<>();
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final int maxBlockSize;
+
+    private volatile int size;
+
+    Index(int maxBlockSize) {
+      if (maxBlockSize < 2) {
+        throw new IllegalArgumentException("Max block size must be at least 2.");
+      }
+      this.maxBlockSize = maxBlockSize;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(String key) {
+      Map.Entry<String, Block> entry = blocks.floorEntry(key);
+      if (entry == null) {
+        return null;
+      }
+      Block block = entry.getValue();
+      int position = block.indexOf(key);
+      return position < 0 ? null : (V) block.values[position];
+    }
+
+    Node<V> first() {
+      for (Map.Entry<String, Block> entry = blocks.firstEntry(); entry != null;
+           entry = blocks.higherEntry(entry.getKey())) {
+        if (entry.getValue().size() > 0) {
+          return new Node<>(entry.getValue(), 0);
+        }
+      }
+      return null;
+    }
+
+    Node<V> last() {
+      for (Map.Entry<String, Block> entry = blocks.lastEntry(); entry != null;
+           entry = blocks.lowerEntry(entry.getKey())) {
+        Block block = entry.getValue();
+        if (block.size() > 0) {
+          return new Node<>(block, block.size() - 1);
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Find the least entry greater than or equal to ({@code inclusive}) or greater than the key.
+     */
+    Node<V> ceiling(String key, boolean inclusive) {
+      Map.Entry<String, Block> entry = blocks.floorEntry(key);
+      if (entry == null) {
+        entry = blocks.firstEntry();
+      }
+      for (; entry != null; entry = blocks.higherEntry(entry.getKey())) {
+        Block block = entry.getValue();
+        int position = block.ceilingIndex(key, inclusive);
+        if (position < block.size()) {
+          return new Node<>(block, position);
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Find the greatest entry less than or equal to ({@code inclusive}) or less than the key.
+     */
+    Node<V> floor(String key, boolean inclusive) {
+      for (Map.Entry<String, Block> entry = blocks.floorEntry(key); entry != null;
+           entry = blocks.lowerEntry(entry.getKey())) {
+        Block block = entry.getValue();
+        int position = block.ceilingIndex(key, !inclusive) - 1;
+        if (position >= 0) {
+          return new Node<>(block, position);
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Find the entry following {@code node}. Past the end of its block, the index is searched
+     * again by key, since the blocks after it may have been merged or split since it was found.
+     */
+    Node<V> next(Node<V> node) {
+      if (node.position + 1 < node.block.size()) {
+        return new Node<>(node.block, node.position + 1);
+      }
+      return ceiling(node.getKey(), false);
+    }
+
+    /**
+     * Find the entry preceding {@code node}, see {@linkplain #next(Node)}.
+     */
+    Node<V> previous(Node<V> node) {
+      if (node.position > 0) {
+        return new Node<>(node.block, node.position - 1);
+      }
+      return floor(node.getKey(), false);
+    }
+
+    /**
+     * Put the value of {@code key}.
+     *
+     * @return the previous value; {@code null} if absent.
+     */
+    @SuppressWarnings("unchecked")
+    V put(String key, V value, boolean onlyIfAbsent) {
+      writeLock.lock();
+      try {
+        Map.Entry<String, Block> entry = blocks.floorEntry(key);
+        if (entry == null) {
+          entry = blocks.firstEntry();
+        }
+        if (entry == null) {
+          blocks.put(key, Block.of(new String[] {key}, new Object[] {value}, 0, 1));
+          size++;
+          return null;
+        }
+
+        Block block = entry.getValue();
+        int position = block.ceilingIndex(key, true);
+        if (block.matchesAt(position, key)) {
+          V previous = (V) block.values[position];
+          if (!onlyIfAbsent) {
+            blocks.put(entry.getKey(), block.withValue(position, value));
+          }
+          return previous;
+        }
+
+        int n = block.size() + 1;
+        String[] keys = new String[n];
+        Object[] values = new Object[n];
+        String[] blockKeys = block.keys();
+        System.arraycopy(blockKeys, 0, keys, 0, position);
+        System.arraycopy(block.values, 0, values, 0, position);
+        keys[position] = key;
+        values[position] = value;
+        System.arraycopy(blockKeys, position, keys, position + 1, n - position - 1);
+        System.arraycopy(block.values, position, values, position + 1, n - position - 1);
+
+        List<Block> replacements = new ArrayList<>(2);
+        if (n <= maxBlockSize) {
+          replacements.add(Block.of(keys, values, 0, n));
+        } else {
+          replacements.add(Block.of(keys, values, 0, n / 2));
+          replacements.add(Block.of(keys, values, n / 2, n));
+        }
+        install(List.of(entry.getKey()), replacements);
+        size++;
+        return null;
+      } finally {
+        writeLock.unlock();
+      }
+    }
+
+    /**
+     * Remove {@code key} if it is mapped to {@code expectedValue}, or to any value if
+     * {@code expectedValue} is {@code null}.
+     *
+     * @return the removed value; {@code null} if nothing is removed.
+     */
+    @SuppressWarnings("unchecked")
+    V remove(String key, Object expectedValue) {
+      writeLock.lock();
+      try {
+        Map.Entry<String, Block> entry = blocks.floorEntry(key);
+        if (entry == null) {
+          return null;
+        }
+        Block block = entry.getValue();
+        int position = block.indexOf(key);
+        if (position < 0 || (expectedValue != null && !expectedValue.equals(block.values[position]))) {
+          return null;
+        }
+
+        V previous = (V) block.values[position];
+        if (block.size() == 1) {
+          blocks.remove(entry.getKey());
+          size--;
+          return previous;
+        }
+
+        List<String> keys = new ArrayList<>(List.of(block.keys()));
+        List<Object> values = new ArrayList<>(List.of(block.values));
+        keys.remove(position);
+        values.remove(position);
+        List<String> replaced = new ArrayList<>(2);
+        replaced.add(entry.getKey());
+        Map.Entry<String, Block> next = keys.size() <= maxBlockSize / 4 ? blocks.higherEntry(entry.getKey()) : null;
+        if (next != null && keys.size() + next.getValue().size() <= maxBlockSize) {
+          keys.addAll(List.of(next.getValue().keys()));
+          values.addAll(List.of(next.getValue().values));
+          replaced.add(next.getKey());
+        }
+        install(replaced, List.of(Block.of(keys.toArray(new String[0]), values.toArray(), 0, keys.size())));
+        size--;
+        return previous;
+      } finally {
+        writeLock.unlock();
+      }
+    }
+
+    /**
+     * Replace the value of {@code key} if it is mapped to {@code expectedValue}, or to any value
+     * if {@code expectedValue} is {@code null}.
+     *
+     * @return the replaced value; {@code null} if nothing is replaced.
+     */
+    @SuppressWarnings("unchecked")
+    V replace(String key, Object expectedValue, V value) {
+      writeLock.lock();
+      try {
+        Map.Entry<String, Block> entry = blocks.floorEntry(key);
+        if (entry == null) {
+          return null;
+        }
+        Block block = entry.getValue();
+        int position = block.indexOf(key);
+        if (position < 0 || (expectedValue != null && !expectedValue.equals(block.values[position]))) {
+          return null;
+        }
+        blocks.put(entry.getKey(), block.withValue(position, value));
+        return (V) block.values[position];
+      } finally {
+        writeLock.unlock();
+      }
+    }
+
+    /**
+     * Fill this empty index with the entries of {@code map} in key order. The blocks are left
+     * partly empty, so that the next puts do not split them right away.
+     */
+    void load(Map<String, ? extends V> map) {
+      writeLock.lock();
+      try {
+        int blockSize = Math.max(1, maxBlockSize * 3 / 4);
+        String[] keys = new String[blockSize];
+        Object[] values = new Object[blockSize];
+        int n = 0;
+        for (Map.Entry<String, ? extends V> entry : map.entrySet()) {
+          keys[n] = Objects.requireNonNull(entry.getKey());
+          values[n] = Objects.requireNonNull(entry.getValue());
+          if (++n == blockSize) {
+            blocks.put(keys[0], Block.of(keys, values, 0, n));
+            n = 0;
+          }
+          size++;
+        }
+        if (n > 0) {
+          blocks.put(keys[0], Block.of(keys, values, 0, n));
+        }
+      } finally {
+        writeLock.unlock();
+      }
+    }
+
+    void clear() {
+      writeLock.lock();
+      try {
+        blocks.clear();
+        size = 0;
+      } finally {
+        writeLock.unlock();
+      }
+    }
+
+    /**
+     * Replace the blocks indexed by {@code replacedKeys} with {@code replacements}, which hold
+     * the same keys except the one being put or removed. The replacements are installed from the
+     * highest to the lowest, before the replaced blocks are removed, so that a reader always
+     * finds a key in the block with the greatest first key not above it.
+     */
+    private void install(List<String> replacedKeys, List<Block> replacements) {
+      List<String> installedKeys = new ArrayList<>(replacements.size());
+      for (int i = replacements.size() - 1; i >= 0; i--) {
+        Block replacement = replacements.get(i);
+        String firstKey = replacement.keyAt(0);
+        blocks.put(firstKey, replacement);
+        installedKeys.add(firstKey);
+      }
+      for (String replacedKey : replacedKeys) {
+        if (!installedKeys.contains(replacedKey)) {
+          blocks.remove(replacedKey);
+        }
+      }
+    }
+  }
+
+  /**
+   * An immutable run of adjacent entries. The keys are stored as their common prefix and the
+   * suffixes after it; each suffix char is encoded in 1 to 3 bytes like modified UTF-8, so that
+   * ASCII suffixes take a byte per char.
+   */
+  private static final class Block {
+
+    private final String prefix;
+
+    private final byte[] suffixes;
+
+    /**
+     * The suffix of the i-th key is {@code suffixes[offsets[i]..offsets[i + 1])}.
+     */
+    private final int[] offsets;
+
+    private final Object[] values;
+
+    private Block(String prefix, byte[] suffixes, int[] offsets, Object[] values) {
+      this.prefix = prefix;
+      this.suffixes = suffixes;
+      this.offsets = offsets;
+      this.values = values;
+    }
+
+    /**
+     * Create a block of {@code keys[from..to)}, which are sorted.
+     */
+    static Block of(String[] keys, Object[] values, int from, int to) {
+      String first = keys[from];
+      String last = keys[to - 1];
+      int prefixLength = 0;
+      int maxPrefixLength = Math.min(first.length(), last.length());
+      while (prefixLength < maxPrefixLength && first.charAt(prefixLength) == last.charAt(prefixLength)) {
+        prefixLength++;
+      }
+
+      int length = 0;
+      for (int i = from; i < to; i++) {
+        for (int j = prefixLength; j < keys[i].length(); j++) {
+          length += encodedLength(keys[i].charAt(j));
+        }
+      }
+      byte[] suffixes = new byte[length];
+      int[] offsets = new int[to - from + 1];
+      int position = 0;
+      for (int i = from; i < to; i++) {
+        offsets[i - from] = position;
+        for (int j = prefixLength; j < keys[i].length(); j++) {
+          position = encode(keys[i].charAt(j), suffixes, position);
+        }
+      }
+      offsets[to - from] = position;
+      Object[] blockValues = new Object[to - from];
+      System.arraycopy(values, from, blockValues, 0, to - from);
+      return new Block(first.substring(0, prefixLength), suffixes, offsets, blockValues);
+    }
+
+    private static int encodedLength(char c) {
+      return c != 0 && c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+    }
+
+    private static int encode(char c, byte[] bytes, int position) {
+      if (c != 0 && c < 0x80) {
+        bytes[position++] = (byte) c;
+      } else if (c < 0x800) {
+        bytes[position++] = (byte) (0xC0 | (c >> 6));
+        bytes[position++] = (byte) (0x80 | (c & 0x3F));
+      } else {
+        bytes[position++] = (byte) (0xE0 | (c >> 12));
+        bytes[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        bytes[position++] = (byte) (0x80 | (c & 0x3F));
+      }
+      return position;
+    }
+
+    int size() {
+      return values.length;
+    }
+
+    Block withValue(int position, Object value) {
+      Object[] newValues = values.clone();
+      newValues[position] = value;
+      return new Block(prefix, suffixes, offsets, newValues);
+    }
+
+    String keyAt(int position) {
+      StringBuilder key = new StringBuilder(prefix.length() + offsets[position + 1] - offsets[position]);
+      key.append(prefix);
+      for (int i = offsets[position]; i < offsets[position + 1]; ) {
+        int b = suffixes[i] & 0xFF;
+        if (b < 0x80) {
+          key.append((char) b);
+          i++;
+        } else if (b < 0xE0) {
+          key.append((char) (((b & 0x1F) << 6) | (suffixes[i + 1] & 0x3F)));
+          i += 2;
+        } else {
+          key.append((char) (((b & 0x0F) << 12) | ((suffixes[i + 1] & 0x3F) << 6) | (suffixes[i + 2] & 0x3F)));
+          i += 3;
+        }
+      }
+      return key.toString();
+    }
+
+    String[] keys() {
+      String[] keys = new String[size()];
+      for (int i = 0; i < keys.length; i++) {
+        keys[i] = keyAt(i);
+      }
+      return keys;
+    }
+
+    /**
+     * Compare the key at {@code position} with {@code key}, which starts with the prefix of this
+     * block, without decoding the key.
+     *
+     * @return negative, zero or positive if the key at {@code position} is less than, equal to
+     *     or greater than {@code key}.
+     */
+    int compareAt(int position, String key) {
+      int k = prefix.length();
+      int i = offsets[position];
+      int end = offsets[position + 1];
+      while (i < end) {
+        if (k == key.length()) {
+          return 1;
+        }
+        char c;
+        int b = suffixes[i] & 0xFF;
+        if (b < 0x80) {
+          c = (char) b;
+          i++;
+        } else if (b < 0xE0) {
+          c = (char) (((b & 0x1F) << 6) | (suffixes[i + 1] & 0x3F));
+          i += 2;
+        } else {
+          c = (char) (((b & 0x0F) << 12) | ((suffixes[i + 1] & 0x3F) << 6) | (suffixes[i + 2] & 0x3F));
+          i += 3;
+        }
+        char keyChar = key.charAt(k++);
+        if (c != keyChar) {
+          return c - keyChar;
+        }
+      }
+      return k == key.length() ? 0 : -1;
+    }
+
+    /**
+     * Get the position of the first key greater than or equal to ({@code inclusive}) or greater
+     * than {@code key}.
+     *
+     * @return the position; {@link #size()} if all keys are less.
+     */
+    int ceilingIndex(String key, boolean inclusive) {
+      int n = Math.min(prefix.length(), key.length());
+      for (int i = 0; i < n; i++) {
+        char prefixChar = prefix.charAt(i);
+        char keyChar = key.charAt(i);
+        if (prefixChar != keyChar) {
+          return keyChar < prefixChar ? 0 : size();
+        }
+      }
+      if (key.length() < prefix.length()) {
+        return 0;
+      }
+
+      int low = 0;
+      int high = size();
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        int c = compareAt(mid, key);
+        if (c < 0 || (c == 0 && !inclusive)) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    /**
+     * Get the position of {@code key}.
+     *
+     * @return the position; {@code -1} if absent.
+     */
+    int indexOf(String key) {
+      int position = ceilingIndex(key, true);
+      return matchesAt(position, key) ? position : -1;
+    }
+
+    /**
+     * Check whether the key at {@code position} equals {@code key}.
+     */
+    boolean matchesAt(int position, String key) {
+      return position < size() && key.startsWith(prefix) && compareAt(position, key) == 0;
+    }
+  }
+
+}
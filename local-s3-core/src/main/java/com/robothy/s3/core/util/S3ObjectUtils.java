@@ -4,8 +4,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 
 public class S3ObjectUtils {
@@ -21,6 +26,42 @@ public class S3ObjectUtils {
     }
   }
 
+  /**
+   * Calculate the etag from an MD5 digest that has consumed all object bytes.
+   * The digest is reset after this invocation.
+   */
+  public static String etag(MessageDigest md5Digest) {
+    return Hex.encodeHexString(md5Digest.digest());
+  }
+
+  /**
+   * Calculate the etag of an object completed by a multipart upload: the MD5 digest of the
+   * concatenated binary MD5 digests of the parts, followed by {@code "-"} and the number of
+   * parts. A part etag that is not a hex MD5 digest contributes its UTF-8 bytes.
+   */
+  public static String multipartEtag(List<String> partEtags) {
+    MessageDigest md5Digest = DigestUtils.getMd5Digest();
+    for (String partEtag : partEtags) {
+      String hex = partEtag.startsWith("\"") && partEtag.endsWith("\"") && partEtag.length() > 1
+          ? partEtag.substring(1, partEtag.length() - 1) : partEtag;
+      try {
+        md5Digest.update(Hex.decodeHex(hex));
+      } catch (DecoderException e) {
+        md5Digest.update(hex.getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    return etag(md5Digest) + "-" + partEtags.size();
+  }
+
+  /**
+   * Wrap the given input stream to calculate the MD5 digest of bytes while they are
+   * read, so that the etag is available once the stream is consumed without reading
+   * the data again.
+   */
+  public static DigestInputStream md5DigestInputStream(InputStream inputStream) {
+    return new DigestInputStream(inputStream, DigestUtils.getMd5Digest());
+  }
+
   /**
    * Encode the given string to url format except slash.
    */
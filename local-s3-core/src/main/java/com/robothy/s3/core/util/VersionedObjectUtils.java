@@ -1,6 +1,7 @@
 package com.robothy.s3.core.util;
 
 import com.robothy.s3.core.asserionts.VersionedObjectAssertions;
+import com.robothy.s3.core.model.internal.BucketMetadata;
 import com.robothy.s3.core.model.internal.ObjectMetadata;
 import com.robothy.s3.core.model.internal.VersionedObjectMetadata;
 import java.util.Objects;
@@ -45,4 +46,44 @@ public class VersionedObjectUtils {
     return inputVersionId;
   }
 
-}
\ No newline at end of file
+  /**
+   * Resolve the key of the versioned object in {@linkplain ObjectMetadata#getVersionedObjectMap()}
+   * that the input version ID refers to.
+   *
+   * @param objectMetadata object metadata.
+   * @param inputVersionId input version ID. May be {@code null}.
+   * @return the latest version, the virtual version, or the input version ID.
+   */
+  public static String resolveStoredVersion(ObjectMetadata objectMetadata, String inputVersionId) {
+    if (Objects.isNull(inputVersionId)) {
+      return objectMetadata.getLatestVersion();
+    }
+
+    if (ObjectMetadata.NULL_VERSION.equals(inputVersionId)) {
+      return objectMetadata.getVirtualVersion().orElse(inputVersionId);
+    }
+
+    return inputVersionId;
+  }
+
+  /**
+   * Replace the tagging of the versioned object that the input version ID refers to. The object and the
+   * versioned object are copied and the copy is published, since published metadata is read without locks.
+   *
+   * @param bucketMetadata bucket metadata that contains the object.
+   * @param key the object key.
+   * @param inputVersionId input version ID. May be {@code null}.
+   * @param tagging new tagging. May be {@code null}.
+   */
+  public static void replaceTagging(BucketMetadata bucketMetadata, String key, String inputVersionId, String[][] tagging) {
+    ObjectMetadata objectMetadata = bucketMetadata.getObjectMap().get(key);
+    String storedVersion = resolveStoredVersion(objectMetadata, inputVersionId);
+    VersionedObjectMetadata tagged = objectMetadata.getVersionedObjectMetadata(storedVersion).orElseThrow().copy();
+    tagged.setTagging(tagging);
+
+    ObjectMetadata snapshot = objectMetadata.copy();
+    snapshot.putVersionedObjectMetadata(storedVersion, tagged);
+    bucketMetadata.putObjectMetadata(key, snapshot);
+  }
+
+}
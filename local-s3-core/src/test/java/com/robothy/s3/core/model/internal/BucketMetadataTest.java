@@ -31,6 +31,55 @@ class BucketMetadataTest {
     assertTrue(optionalObjectMetadata.isEmpty());
   }
 
+  @Test
+  void liveObjectMap() {
+    BucketMetadata bucketMetadata = new BucketMetadata();
+    VersionedObjectMetadata deleteMarker = new VersionedObjectMetadata();
+    deleteMarker.setDeleted(true);
+    bucketMetadata.putObjectMetadata("a.txt", new ObjectMetadata("1", new VersionedObjectMetadata()));
+    bucketMetadata.putObjectMetadata("b.txt", new ObjectMetadata("2", new VersionedObjectMetadata()));
+    bucketMetadata.putObjectMetadata("c.txt", new ObjectMetadata("3", deleteMarker));
+    assertEquals(List.of("a.txt", "b.txt"), List.copyOf(bucketMetadata.getLiveObjectMap().keySet()));
+
+    ObjectMetadata deleted = bucketMetadata.getObjectMetadata("a.txt").get().copy();
+    deleted.putVersionedObjectMetadata("2", deleteMarker);
+    bucketMetadata.putObjectMetadata("a.txt", deleted);
+    bucketMetadata.removeObjectMetadata("b.txt");
+    assertTrue(bucketMetadata.getLiveObjectMap().isEmpty());
+    assertEquals(2, bucketMetadata.getObjectMap().size());
+
+    bucketMetadata.putObjectMetadata("d.txt", new ObjectMetadata("4", new VersionedObjectMetadata()));
+    BucketMetadata deserialized = JsonUtils.fromJson(JsonUtils.toJson(bucketMetadata), BucketMetadata.class);
+    assertEquals(List.of("d.txt"), List.copyOf(deserialized.getLiveObjectMap().keySet()));
+    assertEquals(List.of("d.txt"), List.copyOf(bucketMetadata.fork().getLiveObjectMap().keySet()));
+  }
+
+  @Test
+  void useObjectIndex() {
+    BucketMetadata bucketMetadata = new BucketMetadata();
+    VersionedObjectMetadata deleteMarker = new VersionedObjectMetadata();
+    deleteMarker.setDeleted(true);
+    bucketMetadata.putObjectMetadata("dir/a.txt", new ObjectMetadata("1", new VersionedObjectMetadata()));
+    bucketMetadata.putObjectMetadata("dir/b.txt", new ObjectMetadata("2", deleteMarker));
+    assertEquals(ObjectIndex.SKIP_LIST, ObjectIndex.of(bucketMetadata.getObjectMap()));
+
+    bucketMetadata.useObjectIndex(ObjectIndex.PREFIX_COMPRESSED);
+    assertEquals(ObjectIndex.PREFIX_COMPRESSED, ObjectIndex.of(bucketMetadata.getObjectMap()));
+    assertEquals(List.of("dir/a.txt", "dir/b.txt"), List.copyOf(bucketMetadata.getObjectMap().keySet()));
+    assertEquals(List.of("dir/a.txt"), List.copyOf(bucketMetadata.getLiveObjectMap().keySet()));
+
+    bucketMetadata.putObjectMetadata("dir/c.txt", new ObjectMetadata("3", new VersionedObjectMetadata()));
+    bucketMetadata.removeObjectMetadata("dir/a.txt");
+    assertEquals(List.of("dir/c.txt"), List.copyOf(bucketMetadata.getLiveObjectMap().keySet()));
+
+    BucketMetadata fork = bucketMetadata.fork();
+    assertEquals(ObjectIndex.PREFIX_COMPRESSED, ObjectIndex.of(fork.getObjectMap()));
+    assertEquals(List.of("dir/c.txt"), List.copyOf(fork.getLiveObjectMap().keySet()));
+
+    BucketMetadata deserialized = JsonUtils.fromJson(JsonUtils.toJson(bucketMetadata), BucketMetadata.class);
+    assertEquals(List.of("dir/b.txt", "dir/c.txt"), List.copyOf(deserialized.getObjectMap().keySet()));
+  }
+
   @Test
   void serialize() {
 
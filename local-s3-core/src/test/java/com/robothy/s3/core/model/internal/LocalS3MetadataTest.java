@@ -2,9 +2,14 @@ package com.robothy.s3.core.model.internal;
 
 import static org.junit.jupiter.api.Assertions.*;
 import com.robothy.s3.core.exception.BucketAlreadyExistsException;
+import com.robothy.s3.core.util.OverlayMap;
 
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -45,6 +50,84 @@ class LocalS3MetadataTest {
     Assertions.assertThrows(BucketAlreadyExistsException.class, () -> s3Metadata.addBucketMetadata(bucket2));
   }
 
+  @Test
+  void fork() {
+    LocalS3Metadata s3Metadata = new LocalS3Metadata();
+    BucketMetadata bucket1 = new BucketMetadata();
+    bucket1.setBucketName("bucket1");
+    bucket1.putObjectMetadata("a.txt", new ObjectMetadata("1", new VersionedObjectMetadata()));
+    NavigableMap<String, UploadMetadata> uploads = new ConcurrentSkipListMap<>();
+    uploads.put("upload1", UploadMetadata.builder().build());
+    bucket1.getUploads().put("b.txt", uploads);
+    s3Metadata.addBucketMetadata(bucket1);
+    AtomicInteger loads = new AtomicInteger();
+    s3Metadata.addLazyBucketMetadata("bucket2", () -> {
+      loads.incrementAndGet();
+      BucketMetadata bucket2 = new BucketMetadata();
+      bucket2.setBucketName("bucket2");
+      return bucket2;
+    });
+
+    LocalS3Metadata fork1 = s3Metadata.fork();
+    LocalS3Metadata fork2 = s3Metadata.fork();
+    assertEquals(0, loads.get());
+    assertTrue(fork1.bucketExists("bucket1"));
+    assertTrue(fork1.bucketExists("bucket2"));
+
+    BucketMetadata forkedBucket1 = fork1.getBucketMetadata("bucket1").orElseThrow();
+    assertNotSame(bucket1, forkedBucket1);
+    assertSame(bucket1.getObjectMetadata("a.txt").get(), forkedBucket1.getObjectMetadata("a.txt").get());
+    forkedBucket1.removeObjectMetadata("a.txt");
+    forkedBucket1.putObjectMetadata("c.txt", new ObjectMetadata("2", new VersionedObjectMetadata()));
+    forkedBucket1.getUploads().get("b.txt").get("upload1").getParts().put(1, new UploadPartMetadata());
+    forkedBucket1.setVersioningEnabled(true);
+    assertTrue(bucket1.getObjectMetadata("a.txt").isPresent());
+    assertTrue(bucket1.getObjectMetadata("c.txt").isEmpty());
+    // The objects of the fork are an overlay over the objects of the bucket.
+    assertInstanceOf(OverlayMap.class, forkedBucket1.getObjectMap());
+    assertEquals(List.of("a.txt"), List.copyOf(bucket1.getLiveObjectMap().keySet()));
+    assertEquals(List.of("c.txt"), List.copyOf(forkedBucket1.getLiveObjectMap().keySet()));
+    assertTrue(bucket1.getUploads().get("b.txt").get("upload1").getParts().isEmpty());
+    assertNull(bucket1.getVersioningEnabled());
+    assertTrue(fork2.getBucketMetadata("bucket1").get().getObjectMetadata("a.txt").isPresent());
+
+    fork1.getBucketMetadata("bucket2");
+    fork2.getBucketMetadata("bucket2");
+    assertEquals(1, loads.get());
+    fork1.getBucketMetadataMap().remove("bucket2");
+    assertFalse(fork1.bucketExists("bucket2"));
+    assertTrue(s3Metadata.bucketExists("bucket2"));
+    assertTrue(fork2.bucketExists("bucket2"));
+  }
 
+  @Test
+  void setObjectIndex() {
+    LocalS3Metadata s3Metadata = new LocalS3Metadata();
+    BucketMetadata bucket1 = new BucketMetadata();
+    bucket1.setBucketName("bucket1");
+    bucket1.putObjectMetadata("a.txt", new ObjectMetadata("1", new VersionedObjectMetadata()));
+    s3Metadata.addBucketMetadata(bucket1);
+    s3Metadata.addLazyBucketMetadata("bucket2", () -> {
+      BucketMetadata bucket2 = new BucketMetadata();
+      bucket2.setBucketName("bucket2");
+      return bucket2;
+    });
+
+    s3Metadata.setObjectIndex(ObjectIndex.PREFIX_COMPRESSED);
+    assertEquals(ObjectIndex.PREFIX_COMPRESSED, ObjectIndex.of(bucket1.getObjectMap()));
+    assertTrue(bucket1.getObjectMetadata("a.txt").isPresent());
+    BucketMetadata bucket2 = s3Metadata.getBucketMetadata("bucket2").orElseThrow();
+    assertEquals(ObjectIndex.PREFIX_COMPRESSED, ObjectIndex.of(bucket2.getObjectMap()));
+
+    BucketMetadata bucket3 = new BucketMetadata();
+    bucket3.setBucketName("bucket3");
+    s3Metadata.addBucketMetadata(bucket3);
+    assertEquals(ObjectIndex.PREFIX_COMPRESSED, ObjectIndex.of(bucket3.getObjectMap()));
+
+    LocalS3Metadata fork = s3Metadata.fork();
+    assertEquals(ObjectIndex.PREFIX_COMPRESSED, fork.getObjectIndex());
+    assertEquals(ObjectIndex.PREFIX_COMPRESSED,
+        ObjectIndex.of(fork.getBucketMetadata("bucket1").orElseThrow().getObjectMap()));
+  }
 
-}
\ No newline at end of file
+}
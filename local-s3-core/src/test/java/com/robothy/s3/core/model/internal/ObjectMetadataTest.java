@@ -3,6 +3,18 @@ package com.robothy.s3.core.model.internal;
 import static org.junit.jupiter.api.Assertions.*;
 import com.robothy.s3.core.util.IdUtils;
 import com.robothy.s3.core.util.JsonUtils;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
 
 class ObjectMetadataTest {
@@ -32,4 +44,132 @@ class ObjectMetadataTest {
     assertEquals(objectMetadata, serialized);
   }
 
-}
\ No newline at end of file
+  @Test
+  void singleVersion() {
+    VersionedObjectMetadata version1 = new VersionedObjectMetadata();
+    VersionedObjectMetadata version2 = new VersionedObjectMetadata();
+    VersionedObjectMetadata version3 = new VersionedObjectMetadata();
+    ObjectMetadata objectMetadata = new ObjectMetadata("1", version1);
+    assertEquals(1, objectMetadata.getVersionCount());
+    assertSame(version1, objectMetadata.getVersionedObjectMetadata("1").orElseThrow());
+    assertTrue(objectMetadata.getVersionedObjectMetadata("01").isEmpty());
+    assertTrue(objectMetadata.getVersionedObjectMetadata(ObjectMetadata.NULL_VERSION).isEmpty());
+
+    objectMetadata.putVersionedObjectMetadata("1", version2);
+    assertEquals(1, objectMetadata.getVersionCount());
+    assertSame(version2, objectMetadata.getLatest());
+
+    objectMetadata.putVersionedObjectMetadata("3", version3);
+    objectMetadata.putVersionedObjectMetadata(ObjectMetadata.NULL_VERSION, version1);
+    assertEquals(List.of(ObjectMetadata.NULL_VERSION, "3", "1"), List.copyOf(objectMetadata.getVersionedObjectMap().keySet()));
+    assertThrows(UnsupportedOperationException.class, () -> objectMetadata.getVersionedObjectMap().clear());
+
+    ObjectMetadata copy = objectMetadata.copy();
+    assertSame(version3, copy.removeVersionedObjectMetadata("3"));
+    assertNull(copy.removeVersionedObjectMetadata("3"));
+    assertSame(version2, copy.removeVersionedObjectMetadata("1"));
+    assertEquals(1, copy.getVersionCount());
+    assertEquals(ObjectMetadata.NULL_VERSION, copy.getLatestVersion());
+    assertEquals(3, objectMetadata.getVersionCount());
+
+    assertSame(version1, copy.removeVersionedObjectMetadata(ObjectMetadata.NULL_VERSION));
+    assertEquals(0, copy.getVersionCount());
+    assertTrue(copy.getVersionedObjectMap().isEmpty());
+    assertThrows(NoSuchElementException.class, copy::getLatestVersion);
+  }
+
+  @Test
+  void virtualVersion() {
+    ObjectMetadata objectMetadata = new ObjectMetadata();
+    assertTrue(objectMetadata.getVirtualVersion().isEmpty());
+    for (String virtualVersion : List.of("0", "123", String.valueOf(Long.MAX_VALUE), "9223372036854775808", "007", "-1", "a")) {
+      objectMetadata.setVirtualVersion(virtualVersion);
+      assertEquals(Optional.of(virtualVersion), objectMetadata.getVirtualVersion());
+      objectMetadata.putVersionedObjectMetadata(virtualVersion, new VersionedObjectMetadata());
+      assertEquals(virtualVersion, objectMetadata.getLatestVersion());
+      assertNotNull(objectMetadata.removeVersionedObjectMetadata(virtualVersion));
+    }
+    objectMetadata.setVirtualVersion(null);
+    assertTrue(objectMetadata.getVirtualVersion().isEmpty());
+  }
+
+  @Test
+  void serializeMultipleVersions() {
+    ObjectMetadata objectMetadata = new ObjectMetadata("1", new VersionedObjectMetadata());
+    objectMetadata.putVersionedObjectMetadata("2", new VersionedObjectMetadata());
+    objectMetadata.setVirtualVersion("2");
+    ObjectMetadata serialized = JsonUtils.fromJson(JsonUtils.toJson(objectMetadata), ObjectMetadata.class);
+    assertEquals(objectMetadata, serialized);
+    assertEquals("2", serialized.getLatestVersion());
+  }
+
+  /**
+   * An object of an unversioned bucket must retain only its own {@linkplain ObjectMetadata} and
+   * {@linkplain VersionedObjectMetadata}. The layout is checked on the declared fields with a
+   * fixed model of a 64-bit JVM with compressed references, so that the result does not depend
+   * on the JVM that runs the test.
+   */
+  @Test
+  void singleVersionHeapLayout() throws IllegalAccessException {
+    VersionedObjectMetadata versionedObjectMetadata = new VersionedObjectMetadata();
+    versionedObjectMetadata.setEtag("8b1a9953c4611296a827abf8c47804d7");
+    versionedObjectMetadata.setFileId(IdUtils.defaultGenerator().nextId());
+    versionedObjectMetadata.setSize(5);
+    versionedObjectMetadata.setContentType(new String("text/plain"));
+    versionedObjectMetadata.setCreationDate(System.currentTimeMillis());
+    String versionId = IdUtils.defaultGenerator().nextStrId();
+    ObjectMetadata objectMetadata = new ObjectMetadata();
+    objectMetadata.setVirtualVersion(versionId);
+    objectMetadata.putVersionedObjectMetadata(versionId, versionedObjectMetadata);
+
+    Map<Object, Long> retained = retainedObjects(objectMetadata);
+    assertEquals(Set.of(ObjectMetadata.class, VersionedObjectMetadata.class),
+        retained.keySet().stream().map(Object::getClass).collect(Collectors.toSet()));
+    assertEquals(2, retained.size());
+    // 48 bytes of object metadata and 80 bytes of the version.
+    assertTrue(retained.values().stream().mapToLong(Long::longValue).sum() <= 128);
+  }
+
+  /**
+   * Get the objects reachable from {@code root} that are not shared with other objects, which are
+   * interned strings and empty collections, with their modeled shallow sizes.
+   */
+  private static Map<Object, Long> retainedObjects(Object root) throws IllegalAccessException {
+    Map<Object, Long> retained = new IdentityHashMap<>();
+    Deque<Object> queue = new ArrayDeque<>(List.of(root));
+    while (!queue.isEmpty()) {
+      Object object = queue.poll();
+      if (retained.containsKey(object) || isShared(object)) {
+        continue;
+      }
+      long size = 12;
+      for (Class<?> type = object.getClass(); type != Object.class; type = type.getSuperclass()) {
+        assertTrue(type.getName().startsWith("com.robothy."), "Retains " + type.getName());
+        for (Field field : type.getDeclaredFields()) {
+          if (Modifier.isStatic(field.getModifiers())) {
+            continue;
+          }
+          Class<?> fieldType = field.getType();
+          size += fieldType == long.class || fieldType == double.class ? 8
+              : fieldType == byte.class || fieldType == boolean.class ? 1
+              : fieldType == short.class || fieldType == char.class ? 2 : 4;
+          if (!fieldType.isPrimitive()) {
+            field.setAccessible(true);
+            Object value = field.get(object);
+            if (value != null) {
+              queue.add(value);
+            }
+          }
+        }
+      }
+      retained.put(object, (size + 7) / 8 * 8);
+    }
+    return retained;
+  }
+
+  private static boolean isShared(Object object) {
+    return object instanceof String && ((String) object).intern() == object
+        || object == Collections.emptyMap() || object == Map.of();
+  }
+
+}
@@ -2,6 +2,8 @@ package com.robothy.s3.core.model.internal;
 
 import static org.junit.jupiter.api.Assertions.*;
 import com.robothy.s3.core.util.JsonUtils;
+import java.util.List;
+import java.util.Map;
 import org.junit.jupiter.api.Test;
 
 class VersionedObjectMetadataTest {
@@ -18,4 +20,37 @@ class VersionedObjectMetadataTest {
     assertEquals(versionedObjectMetadata, deserialized);
   }
 
-}
\ No newline at end of file
+  @Test
+  void etag() {
+    VersionedObjectMetadata versionedObjectMetadata = new VersionedObjectMetadata();
+    assertNull(versionedObjectMetadata.getEtag());
+    for (String etag : List.of("5d41402abc4b2a76b9719d911017c592", "00000000000000000000000000000000",
+        "ffffffffffffffffffffffffffffffff", "5D41402ABC4B2A76B9719D911017C592", "5d41402abc4b2a76b9719d911017c592-2",
+        "\"5d41402abc4b2a76b9719d911017c592\"", "")) {
+      versionedObjectMetadata.setEtag(etag);
+      assertEquals(etag, versionedObjectMetadata.getEtag());
+      assertEquals(etag, versionedObjectMetadata.copy().getEtag());
+    }
+    versionedObjectMetadata.setEtag(null);
+    assertNull(versionedObjectMetadata.getEtag());
+  }
+
+  @Test
+  void compactFields() {
+    VersionedObjectMetadata versionedObjectMetadata = new VersionedObjectMetadata();
+    assertNull(versionedObjectMetadata.getFileId());
+    versionedObjectMetadata.setFileId(0L);
+    assertEquals(0L, versionedObjectMetadata.getFileId());
+    versionedObjectMetadata.setFileId(null);
+    assertNull(versionedObjectMetadata.getFileId());
+
+    versionedObjectMetadata.setContentType(new String("text/plain"));
+    assertSame("text/plain", versionedObjectMetadata.getContentType());
+
+    versionedObjectMetadata.setUserMetadata(Map.of(new String("owner"), "a"));
+    assertSame("owner", versionedObjectMetadata.getUserMetadata().keySet().iterator().next());
+    versionedObjectMetadata.setUserMetadata(null);
+    assertTrue(versionedObjectMetadata.getUserMetadata().isEmpty());
+  }
+
+}
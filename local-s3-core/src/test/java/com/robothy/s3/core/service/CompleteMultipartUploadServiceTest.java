@@ -8,13 +8,18 @@ import com.robothy.s3.core.model.answers.CompleteMultipartUploadAns;
 import com.robothy.s3.core.model.answers.GetObjectAns;
 import com.robothy.s3.core.model.internal.ObjectMetadata;
 import com.robothy.s3.core.model.request.CompleteMultipartUploadPartOption;
+import com.robothy.s3.core.model.request.CopyObjectOptions;
 import com.robothy.s3.core.model.request.CreateMultipartUploadOptions;
 import com.robothy.s3.core.model.request.GetObjectOptions;
+import com.robothy.s3.core.model.request.Range;
 import com.robothy.s3.core.model.request.UploadPartOptions;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -58,4 +63,48 @@ class CompleteMultipartUploadServiceTest extends LocalS3ServiceTestBase {
     assertEquals("HelloWorld", new String(object.getContent().readAllBytes()));
   }
 
-}
\ No newline at end of file
+  @ParameterizedTest
+  @MethodSource("localS3Services")
+  void completeWithPartsAsContent(BucketService bucketService, ObjectService objectService) throws IOException {
+    String bucket = "my-bucket";
+    String key = "a.txt";
+    bucketService.createBucket(bucket);
+    String uploadId = objectService.createMultipartUpload(bucket, key, CreateMultipartUploadOptions.builder().build());
+    String[] parts = {"Hello", "Local", "S3"};
+    for (int i = 0; i < parts.length; i++) {
+      objectService.uploadPart(bucket, key, uploadId, i + 1, UploadPartOptions.builder()
+          .data(new ByteArrayInputStream(parts[i].getBytes()))
+          .contentLength(parts[i].length())
+          .build());
+    }
+
+    CompleteMultipartUploadAns completeAns = objectService.completeMultipartUpload(bucket, key, uploadId, Arrays.asList(
+        CompleteMultipartUploadPartOption.builder().partNumber(1).build(),
+        CompleteMultipartUploadPartOption.builder().partNumber(3).build()));
+    byte[] partMd5s = ByteBuffer.allocate(32).put(DigestUtils.md5("Hello")).put(DigestUtils.md5("S3")).array();
+    assertEquals(DigestUtils.md5Hex(partMd5s) + "-2", completeAns.getEtag());
+
+    GetObjectAns object = objectService.getObject(bucket, key, GetObjectOptions.builder().build());
+    assertEquals(completeAns.getEtag(), object.getEtag());
+    assertEquals(7, object.getSize());
+    assertEquals("HelloS3", new String(object.getContent().readAllBytes()));
+    assertEquals("HelloS3", StandardCharsets.UTF_8.decode(object.getContentBuffer()).toString());
+    assertEquals(2, object.getContentBuffers().length);
+
+    GetObjectAns range = objectService.getObject(bucket, key, GetObjectOptions.builder().range(Range.of(3, 5)).build());
+    assertEquals("loS", new String(range.getContent().readAllBytes()));
+    assertEquals("bytes 3-5/7", range.getContentRange());
+    range = objectService.getObject(bucket, key, GetObjectOptions.builder().range(Range.of(5, 6)).build());
+    assertEquals("S3", new String(range.getContent().readAllBytes()));
+    assertEquals(1, range.getContentBuffers().length);
+
+    objectService.copyObject(bucket, "b.txt", CopyObjectOptions.builder()
+        .sourceBucket(bucket)
+        .sourceKey(key)
+        .build());
+    objectService.deleteObject(bucket, key);
+    GetObjectAns copy = objectService.getObject(bucket, "b.txt", GetObjectOptions.builder().build());
+    assertEquals("HelloS3", new String(copy.getContent().readAllBytes()));
+  }
+
+}
@@ -5,12 +5,14 @@ import com.robothy.s3.core.model.answers.CopyObjectAns;
 import com.robothy.s3.core.model.answers.DeleteObjectAns;
 import com.robothy.s3.core.model.answers.GetObjectAns;
 import com.robothy.s3.core.model.answers.ListObjectVersionsAns;
+import com.robothy.s3.core.model.answers.PutObjectAns;
 import com.robothy.s3.core.model.internal.ObjectMetadata;
 import com.robothy.s3.core.model.request.CopyObjectOptions;
 import com.robothy.s3.core.model.request.GetObjectOptions;
 import com.robothy.s3.core.model.request.PutObjectOptions;
 import com.robothy.s3.datatypes.response.ObjectVersion;
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.util.Map;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -80,4 +82,37 @@ class CopyObjectServiceTest extends LocalS3ServiceTestBase {
     assertEquals(ObjectMetadata.NULL_VERSION, copyObjectAns3.getVersionId());
   }
 
-}
\ No newline at end of file
+  @ParameterizedTest
+  @MethodSource("localS3Services")
+  void shareContent(BucketService bucketService, ObjectService objectService) throws IOException {
+    String bucket = "share-content-bucket";
+    bucketService.createBucket(bucket);
+    String text = "Hello";
+    PutObjectAns putObjectAns = objectService.putObject(bucket, "a.txt", PutObjectOptions.builder()
+        .size(text.length())
+        .contentType("plain/text")
+        .content(new ByteArrayInputStream(text.getBytes()))
+        .build());
+    CopyObjectAns copyObjectAns = objectService.copyObject(bucket, "b.txt", CopyObjectOptions.builder()
+        .sourceBucket(bucket)
+        .sourceKey("a.txt")
+        .build());
+    assertEquals(putObjectAns.getEtag(), copyObjectAns.getEtag());
+
+    // Deleting or overwriting either side does not free the content of the other.
+    objectService.deleteObject(bucket, "a.txt");
+    GetObjectAns copy = objectService.getObject(bucket, "b.txt", GetObjectOptions.builder().build());
+    assertEquals(text, new String(copy.getContent().readAllBytes()));
+    objectService.copyObject(bucket, "a.txt", CopyObjectOptions.builder()
+        .sourceBucket(bucket)
+        .sourceKey("b.txt")
+        .build());
+    objectService.putObject(bucket, "b.txt", PutObjectOptions.builder()
+        .size(0)
+        .content(new ByteArrayInputStream(new byte[0]))
+        .build());
+    GetObjectAns object = objectService.getObject(bucket, "a.txt", GetObjectOptions.builder().build());
+    assertEquals(text, new String(object.getContent().readAllBytes()));
+  }
+
+}
@@ -82,6 +82,7 @@ class DeleteObjectServiceTest extends LocalS3ServiceTestBase {
         .content(new ByteArrayInputStream("Robothy".getBytes()))
         .size(7)
         .build());
+    objectMetadata = ObjectAssertions.assertObjectExists(bucketMetadata, key);
     assertEquals(3, objectMetadata.getVersionedObjectMap().size());
 
     DeleteObjectAns deleteObjectAns3 = objectService.deleteObject(bucketName, key, deleteObjectAns2.getVersionId());
@@ -98,16 +99,19 @@ class DeleteObjectServiceTest extends LocalS3ServiceTestBase {
     DeleteObjectAns deleteObjectAns5 = objectService.deleteObject(bucketName, key);
     assertTrue(deleteObjectAns5.isDeleteMarker());
     assertEquals(ObjectMetadata.NULL_VERSION, deleteObjectAns5.getVersionId());
+    objectMetadata = ObjectAssertions.assertObjectExists(bucketMetadata, key);
     assertEquals(2, objectMetadata.getVersionedObjectMap().size());
 
     DeleteObjectAns deleteObjectAns6 = objectService.deleteObject(bucketName, key);
     assertTrue(deleteObjectAns6.isDeleteMarker());
     assertEquals(ObjectMetadata.NULL_VERSION, deleteObjectAns6.getVersionId());
+    objectMetadata = ObjectAssertions.assertObjectExists(bucketMetadata, key);
     assertEquals(2, objectMetadata.getVersionedObjectMap().size());
 
     DeleteObjectAns deleteObjectAns9 = objectService.deleteObject(bucketName, key, ObjectMetadata.NULL_VERSION);
     assertTrue(deleteObjectAns9.isDeleteMarker());
     assertEquals(ObjectMetadata.NULL_VERSION, deleteObjectAns9.getVersionId());
+    objectMetadata = ObjectAssertions.assertObjectExists(bucketMetadata, key);
     assertEquals(1, objectMetadata.getVersionedObjectMap().size());
 
     DeleteObjectAns deleteObjectAns10 = objectService.deleteObject(bucketName, key, deleteObjectAns1.getVersionId());
@@ -1,15 +1,22 @@
 package com.robothy.s3.core.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import com.robothy.s3.core.model.internal.BucketMetadata;
 import com.robothy.s3.core.model.internal.ObjectMetadata;
+import com.robothy.s3.core.model.internal.UploadMetadata;
+import com.robothy.s3.core.model.internal.VersionedObjectMetadata;
 import com.robothy.s3.core.storage.FileSystemBucketMetadataStore;
 import com.robothy.s3.core.storage.MetadataStore;
+import com.robothy.s3.core.util.JsonUtils;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentSkipListMap;
 import lombok.SneakyThrows;
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.Test;
@@ -76,4 +83,150 @@ class FileSystemBucketMetadataStoreTest {
     assertEquals(2, bucketStore.fetchAll().size());
     FileUtils.deleteDirectory(tempDirectory.toFile());
   }
-}
\ No newline at end of file
+
+  @Test
+  @SneakyThrows
+  void storeEntry() {
+    Path tempDirectory = Files.createTempDirectory("bucket-meta");
+    MetadataStore<BucketMetadata> store = FileSystemBucketMetadataStore.create(tempDirectory, 4);
+    BucketMetadata bucketMetadata = new BucketMetadata();
+    bucketMetadata.setBucketName("bucket");
+    store.store("bucket", bucketMetadata);
+    Path journal = tempDirectory.resolve("bucket.bucket.journal");
+
+    bucketMetadata.putObjectMetadata("a", objectMetadata(1L));
+    store.storeEntry("bucket", bucketMetadata, "a");
+    bucketMetadata.putObjectMetadata("b", objectMetadata(2L));
+    store.storeEntry("bucket", bucketMetadata, "b");
+    ConcurrentSkipListMap<String, UploadMetadata> uploads = new ConcurrentSkipListMap<>();
+    uploads.put("upload-1", UploadMetadata.builder().contentType("text/plain").build());
+    bucketMetadata.getUploads().put("c", uploads);
+    store.storeEntry("bucket", bucketMetadata, "c");
+    bucketMetadata.getObjectMap().remove("a");
+    store.storeEntry("bucket", bucketMetadata, "a");
+    assertTrue(Files.exists(journal));
+    assertEquals(bucketMetadata, store.fetch("bucket"));
+    assertEquals(bucketMetadata, FileSystemBucketMetadataStore.create(tempDirectory).fetch("bucket"));
+
+    bucketMetadata.putObjectMetadata("d", objectMetadata(3L));
+    store.storeEntry("bucket", bucketMetadata, "d");
+    assertFalse(Files.exists(journal)); // Checkpoint
+    assertEquals(bucketMetadata, store.fetch("bucket"));
+
+    store.delete("bucket");
+    assertFalse(Files.exists(journal));
+    FileUtils.deleteDirectory(tempDirectory.toFile());
+  }
+
+  @Test
+  @SneakyThrows
+  void fetchWithTruncatedJournal() {
+    Path tempDirectory = Files.createTempDirectory("bucket-meta");
+    MetadataStore<BucketMetadata> store = FileSystemBucketMetadataStore.create(tempDirectory);
+    BucketMetadata bucketMetadata = new BucketMetadata();
+    bucketMetadata.setBucketName("bucket");
+    store.store("bucket", bucketMetadata);
+    bucketMetadata.putObjectMetadata("a", objectMetadata(1L));
+    store.storeEntry("bucket", bucketMetadata, "a");
+
+    Path journal = tempDirectory.resolve("bucket.bucket.journal");
+    long validLength = Files.size(journal);
+    Files.write(journal, "{\"key\":\"b\",\"obj".getBytes(), StandardOpenOption.APPEND);
+
+    MetadataStore<BucketMetadata> reopened = FileSystemBucketMetadataStore.create(tempDirectory);
+    assertEquals(bucketMetadata, reopened.fetch("bucket"));
+    assertEquals(validLength, Files.size(journal));
+
+    bucketMetadata.putObjectMetadata("b", objectMetadata(2L));
+    reopened.storeEntry("bucket", bucketMetadata, "b");
+    assertEquals(bucketMetadata, FileSystemBucketMetadataStore.create(tempDirectory).fetch("bucket"));
+    FileUtils.deleteDirectory(tempDirectory.toFile());
+  }
+
+  @Test
+  @SneakyThrows
+  void crashBeforeJournalTruncated() {
+    Path tempDirectory = Files.createTempDirectory("bucket-meta");
+    MetadataStore<BucketMetadata> store = FileSystemBucketMetadataStore.create(tempDirectory);
+    BucketMetadata bucketMetadata = new BucketMetadata();
+    bucketMetadata.setBucketName("bucket");
+    store.store("bucket", bucketMetadata);
+    bucketMetadata.putObjectMetadata("a", objectMetadata(1L));
+    store.storeEntry("bucket", bucketMetadata, "a");
+    bucketMetadata.putObjectMetadata("b", objectMetadata(2L));
+    store.storeEntry("bucket", bucketMetadata, "b");
+
+    // Simulate a crash after the snapshot is renamed but before the journal is truncated.
+    Path journal = tempDirectory.resolve("bucket.bucket.journal");
+    byte[] staleJournal = Files.readAllBytes(journal);
+    bucketMetadata.putObjectMetadata("a", objectMetadata(3L));
+    bucketMetadata.removeObjectMetadata("b");
+    store.store("bucket", bucketMetadata);
+    assertFalse(Files.exists(journal));
+    Files.write(journal, staleJournal);
+
+    MetadataStore<BucketMetadata> reopened = FileSystemBucketMetadataStore.create(tempDirectory);
+    assertEquals(bucketMetadata, reopened.fetch("bucket"));
+
+    // Records appended after the restart still apply.
+    bucketMetadata.putObjectMetadata("c", objectMetadata(4L));
+    reopened.storeEntry("bucket", bucketMetadata, "c");
+    assertEquals(bucketMetadata, FileSystemBucketMetadataStore.create(tempDirectory).fetch("bucket"));
+    FileUtils.deleteDirectory(tempDirectory.toFile());
+  }
+
+  @Test
+  @SneakyThrows
+  void crashBeforeJournalDeleted() {
+    Path tempDirectory = Files.createTempDirectory("bucket-meta");
+    MetadataStore<BucketMetadata> store = FileSystemBucketMetadataStore.create(tempDirectory);
+    BucketMetadata bucketMetadata = new BucketMetadata();
+    bucketMetadata.setBucketName("bucket");
+    store.store("bucket", bucketMetadata);
+    store.store("bucket", bucketMetadata);
+    bucketMetadata.putObjectMetadata("a", objectMetadata(1L));
+    store.storeEntry("bucket", bucketMetadata, "a");
+
+    // Simulate a crash after the snapshot is deleted but before the journal is deleted.
+    Path journal = tempDirectory.resolve("bucket.bucket.journal");
+    byte[] staleJournal = Files.readAllBytes(journal);
+    store.delete("bucket");
+    Files.write(journal, staleJournal);
+
+    MetadataStore<BucketMetadata> reopened = FileSystemBucketMetadataStore.create(tempDirectory);
+    assertTrue(reopened.listNames().isEmpty());
+    BucketMetadata recreated = new BucketMetadata();
+    recreated.setBucketName("bucket");
+    reopened.store("bucket", recreated);
+    assertEquals(recreated, FileSystemBucketMetadataStore.create(tempDirectory).fetch("bucket"));
+    FileUtils.deleteDirectory(tempDirectory.toFile());
+  }
+
+  @Test
+  @SneakyThrows
+  void replayJournalWithoutGenerations() {
+    Path tempDirectory = Files.createTempDirectory("bucket-meta");
+    BucketMetadata bucketMetadata = new BucketMetadata();
+    bucketMetadata.setBucketName("bucket");
+    Files.write(tempDirectory.resolve("bucket.bucket.meta"), JsonUtils.toJson(bucketMetadata).getBytes());
+    Files.write(tempDirectory.resolve("bucket.bucket.journal"),
+        ("{\"key\":\"a\",\"object\":" + JsonUtils.toJson(objectMetadata(1L)) + "}\n").getBytes());
+
+    MetadataStore<BucketMetadata> store = FileSystemBucketMetadataStore.create(tempDirectory);
+    bucketMetadata.putObjectMetadata("a", objectMetadata(1L));
+    assertEquals(bucketMetadata, store.fetch("bucket"));
+    bucketMetadata.putObjectMetadata("b", objectMetadata(2L));
+    store.storeEntry("bucket", bucketMetadata, "b");
+    assertEquals(bucketMetadata, FileSystemBucketMetadataStore.create(tempDirectory).fetch("bucket"));
+    FileUtils.deleteDirectory(tempDirectory.toFile());
+  }
+
+  private ObjectMetadata objectMetadata(long fileId) {
+    ObjectMetadata objectMetadata = new ObjectMetadata();
+    VersionedObjectMetadata versionedObjectMetadata = new VersionedObjectMetadata();
+    versionedObjectMetadata.setFileId(fileId);
+    versionedObjectMetadata.setSize(fileId);
+    objectMetadata.putVersionedObjectMetadata("null", versionedObjectMetadata);
+    return objectMetadata;
+  }
+}
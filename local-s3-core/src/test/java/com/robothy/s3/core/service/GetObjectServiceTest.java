@@ -20,11 +20,18 @@ import com.robothy.s3.core.model.internal.ObjectMetadata;
 import com.robothy.s3.core.model.request.GetObjectOptions;
 import com.robothy.s3.core.model.request.PutObjectOptions;
 import com.robothy.s3.core.model.request.Range;
+import com.robothy.s3.core.service.locks.BucketLock;
+import com.robothy.s3.core.service.locks.EpochReclaimer;
+import com.robothy.s3.core.service.manager.LocalS3Manager;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 
 import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
@@ -220,4 +227,49 @@ class GetObjectServiceTest extends LocalS3ServiceTestBase {
 
   }
 
-}
\ No newline at end of file
+  @Test
+  void readWithoutBucketLock() throws Exception {
+    LocalS3Manager manager = LocalS3Manager.createInMemoryS3Manager();
+    BucketService bucketService = manager.bucketService();
+    ObjectService objectService = manager.objectService();
+    String bucketName = "lock-free-read";
+    bucketService.createBucket(bucketName);
+    objectService.putObject(bucketName, "a.txt", PutObjectOptions.builder()
+        .content(new ByteArrayInputStream("Hello".getBytes()))
+        .size(5)
+        .build());
+    BucketMetadata bucketMetadata = BucketAssertions.assertBucketExists(bucketService.localS3Metadata(), bucketName);
+    Long fileId = ObjectAssertions.assertObjectExists(bucketMetadata, "a.txt").getLatest().getFileId();
+
+    Lock writeLock = BucketLock.getInstance().writeLock(bucketName);
+    writeLock.lock();
+    try {
+      try (GetObjectAns getObjectAns = CompletableFuture.supplyAsync(() -> objectService.getObject(bucketName,
+          "a.txt", GetObjectOptions.builder().build())).get(10, TimeUnit.SECONDS)) {
+        assertEquals("Hello", new String(getObjectAns.getContent().readAllBytes()));
+      }
+    } finally {
+      writeLock.unlock();
+    }
+
+    // The content of a replaced version is kept until the readers that may see it have left.
+    try (EpochReclaimer.Guard ignored = EpochReclaimer.getInstance().enter()) {
+      objectService.putObject(bucketName, "a.txt", PutObjectOptions.builder()
+          .content(new ByteArrayInputStream("World".getBytes()))
+          .size(5)
+          .build());
+      assertTrue(objectService.storage().isExist(fileId));
+    }
+    assertFalse(objectService.storage().isExist(fileId));
+
+    // And until the answers that returned it are closed.
+    GetObjectAns getObjectAns = objectService.getObject(bucketName, "a.txt", GetObjectOptions.builder().build());
+    Long fileId2 = ObjectAssertions.assertObjectExists(bucketMetadata, "a.txt").getLatest().getFileId();
+    objectService.deleteObject(bucketName, "a.txt");
+    assertTrue(objectService.storage().isExist(fileId2));
+    assertEquals("World", new String(getObjectAns.getContent().readAllBytes()));
+    getObjectAns.close();
+    assertFalse(objectService.storage().isExist(fileId2));
+  }
+
+}
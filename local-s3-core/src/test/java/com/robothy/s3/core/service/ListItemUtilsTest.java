@@ -33,4 +33,22 @@ class ListItemUtilsTest {
     assertEquals(0, filtered4.size());
   }
 
-}
\ No newline at end of file
+  @Test
+  void prefixSuccessor() {
+    assertEquals("b", ListItemUtils.prefixSuccessor("a"));
+    assertEquals("dir0", ListItemUtils.prefixSuccessor("dir/"));
+    assertEquals("b", ListItemUtils.prefixSuccessor("a\uFFFF\uFFFF"));
+    assertNull(ListItemUtils.prefixSuccessor(""));
+    assertNull(ListItemUtils.prefixSuccessor("\uFFFF\uFFFF"));
+
+    ObjectMetadata object = new ObjectMetadata();
+    NavigableMap<String, ObjectMetadata> keys = new ConcurrentSkipListMap<>(Map.of(
+        "a/\uFFFF", object, "a/\uFFFF\uFFFF", object, "a0", object, "\uFFFF", object));
+    assertEquals("a0", ListItemUtils.keyAfterPrefix(keys, "a/"));
+    assertEquals("a0", ListItemUtils.keyAfterPrefix(keys, "a/\uFFFF"));
+    assertNull(ListItemUtils.keyAfterPrefix(keys, "\uFFFF"));
+    assertEquals("a/\uFFFF\uFFFF", ListItemUtils.lastKeyWithPrefix(keys, "a/"));
+    assertEquals("\uFFFF", ListItemUtils.lastKeyWithPrefix(keys, "\uFFFF"));
+  }
+
+}
@@ -0,0 +1,72 @@
+package com.robothy.s3.core.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import com.robothy.s3.core.model.internal.BucketMetadata;
+import com.robothy.s3.core.model.internal.LocalS3Metadata;
+import com.robothy.s3.core.model.internal.ObjectMetadata;
+import com.robothy.s3.core.model.internal.VersionedObjectMetadata;
+import com.robothy.s3.core.util.Timing;
+import com.robothy.s3.datatypes.response.VersionItem;
+import java.util.LinkedList;
+import java.util.List;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares listing the versions under a prefix with the full scan it replaced.
+ */
+@Tag(Timing.TAG)
+class ListObjectVersionsServiceBenchmarkTest {
+
+  private static final int OBJECTS = 200_000;
+
+  private static final int MAX_KEYS = 1000;
+
+  @Test
+  void compareWithFullScan() {
+    LocalS3Metadata localS3Metadata = new LocalS3Metadata();
+    BucketMetadata bucketMetadata = new BucketMetadata();
+    bucketMetadata.setBucketName("bucket");
+    for (int i = 0; i < OBJECTS; i++) {
+      VersionedObjectMetadata version = new VersionedObjectMetadata();
+      version.setCreationDate(1_700_000_000_000L + i);
+      version.setSize(i);
+      version.setEtag(String.valueOf(i));
+      bucketMetadata.putObjectMetadata(String.format("tenant-%03d/object-%06d", i / 1000, i),
+          new ObjectMetadata(ObjectMetadata.NULL_VERSION, version));
+    }
+    localS3Metadata.addBucketMetadata(bucketMetadata);
+    ListObjectVersionsService service = () -> localS3Metadata;
+
+    for (String prefix : List.of("tenant-000/", "tenant-100/", "tenant-199/")) {
+      assertEquals(fullScan(bucketMetadata, prefix).size(),
+          service.listObjectVersions("bucket", null, null, MAX_KEYS, prefix, null).getVersions().size());
+      long baseline = Timing.medianNanos(() -> fullScan(bucketMetadata, prefix).size());
+      long replacement = Timing.medianNanos(() ->
+          service.listObjectVersions("bucket", null, null, MAX_KEYS, prefix, null).getVersions().size());
+      Timing.report("list prefix " + prefix + " of " + OBJECTS + " objects", baseline / 1e3, replacement / 1e3, "us");
+    }
+  }
+
+  /**
+   * The first page of versions under {@code prefix} as ListObjectVersions listed it before: every key
+   * of the bucket is visited and filtered by the prefix, until {@link #MAX_KEYS} items are listed.
+   */
+  private static List<VersionItem> fullScan(BucketMetadata bucketMetadata, String prefix) {
+    List<VersionItem> versionItems = new LinkedList<>();
+    List<String> commonPrefixes = new LinkedList<>();
+    for (String key : bucketMetadata.getObjectMap().keySet()) {
+      if (!key.startsWith(prefix)) {
+        continue;
+      }
+      ObjectMetadata objectMetadata = bucketMetadata.getObjectMetadata(key).get();
+      ListObjectVersionsService.fetchVersions(versionItems, commonPrefixes, key, objectMetadata.getVersionedObjectMap(),
+          true, MAX_KEYS, objectMetadata.getVirtualVersion().orElse(null));
+      if (versionItems.size() == MAX_KEYS) {
+        break;
+      }
+    }
+    return versionItems;
+  }
+
+}
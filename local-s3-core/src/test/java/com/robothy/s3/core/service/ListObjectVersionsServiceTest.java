@@ -9,6 +9,8 @@ import com.robothy.s3.core.model.request.PutObjectOptions;
 import com.robothy.s3.datatypes.response.DeleteMarkerEntry;
 import com.robothy.s3.datatypes.response.ObjectVersion;
 import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.List;
 import java.util.stream.Stream;
 
 import org.apache.commons.codec.digest.DigestUtils;
@@ -120,4 +122,65 @@ class ListObjectVersionsServiceTest extends LocalS3ServiceTestBase {
     assertTrue(listObjectVersionsAns5.getNextVersionIdMarker().isEmpty());
   }
 
-}
\ No newline at end of file
+  @ParameterizedTest
+  @MethodSource("localS3Services")
+  void listObjectVersionsWithDelimiter(BucketService bucketService, ObjectService objectService) {
+    String bucket = "my-bucket";
+    bucketService.createBucket(bucket);
+    bucketService.setVersioningEnabled(bucket, true);
+    for (String key : new String[] {"a/dir1/k1", "a/dir1/k2", "a/dir2/k1", "a/k3", "b/k1"}) {
+      objectService.putObject(bucket, key, PutObjectOptions.builder()
+          .content(new ByteArrayInputStream("Robothy".getBytes()))
+          .size(7)
+          .build());
+    }
+
+    ListObjectVersionsAns firstPage = objectService.listObjectVersions(bucket, "/", null, 2, "a/", null);
+    assertEquals(List.of("a/dir1/", "a/dir2/"), firstPage.getCommonPrefixes());
+    assertEquals(0, firstPage.getVersions().size());
+    assertEquals("a/dir2/k1", firstPage.getNextKeyMarker().orElse(null));
+
+    ListObjectVersionsAns secondPage = objectService.listObjectVersions(bucket, "/", firstPage.getNextKeyMarker().get(),
+        2, "a/", null);
+    assertEquals(0, secondPage.getCommonPrefixes().size());
+    assertEquals(1, secondPage.getVersions().size());
+    assertEquals("a/k3", ((ObjectVersion) secondPage.getVersions().get(0)).getKey());
+    assertTrue(secondPage.getNextKeyMarker().isEmpty());
+  }
+
+  @ParameterizedTest
+  @MethodSource("localS3Services")
+  void listObjectVersionsContainingMaxChar(BucketService bucketService, ObjectService objectService) {
+    String bucket = "my-bucket";
+    bucketService.createBucket(bucket);
+    bucketService.setVersioningEnabled(bucket, true);
+    for (String key : new String[] {"a/\uFFFF", "a/\uFFFF\uFFFF", "a/\uFFFFb", "b/k1", "k\uFFFF"}) {
+      objectService.putObject(bucket, key, PutObjectOptions.builder()
+          .content(new ByteArrayInputStream("Robothy".getBytes()))
+          .size(7)
+          .build());
+    }
+
+    assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+      ListObjectVersionsAns all = objectService.listObjectVersions(bucket, "/", null, 10, null, null);
+      assertEquals(List.of("a/", "b/"), all.getCommonPrefixes());
+      assertEquals(1, all.getVersions().size());
+      assertEquals("k\uFFFF", ((ObjectVersion) all.getVersions().get(0)).getKey());
+
+      ListObjectVersionsAns firstPage = objectService.listObjectVersions(bucket, "/", null, 1, null, null);
+      assertEquals(List.of("a/"), firstPage.getCommonPrefixes());
+      assertEquals("a/\uFFFF", firstPage.getNextKeyMarker().orElse(null));
+
+      // Resuming from a key under a listed common prefix does not list the prefix again.
+      ListObjectVersionsAns secondPage = objectService.listObjectVersions(bucket, "/", firstPage.getNextKeyMarker().get(),
+          1, null, null);
+      assertEquals(List.of("b/"), secondPage.getCommonPrefixes());
+      assertEquals(0, secondPage.getVersions().size());
+
+      ListObjectVersionsAns underPrefix = objectService.listObjectVersions(bucket, "\uFFFF", null, 10, "a/", null);
+      assertEquals(List.of("a/\uFFFF"), underPrefix.getCommonPrefixes());
+      assertEquals(0, underPrefix.getVersions().size());
+    });
+  }
+
+}
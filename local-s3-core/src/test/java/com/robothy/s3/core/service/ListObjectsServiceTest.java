@@ -2,6 +2,7 @@ package com.robothy.s3.core.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.robothy.s3.core.exception.LocalS3InvalidArgumentException;
@@ -9,6 +10,8 @@ import com.robothy.s3.core.model.answers.ListObjectsAns;
 import com.robothy.s3.core.model.request.PutObjectOptions;
 import com.robothy.s3.datatypes.response.S3Object;
 import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.List;
 
 import org.apache.commons.codec.digest.DigestUtils;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -109,6 +112,71 @@ class ListObjectsServiceTest extends LocalS3ServiceTestBase {
     assertEquals("dir1%40/", listObjectsAns2.getCommonPrefixes().get(0));
   }
 
+  @MethodSource("localS3Services")
+  @ParameterizedTest
+  void listSkipsDeletedKeys(BucketService bucketService, ObjectService objectService) {
+    String bucketName = "my-bucket";
+    bucketService.createBucket(bucketName);
+    bucketService.setVersioningEnabled(bucketName, true);
+    for (String key : new String[] {"dir1/a", "dir1/b", "dir2/a", "dir3/a", "dir3/b", "key"}) {
+      objectService.putObject(bucketName, key, PutObjectOptions.builder()
+          .content(new ByteArrayInputStream("Hello".getBytes()))
+          .size(5)
+          .build());
+    }
+    objectService.deleteObject(bucketName, "dir1/a");
+    objectService.deleteObject(bucketName, "dir2/a");
+    objectService.deleteObject(bucketName, "dir3/a");
+    objectService.deleteObject(bucketName, "dir3/b");
+
+    ListObjectsAns listObjectsAns = objectService.listObjects(bucketName, "/", null, null, 10, null);
+    assertEquals(List.of("dir1/"), listObjectsAns.getCommonPrefixes());
+    assertEquals(1, listObjectsAns.getObjects().size());
+    assertEquals("key", listObjectsAns.getObjects().get(0).getKey());
+
+    ListObjectsAns firstPage = objectService.listObjects(bucketName, "/", null, null, 1, null);
+    assertEquals(List.of("dir1/"), firstPage.getCommonPrefixes());
+    assertEquals("dir1/", firstPage.getNextMarker().orElse(null));
+    ListObjectsAns secondPage = objectService.listObjects(bucketName, "/", null, "dir1/", 1, null);
+    assertEquals(0, secondPage.getCommonPrefixes().size());
+    assertEquals("key", secondPage.getObjects().get(0).getKey());
+    assertTrue(secondPage.getNextMarker().isEmpty());
+
+    objectService.deleteObject(bucketName, "key");
+    ListObjectsAns lastPage = objectService.listObjects(bucketName, "/", null, null, 1, null);
+    assertEquals(List.of("dir1/"), lastPage.getCommonPrefixes());
+    assertTrue(lastPage.getNextMarker().isEmpty());
+  }
 
+  @MethodSource("localS3Services")
+  @ParameterizedTest
+  void listKeysContainingMaxChar(BucketService bucketService, ObjectService objectService) {
+    String bucketName = "my-bucket";
+    bucketService.createBucket(bucketName);
+    for (String key : new String[] {"dir1/\uFFFF", "dir1/\uFFFF\uFFFF", "dir1/\uFFFFa", "dir2/a", "key\uFFFF",
+        "\uFFFF/a", "\uFFFF\uFFFF/a"}) {
+      objectService.putObject(bucketName, key, PutObjectOptions.builder()
+          .content(new ByteArrayInputStream("Hello".getBytes()))
+          .size(5)
+          .build());
+    }
+
+    assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+      ListObjectsAns listObjectsAns = objectService.listObjects(bucketName, "/", null, null, 10, null);
+      assertEquals(List.of("dir1/", "dir2/", "\uFFFF/", "\uFFFF\uFFFF/"), listObjectsAns.getCommonPrefixes());
+      assertEquals(1, listObjectsAns.getObjects().size());
+      assertEquals("key\uFFFF", listObjectsAns.getObjects().get(0).getKey());
+
+      ListObjectsAns afterMarker = objectService.listObjects(bucketName, "/", null, "dir1/", 10, null);
+      assertEquals(List.of("dir2/", "\uFFFF/", "\uFFFF\uFFFF/"), afterMarker.getCommonPrefixes());
+
+      ListObjectsAns underPrefix = objectService.listObjects(bucketName, "\uFFFF", null, null, 10, "dir1/");
+      assertEquals(List.of("dir1/\uFFFF"), underPrefix.getCommonPrefixes());
+      assertEquals(0, underPrefix.getObjects().size());
+
+      ListObjectsAns all = objectService.listObjects(bucketName, null, null, null, 10, "dir1/\uFFFF");
+      assertEquals(3, all.getObjects().size());
+    });
+  }
 
-}
\ No newline at end of file
+}
@@ -2,7 +2,9 @@ package com.robothy.s3.core.service;
 
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 import com.robothy.s3.core.model.internal.LocalS3Metadata;
+import com.robothy.s3.core.model.internal.ObjectIndex;
 import com.robothy.s3.core.service.manager.LocalS3Manager;
+import com.robothy.s3.core.service.manager.LocalS3ManagerOptions;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -36,7 +38,8 @@ public abstract class LocalS3ServiceTestBase {
     localS3Path.toFile().deleteOnExit();
     return Stream.of(
         arguments(LocalS3Manager.createInMemoryS3Manager()),
-        arguments(LocalS3Manager.createFileSystemS3Manager(localS3Path))
+        arguments(LocalS3Manager.createFileSystemS3Manager(localS3Path)),
+        arguments(prefixCompressedS3Manager())
     );
   }
 
@@ -46,10 +49,21 @@ public abstract class LocalS3ServiceTestBase {
     localS3Path.toFile().deleteOnExit();
     LocalS3Manager inMemoryS3Manager = LocalS3Manager.createInMemoryS3Manager();
     LocalS3Manager fileSystemS3Manager = LocalS3Manager.createFileSystemS3Manager(localS3Path);
+    LocalS3Manager prefixCompressedS3Manager = prefixCompressedS3Manager();
     return Stream.of(
         arguments(inMemoryS3Manager.bucketService(), inMemoryS3Manager.objectService()),
-        arguments(fileSystemS3Manager.bucketService(), fileSystemS3Manager.objectService())
+        arguments(fileSystemS3Manager.bucketService(), fileSystemS3Manager.objectService()),
+        arguments(prefixCompressedS3Manager.bucketService(), prefixCompressedS3Manager.objectService())
     );
   }
 
+  /**
+   * An in-memory manager that indexes objects with {@linkplain ObjectIndex#PREFIX_COMPRESSED}.
+   */
+  private static LocalS3Manager prefixCompressedS3Manager() {
+    return LocalS3Manager.createInMemoryS3Manager(LocalS3ManagerOptions.builder()
+        .objectIndex(ObjectIndex.PREFIX_COMPRESSED)
+        .build());
+  }
+
 }
@@ -2,21 +2,35 @@ package com.robothy.s3.core.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import com.robothy.s3.core.exception.BucketNotExistException;
 import com.robothy.s3.core.model.answers.PutObjectAns;
 import com.robothy.s3.core.model.internal.BucketMetadata;
 import com.robothy.s3.core.model.internal.LocalS3Metadata;
 import com.robothy.s3.core.model.internal.ObjectMetadata;
 import com.robothy.s3.core.model.internal.VersionedObjectMetadata;
 import com.robothy.s3.core.model.request.PutObjectOptions;
+import com.robothy.s3.core.service.locks.BucketLock;
 import com.robothy.s3.core.service.manager.LocalS3Manager;
+import com.robothy.s3.core.storage.Storage;
 import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 
 import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
@@ -81,6 +95,7 @@ class PutObjectServiceTest extends LocalS3ServiceTestBase {
         .build());
     assertEquals(key1, putObjectAns2.getKey());
     assertEquals(ObjectMetadata.NULL_VERSION, putObjectAns2.getVersionId());
+    objectMetadata1 = bucketMetadata.getObjectMetadata(key1).get();
     Optional<String> virtualVersion2Opt = objectMetadata1.getVirtualVersion();
     assertTrue(virtualVersion2Opt.isPresent());
     String virtualVersion2 = virtualVersion2Opt.get();
@@ -97,6 +112,7 @@ class PutObjectServiceTest extends LocalS3ServiceTestBase {
     assertEquals(key1, putObjectAns3.getKey());
     assertNotNull(putObjectAns3.getVersionId());
     assertNotEquals(ObjectMetadata.NULL_VERSION, putObjectAns3.getVersionId());
+    objectMetadata1 = bucketMetadata.getObjectMetadata(key1).get();
     assertEquals(putObjectAns3.getVersionId(), objectMetadata1.getLatestVersion());
     Optional<String> virtualVersion3Opt = objectMetadata1.getVirtualVersion();
     assertTrue(virtualVersion3Opt.isPresent());
@@ -116,10 +132,83 @@ class PutObjectServiceTest extends LocalS3ServiceTestBase {
         .build());
     assertEquals(key1, putObjectAns4.getKey());
     assertEquals(ObjectMetadata.NULL_VERSION, putObjectAns4.getVersionId());
+    objectMetadata1 = bucketMetadata.getObjectMetadata(key1).get();
     Optional<String> virtualVersion4Opt = objectMetadata1.getVirtualVersion();
     assertTrue(virtualVersion4Opt.isPresent());
     assertEquals(objectMetadata1.getLatestVersion(), virtualVersion4Opt.get());
     assertEquals(2, objectMetadata1.getVersionedObjectMap().size());
   }
 
-}
\ No newline at end of file
+  @Test
+  void writeContentWithoutHoldingBucketLock() throws Exception {
+    LocalS3Metadata s3Metadata = new LocalS3Metadata();
+    BucketService bucketService = InMemoryBucketService.create(s3Metadata);
+    ObjectService objectService = InMemoryObjectService.create(s3Metadata, Storage.createInMemory());
+    String bucketName = "two-phase-put";
+    bucketService.createBucket(bucketName);
+
+    CountDownLatch contentWritten = new CountDownLatch(1);
+    InputStream content = new FilterInputStream(new ByteArrayInputStream("Hello".getBytes())) {
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n < 0) {
+          contentWritten.countDown();
+        }
+        return n;
+      }
+    };
+
+    // Object writers share the bucket lock, so hold it exclusively to block the commit.
+    Lock writeLock = BucketLock.getInstance().writeLock(bucketName);
+    writeLock.lock();
+    CompletableFuture<PutObjectAns> put;
+    try {
+      put = CompletableFuture.supplyAsync(() -> objectService.putObject(bucketName, "a.txt",
+          PutObjectOptions.builder().content(content).size(5).build()));
+      assertTrue(contentWritten.await(10, TimeUnit.SECONDS));
+      Thread.sleep(100);
+      assertFalse(put.isDone());
+    } finally {
+      writeLock.unlock();
+    }
+    assertEquals(DigestUtils.md5Hex("Hello"), put.get(10, TimeUnit.SECONDS).getEtag());
+  }
+
+  @Test
+  void deleteContentIfCommitFails() throws Exception {
+    LocalS3Metadata s3Metadata = new LocalS3Metadata();
+    BucketService bucketService = InMemoryBucketService.create(s3Metadata);
+    Storage storage = Storage.createInMemory(5);
+    ObjectService objectService = InMemoryObjectService.create(s3Metadata, storage);
+    String bucketName = "two-phase-put-orphan";
+    bucketService.createBucket(bucketName);
+
+    CountDownLatch reading = new CountDownLatch(1);
+    CountDownLatch bucketDeleted = new CountDownLatch(1);
+    InputStream content = new FilterInputStream(new ByteArrayInputStream("Hello".getBytes())) {
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        reading.countDown();
+        try {
+          bucketDeleted.await();
+        } catch (InterruptedException e) {
+          throw new IOException(e);
+        }
+        return super.read(b, off, len);
+      }
+    };
+
+    CompletableFuture<PutObjectAns> put = CompletableFuture.supplyAsync(() -> objectService.putObject(bucketName, "a.txt",
+        PutObjectOptions.builder().content(content).size(5).build()));
+    assertTrue(reading.await(10, TimeUnit.SECONDS));
+    bucketService.deleteBucket(bucketName);
+    bucketDeleted.countDown();
+
+    ExecutionException e = assertThrows(ExecutionException.class, () -> put.get(10, TimeUnit.SECONDS));
+    assertInstanceOf(BucketNotExistException.class, e.getCause());
+    // The written content was deleted, so the storage has room for another 5 bytes.
+    assertNotNull(storage.put("World".getBytes()));
+  }
+
+}
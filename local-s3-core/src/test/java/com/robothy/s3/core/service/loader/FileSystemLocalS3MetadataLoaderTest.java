@@ -3,8 +3,10 @@ package com.robothy.s3.core.service.loader;
 import static org.junit.jupiter.api.Assertions.*;
 import com.robothy.s3.core.model.internal.BucketMetadata;
 import com.robothy.s3.core.model.internal.LocalS3Metadata;
+import com.robothy.s3.core.storage.BucketMetadataCodec;
 import com.robothy.s3.core.storage.FileSystemBucketMetadataStore;
 import com.robothy.s3.core.storage.MetadataStore;
+import com.robothy.s3.core.util.JsonUtils;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Optional;
@@ -35,5 +37,64 @@ class FileSystemLocalS3MetadataLoaderTest {
     assertEquals(bucket2, loadedBucket2.get());
   }
 
+  @Test
+  void loadInParallel() throws Exception {
+    Path tempDirectory = Files.createTempDirectory("local-s3");
+    MetadataStore<BucketMetadata> bucketMetaStore = FileSystemBucketMetadataStore.create(tempDirectory);
+    for (int i = 0; i < 10; i++) {
+      BucketMetadata bucket = new BucketMetadata();
+      bucket.setBucketName("bucket" + i);
+      bucket.setCreationDate(System.currentTimeMillis());
+      bucketMetaStore.store(bucket.getBucketName(), bucket);
+    }
+
+    FileSystemS3MetadataLoader loader = FileSystemS3MetadataLoader.create(4, false);
+    LocalS3Metadata s3Metadata = loader.load(tempDirectory);
+    assertEquals(10, s3Metadata.getBucketMetadataMap().size());
+    assertEquals(10, loader.getLoadMetrics().getLoadTimeNanos().size());
+    assertEquals(bucketMetaStore.fetch("bucket3"), s3Metadata.getBucketMetadata("bucket3").get());
+  }
+
+  @Test
+  void loadLazily() throws Exception {
+    Path tempDirectory = Files.createTempDirectory("local-s3");
+    MetadataStore<BucketMetadata> bucketMetaStore = FileSystemBucketMetadataStore.create(tempDirectory);
+    BucketMetadata bucket1 = new BucketMetadata();
+    bucket1.setBucketName("bucket1");
+    bucket1.setCreationDate(System.currentTimeMillis());
+    bucketMetaStore.store(bucket1.getBucketName(), bucket1);
+
+    FileSystemS3MetadataLoader loader = FileSystemS3MetadataLoader.create(1, true);
+    LocalS3Metadata s3Metadata = loader.load(tempDirectory);
+    assertTrue(s3Metadata.bucketExists("bucket1"));
+    assertFalse(s3Metadata.bucketExists("bucket2"));
+    assertTrue(s3Metadata.getBucketMetadataMap().isEmpty());
+    assertTrue(loader.getLoadMetrics().getLoadTimeNanos().isEmpty());
+
+    assertEquals(bucket1, s3Metadata.getBucketMetadata("bucket1").get());
+    assertSame(s3Metadata.getBucketMetadata("bucket1").get(), s3Metadata.getBucketMetadataMap().get("bucket1"));
+    assertEquals(1, loader.getLoadMetrics().getLoadTimeNanos().size());
+    assertEquals(1, s3Metadata.listBuckets().size());
+  }
+
+  @Test
+  void upgradeJsonMetadata() throws Exception {
+    Path tempDirectory = Files.createTempDirectory("local-s3");
+    BucketMetadata bucket1 = new BucketMetadata();
+    bucket1.setBucketName("bucket1");
+    bucket1.setCreationDate(System.currentTimeMillis());
+    Path snapshot = tempDirectory.resolve("bucket1.bucket.meta");
+    JsonUtils.toJson(snapshot.toFile(), bucket1);
+    Files.writeString(tempDirectory.resolve(MetadataLoader.VERSION_FILE_NAME), "1");
+
+    LocalS3Metadata s3Metadata = FileSystemS3MetadataLoader.create().load(tempDirectory);
+    assertEquals(bucket1, s3Metadata.getBucketMetadata("bucket1").get());
+    assertTrue(BucketMetadataCodec.isEncoded(Files.readAllBytes(snapshot)));
+    assertEquals(String.valueOf(LocalS3Metadata.VERSION),
+        Files.readString(tempDirectory.resolve(MetadataLoader.VERSION_FILE_NAME)));
+
+    Files.writeString(tempDirectory.resolve(MetadataLoader.VERSION_FILE_NAME), String.valueOf(LocalS3Metadata.VERSION + 1));
+    assertThrows(IllegalStateException.class, () -> FileSystemS3MetadataLoader.create().load(tempDirectory));
+  }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,144 @@
+package com.robothy.s3.core.service.locks;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import com.robothy.s3.core.exception.OperationAbortedException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import org.junit.jupiter.api.Test;
+
+class DefaultBucketLockTest {
+
+  @Test
+  void keyWriteLocksOfDifferentKeys() {
+    DefaultBucketLock bucketLock = new DefaultBucketLock();
+    String key1 = "a.txt";
+    String key2 = "b.txt";
+    assertNotSame(bucketLock.keyLock("bucket", key1), bucketLock.keyLock("bucket", key2));
+
+    Lock lock1 = bucketLock.keyWriteLock("bucket", key1);
+    lock1.lock();
+    try {
+      assertTrue(CompletableFuture.supplyAsync(() -> tryLockAndUnlock(bucketLock.keyWriteLock("bucket", key2))).join());
+      assertFalse(CompletableFuture.supplyAsync(() -> tryLockAndUnlock(bucketLock.keyWriteLock("bucket", key1))).join());
+      assertFalse(CompletableFuture.supplyAsync(() -> tryLockAndUnlock(bucketLock.keyReadLock("bucket", key1))).join());
+      assertFalse(CompletableFuture.supplyAsync(() -> tryLockAndUnlock(bucketLock.writeLock("bucket"))).join());
+      assertTrue(CompletableFuture.supplyAsync(() -> tryLockAndUnlock(bucketLock.readLock("bucket"))).join());
+    } finally {
+      lock1.unlock();
+    }
+    assertTrue(CompletableFuture.supplyAsync(() -> tryLockAndUnlock(bucketLock.writeLock("bucket"))).join());
+  }
+
+  @Test
+  void bucketWriteLockExcludesKeyLocks() {
+    DefaultBucketLock bucketLock = new DefaultBucketLock();
+    Lock writeLock = bucketLock.writeLock("bucket");
+    writeLock.lock();
+    try {
+      assertFalse(CompletableFuture.supplyAsync(() -> tryLockAndUnlock(bucketLock.keyReadLock("bucket", "a.txt"))).join());
+      assertFalse(CompletableFuture.supplyAsync(() -> tryLockAndUnlock(bucketLock.keyWriteLock("bucket", "a.txt"))).join());
+      assertTrue(CompletableFuture.supplyAsync(() -> tryLockAndUnlock(bucketLock.keyWriteLock("other", "a.txt"))).join());
+
+      // The holder of the bucket write lock can still lock its keys.
+      assertTrue(tryLockAndUnlock(bucketLock.keyWriteLock("bucket", "a.txt")));
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Test
+  void tryLockRollsBack() {
+    DefaultBucketLock bucketLock = new DefaultBucketLock(1);
+    assertSame(bucketLock.keyLock("bucket", "a.txt"), bucketLock.keyLock("other", "b.txt"));
+
+    Lock lock = bucketLock.keyWriteLock("other", "b.txt");
+    lock.lock();
+    try {
+      assertFalse(CompletableFuture.supplyAsync(() -> tryLockAndUnlock(bucketLock.keyWriteLock("bucket", "a.txt"))).join());
+    } finally {
+      lock.unlock();
+    }
+    // The bucket lock acquired by the failed tryLock() is released.
+    assertTrue(CompletableFuture.supplyAsync(() -> tryLockAndUnlock(bucketLock.writeLock("bucket"))).join());
+  }
+
+  @Test
+  void keyLocksOfOppositeCopies() throws Exception {
+    DefaultBucketLock bucketLock = new DefaultBucketLock(4);
+    Runnable copyAToB = () -> lockAndUnlock(bucketLock.keyLocks(
+        List.of(LockedKey.read("bucket-a", "a.txt"), LockedKey.write("bucket-b", "b.txt"))));
+    Runnable copyBToA = () -> lockAndUnlock(bucketLock.keyLocks(
+        List.of(LockedKey.read("bucket-b", "b.txt"), LockedKey.write("bucket-a", "a.txt"))));
+    Lock bucketWriteLock = bucketLock.writeLock("bucket-a");
+    CompletableFuture<Void> deleteBucket = CompletableFuture.runAsync(() -> lockAndUnlock(bucketWriteLock));
+    CompletableFuture.allOf(CompletableFuture.runAsync(copyAToB), CompletableFuture.runAsync(copyBToA),
+        CompletableFuture.runAsync(copyAToB), CompletableFuture.runAsync(copyBToA), deleteBucket)
+        .get(30, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void keyLocksMergeSameStripe() {
+    DefaultBucketLock bucketLock = new DefaultBucketLock(1);
+    Lock lock = bucketLock.keyLocks(List.of(LockedKey.read("bucket", "a.txt"), LockedKey.write("bucket", "b.txt")));
+    // A read lock followed by the write lock of the same stripe would never be acquired.
+    assertTrue(tryLockAndUnlock(lock));
+
+    lock.lock();
+    try {
+      assertFalse(CompletableFuture.supplyAsync(() -> tryLockAndUnlock(bucketLock.keyReadLock("other", "c.txt"))).join());
+      assertTrue(CompletableFuture.supplyAsync(() -> tryLockAndUnlock(bucketLock.readLock("bucket"))).join());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Test
+  void lockWithTimeout() {
+    DefaultBucketLock bucketLock = new DefaultBucketLock();
+    Lock writeLock = bucketLock.writeLock("bucket-b");
+    writeLock.lock();
+    try {
+      Lock lock = bucketLock.keyLocks(List.of(LockedKey.read("bucket-a", "a.txt"), LockedKey.write("bucket-b", "b.txt")));
+      ExecutionException e = assertThrows(ExecutionException.class,
+          () -> CompletableFuture.runAsync(() -> BucketLock.lock(lock, 10)).get());
+      assertTrue(e.getCause() instanceof OperationAbortedException);
+      // The lock of bucket-a acquired before the timeout is released.
+      assertTrue(CompletableFuture.supplyAsync(() -> tryLockAndUnlock(bucketLock.writeLock("bucket-a"))).join());
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Test
+  void invalidStripes() {
+    assertThrows(IllegalArgumentException.class, () -> new DefaultBucketLock(0));
+    assertThrows(IllegalArgumentException.class, () -> new DefaultBucketLock(3));
+  }
+
+  private static void lockAndUnlock(Lock lock) {
+    for (int i = 0; i < 1000; i++) {
+      lock.lock();
+      lock.unlock();
+    }
+  }
+
+  private static boolean tryLockAndUnlock(Lock lock) {
+    try {
+      if (!lock.tryLock(10, TimeUnit.MILLISECONDS)) {
+        return false;
+      }
+    } catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+    lock.unlock();
+    return true;
+  }
+
+}
@@ -0,0 +1,113 @@
+package com.robothy.s3.core.service.locks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+class EpochReclaimerTest {
+
+  @Test
+  void reclaimImmediatelyWithoutReaders() {
+    EpochReclaimer reclaimer = new EpochReclaimer();
+    AtomicBoolean reclaimed = new AtomicBoolean();
+    reclaimer.retire(() -> reclaimed.set(true));
+    assertTrue(reclaimed.get());
+    assertEquals(0, reclaimer.pending());
+
+    try (EpochReclaimer.Guard ignored = reclaimer.enter()) {
+      // A reader that has left does not defer later retirements.
+    }
+    AtomicBoolean reclaimed2 = new AtomicBoolean();
+    reclaimer.retire(() -> reclaimed2.set(true));
+    assertTrue(reclaimed2.get());
+  }
+
+  @Test
+  void deferReclamationUntilReadersLeave() throws Exception {
+    EpochReclaimer reclaimer = new EpochReclaimer();
+    CountDownLatch entered = new CountDownLatch(1);
+    CountDownLatch leave = new CountDownLatch(1);
+    CompletableFuture<Void> reader = CompletableFuture.runAsync(() -> {
+      try (EpochReclaimer.Guard ignored = reclaimer.enter()) {
+        entered.countDown();
+        leave.await();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    entered.await();
+
+    AtomicBoolean reclaimed = new AtomicBoolean();
+    reclaimer.retire(() -> reclaimed.set(true));
+    assertFalse(reclaimed.get());
+    assertEquals(1, reclaimer.pending());
+
+    // A reader that enters after the retirement does not delay it.
+    EpochReclaimer.Guard lateReader = reclaimer.enter();
+
+    leave.countDown();
+    reader.join();
+    assertTrue(reclaimed.get());
+    assertEquals(0, reclaimer.pending());
+    lateReader.close();
+  }
+
+  @Test
+  void nestedEnter() {
+    EpochReclaimer reclaimer = new EpochReclaimer();
+    AtomicBoolean reclaimed = new AtomicBoolean();
+    try (EpochReclaimer.Guard outer = reclaimer.enter()) {
+      try (EpochReclaimer.Guard inner = reclaimer.enter()) {
+        reclaimer.retire(() -> reclaimed.set(true));
+      }
+      assertFalse(reclaimed.get());
+    }
+    assertTrue(reclaimed.get());
+  }
+
+  @Test
+  void holdResourcesAfterLeaving() {
+    EpochReclaimer reclaimer = new EpochReclaimer();
+    assertThrows(IllegalStateException.class, () -> reclaimer.hold(1L));
+
+    EpochReclaimer.Guard hold1;
+    EpochReclaimer.Guard hold2;
+    try (EpochReclaimer.Guard ignored = reclaimer.enter()) {
+      hold1 = reclaimer.hold(1L, 2L);
+      hold2 = reclaimer.hold(1L);
+    }
+
+    AtomicBoolean reclaimed1 = new AtomicBoolean();
+    AtomicBoolean reclaimed2 = new AtomicBoolean();
+    AtomicBoolean reclaimed3 = new AtomicBoolean();
+    reclaimer.retire(1L, () -> reclaimed1.set(true));
+    reclaimer.retire(2L, () -> reclaimed2.set(true));
+    reclaimer.retire(3L, () -> reclaimed3.set(true));
+    assertFalse(reclaimed1.get());
+    assertFalse(reclaimed2.get());
+    assertTrue(reclaimed3.get());
+
+    // A hold may be closed by another thread, and closing it again has no effect.
+    CompletableFuture.runAsync(hold1::close).join();
+    hold1.close();
+    assertFalse(reclaimed1.get());
+    assertTrue(reclaimed2.get());
+    hold2.close();
+    assertTrue(reclaimed1.get());
+  }
+
+  @Test
+  void failedReclamation() {
+    EpochReclaimer reclaimer = new EpochReclaimer();
+    reclaimer.retire(() -> {
+      throw new IllegalArgumentException("Object not exists.");
+    });
+    assertEquals(0, reclaimer.pending());
+  }
+
+}
@@ -0,0 +1,37 @@
+package com.robothy.s3.core.service.manager;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import com.robothy.s3.core.model.request.GetObjectOptions;
+import com.robothy.s3.core.model.request.PutObjectOptions;
+import com.robothy.s3.core.service.ObjectService;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+
+class FileSystemLocalS3ManagerTest {
+
+  @Test
+  void close() throws IOException {
+    Path dataPath = Files.createTempDirectory("local-s3");
+    LocalS3Manager manager = LocalS3Manager.createFileSystemS3Manager(LocalS3ManagerOptions.builder()
+        .dataDirectory(dataPath)
+        .metadataFlushIntervalMillis(60_000)
+        .build());
+    manager.bucketService().createBucket("bucket");
+    manager.objectService().putObject("bucket", "a.txt", PutObjectOptions.builder()
+        .content(new ByteArrayInputStream("Robothy".getBytes()))
+        .size(7L)
+        .build());
+    manager.close();
+    assertDoesNotThrow(manager::close);
+
+    ObjectService objectService = LocalS3Manager.createFileSystemS3Manager(dataPath).objectService();
+    assertEquals(7L, objectService.getObject("bucket", "a.txt", GetObjectOptions.builder().build()).getSize());
+    FileUtils.deleteDirectory(dataPath.toFile());
+  }
+
+}
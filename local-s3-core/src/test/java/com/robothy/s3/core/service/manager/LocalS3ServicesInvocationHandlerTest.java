@@ -0,0 +1,91 @@
+package com.robothy.s3.core.service.manager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import com.robothy.s3.core.annotations.BucketChanged;
+import com.robothy.s3.core.annotations.BucketReadLock;
+import com.robothy.s3.core.annotations.BucketWriteLock;
+import com.robothy.s3.core.service.locks.BucketLock;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import org.junit.jupiter.api.Test;
+
+class LocalS3ServicesInvocationHandlerTest {
+
+  interface SampleService {
+
+    @BucketChanged(objectKeyIndex = 1)
+    @BucketWriteLock(objectKeyIndex = 1)
+    default String put(String bucketName, String key) {
+      return bucketName + "/" + key;
+    }
+
+    @BucketChanged(type = BucketChanged.Type.CREATE)
+    @BucketWriteLock
+    default void create(String bucketName) {
+
+    }
+
+    @BucketReadLock
+    default int count(String bucketName) {
+      return 1;
+    }
+
+    default void fail(String bucketName) {
+      throw new IllegalArgumentException("Invalid bucket " + bucketName);
+    }
+
+  }
+
+  @Test
+  void invoke() {
+    MetadataFlusherTest.RecordingStore store = new MetadataFlusherTest.RecordingStore();
+    SampleService service = proxy(store);
+
+    assertEquals("a/k1", service.put("a", "k1"));
+    service.create("b");
+    assertEquals(1, service.count("a"));
+    assertEquals(List.of("entries a [k1]", "store b"), store.operations);
+
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> service.fail("c"));
+    assertEquals("Invalid bucket c", e.getMessage());
+  }
+
+  @Test
+  void holdDeclaredLocks() throws Exception {
+    SampleService service = proxy(new MetadataFlusherTest.RecordingStore());
+    String bucketName = "invocation-handler-locks";
+    Lock writeLock = BucketLock.getInstance().writeLock(bucketName);
+    writeLock.lock();
+    CompletableFuture<Integer> count;
+    try {
+      count = CompletableFuture.supplyAsync(() -> service.count(bucketName));
+      Thread.sleep(100);
+      assertFalse(count.isDone());
+    } finally {
+      writeLock.unlock();
+    }
+    assertEquals(1, count.get(10, TimeUnit.SECONDS));
+
+    Lock keyLock = BucketLock.getInstance().keyWriteLock(bucketName, "k1");
+    keyLock.lock();
+    try {
+      assertTrue(CompletableFuture.supplyAsync(() -> service.count(bucketName)).get(10, TimeUnit.SECONDS) > 0);
+    } finally {
+      keyLock.unlock();
+    }
+  }
+
+  private static SampleService proxy(MetadataFlusherTest.RecordingStore store) {
+    LocalS3ServicesInvocationHandler<String> invocationHandler =
+        new LocalS3ServicesInvocationHandler<>(new SampleService() {}, MetadataFlusher.sync(store, name -> name));
+    return (SampleService) Proxy.newProxyInstance(SampleService.class.getClassLoader(),
+        new Class[] {SampleService.class}, invocationHandler);
+  }
+
+}
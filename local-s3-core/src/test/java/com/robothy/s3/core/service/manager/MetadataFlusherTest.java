@@ -0,0 +1,161 @@
+package com.robothy.s3.core.service.manager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import com.robothy.s3.core.annotations.BucketChanged;
+import com.robothy.s3.core.storage.MetadataStore;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.junit.jupiter.api.Test;
+
+class MetadataFlusherTest {
+
+  @Test
+  void sync() {
+    RecordingStore store = new RecordingStore();
+    MetadataFlusher<String> flusher = MetadataFlusher.sync(store, name -> name);
+    assertTrue(flusher.bucketChanged("a", BucketChanged.Type.CREATE, null).isDone());
+    assertTrue(flusher.bucketChanged("a", BucketChanged.Type.UPDATE, "k1").isDone());
+    assertEquals(List.of("store a", "entries a [k1]"), store.operations);
+  }
+
+  @Test
+  void groupCommit() {
+    RecordingStore store = new RecordingStore();
+    MetadataFlusher<String> flusher = MetadataFlusher.create(store, name -> name,
+        MetadataDurability.GROUP_COMMIT, 200, 1000);
+    CompletableFuture<Void> f1 = flusher.bucketChanged("a", BucketChanged.Type.UPDATE, "k1");
+    CompletableFuture<Void> f2 = flusher.bucketChanged("a", BucketChanged.Type.UPDATE, "k2");
+    CompletableFuture<Void> f3 = flusher.bucketChanged("b", BucketChanged.Type.UPDATE, null);
+    CompletableFuture<Void> f4 = flusher.bucketChanged("b", BucketChanged.Type.UPDATE, "k3");
+    assertFalse(f1.isDone());
+
+    CompletableFuture.allOf(f1, f2, f3, f4).join();
+    assertEquals(List.of("entries a [k1, k2]", "store b"), store.operations);
+    flusher.close();
+  }
+
+  @Test
+  void groupCommitFailsPerBucket() {
+    RecordingStore store = new RecordingStore() {
+      @Override
+      public String storeEntries(String name, String metadataObject, Collection<String> keys) {
+        if ("a".equals(name)) {
+          throw new IllegalStateException("Disk full.");
+        }
+        return super.storeEntries(name, metadataObject, keys);
+      }
+    };
+    MetadataFlusher<String> flusher = MetadataFlusher.create(store, name -> name,
+        MetadataDurability.GROUP_COMMIT, 200, 1000);
+    List<String> deleted = Collections.synchronizedList(new ArrayList<>());
+    CompletableFuture<Void> f1 = flusher.bucketChanged("a", BucketChanged.Type.UPDATE, "k1",
+        List.of(() -> deleted.add("a")));
+    CompletableFuture<Void> f2 = flusher.bucketChanged("b", BucketChanged.Type.UPDATE, "k2",
+        List.of(() -> deleted.add("b")));
+
+    f2.join();
+    assertThrows(CompletionException.class, f1::join);
+    assertEquals(List.of("entries b [k2]"), store.operations);
+    // The contents released by the failed change are kept.
+    assertEquals(List.of("b"), deleted);
+    flusher.close();
+  }
+
+  @Test
+  void maxPendingChanges() {
+    RecordingStore store = new RecordingStore();
+    MetadataFlusher<String> flusher = MetadataFlusher.create(store, name -> name,
+        MetadataDurability.GROUP_COMMIT, 60_000, 2);
+    CompletableFuture<Void> f1 = flusher.bucketChanged("a", BucketChanged.Type.UPDATE, "k1");
+    CompletableFuture<Void> f2 = flusher.bucketChanged("a", BucketChanged.Type.UPDATE, "k2");
+    CompletableFuture.allOf(f1, f2).join();
+    assertEquals(List.of("entries a [k1, k2]"), store.operations);
+    flusher.close();
+  }
+
+  @Test
+  void asyncDrainedOnClose() {
+    RecordingStore store = new RecordingStore();
+    MetadataFlusher<String> flusher = MetadataFlusher.create(store, name -> name,
+        MetadataDurability.ASYNC, 60_000, 1000);
+    assertTrue(flusher.bucketChanged("a", BucketChanged.Type.UPDATE, "k1").isDone());
+    assertTrue(flusher.bucketChanged("b", BucketChanged.Type.CREATE, null).isDone());
+    assertTrue(flusher.bucketChanged("b", BucketChanged.Type.DELETE, null).isDone());
+    assertTrue(store.operations.isEmpty());
+
+    flusher.close();
+    assertEquals(List.of("entries a [k1]", "delete b"), store.operations);
+
+    flusher.bucketChanged("c", BucketChanged.Type.CREATE, null);
+    assertEquals("store c", store.operations.get(2));
+  }
+
+  @Test
+  void deletesRunAfterPersisted() {
+    RecordingStore store = new RecordingStore();
+    MetadataFlusher<String> flusher = MetadataFlusher.create(store, name -> name,
+        MetadataDurability.ASYNC, 60_000, 1000);
+    flusher.bucketChanged("a", BucketChanged.Type.UPDATE, "k1",
+        List.of(() -> store.operations.add("delete content")));
+    assertTrue(store.operations.isEmpty());
+
+    flusher.close();
+    assertEquals(List.of("entries a [k1]", "delete content"), store.operations);
+
+    flusher.bucketChanged("a", BucketChanged.Type.UPDATE, "k2",
+        List.of(() -> store.operations.add("delete content")));
+    assertEquals(List.of("entries a [k1]", "delete content", "entries a [k2]", "delete content"),
+        store.operations);
+  }
+
+  static class RecordingStore implements MetadataStore<String> {
+
+    final List<String> operations = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public String fetch(String name) {
+      return name;
+    }
+
+    @Override
+    public String store(String name, String metadataObject) {
+      operations.add("store " + name);
+      return name;
+    }
+
+    @Override
+    public String storeEntries(String name, String metadataObject, Collection<String> keys) {
+      operations.add("entries " + name + " " + keys);
+      return name;
+    }
+
+    @Override
+    public String storeEntry(String name, String metadataObject, String key) {
+      return storeEntries(name, metadataObject, List.of(key));
+    }
+
+    @Override
+    public void delete(String name) {
+      operations.add("delete " + name);
+    }
+
+    @Override
+    public List<String> fetchAll() {
+      return List.of();
+    }
+
+    @Override
+    public List<String> listNames() {
+      return List.of();
+    }
+
+  }
+
+}
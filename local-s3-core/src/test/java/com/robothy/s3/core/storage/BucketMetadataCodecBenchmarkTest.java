@@ -0,0 +1,64 @@
+package com.robothy.s3.core.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import com.robothy.s3.core.model.internal.BucketMetadata;
+import com.robothy.s3.core.model.internal.ObjectMetadata;
+import com.robothy.s3.core.model.internal.VersionedObjectMetadata;
+import com.robothy.s3.core.util.JsonUtils;
+import com.robothy.s3.core.util.Timing;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the binary bucket snapshot with the JSON snapshot it replaced.
+ */
+@Tag(Timing.TAG)
+class BucketMetadataCodecBenchmarkTest {
+
+  private static final int OBJECTS = 100_000;
+
+  @Test
+  void compareWithJson() {
+    BucketMetadata bucketMetadata = bucket();
+    byte[] json = JsonUtils.toJson(bucketMetadata).getBytes(StandardCharsets.UTF_8);
+    byte[] encoded = BucketMetadataCodec.encode(bucketMetadata);
+    assertEquals(bucketMetadata, BucketMetadataCodec.decode(encoded));
+
+    long jsonEncode = Timing.medianNanos(() -> JsonUtils.toJson(bucketMetadata).length());
+    long codecEncode = Timing.medianNanos(() -> BucketMetadataCodec.encode(bucketMetadata).length);
+    long jsonDecode = Timing.medianNanos(() ->
+        JsonUtils.fromJson(new String(json, StandardCharsets.UTF_8), BucketMetadata.class).getObjectMap().size());
+    long codecDecode = Timing.medianNanos(() -> BucketMetadataCodec.decode(encoded).getObjectMap().size());
+
+    Timing.report("snapshot size of " + OBJECTS + " objects", json.length / 1024.0, encoded.length / 1024.0, "KiB");
+    Timing.report("encode " + OBJECTS + " objects", jsonEncode / 1e6, codecEncode / 1e6, "ms");
+    Timing.report("decode " + OBJECTS + " objects", jsonDecode / 1e6, codecDecode / 1e6, "ms");
+    assertTrue(encoded.length < json.length);
+    assertTrue(codecDecode < jsonDecode);
+  }
+
+  /**
+   * A bucket of single-version objects with typical metadata.
+   */
+  private static BucketMetadata bucket() {
+    BucketMetadata bucketMetadata = new BucketMetadata();
+    bucketMetadata.setBucketName("bucket");
+    bucketMetadata.setCreationDate(1_700_000_000_000L);
+    for (int i = 0; i < OBJECTS; i++) {
+      VersionedObjectMetadata version = new VersionedObjectMetadata();
+      version.setCreationDate(1_700_000_000_000L + i);
+      version.setSize(1024 + i);
+      version.setFileId(8_000_000_000L + i);
+      version.setContentType(i % 2 == 0 ? "application/json" : "image/png");
+      version.setEtag(String.format("%032x", i));
+      version.setUserMetadata(Map.of("application", "benchmark"));
+      bucketMetadata.putObjectMetadata(String.format("tenant-%02d/2024/%02d/object-%06d.json", i % 16, i % 12, i),
+          new ObjectMetadata(ObjectMetadata.NULL_VERSION, version));
+    }
+    return bucketMetadata;
+  }
+
+}
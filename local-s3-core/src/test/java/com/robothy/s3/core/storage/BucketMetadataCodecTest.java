@@ -0,0 +1,167 @@
+package com.robothy.s3.core.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import com.robothy.s3.core.model.internal.BucketMetadata;
+import com.robothy.s3.core.model.internal.ObjectMetadata;
+import com.robothy.s3.core.model.internal.UploadMetadata;
+import com.robothy.s3.core.model.internal.UploadPartMetadata;
+import com.robothy.s3.core.model.internal.VersionedObjectMetadata;
+import com.robothy.s3.core.util.JsonUtils;
+import com.robothy.s3.datatypes.AccessControlPolicy;
+import com.robothy.s3.datatypes.Owner;
+import com.robothy.s3.datatypes.PublicAccessBlockConfiguration;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import org.junit.jupiter.api.Test;
+
+class BucketMetadataCodecTest {
+
+  @Test
+  void encodeAndDecode() {
+    BucketMetadata bucketMetadata = new BucketMetadata();
+    bucketMetadata.setBucketName("bucket");
+    bucketMetadata.setCreationDate(System.currentTimeMillis());
+    bucketMetadata.setRegion("local");
+    bucketMetadata.setVersioningEnabled(true);
+    bucketMetadata.setTagging(List.of(Map.of("A", "a"), Map.of("B", "b")));
+    bucketMetadata.setAcl(AccessControlPolicy.builder().owner(new Owner("Alice", "101")).build());
+    bucketMetadata.setPublicAccessBlock(new PublicAccessBlockConfiguration());
+    bucketMetadata.setPolicy("Policy JSON text");
+    bucketMetadata.setReplication("Replication Configuration");
+    bucketMetadata.setEncryption("Encryption");
+
+    VersionedObjectMetadata version1 = new VersionedObjectMetadata();
+    version1.setEtag("etag-1");
+    version1.setContentType("text/plain");
+    version1.setCreationDate(2L);
+    version1.setSize(100);
+    version1.setFileId(111L);
+    version1.setTagging(new String[][] {{"k1", "v1"}, {"k2", "v2"}});
+    version1.setUserMetadata(Map.of("owner", "Alice", "team", "\u4e2d\u6587"));
+    VersionedObjectMetadata deleteMarker = new VersionedObjectMetadata();
+    deleteMarker.setDeleted(true);
+    deleteMarker.setCreationDate(-1L);
+    deleteMarker.setUserMetadata(null);
+    ObjectMetadata object = new ObjectMetadata("1", version1);
+    object.putVersionedObjectMetadata("2", deleteMarker);
+    object.setVirtualVersion("3");
+    bucketMetadata.putObjectMetadata("a.txt", object);
+    bucketMetadata.putObjectMetadata("dir/b.txt", new ObjectMetadata("4", version1));
+    VersionedObjectMetadata composite = new VersionedObjectMetadata();
+    composite.setEtag("etag-2");
+    composite.setSize(15);
+    composite.setPartFileIds(new long[] {201L, 202L});
+    composite.setPartOffsets(new long[] {0L, 10L});
+    bucketMetadata.putObjectMetadata("dir/c.txt", new ObjectMetadata("5", composite));
+
+    UploadMetadata uploadMetadata = new UploadMetadata();
+    uploadMetadata.setCreateDate(1000);
+    uploadMetadata.setContentType("text/plain");
+    UploadPartMetadata part = new UploadPartMetadata("etag", 102, 10, 5L);
+    uploadMetadata.getParts().put(1, part);
+    uploadMetadata.getParts().put(2, new UploadPartMetadata());
+    NavigableMap<String, UploadMetadata> uploads = new ConcurrentSkipListMap<>();
+    uploads.put("upload-id", uploadMetadata);
+    bucketMetadata.getUploads().put("a.txt", uploads);
+
+    byte[] encoded = BucketMetadataCodec.encode(bucketMetadata);
+    assertTrue(BucketMetadataCodec.isEncoded(encoded));
+    BucketMetadata decoded = BucketMetadataCodec.decode(encoded);
+    // Tagging is compared through an Optional, which compares the arrays by reference.
+    for (Map.Entry<String, String> version : Map.of("a.txt", "1", "dir/b.txt", "4").entrySet()) {
+      VersionedObjectMetadata decodedVersion = decoded.getObjectMap().get(version.getKey())
+          .getVersionedObjectMetadata(version.getValue()).get();
+      assertArrayEquals(version1.getTagging().get(), decodedVersion.getTagging().get());
+      decodedVersion.setTagging(version1.getTagging().get());
+    }
+    assertEquals(bucketMetadata, decoded);
+    assertEquals("2", decoded.getObjectMap().get("a.txt").getLatestVersion());
+    assertTrue(encoded.length < JsonUtils.toJson(bucketMetadata).getBytes(StandardCharsets.UTF_8).length);
+
+    assertEquals(new BucketMetadata(), BucketMetadataCodec.decode(BucketMetadataCodec.encode(new BucketMetadata())));
+  }
+
+  @Test
+  void decodeFormatVersion1() {
+    BucketMetadata bucketMetadata = new BucketMetadata();
+    bucketMetadata.setBucketName("bucket");
+    VersionedObjectMetadata version = new VersionedObjectMetadata();
+    version.setFileId(111L);
+    bucketMetadata.putObjectMetadata("a.txt", new ObjectMetadata("1", version));
+
+    // Objects with a single file are encoded as in version 1, which has no journal generation.
+    byte[] encoded = withoutJournalGeneration(BucketMetadataCodec.encode(bucketMetadata));
+    encoded[BucketMetadataCodec.MAGIC.length] = 1;
+    assertEquals(bucketMetadata, BucketMetadataCodec.decode(encoded));
+    assertEquals(0, BucketMetadataCodec.journalGeneration(encoded));
+  }
+
+  @Test
+  void journalGeneration() {
+    BucketMetadata bucketMetadata = new BucketMetadata();
+    bucketMetadata.setBucketName("bucket");
+    bucketMetadata.putObjectMetadata("a.txt", new ObjectMetadata("1", new VersionedObjectMetadata()));
+    byte[] encoded = BucketMetadataCodec.encode(bucketMetadata, 300);
+    assertEquals(300, BucketMetadataCodec.journalGeneration(encoded));
+    assertEquals(300, BucketMetadataCodec.journalGeneration(Arrays.copyOf(encoded, 16)));
+    assertEquals(bucketMetadata, BucketMetadataCodec.decode(encoded));
+    assertEquals(0, BucketMetadataCodec.journalGeneration(BucketMetadataCodec.encode(bucketMetadata)));
+    assertThrows(IllegalArgumentException.class,
+        () -> BucketMetadataCodec.journalGeneration(Arrays.copyOf(encoded, BucketMetadataCodec.MAGIC.length + 1)));
+  }
+
+  /**
+   * Drop the single byte journal generation {@code 0} to get the layout of format versions before 3.
+   */
+  private static byte[] withoutJournalGeneration(byte[] encoded) {
+    int generation = BucketMetadataCodec.MAGIC.length + 1;
+    byte[] result = new byte[encoded.length - 1];
+    System.arraycopy(encoded, 0, result, 0, generation);
+    System.arraycopy(encoded, generation + 1, result, generation, result.length - generation);
+    return result;
+  }
+
+  @Test
+  void stringTable() {
+    BucketMetadata bucketMetadata = new BucketMetadata();
+    bucketMetadata.setBucketName("bucket");
+    for (int i = 0; i < 100; i++) {
+      VersionedObjectMetadata version = new VersionedObjectMetadata();
+      version.setContentType("application/octet-stream");
+      version.setUserMetadata(Map.of("x-amz-meta-application", "benchmark"));
+      bucketMetadata.putObjectMetadata("key" + i, new ObjectMetadata("null", version));
+    }
+
+    byte[] encoded = BucketMetadataCodec.encode(bucketMetadata);
+    String content = new String(encoded, StandardCharsets.ISO_8859_1);
+    assertEquals(content.indexOf("application/octet-stream"), content.lastIndexOf("application/octet-stream"));
+    assertEquals(content.indexOf("x-amz-meta-application"), content.lastIndexOf("x-amz-meta-application"));
+    assertEquals(bucketMetadata, BucketMetadataCodec.decode(encoded));
+  }
+
+  @Test
+  void invalidData() {
+    assertFalse(BucketMetadataCodec.isEncoded("{}".getBytes(StandardCharsets.UTF_8)));
+    assertThrows(IllegalArgumentException.class, () -> BucketMetadataCodec.decode("{}".getBytes(StandardCharsets.UTF_8)));
+
+    BucketMetadata bucketMetadata = new BucketMetadata();
+    bucketMetadata.setBucketName("bucket");
+    bucketMetadata.putObjectMetadata("a.txt", new ObjectMetadata("1", new VersionedObjectMetadata()));
+    byte[] encoded = BucketMetadataCodec.encode(bucketMetadata);
+    assertThrows(IllegalArgumentException.class,
+        () -> BucketMetadataCodec.decode(Arrays.copyOf(encoded, encoded.length - 3)));
+
+    byte[] unsupported = encoded.clone();
+    unsupported[BucketMetadataCodec.MAGIC.length] = BucketMetadataCodec.FORMAT_VERSION + 1;
+    assertThrows(IllegalArgumentException.class, () -> BucketMetadataCodec.decode(unsupported));
+  }
+
+}
@@ -0,0 +1,103 @@
+package com.robothy.s3.core.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class FanOutDirectoryTest {
+
+  @Test
+  void hashedLayout() throws IOException {
+    Path directory = Files.createTempDirectory("fan-out");
+    FanOutDirectory fanOut = FanOutDirectory.open(directory);
+    assertFalse(fanOut.isMigrating());
+    assertEquals(String.valueOf(FanOutDirectory.FORMAT_VERSION),
+        Files.readString(directory.resolve(FanOutDirectory.FORMAT_FILE)));
+
+    Path path = fanOut.pathForWrite(42L);
+    assertEquals(3, directory.relativize(path).getNameCount());
+    assertEquals("42", path.getFileName().toString());
+    Files.write(path, "Hello".getBytes());
+
+    assertTrue(fanOut.exists(42L));
+    assertArrayEquals("Hello".getBytes(), fanOut.read(42L, Files::readAllBytes));
+    assertEquals(1, fanOut.count());
+    assertTrue(fanOut.delete(42L));
+    assertFalse(fanOut.exists(42L));
+    assertFalse(fanOut.delete(42L));
+    assertThrows(NoSuchFileException.class, () -> fanOut.read(42L, Files::readAllBytes));
+    assertEquals(0, fanOut.count());
+  }
+
+  @Test
+  void migrateFlatDirectory() throws IOException {
+    Path directory = Files.createTempDirectory("fan-out");
+    for (long id = 1; id <= 100; id++) {
+      Files.write(directory.resolve(String.valueOf(id)), ("object-" + id).getBytes());
+    }
+
+    FanOutDirectory fanOut = FanOutDirectory.open(directory);
+    assertArrayEquals("object-7".getBytes(), fanOut.read(7L, Files::readAllBytes));
+    Files.write(fanOut.pathForWrite(8L), "overridden".getBytes());
+    fanOut.awaitMigration();
+
+    assertFalse(fanOut.isMigrating());
+    assertTrue(Files.exists(directory.resolve(FanOutDirectory.FORMAT_FILE)));
+    assertEquals(100, fanOut.count());
+    for (long id = 1; id <= 100; id++) {
+      assertFalse(Files.exists(directory.resolve(String.valueOf(id))));
+      assertTrue(Files.exists(fanOut.hashedPath(id)));
+    }
+    assertArrayEquals("object-1".getBytes(), fanOut.read(1L, Files::readAllBytes));
+    assertArrayEquals("overridden".getBytes(), fanOut.read(8L, Files::readAllBytes));
+
+    FanOutDirectory reopened = FanOutDirectory.open(directory);
+    assertFalse(reopened.isMigrating());
+    assertArrayEquals("object-100".getBytes(), reopened.read(100L, Files::readAllBytes));
+  }
+
+  @Test
+  void deleteDuringMigration() throws IOException {
+    Path directory = Files.createTempDirectory("fan-out");
+    int files = 2000;
+    for (long id = 1; id <= files; id++) {
+      Files.write(directory.resolve(String.valueOf(id)), ("object-" + id).getBytes());
+    }
+
+    // Delete in the order of the directory listing, so that deletes race with the migration of the same files.
+    List<Long> ids = new ArrayList<>();
+    try (DirectoryStream<Path> flatFiles = Files.newDirectoryStream(directory)) {
+      flatFiles.forEach(file -> ids.add(Long.parseLong(file.getFileName().toString())));
+    }
+    assertEquals(files, ids.size());
+
+    FanOutDirectory fanOut = FanOutDirectory.open(directory);
+    for (Long id : ids) {
+      assertTrue(fanOut.delete(id), "Failed to delete " + id);
+    }
+    fanOut.awaitMigration();
+
+    assertEquals(0, fanOut.count());
+    for (Long id : ids) {
+      assertFalse(fanOut.exists(id), id + " was resurrected");
+    }
+  }
+
+  @Test
+  void unsupportedFormatVersion() throws IOException {
+    Path directory = Files.createTempDirectory("fan-out");
+    Files.writeString(directory.resolve(FanOutDirectory.FORMAT_FILE), "99");
+    assertThrows(IllegalStateException.class, () -> FanOutDirectory.open(directory));
+  }
+
+}
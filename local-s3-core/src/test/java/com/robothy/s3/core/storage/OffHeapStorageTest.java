@@ -0,0 +1,78 @@
+package com.robothy.s3.core.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import com.robothy.s3.core.exception.TotalSizeExceedException;
+import com.robothy.s3.core.service.locks.EpochReclaimer;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class OffHeapStorageTest {
+
+  @Test
+  void totalSizeLimit() {
+    int _2KB = 2 * 1024;
+    OffHeapStorage storage = new OffHeapStorage(_2KB);
+    assertThrows(TotalSizeExceedException.class, () -> storage.put(new byte[_2KB + 1]));
+    assertThrows(TotalSizeExceedException.class, () -> storage.put(new ByteArrayInputStream(new byte[_2KB + 1])));
+    Long id = storage.put(new byte[_2KB]);
+    assertNotNull(id);
+    assertThrows(TotalSizeExceedException.class, () -> storage.put(new byte[1]));
+
+    storage.delete(id);
+    assertNotNull(storage.put(new byte[_2KB]));
+  }
+
+  @Test
+  void putLargeStream() {
+    byte[] data = new byte[SlabAllocator.SLAB_SIZE * 2 + 7];
+    new Random(1).nextBytes(data);
+    OffHeapStorage storage = new OffHeapStorage();
+    Long id = storage.put(new ByteArrayInputStream(data));
+    assertArrayEquals(data, storage.getBytes(id));
+
+    ByteBuffer buffer = storage.getByteBuffer(id);
+    assertTrue(buffer.isReadOnly());
+    assertTrue(buffer.isDirect());
+  }
+
+  @Test
+  void overrideAndDelete() {
+    OffHeapStorage storage = new OffHeapStorage(12);
+    Long id = storage.put("Hello".getBytes());
+    storage.put(id, "World!".getBytes());
+    assertArrayEquals("World!".getBytes(), storage.getBytes(id));
+    assertNotNull(storage.put("Hi".getBytes()));
+    storage.delete(id);
+    assertFalse(storage.isExist(id));
+  }
+
+  @Test
+  void keepChunkOfHeldObject() {
+    OffHeapStorage storage = new OffHeapStorage();
+    Long id = storage.put("Hello".getBytes());
+    ByteBuffer view;
+    EpochReclaimer.Guard hold;
+    try (EpochReclaimer.Guard ignored = EpochReclaimer.getInstance().enter()) {
+      view = storage.getByteBuffer(id);
+      hold = EpochReclaimer.getInstance().hold(id);
+    }
+
+    // Neither a delete nor the writes after it reuse the chunk that is still read.
+    storage.delete(id);
+    for (int i = 0; i < 16; i++) {
+      storage.put("World".getBytes());
+    }
+    byte[] data = new byte[view.remaining()];
+    view.duplicate().get(data);
+    assertEquals("Hello", new String(data));
+    hold.close();
+  }
+
+}
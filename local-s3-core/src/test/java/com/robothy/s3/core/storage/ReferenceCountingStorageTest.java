@@ -0,0 +1,179 @@
+package com.robothy.s3.core.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import com.robothy.s3.core.util.S3ObjectUtils;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+
+class ReferenceCountingStorageTest {
+
+  @Test
+  void putIdenticalContents() {
+    Storage inMemory = Storage.createInMemory();
+    ReferenceCountingStorage storage = new ReferenceCountingStorage(inMemory, true);
+    Long id1 = storage.put("Hello".getBytes());
+    Long id2 = storage.put(new ByteArrayInputStream("Hello".getBytes()));
+    Long id3 = storage.put("World".getBytes());
+    assertEquals(id1, id2);
+    assertNotEquals(id1, id3);
+    assertEquals(2, storage.references(id1));
+    assertEquals(1, storage.references(id3));
+
+    DigestInputStream content = S3ObjectUtils.md5DigestInputStream(new ByteArrayInputStream("Hello".getBytes()));
+    assertEquals(id1, storage.put(content));
+    // The digest of the caller is not reset.
+    assertEquals("8b1a9953c4611296a827abf8c47804d7", Hex.encodeHexString(content.getMessageDigest().digest()));
+    assertEquals(3, storage.references(id1));
+
+    storage.delete(id1);
+    storage.delete(id1);
+    assertTrue(inMemory.isExist(id1));
+    assertArrayEquals("Hello".getBytes(), storage.getBytes(id1));
+    storage.delete(id1);
+    assertFalse(inMemory.isExist(id1));
+    assertEquals(0, storage.references(id1));
+
+    // Deleted contents are not shared anymore.
+    Long id4 = storage.put("Hello".getBytes());
+    assertNotEquals(id1, id4);
+    assertEquals(1, storage.references(id4));
+  }
+
+  @Test
+  void retain() {
+    Storage inMemory = Storage.createInMemory();
+    ReferenceCountingStorage storage = new ReferenceCountingStorage(inMemory, false);
+    Long id1 = storage.put("Hello".getBytes());
+    assertNotEquals(id1, storage.put("Hello".getBytes()));
+    assertEquals(0, storage.references(id1));
+
+    assertTrue(storage.retain(id1));
+    assertTrue(storage.retain(id1));
+    assertEquals(3, storage.references(id1));
+    storage.delete(id1);
+    storage.delete(id1);
+    assertEquals(0, storage.references(id1));
+    assertTrue(inMemory.isExist(id1));
+    storage.delete(id1);
+    assertFalse(inMemory.isExist(id1));
+    assertThrows(IllegalArgumentException.class, () -> storage.retain(id1));
+  }
+
+  @Test
+  void uncountedContents() {
+    Storage inMemory = Storage.createInMemory();
+    Long existing = inMemory.put("Hello".getBytes());
+    ReferenceCountingStorage storage = new ReferenceCountingStorage(inMemory, true);
+    assertEquals(existing, storage.put(existing, "World".getBytes()));
+    assertEquals(0, storage.references(existing));
+    assertNotEquals(existing, storage.put("World".getBytes()));
+    storage.delete(existing);
+    assertFalse(inMemory.isExist(existing));
+  }
+
+  @Test
+  void persistReferences() throws IOException {
+    Path directory = Files.createTempDirectory("local-s3-dedup");
+    try {
+      Storage persistent = Storage.createPersistent(directory.resolve("storage"));
+      Path indexFile = directory.resolve("dedup.index");
+      ReferenceCountingStorage storage = new ReferenceCountingStorage(persistent, true, indexFile, false);
+      Long id1 = storage.put("Hello".getBytes());
+      storage.put("Hello".getBytes());
+      storage.put("Hello".getBytes());
+      Long id2 = storage.put("World".getBytes());
+      storage.delete(id1);
+      storage.delete(id2);
+      Long id3 = storage.put(1L, "Robothy".getBytes());
+      storage.retain(id3);
+
+      ReferenceCountingStorage reopened = new ReferenceCountingStorage(persistent, true, indexFile, false);
+      assertEquals(2, reopened.references(id1));
+      assertEquals(0, reopened.references(id2));
+      assertEquals(2, reopened.references(id3));
+      assertEquals(id1, reopened.put(new ByteArrayInputStream("Hello".getBytes())));
+      assertNotEquals(id2, reopened.put("World".getBytes()));
+
+      // A partially written record is ignored.
+      Files.write(indexFile, new byte[] {1, 2, 3}, StandardOpenOption.APPEND);
+      reopened = new ReferenceCountingStorage(persistent, true, indexFile, false);
+      assertEquals(3, reopened.references(id1));
+      reopened.delete(id3);
+      reopened = new ReferenceCountingStorage(persistent, true, indexFile, false);
+      assertEquals(0, reopened.references(id3));
+      assertTrue(persistent.isExist(id3));
+      // The index is compacted to one record per counted content.
+      assertEquals(2L * (Long.BYTES + 16 + Long.BYTES + Integer.BYTES), Files.size(indexFile));
+    } finally {
+      FileUtils.deleteDirectory(directory.toFile());
+    }
+  }
+
+  @Test
+  void deferDeletes() {
+    Storage inMemory = Storage.createInMemory();
+    ReferenceCountingStorage storage = new ReferenceCountingStorage(inMemory, true);
+    Long id = storage.put("Hello".getBytes());
+    List<Runnable> deletes = DeferredDeletes.begin();
+    try {
+      assertEquals(null, DeferredDeletes.begin());
+      assertEquals(id, storage.delete(id));
+    } finally {
+      DeferredDeletes.end(deletes);
+    }
+    assertEquals(1, deletes.size());
+    assertTrue(inMemory.isExist(id));
+    assertEquals(1, storage.references(id));
+
+    DeferredDeletes.run(deletes);
+    assertFalse(inMemory.isExist(id));
+    assertEquals(0, storage.references(id));
+    // Deletes outside a scope run immediately.
+    Long id2 = storage.put("World".getBytes());
+    storage.delete(id2);
+    assertFalse(inMemory.isExist(id2));
+  }
+
+  @Test
+  void concurrentReferences() throws IOException {
+    Path directory = Files.createTempDirectory("local-s3-dedup");
+    try {
+      Storage inMemory = Storage.createInMemory();
+      Path indexFile = directory.resolve("dedup.index");
+      ReferenceCountingStorage storage = new ReferenceCountingStorage(inMemory, true, indexFile, false);
+      Long id = storage.put("Hello".getBytes());
+      List<CompletableFuture<Void>> tasks = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        tasks.add(CompletableFuture.runAsync(() -> IntStream.range(0, 500).forEach(n -> {
+          assertEquals(id, storage.put("Hello".getBytes()));
+          storage.retain(id);
+          storage.delete(id);
+        })));
+      }
+      tasks.forEach(CompletableFuture::join);
+      assertEquals(8 * 500 + 1, storage.references(id));
+
+      ReferenceCountingStorage reopened = new ReferenceCountingStorage(inMemory, true, indexFile, false);
+      assertEquals(8 * 500 + 1, reopened.references(id));
+    } finally {
+      FileUtils.deleteDirectory(directory.toFile());
+    }
+  }
+
+}
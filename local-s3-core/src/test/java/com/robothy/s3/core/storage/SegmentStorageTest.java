@@ -0,0 +1,167 @@
+package com.robothy.s3.core.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+class SegmentStorageTest {
+
+  @Test
+  void reloadFromSegments() throws IOException {
+    Path directory = Files.createTempDirectory("segments");
+    SegmentStorage storage = new SegmentStorage(directory, 64);
+    List<Long> ids = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      ids.add(storage.put(("object-" + i).getBytes()));
+    }
+    Long streamed = storage.put(new ByteArrayInputStream("streamed".getBytes()));
+    storage.put(ids.get(1), "overridden".getBytes());
+    storage.delete(ids.get(2));
+    assertTrue(segmentFiles(directory).size() > 1);
+
+    SegmentStorage reloaded = new SegmentStorage(directory, 64);
+    assertArrayEquals("object-0".getBytes(), reloaded.getBytes(ids.get(0)));
+    assertArrayEquals("overridden".getBytes(), reloaded.getBytes(ids.get(1)));
+    assertFalse(reloaded.isExist(ids.get(2)));
+    assertArrayEquals("object-19".getBytes(), reloaded.getBytes(ids.get(19)));
+    assertArrayEquals("streamed".getBytes(), reloaded.getBytes(streamed));
+  }
+
+  @Test
+  void truncateIncompleteRecord() throws IOException {
+    Path directory = Files.createTempDirectory("segments");
+    SegmentStorage storage = new SegmentStorage(directory, SegmentStorage.DEFAULT_SEGMENT_SIZE);
+    Long id = storage.put("Hello".getBytes());
+
+    Path segment = segmentFiles(directory).get(0);
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+      channel.write(ByteBuffer.wrap(new byte[] {(byte) 0xA5, (byte) 0xE9, 0x0C}));
+    }
+
+    SegmentStorage reloaded = new SegmentStorage(directory, SegmentStorage.DEFAULT_SEGMENT_SIZE);
+    assertArrayEquals("Hello".getBytes(), reloaded.getBytes(id));
+    Long anotherId = reloaded.put("World".getBytes());
+    assertArrayEquals("World".getBytes(), new SegmentStorage(directory, SegmentStorage.DEFAULT_SEGMENT_SIZE).getBytes(anotherId));
+  }
+
+  @Test
+  void compact() throws IOException {
+    Path directory = Files.createTempDirectory("segments");
+    SegmentStorage storage = new SegmentStorage(directory, 64);
+    List<Long> ids = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      ids.add(storage.put(("object-" + i).getBytes()));
+    }
+    for (int i = 0; i < 20; i++) {
+      if (i != 1 && i != 3 && i != 19) {
+        storage.delete(ids.get(i));
+      }
+    }
+    storage.put(ids.get(1), "overridden".getBytes());
+    int segmentCount = segmentFiles(directory).size();
+
+    storage.compact();
+    assertTrue(segmentFiles(directory).size() < segmentCount);
+    assertArrayEquals("overridden".getBytes(), storage.getBytes(ids.get(1)));
+    assertArrayEquals("object-3".getBytes(), storage.getBytes(ids.get(3)));
+    assertFalse(storage.isExist(ids.get(0)));
+
+    SegmentStorage reloaded = new SegmentStorage(directory, 64);
+    for (int i = 0; i < 20; i++) {
+      assertEquals(i == 1 || i == 3 || i == 19, reloaded.isExist(ids.get(i)));
+    }
+    assertArrayEquals("overridden".getBytes(), reloaded.getBytes(ids.get(1)));
+    assertArrayEquals("object-19".getBytes(), reloaded.getBytes(ids.get(19)));
+    assertThrows(IllegalArgumentException.class, () -> reloaded.getBytes(ids.get(0)));
+  }
+
+  @Test
+  void spoolLargeStream() throws IOException {
+    Path directory = Files.createTempDirectory("segments");
+    SegmentStorage storage = new SegmentStorage(directory, SegmentStorage.DEFAULT_SEGMENT_SIZE);
+    byte[] data = new byte[SegmentStorage.SPOOL_THRESHOLD + 100];
+    new Random(7).nextBytes(data);
+    Long id = storage.put(new ByteArrayInputStream(data));
+    Long small = storage.put(new ByteArrayInputStream("small".getBytes()));
+    assertArrayEquals(data, storage.getBytes(id));
+    assertEquals(1, segmentFiles(directory).size(), "The spool file is deleted.");
+
+    SegmentStorage reloaded = new SegmentStorage(directory, SegmentStorage.DEFAULT_SEGMENT_SIZE);
+    assertArrayEquals(data, reloaded.getBytes(id));
+    assertArrayEquals("small".getBytes(), reloaded.getBytes(small));
+  }
+
+  @Test
+  void streamWithoutLock() throws Exception {
+    Path directory = Files.createTempDirectory("segments");
+    SegmentStorage storage = new SegmentStorage(directory, SegmentStorage.DEFAULT_SEGMENT_SIZE);
+    CountDownLatch reading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    InputStream slowClient = new InputStream() {
+      private int count;
+
+      @Override
+      public int read() throws IOException {
+        if (count == 0) {
+          reading.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            throw new IOException(e);
+          }
+        }
+        return count++ < 5 ? 'a' : -1;
+      }
+    };
+    CompletableFuture<Long> slowPut = CompletableFuture.supplyAsync(() -> storage.put(slowClient));
+    assertTrue(reading.await(10, TimeUnit.SECONDS));
+
+    // Neither writers nor readers wait for the slow client.
+    Long id = CompletableFuture.supplyAsync(() -> storage.put("Hello".getBytes())).get(10, TimeUnit.SECONDS);
+    assertArrayEquals("Hello".getBytes(), storage.getBytes(id));
+
+    release.countDown();
+    assertArrayEquals("aaaaa".getBytes(), storage.getBytes(slowPut.get(10, TimeUnit.SECONDS)));
+  }
+
+  @Test
+  void closeCancelsCompaction() throws IOException {
+    Path directory = Files.createTempDirectory("segments");
+    int scheduled = SegmentStorage.COMPACTOR.getQueue().size();
+    SegmentStorage storage = new SegmentStorage(directory);
+    Long id = storage.put("Hello".getBytes());
+    assertEquals(scheduled + 1, SegmentStorage.COMPACTOR.getQueue().size());
+    storage.close();
+    assertEquals(scheduled, SegmentStorage.COMPACTOR.getQueue().size());
+    storage.close();
+
+    SegmentStorage reopened = new SegmentStorage(directory, SegmentStorage.DEFAULT_SEGMENT_SIZE);
+    assertArrayEquals("Hello".getBytes(), reopened.getBytes(id));
+  }
+
+  private static List<Path> segmentFiles(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.sorted().collect(Collectors.toList());
+    }
+  }
+
+}
@@ -0,0 +1,32 @@
+package com.robothy.s3.core.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+class SlabAllocatorTest {
+
+  @Test
+  void allocate() {
+    SlabAllocator allocator = new SlabAllocator();
+    assertEquals(SlabAllocator.MIN_CHUNK_SIZE, allocator.allocate(1).capacity());
+    assertEquals(SlabAllocator.MIN_CHUNK_SIZE, allocator.allocate(SlabAllocator.MIN_CHUNK_SIZE).capacity());
+    assertEquals(128, allocator.allocate(65).capacity());
+    assertEquals(SlabAllocator.SLAB_SIZE, allocator.allocate(SlabAllocator.SLAB_SIZE).capacity());
+    assertEquals(SlabAllocator.SLAB_SIZE + 1, allocator.allocate(SlabAllocator.SLAB_SIZE + 1).capacity());
+    assertTrue(allocator.allocate(100).isDirect());
+  }
+
+  @Test
+  void reuseReleasedChunk() {
+    SlabAllocator allocator = new SlabAllocator();
+    ByteBuffer chunk = allocator.allocate(SlabAllocator.SLAB_SIZE);
+    chunk.put((byte) 1);
+    allocator.release(chunk);
+    ByteBuffer reused = allocator.allocate(SlabAllocator.SLAB_SIZE);
+    assertEquals(0, reused.position());
+    assertEquals(1, reused.get(0));
+  }
+
+}
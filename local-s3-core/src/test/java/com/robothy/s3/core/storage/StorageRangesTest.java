@@ -0,0 +1,38 @@
+package com.robothy.s3.core.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+class StorageRangesTest {
+
+  @Test
+  void checkRange() {
+    long _6GB = 6L << 30;
+    assertEquals(10, StorageRanges.checkRange(1L, (1L << 31) + 5, 10, _6GB));
+    assertEquals(10, StorageRanges.checkRange(1L, _6GB - 10, 10, _6GB));
+    assertEquals(0, StorageRanges.checkRange(1L, _6GB, 0, _6GB));
+    assertEquals(Integer.MAX_VALUE, StorageRanges.checkRange(1L, 1L << 32, Integer.MAX_VALUE, _6GB));
+
+    assertThrows(IllegalArgumentException.class, () -> StorageRanges.checkRange(1L, -1, 10, _6GB));
+    assertThrows(IllegalArgumentException.class, () -> StorageRanges.checkRange(1L, 0, -1, _6GB));
+    assertThrows(IllegalArgumentException.class, () -> StorageRanges.checkRange(1L, _6GB - 10, 11, _6GB));
+    assertThrows(IllegalArgumentException.class, () -> StorageRanges.checkRange(1L, _6GB + 1, 0, _6GB));
+    // offset + length overflows.
+    assertThrows(IllegalArgumentException.class, () -> StorageRanges.checkRange(1L, Long.MAX_VALUE, 10, _6GB));
+    assertThrows(IllegalArgumentException.class, () -> StorageRanges.checkRange(1L, 10, Long.MAX_VALUE, Long.MAX_VALUE));
+    // Longer than a buffer; the length is not truncated.
+    assertThrows(IllegalArgumentException.class, () -> StorageRanges.checkRange(1L, 0, (1L << 32) + 10, _6GB));
+    assertThrows(IllegalArgumentException.class, () -> StorageRanges.checkRange(1L, 0, Integer.MAX_VALUE + 1L, _6GB));
+  }
+
+  @Test
+  void readBeyondIntRange() {
+    InMemoryStorage storage = new InMemoryStorage();
+    Long id = storage.put("Hello".getBytes());
+    // (int) (1L << 32) is 0, which must not be read as the first byte.
+    assertThrows(IllegalArgumentException.class, () -> storage.read(id, 1L << 32, 1));
+    assertThrows(IllegalArgumentException.class, () -> storage.read(id, 0, (1L << 32) + 1));
+  }
+
+}
@@ -4,10 +4,15 @@ import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -28,6 +33,10 @@ class StorageTest {
     assertInstanceOf(LocalFileSystemStorage.class, Storage.createPersistent(storage));
     assertInstanceOf(LayeredStorage.class, Storage.createLayered(Storage.createInMemory(), Storage.createInMemory()));
     assertInstanceOf(CopyOnAccessStorage.class, Storage.createCopyOnAccess(Storage.createInMemory()));
+    assertInstanceOf(CopyOnAccessStorage.class, Storage.createCopyOnAccess(Storage.createInMemory(), Storage.createOffHeap()));
+    assertInstanceOf(OffHeapStorage.class, Storage.createOffHeap());
+    assertInstanceOf(OffHeapStorage.class, Storage.createOffHeap(100));
+    assertInstanceOf(SegmentStorage.class, Storage.createSegmented(storage.resolve("segments")));
   }
 
   @ParameterizedTest
@@ -42,22 +51,71 @@ class StorageTest {
       assertArrayEquals("Hi".getBytes(), in.readAllBytes());
     }
 
+    ByteBuffer buffer = storage.getByteBuffer(helloId);
+    assertTrue(buffer.isReadOnly());
+    byte[] bufferBytes = new byte[buffer.remaining()];
+    buffer.get(bufferBytes);
+    assertArrayEquals("Hi".getBytes(), bufferBytes);
+
     Long hiId = storage.put(new ByteArrayInputStream("嗨嗨害".getBytes(StandardCharsets.UTF_8)));
     assertEquals("嗨嗨害", new String(storage.getBytes(hiId), StandardCharsets.UTF_8));
 
     assertThrows(IllegalArgumentException.class, () -> storage.getBytes(666L));
     assertThrows(IllegalArgumentException.class, () -> storage.getInputStream(666L));
+    assertThrows(IllegalArgumentException.class, () -> storage.getByteBuffer(666L));
+
+    Long rangeId = storage.put("Hello, World!".getBytes());
+    ByteBuffer range = storage.read(rangeId, 7, 5);
+    assertTrue(range.isReadOnly());
+    byte[] rangeBytes = new byte[range.remaining()];
+    range.get(rangeBytes);
+    assertArrayEquals("World".getBytes(), rangeBytes);
+    assertEquals(0, storage.read(rangeId, 13, 0).remaining());
+    assertThrows(IllegalArgumentException.class, () -> storage.read(rangeId, 10, 4));
+    assertThrows(IllegalArgumentException.class, () -> storage.read(rangeId, -1, 2));
+    assertThrows(IllegalArgumentException.class, () -> storage.read(666L, 0, 1));
+
+    try (InputStream in = Channels.newInputStream(storage.getChannel(rangeId, 7))) {
+      assertArrayEquals("World!".getBytes(), in.readAllBytes());
+    }
+    try (ReadableByteChannel channel = storage.getChannel(rangeId, 13)) {
+      assertEquals(-1, channel.read(ByteBuffer.allocate(1)));
+    }
+    assertThrows(IllegalArgumentException.class, () -> storage.getChannel(rangeId, 14));
+    assertThrows(IllegalArgumentException.class, () -> storage.getChannel(666L, 0));
     assertEquals(helloId, storage.delete(helloId));
     assertThrows(IllegalArgumentException.class, () -> storage.delete(helloId));
   }
 
+  @Test
+  void getFileChannel() throws IOException {
+    Storage persistent = Storage.createPersistent(Files.createTempDirectory("storage"));
+    Long id = persistent.put("Hello, World!".getBytes());
+    try (FileChannel channel = persistent.getFileChannel(id, 7).orElseThrow()) {
+      assertEquals(7, channel.position());
+      assertArrayEquals("World!".getBytes(), Channels.newInputStream(channel).readAllBytes());
+    }
+    assertThrows(IllegalArgumentException.class, () -> persistent.getFileChannel(id, 14));
+    assertThrows(IllegalArgumentException.class, () -> persistent.getFileChannel(666L, 0));
+
+    Storage layered = Storage.createReferenceCounting(Storage.createLayered(Storage.createInMemory(), persistent), false);
+    try (FileChannel channel = layered.getFileChannel(id, 0).orElseThrow()) {
+      assertEquals(13, channel.size());
+    }
+
+    Storage inMemory = Storage.createInMemory();
+    assertTrue(inMemory.getFileChannel(inMemory.put("Hi".getBytes()), 0).isEmpty());
+  }
+
   static Stream<Arguments> testCases() throws IOException {
     Path storage = Files.createTempDirectory("storage");
     return Stream.of(
         arguments(Storage.createPersistent(storage)),
         arguments(Storage.createPersistent(storage)),
         arguments(Storage.createInMemory(), Storage.createInMemory()),
-        arguments(Storage.createCopyOnAccess(Storage.createInMemory()))
+        arguments(Storage.createCopyOnAccess(Storage.createInMemory())),
+        arguments(Storage.createOffHeap()),
+        arguments(Storage.createSegmented(Files.createTempDirectory("segments")))
     );
   }
 
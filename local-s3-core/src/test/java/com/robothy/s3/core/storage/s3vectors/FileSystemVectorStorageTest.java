@@ -45,9 +45,13 @@ class FileSystemVectorStorageTest {
     
     Long storageId = vectorStorage.putVectorData(vectorData);
     
-    Path expectedFile = tempDir.resolve(String.valueOf(storageId));
-    assertTrue(Files.exists(expectedFile));
-    assertTrue(Files.isRegularFile(expectedFile));
+    assertFalse(Files.exists(tempDir.resolve(String.valueOf(storageId))));
+    try (var files = Files.walk(tempDir)) {
+      Path expectedFile = files.filter(file -> file.getFileName().toString().equals(String.valueOf(storageId)))
+          .findFirst().orElseThrow();
+      assertTrue(Files.isRegularFile(expectedFile));
+      assertEquals(3, tempDir.relativize(expectedFile).getNameCount());
+    }
   }
 
   @Test
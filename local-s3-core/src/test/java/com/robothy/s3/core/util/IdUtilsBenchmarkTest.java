@@ -0,0 +1,109 @@
+package com.robothy.s3.core.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the lock-free ID generators with the synchronized generator they replaced.
+ */
+@Tag(Timing.TAG)
+class IdUtilsBenchmarkTest {
+
+  private static final int IDS = 1_000_000;
+
+  private static final int THREADS = 4;
+
+  @Test
+  void compareWithSynchronizedGenerator() {
+    SynchronizedGenerator synchronizedGenerator = new SynchronizedGenerator();
+    IdUtils generator = new IdUtils(0, 0);
+
+    long baseline = Timing.medianNanos(() -> generate(synchronizedGenerator::nextId, IDS));
+    long replacement = Timing.medianNanos(() -> generate(generator::nextId, IDS));
+    Timing.report(IDS + " IDs on 1 thread", baseline / 1e6, replacement / 1e6, "ms");
+
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      long contendedBaseline = Timing.medianNanos(() ->
+          generateConcurrently(executor, () -> synchronizedGenerator::nextId));
+      long contended = Timing.medianNanos(() -> generateConcurrently(executor, () -> generator::nextId));
+      long striped = Timing.medianNanos(() ->
+          generateConcurrently(executor, () -> IdUtils.stripedGenerator()::nextId));
+      String name = IDS + " IDs on " + THREADS + " threads";
+      Timing.report(name + ", default generator", contendedBaseline / 1e6, contended / 1e6, "ms");
+      Timing.report(name + ", striped generators", contendedBaseline / 1e6, striped / 1e6, "ms");
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static long generate(LongSupplier generator, int count) {
+    long last = 0;
+    for (int i = 0; i < count; i++) {
+      last = generator.getAsLong();
+    }
+    return last;
+  }
+
+  /**
+   * Generate {@link #IDS} IDs in total on {@link #THREADS} threads, each thread using the generator
+   * {@code generatorOfThread} returns on it.
+   */
+  private static long generateConcurrently(ExecutorService executor, Supplier<LongSupplier> generatorOfThread) {
+    List<Future<Long>> futures = new ArrayList<>();
+    for (int i = 0; i < THREADS; i++) {
+      futures.add(executor.submit(() -> generate(generatorOfThread.get(), IDS / THREADS)));
+    }
+    long result = 0;
+    try {
+      for (Future<Long> future : futures) {
+        result += future.get();
+      }
+    } catch (InterruptedException | ExecutionException e) {
+      throw new IllegalStateException(e);
+    }
+    return result;
+  }
+
+  /**
+   * The generator that {@link IdUtils#nextId()} replaced: the sequence is guarded by the monitor,
+   * and when it overflows in a millisecond, the caller spins until the next millisecond.
+   */
+  private static class SynchronizedGenerator {
+
+    private static final long MAX_SEQUENCE = ~(-1L << 12);
+
+    private long sequence = 0L;
+
+    private long lastStmp = -1L;
+
+    synchronized long nextId() {
+      long currStmp = System.currentTimeMillis();
+      if (currStmp < lastStmp) {
+        throw new IllegalStateException("Clock moved backwards.");
+      }
+      if (currStmp == lastStmp) {
+        sequence = (sequence + 1) & MAX_SEQUENCE;
+        if (sequence == 0L) {
+          while (currStmp <= lastStmp) {
+            currStmp = System.currentTimeMillis();
+          }
+        }
+      } else {
+        sequence = 0L;
+      }
+      lastStmp = currStmp;
+      return (currStmp - 1645837713L) << 22 | sequence;
+    }
+
+  }
+
+}
@@ -0,0 +1,72 @@
+package com.robothy.s3.core.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+class IdUtilsTest {
+
+  private static final int THREADS = 8;
+
+  private static final int IDS_PER_THREAD = 20_000;
+
+  @Test
+  void defaultGeneratorIsIncreasing() {
+    IdUtils generator = new IdUtils(0, 0);
+    long last = generator.nextId();
+    // More IDs than the sequence holds in a millisecond.
+    for (int i = 0; i < 10_000; i++) {
+      long id = generator.nextId();
+      assertTrue(id > last);
+      assertTrue(String.valueOf(id).compareTo(String.valueOf(last)) > 0);
+      last = id;
+    }
+  }
+
+  @Test
+  void uniqueAcrossThreads() throws Exception {
+    List<List<Long>> ordered = generate(() -> IdUtils.defaultGenerator().nextId());
+    Set<Long> ids = new HashSet<>();
+    ordered.forEach(ids::addAll);
+    for (List<Long> idsOfThread : ordered) {
+      for (int i = 1; i < idsOfThread.size(); i++) {
+        assertTrue(idsOfThread.get(i) > idsOfThread.get(i - 1));
+      }
+    }
+
+    generate(() -> IdUtils.stripedGenerator().nextId()).forEach(ids::addAll);
+    assertEquals(2 * THREADS * IDS_PER_THREAD, ids.size());
+  }
+
+  private static List<List<Long>> generate(Supplier<Long> generator) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<CompletableFuture<List<Long>>> futures = new ArrayList<>();
+      for (int i = 0; i < THREADS; i++) {
+        futures.add(CompletableFuture.supplyAsync(() -> {
+          List<Long> ids = new ArrayList<>(IDS_PER_THREAD);
+          for (int j = 0; j < IDS_PER_THREAD; j++) {
+            ids.add(generator.get());
+          }
+          return ids;
+        }, executor));
+      }
+      List<List<Long>> result = new ArrayList<>();
+      for (CompletableFuture<List<Long>> future : futures) {
+        result.add(future.get());
+      }
+      return result;
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+}
@@ -0,0 +1,72 @@
+package com.robothy.s3.core.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import com.robothy.s3.core.model.answers.ObjectContent;
+import com.robothy.s3.core.model.internal.VersionedObjectMetadata;
+import com.robothy.s3.core.storage.Storage;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+class ObjectContentUtilsTest {
+
+  @Test
+  void contentBeyondIntRange() {
+    long _1GB = 1L << 30;
+    VersionedObjectMetadata versionedObjectMetadata = new VersionedObjectMetadata();
+    versionedObjectMetadata.setPartFileIds(new long[] {1, 2, 3});
+    versionedObjectMetadata.setPartOffsets(new long[] {0, 3 * _1GB, 5 * _1GB});
+    versionedObjectMetadata.setSize(6 * _1GB);
+
+    Storage storage = mock(Storage.class);
+    when(storage.read(anyLong(), anyLong(), anyLong())).thenReturn(ByteBuffer.allocate(0));
+
+    // The range starts in the first part and ends in the last one.
+    ObjectContent content = ObjectContentUtils.content(storage, versionedObjectMetadata, 3 * _1GB - 2, 2 * _1GB + 4);
+    assertEquals(2 * _1GB + 4, content.getSize());
+    assertEquals(3, content.getBuffers().length);
+    InOrder inOrder = inOrder(storage);
+    inOrder.verify(storage).read(1L, 3 * _1GB - 2, 2);
+    inOrder.verify(storage).read(2L, 0, 2 * _1GB);
+    inOrder.verify(storage).read(3L, 0, 2);
+
+    // The range lies beyond 2^32 bytes of the second part.
+    content = ObjectContentUtils.content(storage, versionedObjectMetadata, 4 * _1GB + 7, 10);
+    assertEquals(1, content.getBuffers().length);
+    inOrder.verify(storage).read(2L, _1GB + 7, 10);
+
+    versionedObjectMetadata = new VersionedObjectMetadata();
+    versionedObjectMetadata.setFileId(4L);
+    versionedObjectMetadata.setSize(6 * _1GB);
+    content = ObjectContentUtils.content(storage, versionedObjectMetadata, 5 * _1GB, 10);
+    assertEquals(10, content.getSize());
+    content.getBuffers();
+    inOrder.verify(storage).read(4L, 5 * _1GB, 10);
+  }
+
+  @Test
+  void retain() {
+    VersionedObjectMetadata versionedObjectMetadata = new VersionedObjectMetadata();
+    versionedObjectMetadata.setPartFileIds(new long[] {1, 2, 3});
+    Storage storage = mock(Storage.class);
+    when(storage.retain(anyLong())).thenReturn(true);
+    ObjectContentUtils.retain(storage, versionedObjectMetadata);
+    verify(storage).retain(3L);
+    verify(storage, never()).delete(anyLong());
+
+    // The retained parts are released if the storage does not share the others.
+    Storage notSharing = mock(Storage.class);
+    when(notSharing.retain(1L)).thenReturn(true);
+    assertThrows(IllegalStateException.class, () -> ObjectContentUtils.retain(notSharing, versionedObjectMetadata));
+    verify(notSharing).delete(1L);
+    verify(notSharing, never()).retain(3L);
+  }
+
+}
@@ -0,0 +1,168 @@
+package com.robothy.s3.core.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import org.junit.jupiter.api.Test;
+
+class OverlayMapTest {
+
+  private static final String[] KEY_PARTS = {"a", "ab", "b/", "tenant/2024/", "é", "z", "/"};
+
+  @Test
+  void matchTreeMap() {
+    Random random = new Random(1);
+    for (int round = 0; round < 50; round++) {
+      TreeMap<String, Integer> expected = new TreeMap<>();
+      for (int i = 0; i < 100; i++) {
+        expected.put(randomKey(random), random.nextInt(5));
+      }
+      ConcurrentNavigableMap<String, Integer> base = new ConcurrentSkipListMap<>(expected);
+      Map<String, Integer> frozen = new TreeMap<>(expected);
+      ConcurrentNavigableMap<String, Object> overlay = round % 2 == 0
+          ? new ConcurrentSkipListMap<>() : new PrefixCompressedMap<>(3);
+      OverlayMap<Integer> map = new OverlayMap<>(base, overlay);
+      assertEquals(expected, map);
+
+      for (int i = 0; i < 300; i++) {
+        String key = randomKey(random);
+        int value = random.nextInt(5);
+        switch (random.nextInt(6)) {
+          case 0:
+            assertEquals(expected.remove(key), map.remove(key));
+            break;
+          case 1:
+            assertEquals(expected.putIfAbsent(key, value), map.putIfAbsent(key, value));
+            break;
+          case 2:
+            assertEquals(expected.remove(key, value), map.remove(key, value));
+            break;
+          case 3:
+            assertEquals(expected.replace(key, value), map.replace(key, value));
+            break;
+          case 4:
+            assertEquals(expected.replace(key, value, value + 1), map.replace(key, value, value + 1));
+            break;
+          default:
+            assertEquals(expected.put(key, value), map.put(key, value));
+        }
+        assertEquals(expected.size(), map.size());
+        assertNavigation(expected, map, randomKey(random));
+
+        String from = randomKey(random);
+        String to = randomKey(random);
+        if (from.compareTo(to) > 0) {
+          String tmp = from;
+          from = to;
+          to = tmp;
+        }
+        boolean fromInclusive = random.nextBoolean();
+        boolean toInclusive = random.nextBoolean();
+        NavigableMap<String, Integer> expectedSubMap = expected.subMap(from, fromInclusive, to, toInclusive);
+        NavigableMap<String, Integer> subMap = map.subMap(from, fromInclusive, to, toInclusive);
+        assertEquals(new ArrayList<>(expectedSubMap.entrySet()), new ArrayList<>(subMap.entrySet()));
+        assertEquals(expectedSubMap.size(), subMap.size());
+        assertNavigation(expectedSubMap, subMap, randomKey(random));
+        assertEquals(new ArrayList<>(expected.descendingMap().entrySet()),
+            new ArrayList<>(map.descendingMap().entrySet()));
+        assertNavigation(expected.descendingMap(), map.descendingMap(), randomKey(random));
+        assertEquals(new ArrayList<>(expectedSubMap.descendingKeySet()), new ArrayList<>(subMap.descendingKeySet()));
+      }
+      assertEquals(expected, map);
+
+      Iterator<String> iterator = map.keySet().iterator();
+      Iterator<String> expectedIterator = expected.keySet().iterator();
+      while (expectedIterator.hasNext()) {
+        assertEquals(expectedIterator.next(), iterator.next());
+        if (random.nextBoolean()) {
+          iterator.remove();
+          expectedIterator.remove();
+        }
+      }
+      assertFalse(iterator.hasNext());
+      assertEquals(expected.pollFirstEntry(), map.pollFirstEntry());
+      assertEquals(expected.pollLastEntry(), map.pollLastEntry());
+      expected.tailMap("b").clear();
+      map.tailMap("b").clear();
+      assertEquals(expected, map);
+      // The base is never modified.
+      assertEquals(frozen, base);
+    }
+  }
+
+  @Test
+  void storeOnlyChanges() {
+    ConcurrentNavigableMap<String, Integer> base = new ConcurrentSkipListMap<>();
+    for (int i = 0; i < 1000; i++) {
+      base.put(String.format("%04d", i), i);
+    }
+    ConcurrentNavigableMap<String, Object> overlay = new ConcurrentSkipListMap<>();
+    OverlayMap<Integer> map = new OverlayMap<>(base, overlay);
+    assertTrue(overlay.isEmpty());
+
+    map.put("0001", -1);
+    map.remove("0002");
+    map.put("1000", 1000);
+    map.remove("1001");
+    assertEquals(3, overlay.size());
+    assertEquals(1000, map.size());
+    assertEquals(-1, map.get("0001"));
+    assertNull(map.get("0002"));
+    assertEquals("0003", map.higherKey("0001"));
+    assertEquals("0001", map.lowerKey("0003"));
+
+    // Putting back a removed key of the base replaces its tombstone.
+    map.put("0002", 2);
+    map.remove("1000");
+    assertEquals(1, overlay.size());
+    assertEquals(base.size(), map.size());
+  }
+
+  @Test
+  void invalidMaps() {
+    ConcurrentNavigableMap<String, Object> overlay = new ConcurrentSkipListMap<>();
+    overlay.put("a", 1);
+    assertThrows(IllegalArgumentException.class, () -> new OverlayMap<>(new ConcurrentSkipListMap<>(), overlay));
+    assertThrows(IllegalArgumentException.class,
+        () -> new OverlayMap<Integer>(new ConcurrentSkipListMap<>((a, b) -> b.compareTo(a)), new ConcurrentSkipListMap<>()));
+
+    OverlayMap<Integer> map = new OverlayMap<>(new ConcurrentSkipListMap<>(Map.of("b", 1)), new ConcurrentSkipListMap<>());
+    assertThrows(IllegalArgumentException.class, () -> map.subMap("c", "a"));
+    NavigableMap<String, Integer> subMap = map.subMap("a", true, "c", false);
+    assertThrows(IllegalArgumentException.class, () -> subMap.tailMap("d", true));
+    assertThrows(IllegalArgumentException.class, () -> subMap.put("c", 2));
+    assertThrows(NullPointerException.class, () -> map.put("d", null));
+    assertThrows(IllegalArgumentException.class, () -> map.descendingMap().subMap("a", "c"));
+  }
+
+  private static void assertNavigation(NavigableMap<String, Integer> expected, NavigableMap<String, Integer> map,
+                                       String key) {
+    assertEquals(expected.get(key), map.get(key));
+    assertEquals(expected.ceilingKey(key), map.ceilingKey(key));
+    assertEquals(expected.floorKey(key), map.floorKey(key));
+    assertEquals(expected.higherKey(key), map.higherKey(key));
+    assertEquals(expected.lowerKey(key), map.lowerKey(key));
+    assertEquals(expected.firstEntry(), map.firstEntry());
+    assertEquals(expected.lastEntry(), map.lastEntry());
+  }
+
+  private static String randomKey(Random random) {
+    StringBuilder key = new StringBuilder();
+    int parts = random.nextInt(4);
+    for (int i = 0; i < parts; i++) {
+      key.append(KEY_PARTS[random.nextInt(KEY_PARTS.length)]);
+    }
+    return key.toString();
+  }
+
+}
@@ -0,0 +1,90 @@
+package com.robothy.s3.core.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the prefix-compressed object index with the skip list index.
+ */
+@Tag(Timing.TAG)
+class PrefixCompressedMapBenchmarkTest {
+
+  private static final int KEYS = 1_000_000;
+
+  private static final int LOOKUPS = 100_000;
+
+  @Test
+  void compareWithSkipList() {
+    Function<Map<String, Integer>, ConcurrentNavigableMap<String, Integer>> skipList = ConcurrentSkipListMap::new;
+    Function<Map<String, Integer>, ConcurrentNavigableMap<String, Integer>> prefixCompressed = PrefixCompressedMap::new;
+
+    long skipListBytes = Timing.retainedBytes(() -> skipList.apply(entries(KEYS)));
+    long prefixCompressedBytes = Timing.retainedBytes(() -> prefixCompressed.apply(entries(KEYS)));
+    Timing.report("heap of " + KEYS + " keys", skipListBytes / 1048576.0, prefixCompressedBytes / 1048576.0, "MiB");
+    assertTrue(prefixCompressedBytes < skipListBytes);
+
+    ConcurrentNavigableMap<String, Integer> skipListMap = skipList.apply(entries(KEYS));
+    ConcurrentNavigableMap<String, Integer> prefixCompressedMap = prefixCompressed.apply(entries(KEYS));
+    List<String> shuffled = new ArrayList<>(entries(KEYS).keySet());
+    Collections.shuffle(shuffled, new Random(0));
+    List<String> keys = List.copyOf(shuffled.subList(0, LOOKUPS));
+    assertEquals(get(skipListMap, keys), get(prefixCompressedMap, keys));
+
+    Timing.report("get " + LOOKUPS + " random keys",
+        Timing.medianNanos(() -> get(skipListMap, keys)) / 1e6,
+        Timing.medianNanos(() -> get(prefixCompressedMap, keys)) / 1e6, "ms");
+    Timing.report("iterate " + KEYS + " keys",
+        Timing.medianNanos(() -> iterate(skipListMap)) / 1e6,
+        Timing.medianNanos(() -> iterate(prefixCompressedMap)) / 1e6, "ms");
+    Timing.report("put " + LOOKUPS + " random keys into an empty map",
+        Timing.medianNanos(() -> put(new ConcurrentSkipListMap<>(), keys)) / 1e6,
+        Timing.medianNanos(() -> put(new PrefixCompressedMap<>(), keys)) / 1e6, "ms");
+  }
+
+  /**
+   * Keys laid out like the objects of a bucket: a few long directory prefixes with many objects each.
+   */
+  private static Map<String, Integer> entries(int count) {
+    Map<String, Integer> entries = new TreeMap<>();
+    for (int i = 0; i < count; i++) {
+      entries.put(String.format("datasets/tenant-%02d/year=2024/month=%02d/day=%02d/part-%07d.parquet",
+          i % 10, i % 12 + 1, i % 28 + 1, i), i & 0xFF);
+    }
+    return entries;
+  }
+
+  private static long get(Map<String, Integer> map, List<String> keys) {
+    long sum = 0;
+    for (String key : keys) {
+      sum += map.get(key);
+    }
+    return sum;
+  }
+
+  private static long iterate(Map<String, Integer> map) {
+    long sum = 0;
+    for (Map.Entry<String, Integer> entry : map.entrySet()) {
+      sum += entry.getKey().length() + entry.getValue();
+    }
+    return sum;
+  }
+
+  private static long put(Map<String, Integer> map, List<String> keys) {
+    for (String key : keys) {
+      map.put(key, 0);
+    }
+    return map.size();
+  }
+
+}
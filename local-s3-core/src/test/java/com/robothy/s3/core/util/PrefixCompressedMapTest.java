@@ -0,0 +1,241 @@
+package com.robothy.s3.core.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class PrefixCompressedMapTest {
+
+  private static final String[] KEY_PARTS = {"a", "ab", "b/", "tenant/2024/", "\u0000", "\u00e9", "\u4e2d", "z", "/"};
+
+  @Test
+  void matchTreeMap() {
+    Random random = new Random(1);
+    for (int round = 0; round < 50; round++) {
+      PrefixCompressedMap<Integer> map = new PrefixCompressedMap<>(2 + random.nextInt(6));
+      TreeMap<String, Integer> expected = new TreeMap<>();
+      for (int i = 0; i < 500; i++) {
+        String key = randomKey(random);
+        int value = random.nextInt(5);
+        switch (random.nextInt(4)) {
+          case 0:
+            assertEquals(expected.remove(key), map.remove(key));
+            break;
+          case 1:
+            assertEquals(expected.putIfAbsent(key, value), map.putIfAbsent(key, value));
+            break;
+          case 2:
+            assertEquals(expected.remove(key, value), map.remove(key, value));
+            break;
+          default:
+            assertEquals(expected.put(key, value), map.put(key, value));
+        }
+        assertEquals(expected.size(), map.size());
+        assertNavigation(expected, map, randomKey(random));
+
+        String from = randomKey(random);
+        String to = randomKey(random);
+        if (from.compareTo(to) > 0) {
+          String tmp = from;
+          from = to;
+          to = tmp;
+        }
+        boolean fromInclusive = random.nextBoolean();
+        boolean toInclusive = random.nextBoolean();
+        NavigableMap<String, Integer> expectedSubMap = expected.subMap(from, fromInclusive, to, toInclusive);
+        NavigableMap<String, Integer> subMap = map.subMap(from, fromInclusive, to, toInclusive);
+        assertEquals(new ArrayList<>(expectedSubMap.entrySet()), new ArrayList<>(subMap.entrySet()));
+        assertEquals(expectedSubMap.size(), subMap.size());
+        assertNavigation(expectedSubMap, subMap, randomKey(random));
+        String bound = randomKey(random);
+        assertEquals(new ArrayList<>(expected.tailMap(bound, fromInclusive).keySet()),
+            new ArrayList<>(map.tailMap(bound, fromInclusive).keySet()));
+        assertEquals(new ArrayList<>(expected.headMap(bound, toInclusive).keySet()),
+            new ArrayList<>(map.headMap(bound, toInclusive).keySet()));
+      }
+      assertEquals(expected, map);
+
+      Iterator<String> iterator = map.keySet().iterator();
+      Iterator<String> expectedIterator = expected.keySet().iterator();
+      while (expectedIterator.hasNext()) {
+        assertEquals(expectedIterator.next(), iterator.next());
+        if (random.nextBoolean()) {
+          iterator.remove();
+          expectedIterator.remove();
+        }
+      }
+      assertFalse(iterator.hasNext());
+      expected.tailMap("b").clear();
+      map.tailMap("b").clear();
+      assertEquals(expected, map);
+      assertEquals(expected.size(), map.size());
+    }
+  }
+
+  @Test
+  void createFromSortedMap() {
+    TreeMap<String, Integer> expected = new TreeMap<>();
+    for (int i = 0; i < 1000; i++) {
+      expected.put(String.format("tenant/2024/10/17/%04d.json", i), i);
+    }
+    PrefixCompressedMap<Integer> map = new PrefixCompressedMap<>(expected);
+    assertEquals(expected, map);
+    assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(map.keySet()));
+
+    expected.remove("tenant/2024/10/17/0000.json");
+    map.remove("tenant/2024/10/17/0000.json");
+    expected.put("tenant/2024/10/17/0500.json.bak", -1);
+    map.put("tenant/2024/10/17/0500.json.bak", -1);
+    assertEquals(expected, map);
+    assertEquals(expected.firstKey(), map.firstKey());
+    assertEquals(expected.lastKey(), map.lastKey());
+  }
+
+  @Test
+  void invalidViews() {
+    PrefixCompressedMap<Integer> map = new PrefixCompressedMap<>();
+    map.put("b", 1);
+    assertThrows(IllegalArgumentException.class, () -> map.subMap("c", "a"));
+    NavigableMap<String, Integer> subMap = map.subMap("a", true, "c", false);
+    assertThrows(IllegalArgumentException.class, () -> subMap.tailMap("d", true));
+    assertThrows(IllegalArgumentException.class, () -> subMap.headMap("c", true));
+    assertThrows(IllegalArgumentException.class, () -> subMap.put("c", 2));
+    assertThrows(NullPointerException.class, () -> map.put("d", null));
+    assertThrows(IllegalArgumentException.class, () -> map.descendingMap().subMap("a", "c"));
+    assertThrows(IllegalArgumentException.class, () -> subMap.descendingMap().put("c", 2));
+  }
+
+  @Test
+  void descendingViews() {
+    Random random = new Random(2);
+    PrefixCompressedMap<Integer> map = new PrefixCompressedMap<>(3);
+    TreeMap<String, Integer> expected = new TreeMap<>();
+    for (int i = 0; i < 300; i++) {
+      String key = randomKey(random);
+      expected.put(key, i);
+      map.put(key, i);
+    }
+
+    for (int i = 0; i < 200; i++) {
+      String from = randomKey(random);
+      String to = randomKey(random);
+      if (from.compareTo(to) < 0) {
+        String tmp = from;
+        from = to;
+        to = tmp;
+      }
+      boolean fromInclusive = random.nextBoolean();
+      boolean toInclusive = random.nextBoolean();
+      NavigableMap<String, Integer> expectedDescending = expected.descendingMap();
+      NavigableMap<String, Integer> descending = map.descendingMap();
+      assertEquals(new ArrayList<>(expectedDescending.entrySet()), new ArrayList<>(descending.entrySet()));
+      assertNavigation(expectedDescending, descending, randomKey(random));
+
+      NavigableMap<String, Integer> expectedSubMap = expectedDescending.subMap(from, fromInclusive, to, toInclusive);
+      NavigableMap<String, Integer> subMap = descending.subMap(from, fromInclusive, to, toInclusive);
+      assertEquals(new ArrayList<>(expectedSubMap.keySet()), new ArrayList<>(subMap.keySet()));
+      assertNavigation(expectedSubMap, subMap, randomKey(random));
+      assertEquals(new ArrayList<>(expectedSubMap.descendingMap().keySet()),
+          new ArrayList<>(subMap.descendingMap().keySet()));
+      assertEquals(new ArrayList<>(expectedDescending.headMap(from, fromInclusive).keySet()),
+          new ArrayList<>(descending.headMap(from, fromInclusive).keySet()));
+      assertEquals(new ArrayList<>(expectedDescending.tailMap(to, toInclusive).keySet()),
+          new ArrayList<>(descending.tailMap(to, toInclusive).keySet()));
+      assertEquals(new ArrayList<>(expected.descendingKeySet()), new ArrayList<>(map.descendingKeySet()));
+      assertEquals(new ArrayList<>(expected.navigableKeySet().descendingSet()),
+          new ArrayList<>(map.navigableKeySet().descendingSet()));
+    }
+
+    Iterator<String> iterator = map.navigableKeySet().descendingIterator();
+    Iterator<String> expectedIterator = expected.navigableKeySet().descendingIterator();
+    while (expectedIterator.hasNext()) {
+      assertEquals(expectedIterator.next(), iterator.next());
+      if (random.nextBoolean()) {
+        iterator.remove();
+        expectedIterator.remove();
+      }
+    }
+    assertFalse(iterator.hasNext());
+    assertEquals(expected, map);
+    assertEquals(expected.descendingMap().pollFirstEntry(), map.descendingMap().pollFirstEntry());
+    assertEquals(expected.descendingMap().firstKey(), map.descendingMap().firstKey());
+    assertEquals(expected.descendingMap(), map.descendingMap());
+  }
+
+  @Test
+  void concurrentReadsDuringWrites() throws Exception {
+    PrefixCompressedMap<Integer> map = new PrefixCompressedMap<>(4);
+    List<String> stableKeys = new ArrayList<>();
+    for (int i = 0; i < 500; i += 2) {
+      String key = String.format("tenant/2024/%05d", i);
+      stableKeys.add(key);
+      map.put(key, i);
+    }
+
+    CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+      Random random = new Random(1);
+      for (int i = 0; i < 100_000; i++) {
+        String key = String.format("tenant/2024/%05d", random.nextInt(250) * 2 + 1);
+        if (random.nextBoolean()) {
+          map.put(key, i);
+        } else {
+          map.remove(key);
+        }
+      }
+    });
+    List<CompletableFuture<Void>> readers = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      readers.add(CompletableFuture.runAsync(() -> {
+        while (!writer.isDone()) {
+          for (String key : stableKeys) {
+            assertNotNull(map.get(key), key);
+          }
+          String last = null;
+          int stable = 0;
+          for (String key : map.keySet()) {
+            assertTrue(last == null || key.compareTo(last) > 0);
+            last = key;
+            stable += Integer.parseInt(key.substring("tenant/2024/".length())) % 2 == 0 ? 1 : 0;
+          }
+          assertEquals(stableKeys.size(), stable);
+        }
+      }));
+    }
+    writer.get(30, TimeUnit.SECONDS);
+    for (CompletableFuture<Void> reader : readers) {
+      reader.get(30, TimeUnit.SECONDS);
+    }
+  }
+
+  private static void assertNavigation(NavigableMap<String, Integer> expected, NavigableMap<String, Integer> map,
+                                       String key) {
+    assertEquals(expected.get(key), map.get(key));
+    assertEquals(expected.ceilingKey(key), map.ceilingKey(key));
+    assertEquals(expected.floorKey(key), map.floorKey(key));
+    assertEquals(expected.higherKey(key), map.higherKey(key));
+    assertEquals(expected.lowerKey(key), map.lowerKey(key));
+    assertEquals(expected.firstEntry(), map.firstEntry());
+    assertEquals(expected.lastEntry(), map.lastEntry());
+  }
+
+  private static String randomKey(Random random) {
+    StringBuilder key = new StringBuilder();
+    int parts = random.nextInt(4);
+    for (int i = 0; i < parts; i++) {
+      key.append(KEY_PARTS[random.nextInt(KEY_PARTS.length)]);
+    }
+    return key.toString();
+  }
+
+}
@@ -1,7 +1,12 @@
 package com.robothy.s3.core.util;
 
 import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
 import java.util.Arrays;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
@@ -21,4 +26,13 @@ class S3ObjectUtilsTest {
     assertEquals(expected, S3ObjectUtils.urlEncodeEscapeSlash(input));
   }
 
-}
\ No newline at end of file
+  @Test
+  void md5DigestInputStream() throws IOException {
+    byte[] data = "Hello, World!".getBytes(StandardCharsets.UTF_8);
+    DigestInputStream in = S3ObjectUtils.md5DigestInputStream(new ByteArrayInputStream(data));
+    assertArrayEquals(data, in.readAllBytes());
+    assertEquals(DigestUtils.md5Hex(data), S3ObjectUtils.etag(in.getMessageDigest()));
+    assertEquals(S3ObjectUtils.etag(new ByteArrayInputStream(data)), DigestUtils.md5Hex(data));
+  }
+
+}
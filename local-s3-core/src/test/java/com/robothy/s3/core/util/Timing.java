@@ -0,0 +1,91 @@
+package com.robothy.s3.core.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Measures the comparisons of the tests tagged {@value #TAG}. These tests are excluded from the
+ * {@code test} task and run with the {@code benchmark} task, which prints their reports. Each
+ * measurement warms up first and reports the median of several rounds, so that runs on the same
+ * machine are comparable.
+ */
+public final class Timing {
+
+  /**
+   * Tag of the timing comparisons.
+   */
+  public static final String TAG = "benchmark";
+
+  private static final int WARMUP_ROUNDS = 5;
+
+  private static final int MEASURED_ROUNDS = 11;
+
+  /**
+   * Keeps the results of measured rounds reachable, so that the JIT cannot drop the work.
+   */
+  private static volatile long sink;
+
+  private Timing() {
+
+  }
+
+  /**
+   * Run {@code round} repeatedly.
+   *
+   * @param round the measured work; returns a value derived from its result.
+   * @return the median duration of a round in nanoseconds.
+   */
+  public static long medianNanos(LongSupplier round) {
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      sink += round.getAsLong();
+    }
+    long[] durations = new long[MEASURED_ROUNDS];
+    for (int i = 0; i < MEASURED_ROUNDS; i++) {
+      long start = System.nanoTime();
+      sink += round.getAsLong();
+      durations[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(durations);
+    return durations[MEASURED_ROUNDS / 2];
+  }
+
+  /**
+   * Measure the heap retained by the object {@code factory} creates.
+   *
+   * @param factory creates the measured object.
+   * @return the heap usage growth in bytes after garbage collection.
+   */
+  public static long retainedBytes(Supplier<?> factory) {
+    long before = usedHeapAfterGc();
+    Object retained = factory.get();
+    long after = usedHeapAfterGc();
+    Reference.reachabilityFence(retained);
+    return after - before;
+  }
+
+  /**
+   * Print a comparison of a baseline and its replacement.
+   *
+   * @param name what is compared.
+   * @param baseline the measured value of the baseline.
+   * @param replacement the measured value of the replacement.
+   * @param unit the unit of the values.
+   */
+  public static void report(String name, double baseline, double replacement, String unit) {
+    System.out.printf("[%s] %s: baseline %.2f %s, replacement %.2f %s (%.2fx)%n",
+        TAG, name, baseline, unit, replacement, unit, baseline / replacement);
+  }
+
+  private static long usedHeapAfterGc() {
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+
+}
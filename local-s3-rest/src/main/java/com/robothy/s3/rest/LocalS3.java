@@ -3,6 +3,7 @@ package com.robothy.s3.rest;
 import com.ctc.wstx.stax.WstxInputFactory;
 import com.ctc.wstx.stax.WstxOutputFactory;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.util.JsonRecyclerPools;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -10,13 +11,17 @@ import com.fasterxml.jackson.dataformat.xml.XmlFactory;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.robothy.netty.initializer.HttpServerInitializer;
+import com.robothy.s3.core.model.internal.ObjectIndex;
 import com.robothy.s3.core.service.BucketService;
 import com.robothy.s3.core.service.ObjectService;
 import com.robothy.s3.core.service.manager.LocalS3Manager;
+import com.robothy.s3.core.service.manager.LocalS3ManagerOptions;
+import com.robothy.s3.core.service.manager.MetadataDurability;
 import com.robothy.s3.core.service.manager.vectors.LocalS3VectorsManager;
 import com.robothy.s3.core.service.s3vectors.S3VectorsService;
+import com.robothy.s3.core.storage.Storage;
 import com.robothy.s3.rest.bootstrap.LocalS3Mode;
+import com.robothy.s3.rest.bootstrap.LocalS3ServerInitializer;
 import com.robothy.s3.rest.handler.LocalS3RouterFactory;
 import com.robothy.s3.rest.service.DefaultServiceFactory;
 import com.robothy.s3.rest.service.ServiceFactory;
@@ -36,6 +41,8 @@ import java.net.ServerSocket;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.xml.stream.XMLInputFactory;
 import org.apache.commons.lang3.reflect.FieldUtils;
 import org.slf4j.Logger;
@@ -48,6 +55,16 @@ public class LocalS3 {
 
   private static final Logger log = LoggerFactory.getLogger(LocalS3.class);
 
+  /**
+   * Event loops shut down once no task has been submitted for this period.
+   */
+  private static final long SHUTDOWN_QUIET_PERIOD_MILLIS = 100;
+
+  /**
+   * Event loops shut down after this time even if tasks keep being submitted.
+   */
+  private static final long SHUTDOWN_TIMEOUT_MILLIS = 15_000;
+
   /* Configurations */
   private int port = 8080;
 
@@ -57,6 +74,26 @@ public class LocalS3 {
 
   private boolean initialDataCacheEnabled = true;
 
+  private boolean offHeapStorageEnabled = false;
+
+  private long inMemoryStorageMaxTotalSize = Long.MAX_VALUE;
+
+  private boolean segmentStorageEnabled = false;
+
+  private boolean deduplicationEnabled = false;
+
+  private boolean compactObjectIndexEnabled = false;
+
+  private MetadataDurability metadataDurability = MetadataDurability.GROUP_COMMIT;
+
+  private long metadataFlushIntervalMillis = 0;
+
+  private int metadataFlushMaxPendingChanges = 1000;
+
+  private int metadataLoadThreadNum = Runtime.getRuntime().availableProcessors();
+
+  private boolean lazyMetadataLoadingEnabled = false;
+
   private int nettyParentEventGroupThreadNum = 1;
 
   private int nettyChildEventGroupThreadNum = 2;
@@ -73,6 +110,12 @@ public class LocalS3 {
 
   private Channel serverSocketChannel;
 
+  private LocalS3Manager s3Manager;
+
+  private Thread shutdownHook;
+
+  private final AtomicBoolean stopped = new AtomicBoolean();
+
   /**
    * Create a {@linkplain Builder}.
    *
@@ -97,7 +140,7 @@ public class LocalS3 {
       channelFuture = serverBootstrap.group(parentGroup, childGroup)
           .handler(new LoggingHandler(LogLevel.DEBUG))
           .channel(NioServerSocketChannel.class)
-          .childHandler(new HttpServerInitializer(executorGroup, LocalS3RouterFactory.create(serviceFactory)))
+          .childHandler(new LocalS3ServerInitializer(executorGroup, LocalS3RouterFactory.create(serviceFactory)))
           .bind(port)
           .sync();
     } catch (InterruptedException e) {
@@ -105,12 +148,13 @@ public class LocalS3 {
     }
     log.info("LocalS3 started.");
     this.serverSocketChannel = channelFuture.channel();
-    Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown));
+    this.shutdownHook = new Thread(this::shutdown);
+    Runtime.getRuntime().addShutdownHook(this.shutdownHook);
   }
 
   private ServiceFactory createServiceFactory() {
 
-    LocalS3Manager s3Manager = createLocalS3Manager();
+    this.s3Manager = createLocalS3Manager();
 
     ServiceFactory serviceFactory = new DefaultServiceFactory();
     BucketService bucketService = s3Manager.bucketService();
@@ -127,6 +171,8 @@ public class LocalS3 {
     xmlMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     xmlMapper.registerModule(new Jdk8Module());
     xmlMapper.registerModule(new JavaTimeModule());
+    // Responses are serialized on the event loop threads, each reusing its own buffers.
+    xmlMapper.getFactory().setRecyclerPool(JsonRecyclerPools.threadLocalPool());
     serviceFactory.register(XmlMapper.class, () -> xmlMapper);
 
     // Register ObjectMapper for JSON handling (used by S3 Vectors API)
@@ -136,6 +182,7 @@ public class LocalS3 {
     objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
     objectMapper.registerModule(new Jdk8Module());
     objectMapper.registerModule(new JavaTimeModule());
+    objectMapper.getFactory().setRecyclerPool(JsonRecyclerPools.threadLocalPool());
     serviceFactory.register(ObjectMapper.class, () -> objectMapper);
 
     // Register S3 Vectors services
@@ -148,13 +195,34 @@ public class LocalS3 {
   LocalS3Manager createLocalS3Manager() {
     if (mode == LocalS3Mode.IN_MEMORY) {
       log.info("Created in-memory LocalS3 manager.");
-      return LocalS3Manager.createInMemoryS3Manager(dataPath, initialDataCacheEnabled);
+      return LocalS3Manager.createInMemoryS3Manager(managerOptions());
     } else {
       log.info("Created file system LocalS3 manager.");
-      return LocalS3Manager.createFileSystemS3Manager(dataPath);
+      return LocalS3Manager.createFileSystemS3Manager(managerOptions());
     }
   }
 
+  /**
+   * The options of the manager of both modes; each manager ignores the options of the other mode.
+   */
+  private LocalS3ManagerOptions managerOptions() {
+    return LocalS3ManagerOptions.builder()
+        .dataDirectory(dataPath)
+        .initialDataCacheEnabled(initialDataCacheEnabled)
+        .storageFactory(offHeapStorageEnabled
+            ? () -> Storage.createOffHeap(inMemoryStorageMaxTotalSize)
+            : () -> Storage.createInMemory(inMemoryStorageMaxTotalSize))
+        .segmentStorageEnabled(segmentStorageEnabled)
+        .metadataDurability(metadataDurability)
+        .metadataFlushIntervalMillis(metadataFlushIntervalMillis)
+        .metadataFlushMaxPendingChanges(metadataFlushMaxPendingChanges)
+        .metadataLoadParallelism(metadataLoadThreadNum)
+        .lazyMetadataLoadingEnabled(lazyMetadataLoadingEnabled)
+        .deduplicationEnabled(deduplicationEnabled)
+        .objectIndex(compactObjectIndexEnabled ? ObjectIndex.PREFIX_COMPRESSED : ObjectIndex.SKIP_LIST)
+        .build();
+  }
+
   LocalS3VectorsManager createLocalS3VectorsManager() {
     if (mode == LocalS3Mode.IN_MEMORY) {
       log.info("Created in-memory LocalS3 Vectors manager.");
@@ -167,35 +235,41 @@ public class LocalS3 {
   }
 
   /**
-   * Shutdown the local-s3 service.
+   * Shutdown the local-s3 service. The server socket is closed first, then the event loops are
+   * shut down and awaited, so that no request is still running when the manager persists pending
+   * metadata changes and closes the storage. Subsequent calls do nothing.
    */
   public void shutdown() {
     if (null == this.parentGroup || null == this.childGroup) {
       throw new IllegalStateException("LocalS3 is not started.");
     }
+    if (!this.stopped.compareAndSet(false, true)) {
+      return;
+    }
 
     try {
-      if (this.serverSocketChannel.isOpen()) {
-        this.serverSocketChannel.close().sync();
-      }
-    } catch (InterruptedException e) {
-      log.error("Close server socket channel failed.", e);
+      Runtime.getRuntime().removeShutdownHook(this.shutdownHook);
+    } catch (IllegalStateException e) {
+      // The JVM is shutting down, possibly running the hook itself.
+    }
+
+    try {
+      this.serverSocketChannel.close().syncUninterruptibly();
+      // Closes the connections; requests already dispatched to the executor group still complete.
+      awaitShutdown(this.parentGroup, this.childGroup);
+      awaitShutdown(this.executorGroup);
     } finally {
-      shutdownEventExecutorsGroupIfNeeded(this.childGroup, this.parentGroup, this.executorGroup);
+      this.s3Manager.close();
+      log.info("LocalS3 stopped.");
     }
   }
 
-  private void shutdownEventExecutorsGroupIfNeeded(EventExecutorGroup... eventExecutorsList) {
-    boolean shutdownPerformed = false;
+  private static void awaitShutdown(EventExecutorGroup... eventExecutorsList) {
     for (EventExecutorGroup eventExecutors : eventExecutorsList) {
-      if (!eventExecutors.isShuttingDown() && !eventExecutors.isShutdown()) {
-        shutdownPerformed = true;
-        eventExecutors.shutdownGracefully();
-      }
+      eventExecutors.shutdownGracefully(SHUTDOWN_QUIET_PERIOD_MILLIS, SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
     }
-
-    if (shutdownPerformed) {
-      log.info("LocalS3 stopped.");
+    for (EventExecutorGroup eventExecutors : eventExecutorsList) {
+      eventExecutors.terminationFuture().syncUninterruptibly();
     }
   }
 
@@ -287,6 +361,163 @@ public class LocalS3 {
       return this;
     }
 
+    /**
+     * This option only available when running LocalS3 in {@code IN_MEMORY} mode.
+     * If enabled, object data is stored in pooled direct memory instead of the Java heap,
+     * which keeps large test fixtures away from the garbage collector.
+     *
+     * <p> The default value is {@code false}.
+     *
+     * @param enabled is the off-heap storage enabled.
+     * @return builder.
+     */
+    public Builder offHeapStorageEnabled(boolean enabled) {
+      this.propHolder.offHeapStorageEnabled = enabled;
+      return this;
+    }
+
+    /**
+     * This option only available when running LocalS3 in {@code IN_MEMORY} mode.
+     * Set the maximum total size in bytes of objects stored in memory. Writes beyond
+     * the limit are rejected.
+     *
+     * <p> The default value is {@code Long.MAX_VALUE}.
+     *
+     * @param maxTotalSize max total size in bytes.
+     * @return builder.
+     */
+    public Builder inMemoryStorageMaxTotalSize(long maxTotalSize) {
+      this.propHolder.inMemoryStorageMaxTotalSize = maxTotalSize;
+      return this;
+    }
+
+    /**
+     * This option only available when running LocalS3 in {@code PERSISTENCE} mode.
+     * If enabled, objects are appended to large segment files instead of stored one file
+     * per object, which suits a large number of small objects. Objects stored before
+     * enabling this option remain readable.
+     *
+     * <p> The default value is {@code false}.
+     *
+     * @param enabled is the segment storage enabled.
+     * @return builder.
+     */
+    public Builder segmentStorageEnabled(boolean enabled) {
+      this.propHolder.segmentStorageEnabled = enabled;
+      return this;
+    }
+
+    /**
+     * If enabled, objects with identical contents share the stored content, which is deleted
+     * when the last object referencing it is deleted. In {@code PERSISTENCE} mode, the reference
+     * counts are kept in the data directory. Objects stored before enabling this option are not
+     * shared.
+     *
+     * <p> The default value is {@code false}.
+     *
+     * @param enabled is the deduplication enabled.
+     * @return builder.
+     */
+    public Builder deduplicationEnabled(boolean enabled) {
+      this.propHolder.deduplicationEnabled = enabled;
+      return this;
+    }
+
+    /**
+     * If enabled, the object keys of each bucket are indexed in blocks that store the common
+     * prefix of adjacent keys once, instead of one skip list node per key. This takes much less
+     * heap for buckets with many keys under long shared prefixes, at the cost of slower object
+     * writes and deletions.
+     *
+     * <p> The default value is {@code false}.
+     *
+     * @param enabled is the compact object index enabled.
+     * @return builder.
+     */
+    public Builder compactObjectIndexEnabled(boolean enabled) {
+      this.propHolder.compactObjectIndexEnabled = enabled;
+      return this;
+    }
+
+    /**
+     * This option only available when running LocalS3 in {@code PERSISTENCE} mode.
+     * Set when bucket metadata changes are written to the data directory.
+     * {@code SYNC} writes and forces each change before responding; {@code GROUP_COMMIT}
+     * writes changes of concurrent requests in batches and responds once the batch is written;
+     * {@code ASYNC} responds immediately and writes changes in the background.
+     * Pending changes are written when LocalS3 shuts down.
+     *
+     * <p> The default value is {@code GROUP_COMMIT}.
+     *
+     * @param durability metadata durability.
+     * @return builder.
+     */
+    public Builder metadataDurability(MetadataDurability durability) {
+      this.propHolder.metadataDurability = durability;
+      return this;
+    }
+
+    /**
+     * This option only available when running LocalS3 in {@code PERSISTENCE} mode with
+     * {@code GROUP_COMMIT} or {@code ASYNC} metadata durability. Set the max time in milliseconds
+     * a metadata change waits for other changes before it is written. {@code 0} writes
+     * changes as soon as the previous batch is written.
+     *
+     * <p> The default value is {@code 0}.
+     *
+     * @param flushIntervalMillis flush interval in milliseconds.
+     * @return builder.
+     */
+    public Builder metadataFlushIntervalMillis(long flushIntervalMillis) {
+      this.propHolder.metadataFlushIntervalMillis = flushIntervalMillis;
+      return this;
+    }
+
+    /**
+     * This option only available when running LocalS3 in {@code PERSISTENCE} mode with
+     * {@code GROUP_COMMIT} or {@code ASYNC} metadata durability. Set the number of pending
+     * metadata changes that are written without waiting for the flush interval.
+     *
+     * <p> The default value is {@code 1000}.
+     *
+     * @param maxPendingChanges max pending metadata changes.
+     * @return builder.
+     */
+    public Builder metadataFlushMaxPendingChanges(int maxPendingChanges) {
+      this.propHolder.metadataFlushMaxPendingChanges = maxPendingChanges;
+      return this;
+    }
+
+    /**
+     * This option only available when running LocalS3 in {@code PERSISTENCE} mode.
+     * Set the number of threads that load bucket metadata from the data directory at startup.
+     *
+     * <p> The default value is the number of available processors.
+     *
+     * @param metadataLoadThreadNum metadata loading thread number.
+     * @return builder.
+     */
+    public Builder metadataLoadThreadNum(int metadataLoadThreadNum) {
+      this.propHolder.metadataLoadThreadNum = metadataLoadThreadNum;
+      return this;
+    }
+
+    /**
+     * This option only available when running LocalS3 in {@code PERSISTENCE} mode.
+     * If enabled, LocalS3 only lists bucket names at startup and loads the metadata
+     * of a bucket when it is first accessed. It shortens the startup time of data
+     * directories with many or large buckets.
+     *
+     * <p> The default value is {@code false}.
+     *
+     * @param enabled enable lazy metadata loading or not.
+     * @return builder.
+     */
+    public Builder lazyMetadataLoadingEnabled(boolean enabled) {
+      this.propHolder.lazyMetadataLoadingEnabled = enabled;
+      return this;
+    }
+
     /**
      * Set netty parent event group thread number.
      * Default values is 1.
@@ -0,0 +1,30 @@
+package com.robothy.s3.rest.bootstrap;
+
+import com.robothy.netty.initializer.HttpServerInitializer;
+import com.robothy.netty.router.Router;
+import com.robothy.s3.rest.handler.StreamedResponseHandler;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.util.concurrent.EventExecutorGroup;
+
+/**
+ * Initializes the channel pipeline of the router, see {@linkplain HttpServerInitializer}, and adds the
+ * handlers that stream large response bodies, see {@linkplain StreamedResponseHandler}.
+ */
+public class LocalS3ServerInitializer extends HttpServerInitializer {
+
+  private static final StreamedResponseHandler STREAMED_RESPONSE_HANDLER = new StreamedResponseHandler();
+
+  public LocalS3ServerInitializer(EventExecutorGroup executorGroup, Router router) {
+    super(executorGroup, router);
+  }
+
+  @Override
+  protected void initChannel(SocketChannel ch) throws Exception {
+    super.initChannel(ch);
+    ch.pipeline()
+        .addAfter("http-response-encoder", "chunked-writer", new ChunkedWriteHandler())
+        .addAfter("router-http-response-encoder", StreamedResponseHandler.NAME, STREAMED_RESPONSE_HANDLER);
+  }
+
+}
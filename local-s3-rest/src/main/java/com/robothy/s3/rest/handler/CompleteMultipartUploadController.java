@@ -57,8 +57,7 @@ class CompleteMultipartUploadController implements HttpRequestHandler {
         .etag(completeMultipartUploadAns.getEtag())
         .location(completeMultipartUploadAns.getLocation())
         .build();
-    response.status(HttpResponseStatus.OK)
-        .write(xmlMapper.writeValueAsString(result))
+    ResponseUtils.writeBody(response.status(HttpResponseStatus.OK), xmlMapper, result)
         .putHeader(AmzHeaderNames.X_AMZ_VERSION_ID, completeMultipartUploadAns.getVersionId());
 
     ResponseUtils.addDateHeader(response);
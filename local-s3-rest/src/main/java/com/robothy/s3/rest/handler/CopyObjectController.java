@@ -53,8 +53,7 @@ class CopyObjectController implements HttpRequestHandler {
         .etag(copyObjectAns.getEtag())
         .build();
 
-    response.status(HttpResponseStatus.OK)
-        .write(xmlMapper.writeValueAsString(result))
+    ResponseUtils.writeBody(response.status(HttpResponseStatus.OK), xmlMapper, result)
         .putHeader(HttpHeaderNames.CONTENT_TYPE.toString(), HttpHeaderValues.APPLICATION_XML)
         .putHeader(AmzHeaderNames.X_AMZ_VERSION_ID, copyObjectAns.getVersionId())
         .putHeader(AmzHeaderNames.X_AMZ_COPY_SOURCE_VERSION_ID, copyObjectAns.getSourceVersionId());
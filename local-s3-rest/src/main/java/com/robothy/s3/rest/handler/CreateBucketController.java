@@ -49,8 +49,8 @@ class CreateBucketController implements HttpRequestHandler {
         .bucketArn(IdUtils.nextUuid())
         .build();
     response.putHeader("Location", "local")
-        .putHeader(HttpHeaderNames.CONTENT_TYPE.toString(), HttpHeaderValues.APPLICATION_XML)
-        .write(xmlMapper.writeValueAsString(createBucketResult));
+        .putHeader(HttpHeaderNames.CONTENT_TYPE.toString(), HttpHeaderValues.APPLICATION_XML);
+    ResponseUtils.writeBody(response, xmlMapper, createBucketResult);
     ResponseUtils.addDateHeader(response);
     ResponseUtils.addAmzRequestId(response);
   }
@@ -42,8 +42,7 @@ class CreateMultipartUploadController implements HttpRequestHandler {
         .key(key)
         .uploadId(uploadId)
         .build();
-    response.status(HttpResponseStatus.OK)
-        .write(xmlMapper.writeValueAsString(result));
+    ResponseUtils.writeBody(response.status(HttpResponseStatus.OK), xmlMapper, result);
     ResponseUtils.addDateHeader(response);
     ResponseUtils.addServerHeader(response);
     ResponseUtils.addAmzRequestId(response);
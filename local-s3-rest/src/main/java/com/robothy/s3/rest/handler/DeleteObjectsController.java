@@ -36,9 +36,7 @@ class DeleteObjectsController implements HttpRequestHandler {
           xmlMapper.readValue(decodedBody, DeleteObjectsRequest.class);
       List<Object> deletedList = this.deleteObjectsService.deleteObjects(bucketName, deleteObjectsRequest);
       DeleteResult deleteResult = new DeleteResult(deletedList);
-      String xml = xmlMapper.writeValueAsString(deleteResult);
-      response.status(HttpResponseStatus.OK)
-          .write(xml);
+      ResponseUtils.writeBody(response.status(HttpResponseStatus.OK), xmlMapper, deleteResult);
       ResponseUtils.addCommonHeaders(response);
     }
 
@@ -31,8 +31,7 @@ class GetBucketAclController implements HttpRequestHandler {
   public void handle(HttpRequest request, HttpResponse response) throws Exception {
     String bucketName = RequestAssertions.assertBucketNameProvided(request);
     AccessControlPolicy acl = aclService.getBucketAcl(bucketName);
-    response.status(HttpResponseStatus.OK)
-        .write(xmlMapper.writeValueAsString(acl));
+    ResponseUtils.writeBody(response.status(HttpResponseStatus.OK), xmlMapper, acl);
     ResponseUtils.addAmzRequestId(response);
     ResponseUtils.addServerHeader(response);
     ResponseUtils.addDateHeader(response);
@@ -9,6 +9,7 @@ import com.robothy.s3.core.service.BucketService;
 import com.robothy.s3.datatypes.response.GetBucketResult;
 import com.robothy.s3.rest.assertions.RequestAssertions;
 import com.robothy.s3.rest.service.ServiceFactory;
+import com.robothy.s3.rest.utils.ResponseUtils;
 import java.time.Instant;
 import java.util.Date;
 
@@ -35,7 +36,7 @@ class GetBucketController implements HttpRequestHandler {
         .creationDate(Instant.ofEpochMilli(bucket.getCreationDate()))
         .publicAccessBlockEnabled(false)
         .build();
-    response.write(xmlMapper.writeValueAsString(getBucketResult));
+    ResponseUtils.writeBody(response, xmlMapper, getBucketResult);
   }
 
 }
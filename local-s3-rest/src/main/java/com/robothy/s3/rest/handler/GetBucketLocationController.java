@@ -33,7 +33,7 @@ class GetBucketLocationController implements HttpRequestHandler {
     LocationConstraint locationConstraint = LocationConstraint.builder()
         .locationConstraint(bucket.getRegion().orElse(LocalS3Constants.DEFAULT_LOCATION_CONSTRAINT))
         .build();
-    response.write(xmlMapper.writeValueAsString(locationConstraint));
+    ResponseUtils.writeBody(response, xmlMapper, locationConstraint);
     ResponseUtils.addCommonHeaders(response);
   }
 
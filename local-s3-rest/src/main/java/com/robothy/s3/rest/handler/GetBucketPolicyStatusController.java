@@ -37,7 +37,8 @@ class GetBucketPolicyStatusController implements HttpRequestHandler {
     } catch (BucketNotExistException e) {
       response.status(HttpResponseStatus.NOT_FOUND);
       return;
-    }    response.write(xmlMapper.writeValueAsString(policyStatus));
+    }
+    ResponseUtils.writeBody(response, xmlMapper, policyStatus);
     ResponseUtils.addCommonHeaders(response);
   }
 }
@@ -33,8 +33,7 @@ class GetBucketTaggingController implements HttpRequestHandler {
     String bucketName = RequestAssertions.assertBucketNameProvided(request);
     Collection<Map<String, String>> tagSets = bucketService.getTagging(bucketName);
     Tagging tagging = Tagging.fromCollection(tagSets);
-    String responseBody = xmlMapper.writeValueAsString(tagging);
-    response.write(responseBody);
+    ResponseUtils.writeBody(response, xmlMapper, tagging);
     response.status(HttpResponseStatus.OK);
     ResponseUtils.addDateHeader(response);
     ResponseUtils.addServerHeader(response);
@@ -37,9 +37,7 @@ class GetBucketVersioningController implements HttpRequestHandler {
       builder.status(versioningEnabled ? VersioningConfiguration.Enabled : VersioningConfiguration.Suspended);
     }
 
-    String responseBody = xmlMapper.writeValueAsString(builder.build());
-    response.status(HttpResponseStatus.OK)
-        .write(responseBody);
+    ResponseUtils.writeBody(response.status(HttpResponseStatus.OK), xmlMapper, builder.build());
     ResponseUtils.addAmzRequestId(response);
     ResponseUtils.addDateHeader(response);
   }
@@ -4,24 +4,32 @@ import com.robothy.netty.http.HttpRequest;
 import com.robothy.netty.http.HttpRequestHandler;
 import com.robothy.netty.http.HttpResponse;
 import com.robothy.s3.core.model.answers.GetObjectAns;
+import com.robothy.s3.core.model.answers.ObjectContent;
 import com.robothy.s3.core.model.request.GetObjectOptions;
 import com.robothy.s3.core.service.ObjectService;
 import com.robothy.s3.rest.assertions.RequestAssertions;
 import com.robothy.s3.rest.constants.AmzHeaderNames;
 import com.robothy.s3.rest.service.ServiceFactory;
 import com.robothy.s3.core.model.request.Range;
-import com.robothy.s3.rest.utils.ByteBufUtils;
 import com.robothy.s3.rest.utils.ResponseUtils;
-import io.netty.buffer.ByteBuf;
+import com.robothy.s3.rest.utils.ByteBufUtils;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Handle request of <a href="https://docs.aws.amazon.com/AmazonS3/latest/API/API_GetObject.html">GetObject</a>.
  */
 class GetObjectController implements HttpRequestHandler {
 
+  /**
+   * Content up to this size is sent in the response body, unless it is stored in files of its
+   * own; larger content is streamed.
+   */
+  static final int BUFFERED_CONTENT_THRESHOLD = 1024 * 1024;
+
   private final ObjectService objectService;
 
   GetObjectController(ServiceFactory serviceFactory) {
@@ -38,13 +46,20 @@ class GetObjectController implements HttpRequestHandler {
         .range(request.header(HttpHeaderNames.RANGE.toString()).map(Range::parse).orElse(null))
         .build();
     GetObjectAns getObjectAns = objectService.getObject(bucket, key, options);
+    try {
+      writeAnswer(getObjectAns, response);
+    } catch (RuntimeException | Error e) {
+      getObjectAns.close();
+      throw e;
+    }
+  }
 
+  private void writeAnswer(GetObjectAns getObjectAns, HttpResponse response) {
     if (getObjectAns.isDeleteMarker()) {
       response.status(HttpResponseStatus.METHOD_NOT_ALLOWED);
       response.putHeader(HttpHeaderNames.ALLOW.toString(), HttpMethod.DELETE)
           .putHeader(AmzHeaderNames.X_AMZ_DELETE_MARKER, true);
     } else {
-      ByteBuf content = ByteBufUtils.fromInputStream(getObjectAns.getContent());
       ResponseUtils.addCommonHeaders(response);
       ResponseUtils.addETag(response, getObjectAns.getEtag());
 
@@ -55,8 +70,7 @@ class GetObjectController implements HttpRequestHandler {
         response.status(HttpResponseStatus.OK);
       }
 
-      response.write(content)
-          .putHeader(HttpHeaderNames.CONTENT_TYPE.toString(), getObjectAns.getContentType())
+      response.putHeader(HttpHeaderNames.CONTENT_TYPE.toString(), getObjectAns.getContentType())
           .putHeader(HttpHeaderNames.CONTENT_LENGTH.toString(), getObjectAns.getSize())
           .putHeader("Accept-Ranges", "bytes");
 
@@ -71,6 +85,27 @@ class GetObjectController implements HttpRequestHandler {
     ResponseUtils.addDateHeader(response);
     ResponseUtils.addAmzRequestId(response);
     ResponseUtils.addServerHeader(response);
+
+    if (!getObjectAns.isDeleteMarker()) {
+      writeContent(getObjectAns, response);
+    }
+  }
+
+  /**
+   * Content stored in files of its own is sent from the files without being read into the heap.
+   * Otherwise, small content is wrapped without copying from in-memory storages, and held until
+   * netty releases the response body after it has been written. Larger content is streamed chunk
+   * by chunk, and held until the last chunk has been written.
+   */
+  private void writeContent(GetObjectAns getObjectAns, HttpResponse response) {
+    Optional<List<ObjectContent.FileRange>> fileRanges = getObjectAns.getObjectContent().openFileRanges();
+    if (fileRanges.isPresent()) {
+      StreamedResponseHandler.stream(response, fileRanges.get(), getObjectAns::close);
+    } else if (getObjectAns.getSize() <= BUFFERED_CONTENT_THRESHOLD) {
+      response.write(ByteBufUtils.wrappedBuffer(getObjectAns::close, getObjectAns.getContentBuffers()));
+    } else {
+      StreamedResponseHandler.stream(response, new ObjectContentInput(getObjectAns));
+    }
   }
 
 }
@@ -44,7 +44,7 @@ class GetPublicAccessBlockController implements HttpRequestHandler {
       throw new NoSuchPublicAccessBlockConfigurationException(bucketName);
     }
     
-    response.write(xmlMapper.writeValueAsString(configuration.get()));
+    ResponseUtils.writeBody(response, xmlMapper, configuration.get());
     ResponseUtils.addCommonHeaders(response);
   }
 }
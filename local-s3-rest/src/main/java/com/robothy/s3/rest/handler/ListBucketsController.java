@@ -35,9 +35,7 @@ class ListBucketsController implements HttpRequestHandler {
         .stream().map(bucket -> new S3Bucket(bucket.getName(), Instant.ofEpochMilli(bucket.getCreationDate())))
         .collect(Collectors.toList());
     ListAllMyBucketsResult result = new ListAllMyBucketsResult(buckets, Owner.DEFAULT_OWNER);
-    String body = xmlMapper.writeValueAsString(result);
-    response.status(HttpResponseStatus.OK)
-        .write(body);
+    ResponseUtils.writeBody(response.status(HttpResponseStatus.OK), xmlMapper, result);
     ResponseUtils.addCommonHeaders(response);
   }
 }
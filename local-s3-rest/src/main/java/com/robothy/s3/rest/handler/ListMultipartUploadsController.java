@@ -66,7 +66,7 @@ public class ListMultipartUploadsController implements HttpRequestHandler {
         .build();
 
     httpResponse.status(HttpResponseStatus.OK);
-    httpResponse.write(xmlMapper.writeValueAsString(result));
+    ResponseUtils.writeBody(httpResponse, xmlMapper, result);
     ResponseUtils.addCommonHeaders(httpResponse);
   }
 
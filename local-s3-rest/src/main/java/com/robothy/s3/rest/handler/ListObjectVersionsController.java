@@ -76,8 +76,8 @@ class ListObjectVersionsController implements HttpRequestHandler {
     }
 
     response.status(HttpResponseStatus.OK)
-        .putHeader(HttpHeaderNames.CONTENT_TYPE.toString(), HttpHeaderValues.APPLICATION_XML)
-        .write(xmlMapper.writeValueAsString(result));
+        .putHeader(HttpHeaderNames.CONTENT_TYPE.toString(), HttpHeaderValues.APPLICATION_XML);
+    ResponseUtils.writeBody(response, xmlMapper, result);
     ResponseUtils.addServerHeader(response);
     ResponseUtils.addDateHeader(response);
     ResponseUtils.addAmzRequestId(response);
@@ -55,11 +55,9 @@ class ListObjectsController implements HttpRequestHandler {
         .encodingType(listObjectsAns.getEncodingType())
         .build();
 
-    String xml = xmlMapper.writeValueAsString(listBucketResult);
     response.status(HttpResponseStatus.OK)
-        .putHeader(HttpHeaderNames.CONTENT_TYPE.toString(), HttpHeaderValues.APPLICATION_XML)
-        .putHeader(HttpHeaderNames.CONTENT_LENGTH.toString(), xml.length())
-        .write(xml);
+        .putHeader(HttpHeaderNames.CONTENT_TYPE.toString(), HttpHeaderValues.APPLICATION_XML);
+    ResponseUtils.writeBody(response, xmlMapper, listBucketResult);
     ResponseUtils.addServerHeader(response);
     ResponseUtils.addAmzRequestId(response);
     ResponseUtils.addDateHeader(response);
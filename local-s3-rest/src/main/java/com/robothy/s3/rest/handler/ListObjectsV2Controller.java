@@ -58,11 +58,9 @@ public class ListObjectsV2Controller implements HttpRequestHandler {
             .startAfter(listObjectsV2Ans.getStartAfter())
             .build();
 
-        String xml = xmlMapper.writeValueAsString(listBucketV2Result);
         response.status(HttpResponseStatus.OK)
-            .putHeader(HttpHeaderNames.CONTENT_TYPE.toString(), HttpHeaderValues.APPLICATION_XML)
-            .putHeader(HttpHeaderNames.CONTENT_LENGTH.toString(), xml.length())
-            .write(xml);
+            .putHeader(HttpHeaderNames.CONTENT_TYPE.toString(), HttpHeaderValues.APPLICATION_XML);
+        ResponseUtils.writeBody(response, xmlMapper, listBucketV2Result);
         ResponseUtils.addCommonHeaders(response);
     }
 
@@ -1,7 +1,6 @@
 package com.robothy.s3.rest.handler;
 
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.robothy.netty.http.HttpRequest;
 import com.robothy.netty.http.HttpResponse;
@@ -11,10 +10,12 @@ import com.robothy.s3.core.exception.S3ErrorCode;
 import com.robothy.s3.core.util.IdUtils;
 import com.robothy.s3.datatypes.response.S3Error;
 import com.robothy.s3.rest.service.ServiceFactory;
+import com.robothy.s3.rest.utils.ResponseUtils;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import java.io.IOException;
 import java.util.Optional;
 
 /**
@@ -43,9 +44,9 @@ class LocalS3ExceptionHandler implements ExceptionHandler<LocalS3Exception> {
           .putHeader(HttpHeaderNames.CONNECTION.toString(), HttpHeaderValues.CLOSE);
 
       if (!HttpMethod.HEAD.equals(request.getMethod())) {
-        response.write(xmlMapper.writeValueAsString(error));
+        ResponseUtils.writeBody(response, xmlMapper, error);
       }
-    } catch (JsonProcessingException ex) {
+    } catch (IOException ex) {
       throw new IllegalStateException(ex);
     }
   }
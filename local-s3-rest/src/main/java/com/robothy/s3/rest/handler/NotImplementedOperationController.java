@@ -33,8 +33,7 @@ class NotImplementedOperationController implements HttpRequestHandler {
         .message(msg)
         .build();
 
-    response.status(HttpResponseStatus.NOT_IMPLEMENTED)
-        .write(xmlMapper.writeValueAsString(err));
+    ResponseUtils.writeBody(response.status(HttpResponseStatus.NOT_IMPLEMENTED), xmlMapper, err);
     ResponseUtils.addCommonHeaders(response);
   }
 
@@ -0,0 +1,95 @@
+package com.robothy.s3.rest.handler;
+
+import com.robothy.s3.core.model.answers.GetObjectAns;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.stream.ChunkedInput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads the content of a {@linkplain GetObjectAns} chunk by chunk into buffers of the channel
+ * allocator, so that objects of any size are sent with bounded memory. The answer is closed,
+ * and its content released, when the input is closed after the last chunk has been written or
+ * the write has failed.
+ */
+class ObjectContentInput implements ChunkedInput<ByteBuf> {
+
+  static final int CHUNK_SIZE = 64 * 1024;
+
+  private final GetObjectAns getObjectAns;
+
+  private final long length;
+
+  private ReadableByteChannel channel;
+
+  private long progress;
+
+  ObjectContentInput(GetObjectAns getObjectAns) {
+    this.getObjectAns = getObjectAns;
+    this.length = getObjectAns.getObjectContent().getSize();
+  }
+
+  @Override
+  public boolean isEndOfInput() {
+    return progress == length;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (channel != null) {
+        channel.close();
+      }
+    } finally {
+      getObjectAns.close();
+    }
+  }
+
+  @Deprecated
+  @Override
+  public ByteBuf readChunk(ChannelHandlerContext ctx) throws IOException {
+    return readChunk(ctx.alloc());
+  }
+
+  @Override
+  public ByteBuf readChunk(ByteBufAllocator allocator) throws IOException {
+    if (isEndOfInput()) {
+      return null;
+    }
+    if (channel == null) {
+      channel = getObjectAns.getObjectContent().getChannel();
+    }
+
+    int chunkSize = (int) Math.min(CHUNK_SIZE, length - progress);
+    ByteBuf chunk = allocator.buffer(chunkSize);
+    try {
+      ByteBuffer dst = chunk.nioBuffer(chunk.writerIndex(), chunkSize);
+      while (dst.hasRemaining()) {
+        if (channel.read(dst) < 0) {
+          throw new EOFException("The content ended " + (length - progress - dst.position()) + " bytes early.");
+        }
+      }
+      chunk.writerIndex(chunk.writerIndex() + chunkSize);
+      progress += chunkSize;
+      return chunk;
+    } catch (IOException | RuntimeException e) {
+      chunk.release();
+      throw e;
+    }
+  }
+
+  @Override
+  public long length() {
+    return length;
+  }
+
+  @Override
+  public long progress() {
+    return progress;
+  }
+
+}
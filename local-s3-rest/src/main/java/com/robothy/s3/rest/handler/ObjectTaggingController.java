@@ -44,12 +44,10 @@ class ObjectTaggingController {
     String key = RequestAssertions.assertObjectKeyProvided(request);
     String versionId = request.parameter("versionId").orElse(null);
     GetObjectTaggingAns tags = objectTaggingService.getObjectTagging(bucketName, key, versionId);
-    String body = xmlMapper.writeValueAsString(Tagging.fromArrays(tags.getTagging()));
-
     ResponseUtils.addCommonHeaders(response)
         .status(HttpResponseStatus.OK)
-        .putHeader(AmzHeaderNames.X_AMZ_VERSION_ID, tags.getVersionId())
-        .write(body);
+        .putHeader(AmzHeaderNames.X_AMZ_VERSION_ID, tags.getVersionId());
+    ResponseUtils.writeBody(response, xmlMapper, Tagging.fromArrays(tags.getTagging()));
   }
 
   void delete(HttpRequest request, HttpResponse response) throws Exception {
@@ -0,0 +1,109 @@
+package com.robothy.s3.rest.handler;
+
+import com.robothy.netty.http.HttpResponse;
+import com.robothy.s3.core.model.answers.ObjectContent;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.HttpChunkedInput;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.stream.ChunkedInput;
+import io.netty.handler.stream.ChunkedNioFile;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import lombok.SneakyThrows;
+
+/**
+ * Writes responses whose body is streamed instead of buffered, see {@linkplain #stream(HttpResponse, ChunkedInput)}
+ * and {@linkplain #stream(HttpResponse, List, Runnable)}.
+ *
+ * <p>The router buffers the whole body of an {@linkplain HttpResponse}, so a body cannot exceed
+ * 2 GB and is held in memory until it is written. This handler sits between the router message
+ * handler and the router response encoder. It writes a response with a streamed body as its head
+ * followed by the body, which a {@linkplain ChunkedWriteHandler} reads chunk by chunk as the
+ * channel becomes writable, or which the transport sends straight from the file.
+ */
+@ChannelHandler.Sharable
+public class StreamedResponseHandler extends ChannelOutboundHandlerAdapter {
+
+  /**
+   * Name of the handler in the channel pipeline.
+   */
+  public static final String NAME = "streamed-response-handler";
+
+  private static final Map<HttpResponse, Body> bodies = Collections.synchronizedMap(new WeakHashMap<>());
+
+  /**
+   * Stream {@code body} as the body of {@code response} instead of the buffered body. The
+   * {@code Content-Length} header must be set. The body is closed after it has been written,
+   * so this must be the last step of a request handler.
+   *
+   * @param response the response.
+   * @param body the response body.
+   */
+  static void stream(HttpResponse response, ChunkedInput<ByteBuf> body) {
+    bodies.put(response, (ctx, promise) -> ctx.write(new HttpChunkedInput(body), promise));
+  }
+
+  /**
+   * Send file {@code ranges} as the body of {@code response}, see {@linkplain #stream(HttpResponse, ChunkedInput)}.
+   * Without TLS in the pipeline, each range is a {@linkplain DefaultFileRegion}, which the transport
+   * sends without copying the file into the heap, e.g. with {@code sendfile}. TLS has to encrypt
+   * the bytes, so then the ranges are read chunk by chunk. The channels of the ranges are closed
+   * once written, and {@code onWritten} runs after the whole body has been written or the write has failed.
+   *
+   * @param response the response.
+   * @param ranges the response body.
+   * @param onWritten runs after the body has been written.
+   */
+  static void stream(HttpResponse response, List<ObjectContent.FileRange> ranges, Runnable onWritten) {
+    bodies.put(response, (ctx, promise) -> {
+      promise.addListener(future -> onWritten.run());
+      boolean zeroCopy = ctx.pipeline().get(SslHandler.class) == null;
+      for (ObjectContent.FileRange range : ranges) {
+        ctx.write(zeroCopy ? new DefaultFileRegion(range.channel(), range.position(), range.count()) : chunked(range));
+      }
+      ctx.write(LastHttpContent.EMPTY_LAST_CONTENT, promise);
+    });
+  }
+
+  @SneakyThrows
+  private static ChunkedNioFile chunked(ObjectContent.FileRange range) {
+    return new ChunkedNioFile(range.channel(), range.position(), range.count(), ObjectContentInput.CHUNK_SIZE);
+  }
+
+  @Override
+  public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+    Body body = msg instanceof HttpResponse ? bodies.remove(msg) : null;
+    if (body == null) {
+      ctx.write(msg, promise);
+      return;
+    }
+
+    HttpResponse response = (HttpResponse) msg;
+    DefaultHttpResponse head = new DefaultHttpResponse(HttpVersion.HTTP_1_1, response.getStatus());
+    response.getHeaders().forEach(head.headers()::set);
+    response.getBody().release();
+    ctx.write(head);
+    body.write(ctx, promise);
+  }
+
+  /**
+   * Writes a streamed body after the response head.
+   */
+  private interface Body {
+
+    void write(ChannelHandlerContext ctx, ChannelPromise promise);
+
+  }
+
+}
@@ -1,6 +1,5 @@
 package com.robothy.s3.rest.handler.s3vectors;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.robothy.netty.http.HttpRequest;
 import com.robothy.netty.http.HttpResponse;
@@ -9,8 +8,10 @@ import com.robothy.s3.core.exception.vectors.LocalS3VectorException;
 import com.robothy.s3.datatypes.s3vectors.response.S3VectorsError;
 import com.robothy.s3.rest.constants.AmzHeaderNames;
 import com.robothy.s3.rest.service.ServiceFactory;
+import com.robothy.s3.rest.utils.ResponseUtils;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import java.io.IOException;
 
 public class LocalS3VectorExceptionHandler implements ExceptionHandler<LocalS3VectorException> {
 
@@ -27,9 +28,8 @@ public class LocalS3VectorExceptionHandler implements ExceptionHandler<LocalS3Ve
         .putHeader(HttpHeaderNames.CONTENT_TYPE.toString(), "application/json");
     ObjectMapper objectMapper = this.serviceFactory.getInstance(ObjectMapper.class);
     try {
-      httpResponse.write(objectMapper.writer()
-          .writeValueAsString(S3VectorsError.builder().message(e.getMessage()).build()));
-    } catch (JsonProcessingException ex) {
+      ResponseUtils.writeBody(httpResponse, objectMapper, S3VectorsError.builder().message(e.getMessage()).build());
+    } catch (IOException ex) {
       httpResponse.status(HttpResponseStatus.INTERNAL_SERVER_ERROR);
       httpResponse.write("Internal Server Error");
     }
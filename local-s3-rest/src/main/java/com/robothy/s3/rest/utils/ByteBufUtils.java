@@ -1,9 +1,12 @@
 package com.robothy.s3.rest.utils;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * {@linkplain ByteBuf} related utils.
@@ -31,4 +34,30 @@ public class ByteBufUtils {
     return buffer;
   }
 
+  /**
+   * Wrap {@linkplain ByteBuffer}s into a {@linkplain ByteBuf} without copying them. {@code onRelease}
+   * runs when the returned buffer is deallocated, i.e. after a response that contains it has been
+   * written, so the wrapped memory is kept until then.
+   *
+   * @param onRelease releases the wrapped memory.
+   * @param buffers the buffers to wrap in order.
+   * @return a buffer that runs {@code onRelease} when its reference count drops to zero.
+   */
+  public static ByteBuf wrappedBuffer(Runnable onRelease, ByteBuffer... buffers) {
+    ByteBuf[] components = new ByteBuf[buffers.length];
+    for (int i = 0; i < buffers.length; i++) {
+      components[i] = Unpooled.wrappedBuffer(buffers[i]);
+    }
+    return new CompositeByteBuf(UnpooledByteBufAllocator.DEFAULT, false, Math.max(1, components.length), components) {
+      @Override
+      protected void deallocate() {
+        try {
+          super.deallocate();
+        } finally {
+          onRelease.run();
+        }
+      }
+    };
+  }
+
 }
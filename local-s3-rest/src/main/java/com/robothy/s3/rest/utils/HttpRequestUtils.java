@@ -100,7 +100,7 @@ public final class HttpRequestUtils {
     public static void sendJsonResponse(HttpResponse response, Object responseObject, 
                                         ObjectMapper objectMapper) throws Exception {
         response.putHeader(HttpHeaderNames.CONTENT_TYPE.toString(), HttpHeaderValues.APPLICATION_JSON);
-        response.write(objectMapper.writeValueAsString(responseObject));
+        ResponseUtils.writeBody(response, objectMapper, responseObject);
         ResponseUtils.addDateHeader(response);
         ResponseUtils.addAmzRequestId(response);
     }
@@ -1,11 +1,17 @@
 package com.robothy.s3.rest.utils;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.robothy.netty.http.HttpResponse;
 import com.robothy.s3.core.util.IdUtils;
 import com.robothy.s3.rest.constants.AmzHeaderNames;
 import com.robothy.s3.rest.constants.LocalS3Constants;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.handler.codec.http.HttpHeaderNames;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
@@ -78,4 +84,27 @@ public class ResponseUtils {
     return response;
   }
 
+  /**
+   * Serialize {@code body} as the response body and set 'Content-Length' in bytes.
+   * The body is encoded directly into a pooled buffer, which is released after the response is sent.
+   *
+   * @param response HTTP response to write the body to.
+   * @param mapper an {@linkplain com.fasterxml.jackson.dataformat.xml.XmlMapper} or a JSON {@linkplain ObjectMapper}.
+   * @param body the object to serialize.
+   * @return the response parameter.
+   * @throws IOException if {@code body} cannot be serialized.
+   */
+  public static HttpResponse writeBody(HttpResponse response, ObjectMapper mapper, Object body) throws IOException {
+    ByteBuf content = PooledByteBufAllocator.DEFAULT.buffer();
+    try (OutputStream out = new ByteBufOutputStream(content)) {
+      mapper.writeValue(out, body);
+    } catch (IOException | RuntimeException e) {
+      content.release();
+      throw e;
+    }
+    response.putHeader(HttpHeaderNames.CONTENT_LENGTH.toString(), content.readableBytes());
+    response.write(content);
+    return response;
+  }
+
 }
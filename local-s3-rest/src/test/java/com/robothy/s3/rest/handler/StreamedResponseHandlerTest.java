@@ -0,0 +1,138 @@
+package com.robothy.s3.rest.handler;
+
+import static org.junit.jupiter.api.Assertions.*;
+import com.robothy.netty.http.HttpResponse;
+import com.robothy.s3.core.model.answers.GetObjectAns;
+import com.robothy.s3.core.model.answers.ObjectContent;
+import com.robothy.s3.core.service.locks.EpochReclaimer;
+import com.robothy.s3.core.storage.Storage;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.FileRegion;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseEncoder;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+class StreamedResponseHandlerTest {
+
+  @Test
+  void streamObjectContent() {
+    Storage storage = Storage.createInMemory();
+    byte[] part1 = new byte[ObjectContentInput.CHUNK_SIZE + 7];
+    byte[] part2 = new byte[ObjectContentInput.CHUNK_SIZE * 2];
+    new Random(1).nextBytes(part1);
+    new Random(2).nextBytes(part2);
+    Long id1 = storage.put(part1);
+    Long id2 = storage.put(part2);
+
+    GetObjectAns getObjectAns;
+    try (EpochReclaimer.Guard ignored = EpochReclaimer.getInstance().enter()) {
+      getObjectAns = GetObjectAns.builder()
+          .objectContent(new ObjectContent(storage, part1.length - 1 + part2.length, new long[] {id1, id2}, new long[] {1, 0},
+              new long[] {part1.length - 1, part2.length}))
+          .hold(EpochReclaimer.getInstance().hold(id1, id2))
+          .build();
+    }
+    EpochReclaimer.getInstance().retire(id1, () -> storage.delete(id1));
+
+    HttpResponse response = new HttpResponse()
+        .status(HttpResponseStatus.OK)
+        .putHeader(HttpHeaderNames.CONTENT_LENGTH.toString(), getObjectAns.getObjectContent().getSize());
+    StreamedResponseHandler.stream(response, new ObjectContentInput(getObjectAns));
+    EmbeddedChannel channel = new EmbeddedChannel(new HttpResponseEncoder(), new ChunkedWriteHandler(),
+        new com.robothy.netty.codec.HttpResponseEncoder(), new StreamedResponseHandler());
+    assertTrue(channel.writeAndFlush(response).isSuccess());
+
+    ByteBuf written = Unpooled.buffer();
+    for (ByteBuf buf; (buf = channel.readOutbound()) != null; ) {
+      written.writeBytes(buf);
+      buf.release();
+    }
+    String text = written.toString(StandardCharsets.ISO_8859_1);
+    int headerEnd = text.indexOf("\r\n\r\n") + 4;
+    assertTrue(text.startsWith("HTTP/1.1 200 OK\r\n"));
+    assertTrue(text.contains("content-length: " + (part1.length - 1 + part2.length)));
+    assertEquals(part1.length - 1 + part2.length, written.readableBytes() - headerEnd);
+    assertEquals(Unpooled.wrappedBuffer(part1).slice(1, part1.length - 1), written.slice(headerEnd, part1.length - 1));
+    assertEquals(Unpooled.wrappedBuffer(part2), written.slice(headerEnd + part1.length - 1, part2.length));
+
+    // The content is released once it has been written.
+    assertFalse(storage.isExist(id1));
+    written.release();
+  }
+
+  @Test
+  void streamFileRegions() throws IOException {
+    Storage storage = Storage.createPersistent(Files.createTempDirectory("storage"));
+    byte[] part1 = new byte[ObjectContentInput.CHUNK_SIZE + 7];
+    byte[] part2 = new byte[100];
+    new Random(1).nextBytes(part1);
+    new Random(2).nextBytes(part2);
+    Long id1 = storage.put(part1);
+    Long id2 = storage.put(part2);
+    ObjectContent objectContent = new ObjectContent(storage, part1.length - 1 + part2.length,
+        new long[] {id1, id2}, new long[] {1, 0}, new long[] {ObjectContent.TO_END, part2.length});
+
+    AtomicBoolean written = new AtomicBoolean();
+    HttpResponse response = new HttpResponse()
+        .status(HttpResponseStatus.OK)
+        .putHeader(HttpHeaderNames.CONTENT_LENGTH.toString(), objectContent.getSize());
+    StreamedResponseHandler.stream(response, objectContent.openFileRanges().orElseThrow(), () -> written.set(true));
+    EmbeddedChannel channel = new EmbeddedChannel(new HttpResponseEncoder(), new ChunkedWriteHandler(),
+        new com.robothy.netty.codec.HttpResponseEncoder(), new StreamedResponseHandler());
+    assertTrue(channel.writeAndFlush(response).isSuccess());
+    assertTrue(written.get());
+
+    // The ranges are written as file regions, which the transport sends without copying them into the heap.
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    int regions = 0;
+    for (Object msg; (msg = channel.readOutbound()) != null; ) {
+      if (msg instanceof FileRegion) {
+        FileRegion region = (FileRegion) msg;
+        region.transferTo(Channels.newChannel(out), 0);
+        region.release();
+        regions++;
+      } else {
+        ByteBuf buf = (ByteBuf) msg;
+        out.write(ByteBufUtil.getBytes(buf));
+        buf.release();
+      }
+    }
+    assertEquals(2, regions);
+    byte[] bytes = out.toByteArray();
+    String text = new String(bytes, StandardCharsets.ISO_8859_1);
+    int headerEnd = text.indexOf("\r\n\r\n") + 4;
+    assertTrue(text.startsWith("HTTP/1.1 200 OK\r\n"));
+    assertEquals(part1.length - 1 + part2.length, bytes.length - headerEnd);
+    assertArrayEquals(Arrays.copyOfRange(part1, 1, part1.length), Arrays.copyOfRange(bytes, headerEnd, headerEnd + part1.length - 1));
+    assertArrayEquals(part2, Arrays.copyOfRange(bytes, headerEnd + part1.length - 1, bytes.length));
+  }
+
+  @Test
+  void writeBufferedResponse() {
+    EmbeddedChannel channel = new EmbeddedChannel(new HttpResponseEncoder(), new ChunkedWriteHandler(),
+        new com.robothy.netty.codec.HttpResponseEncoder(), new StreamedResponseHandler());
+    HttpResponse response = new HttpResponse().status(HttpResponseStatus.OK).write("Hello");
+    assertTrue(channel.writeAndFlush(response).isSuccess());
+    ByteBuf written = Unpooled.buffer();
+    for (ByteBuf buf; (buf = channel.readOutbound()) != null; ) {
+      written.writeBytes(buf);
+      buf.release();
+    }
+    assertTrue(written.toString(StandardCharsets.ISO_8859_1).endsWith("\r\n\r\nHello"));
+    written.release();
+  }
+
+}
@@ -0,0 +1,35 @@
+package com.robothy.s3.rest.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class ByteBufUtilsTest {
+
+  @Test
+  void wrappedBuffer() {
+    AtomicInteger released = new AtomicInteger();
+    ByteBuf content = ByteBufUtils.wrappedBuffer(released::incrementAndGet,
+        ByteBuffer.wrap("Hello".getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer(),
+        ByteBuffer.wrap(" World".getBytes(StandardCharsets.UTF_8)));
+    assertEquals("Hello World", content.toString(StandardCharsets.UTF_8));
+
+    // Released together with the response body that contains it.
+    CompositeByteBuf body = Unpooled.compositeBuffer();
+    body.addComponent(true, content);
+    assertEquals(0, released.get());
+    body.release();
+    assertEquals(1, released.get());
+
+    ByteBuf empty = ByteBufUtils.wrappedBuffer(released::incrementAndGet);
+    assertEquals(0, empty.readableBytes());
+    empty.release();
+    assertEquals(2, released.get());
+  }
+
+}
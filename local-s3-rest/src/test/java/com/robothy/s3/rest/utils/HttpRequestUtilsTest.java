@@ -9,7 +9,9 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
+import java.nio.charset.StandardCharsets;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
 class HttpRequestUtilsTest {
 
@@ -117,13 +119,14 @@ class HttpRequestUtilsTest {
     TestRequest testObject = TestRequest.builder().name("test").value(789).build();
     
     when(response.putHeader(anyString(), anyString())).thenReturn(response);
-    when(response.write(anyString())).thenReturn(response);
+    when(response.write(any(ByteBuf.class))).thenReturn(response);
     
     HttpRequestUtils.sendJsonResponse(response, testObject, objectMapper);
     
     verify(response).putHeader(HttpHeaderNames.CONTENT_TYPE.toString(), HttpHeaderValues.APPLICATION_JSON);
-    verify(response).write(contains("\"name\":\"test\""));
-    verify(response).write(contains("\"value\":789"));
+    String body = writtenBody(response);
+    assertTrue(body.contains("\"name\":\"test\""));
+    assertTrue(body.contains("\"value\":789"));
   }
 
   @Test
@@ -133,7 +136,7 @@ class HttpRequestUtilsTest {
     TestRequest testObject = new TestRequest();
     
     when(response.putHeader(anyString(), anyString())).thenReturn(response);
-    when(response.write(anyString())).thenReturn(response);
+    when(response.write(any(ByteBuf.class))).thenReturn(response);
     
     HttpRequestUtils.sendJsonResponse(response, testObject, objectMapper);
     
@@ -192,12 +195,13 @@ class HttpRequestUtilsTest {
     ObjectMapper objectMapper = new ObjectMapper();
     
     when(response.putHeader(anyString(), anyString())).thenReturn(response);
-    when(response.write(anyString())).thenReturn(response);
+    when(response.write(any(ByteBuf.class))).thenReturn(response);
     
     HttpRequestUtils.sendJsonResponse(response, null, objectMapper);
     
     verify(response).putHeader(HttpHeaderNames.CONTENT_TYPE.toString(), HttpHeaderValues.APPLICATION_JSON);
-    verify(response).write("null");
+    verify(response).putHeader(HttpHeaderNames.CONTENT_LENGTH.toString(), 4);
+    assertEquals("null", writtenBody(response));
   }
 
   @Test
@@ -213,6 +217,16 @@ class HttpRequestUtilsTest {
     assertEquals(10000, result.length);
   }
 
+  private static String writtenBody(HttpResponse response) {
+    ArgumentCaptor<ByteBuf> body = ArgumentCaptor.forClass(ByteBuf.class);
+    verify(response).write(body.capture());
+    try {
+      return body.getValue().toString(StandardCharsets.UTF_8);
+    } finally {
+      body.getValue().release();
+    }
+  }
+
   // Test helper class
   public static class TestRequest {
     private String name;
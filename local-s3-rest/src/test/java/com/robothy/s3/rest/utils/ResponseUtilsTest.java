@@ -1,8 +1,16 @@
 package com.robothy.s3.rest.utils;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.robothy.netty.http.HttpResponse;
+import com.robothy.s3.rest.model.response.CommonPrefix;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.handler.codec.http.HttpHeaderNames;
 import java.time.format.DateTimeFormatter;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
 class ResponseUtilsTest {
 
@@ -13,4 +21,23 @@ class ResponseUtilsTest {
         ResponseUtils.RFC_1123_DATE_TIME.format(DateTimeFormatter.RFC_1123_DATE_TIME.parse(date)));
   }
 
-}
\ No newline at end of file
+  @Test
+  void writeBody() throws Exception {
+    XmlMapper xmlMapper = new XmlMapper();
+    CommonPrefix commonPrefix = new CommonPrefix("\u4e2d\u6587/");
+    byte[] expected = xmlMapper.writeValueAsBytes(commonPrefix);
+    assertNotEquals(expected.length, xmlMapper.writeValueAsString(commonPrefix).length());
+
+    HttpResponse response = mock(HttpResponse.class);
+    assertSame(response, ResponseUtils.writeBody(response, xmlMapper, commonPrefix));
+    ArgumentCaptor<ByteBuf> body = ArgumentCaptor.forClass(ByteBuf.class);
+    verify(response).write(body.capture());
+    verify(response).putHeader(HttpHeaderNames.CONTENT_LENGTH.toString(), expected.length);
+    try {
+      assertArrayEquals(expected, ByteBufUtil.getBytes(body.getValue()));
+    } finally {
+      body.getValue().release();
+    }
+  }
+
+}